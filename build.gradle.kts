@@ -9,6 +9,7 @@ plugins {
 
     id("com.github.spotbugs") version "3.0.0"
     id("de.aaschmid.cpd") version "3.1"
+    id("me.champeau.gradle.jmh") version "0.5.0"
 
     `maven-publish`
     signing
@@ -38,11 +39,31 @@ repositories {
     mavenCentral()
 }
 
+// JDK 21+ compiling and testing the Java 21 variants of classes, e.g. `-Pjava21Home=/usr/lib/jvm/java-21`; both are skipped without it
+val java21Home: String? = (findProperty("java21Home") ?: System.getenv("JAVA21_HOME"))?.toString()
+// GraalVM building the command line client as native image, e.g. `-PgraalVmHome=/opt/graalvm-jdk-21`; required by native tasks only
+val graalVmHome: String? = (findProperty("graalVmHome") ?: System.getenv("GRAALVM_HOME"))?.toString()
+
 sourceSets {
+    // Java 11+ variants of classes packaged into the multi-release jar, e.g. for JDK Flight Recorder events
+    register("java11") {
+        java.setSrcDirs(listOf("src/main/java11"))
+        compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+    }
+    // Java 21+ variants of classes packaged into the multi-release jar, e.g. for running blocking work on virtual threads
+    register("java21") {
+        java.setSrcDirs(listOf("src/main/java21"))
+        compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+    }
     register("integTest") {
         compileClasspath += tasks.jar.get().outputs.files
         runtimeClasspath += tasks.jar.get().outputs.files
     }
+    named("jmh") {
+        // reuse test fixtures like local stand-in server and test PKI
+        compileClasspath += sourceSets["test"].output
+        runtimeClasspath += sourceSets["test"].output
+    }
 }
 
 dependencies {
@@ -54,7 +75,12 @@ dependencies {
         "integTestCompileOnly"(it)
     }
 
-    implementation("org.bouncycastle:bcpkix-jdk15on:1.64")
+    // optional fallback for private keys the built-in conversion cannot handle
+    "org.bouncycastle:bcpkix-jdk15on:1.64".let {
+        compileOnly(it)
+        testImplementation(it)
+        "jmhImplementation"(it)
+    }
 
     listOf("org.junit.jupiter:junit-jupiter:5.5.2", "org.assertj:assertj-core:3.14.0").forEach {
         testImplementation(it)
@@ -68,6 +94,20 @@ tasks {
         options.encoding = "UTF-8"
         options.compilerArgs.addAll(listOf("-Xlint:all", "-Werror", "-Xlint:-processing"))
     }
+    named<JavaCompile>("compileJava11Java") {
+        sourceCompatibility = JavaVersion.VERSION_11.toString()
+        targetCompatibility = JavaVersion.VERSION_11.toString()
+    }
+    named<JavaCompile>("compileJava21Java") {
+        onlyIf { java21Home != null }
+        sourceCompatibility = "21"
+        targetCompatibility = "21"
+        options.isFork = true
+        options.forkOptions.javaHome = java21Home?.let { file(it) }
+    }
+    named<JavaCompile>("jmhCompileGeneratedClasses") {
+        options.compilerArgs.remove("-Werror") // generated benchmark code is not lint clean
+    }
 
     withType<Jar> {
         from(project.rootDir) {
@@ -97,6 +137,8 @@ tasks {
                     "Implementation-Vendor" to vendor,
 
                     "Automatic-Module-Name" to "de.aaschmid.taskwarrior.client",
+                    "Main-Class" to "de.aaschmid.taskwarrior.cli.TaskwarriorCli",
+                    "Multi-Release" to "true",
 
                     "Issue-Tracker" to "https://github.com/aaschmid/taskwarrior-java-client/issues",
                     "Documentation-URL" to "https://github.com/aaschmid/taskwarrior-java-client",
@@ -108,15 +150,74 @@ tasks {
 
     shadowJar {
         archiveClassifier.set("")
+        from(sourceSets["java11"].output) {
+            into("META-INF/versions/11")
+        }
+        from(sourceSets["java21"].output) {
+            into("META-INF/versions/21")
+        }
         mergeServiceFiles()
         minimize()
-        relocate("org.bouncycastle", "de.aaschmid.taskwarrior.thirdparty.org.bouncycastle")
     }
     assemble {
         dependsOn(shadowJar)
     }
 
+    val nativeImage = register<Exec>("nativeImage") {
+        description = "Builds the command line client as GraalVM native image 'build/native/taskwarrior-sync'."
+        group = "build"
+        dependsOn(shadowJar)
+        val outputDir = file("$buildDir/native")
+        inputs.file(shadowJar.get().archiveFile)
+        outputs.file(File(outputDir, "taskwarrior-sync"))
+
+        doFirst {
+            if (graalVmHome == null) {
+                throw GradleException("Native image requires GraalVM, set property 'graalVmHome' or environment variable 'GRAALVM_HOME'.")
+            }
+            outputDir.mkdirs()
+        }
+        workingDir = outputDir
+        executable = "$graalVmHome/bin/native-image"
+        // JDK Flight Recorder events of the Java 11+ variant of ClientEvents require JFR support in the image
+        args("--no-fallback", "--enable-monitoring=jfr", "-jar", shadowJar.get().archiveFile.get().asFile, "-o", "taskwarrior-sync")
+    }
+
+    // e.g. `./gradlew compareStartup -PgraalVmHome=... -PtaskwarriorProperties=/path/to/taskwarrior.properties`
+    register("compareStartup") {
+        description = "Compares the wall-clock time of a statistics request via 'java -jar' of GraalVM and via the native image."
+        group = "verification"
+        dependsOn(nativeImage)
+
+        doLast {
+            val properties = findProperty("taskwarriorProperties")?.toString()
+                    ?: throw GradleException("Set property 'taskwarriorProperties' to the properties file of a reachable taskd account.")
+            val runs = 5
+            val output = File(temporaryDir, "output.txt")
+
+            fun medianMillis(vararg command: String): Long {
+                val millis = (1..runs).map {
+                    val start = System.nanoTime()
+                    val process = ProcessBuilder(*command, "statistics", properties)
+                            .redirectErrorStream(true)
+                            .redirectOutput(output)
+                            .start()
+                    if (process.waitFor() != 0) {
+                        throw GradleException("'${command.joinToString(" ")}' failed: ${output.readText()}")
+                    }
+                    (System.nanoTime() - start) / 1_000_000
+                }
+                return millis.sorted()[runs / 2]
+            }
+
+            val jvm = medianMillis("$graalVmHome/bin/java", "-jar", shadowJar.get().archiveFile.get().asFile.path)
+            val native = medianMillis(File(buildDir, "native/taskwarrior-sync").path)
+            logger.lifecycle("statistics request, median of $runs runs: JVM $jvm ms, native image $native ms")
+        }
+    }
+
     test {
+        classpath = sourceSets["java11"].output + classpath // test Java 11+ variants of classes like the multi-release jar would
         useJUnitPlatform()
     }
 
@@ -128,8 +229,23 @@ tasks {
     }
     check { dependsOn(integTest) }
 
+    // runs the unit tests like on the multi-release jar with Java 21, i.e. on virtual threads with only a few carrier threads; its
+    // scalability test holds 10,000 syncs open concurrently and therefore requires an open file limit (`ulimit -n`) above 21,000
+    val java21Test = register<Test>("java21Test") {
+        onlyIf { java21Home != null }
+        java21Home?.let { executable = "$it/bin/java" }
+        testClassesDirs = sourceSets["test"].output.classesDirs
+        classpath = sourceSets["java21"].output + sourceSets["java11"].output + sourceSets["test"].runtimeClasspath
+        systemProperty("jdk.virtualThreadScheduler.parallelism", "4")
+        systemProperty("taskwarrior.test.virtualThreads", "true") // fails instead of skipping tests requiring virtual threads
+        systemProperty("net.bytebuddy.experimental", "true") // Mockito's Byte Buddy does not know Java 21 yet
+        extensions.configure<JacocoTaskExtension> { isEnabled = false } // JaCoCo 0.8.5 does not support Java 21 class files
+        useJUnitPlatform()
+    }
+    check { dependsOn(java21Test) }
+
     val jacocoMerge = register("jacocoMerge", JacocoMerge::class) {
-        executionData(withType(Test::class).toSet())
+        executionData(test.get(), integTest.get())
         dependsOn(test, integTest)
     }
 
@@ -146,6 +262,9 @@ tasks {
         minimumTokenCount = 25
     }
 
+    named<SpotBugsTask>("spotbugsJava21") {
+        enabled = false // SpotBugs 3.1.12 cannot read Java 21 class files
+    }
     withType<SpotBugsTask> {
         reports {
             html.isEnabled = true
@@ -0,0 +1,89 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to create the first {@link SSLContext} in a fresh JVM, i.e. including class loading, with and without
+ * {@link KeyStoreFileCache}. The first fork with cache enabled populates the cache file and hence measures a cache miss.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+@State(Scope.Benchmark)
+public class KeyStoreColdStartBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean keyStoreCache;
+
+    private TaskwarriorSslKeys sslKeys;
+    private Optional<Path> keyStoreCacheDirectory;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "taskwarrior-keystore-cold-start-benchmark");
+        Files.createDirectories(directory);
+
+        File caCertFile = copyPkiFile("ca.cert.pem", directory);
+        File privateKeyCertFile = copyPkiFile("client.cert.pem", directory);
+        File privateKeyFile = copyPkiFile("client.key.pem", directory);
+        sslKeys = new TaskwarriorSslKeys() {
+            @Override
+            public File getCaCertFile() {
+                return caCertFile;
+            }
+
+            @Override
+            public File getPrivateKeyCertFile() {
+                return privateKeyCertFile;
+            }
+
+            @Override
+            public File getPrivateKeyFile() {
+                return privateKeyFile;
+            }
+        };
+        keyStoreCacheDirectory = keyStoreCache ? Optional.of(directory.resolve("cache")) : Optional.empty();
+    }
+
+    @Benchmark
+    public SSLContext createSslContext() {
+        return SslContextFactory.createSslContext(sslKeys, keyStoreCacheDirectory);
+    }
+
+    /** Copies only if missing to keep last modified time and hence a populated cache valid for all forks. */
+    private static File copyPkiFile(String name, Path directory) throws IOException {
+        Path result = directory.resolve(name);
+        if (!Files.exists(result)) {
+            try (InputStream in = KeyStoreColdStartBenchmark.class.getResourceAsStream("/pki/" + name)) {
+                if (in == null) {
+                    throw new IOException(String.format("PKI file '%s' not found on classpath.", name));
+                }
+                Files.copy(in, result, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return result.toFile();
+    }
+}
@@ -0,0 +1,62 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Compares decoding a PKCS#1 PEM private key using the built-in {@link Asn1Der} conversion with the BouncyCastle conversion. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrivateKeyDecodingBenchmark {
+
+    private byte[] pem;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = PrivateKeyDecodingBenchmark.class.getResourceAsStream("/pki/client.key.pem")) {
+            if (in == null) {
+                throw new IOException("PKI file 'client.key.pem' not found on classpath.");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            pem = out.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public PrivateKey builtIn() throws Exception {
+        byte[] pkcs1 = PemObject.parse(pem).getContent();
+        byte[] pkcs8 = Asn1Der.sequence(
+                Asn1Der.integer(0),
+                Asn1Der.sequence(Asn1Der.objectIdentifier("1.2.840.113549.1.1.1"), Asn1Der.nullValue()),
+                Asn1Der.octetString(pkcs1));
+        return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+    }
+
+    @Benchmark
+    public PrivateKey bouncyCastle() throws Exception {
+        return BouncyCastleKeyConverter.createPrivateKeyForPkcs1(PemObject.parse(pem).getContent());
+    }
+}
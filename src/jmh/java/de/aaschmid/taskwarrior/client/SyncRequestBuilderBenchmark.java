@@ -0,0 +1,78 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static de.aaschmid.taskwarrior.client.SyncRequestBuilder.syncRequestBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorAuthentication.taskwarriorAuthentication;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+
+/**
+ * Compares encoding a sync upload by joining all task lines into a payload string before serializing it with encoding it by a reused
+ * {@link SyncRequestBuilder}; run with {@code -prof gc} to compare allocations as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SyncRequestBuilderBenchmark {
+
+    @Param({ "10", "10000" })
+    public int tasks;
+
+    private TaskwarriorRequestHeader header;
+    private String syncKey;
+    private List<String> lines;
+    private SyncRequestBuilder builder;
+
+    @Setup
+    public void setUp() {
+        header = taskwarriorRequestHeaderBuilder()
+                .authentication(taskwarriorAuthentication(UUID.randomUUID(), "Public", "user"))
+                .type(MessageType.SYNC)
+                .client("benchmark")
+                .build();
+        syncKey = UUID.randomUUID().toString();
+        lines = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            lines.add(String.format("{\"uuid\":\"%s\",\"description\":\"task %d\",\"status\":\"pending\"}", UUID.randomUUID(), i));
+        }
+        builder = syncRequestBuilder(header);
+    }
+
+    @Benchmark
+    public byte[] joinedPayload() {
+        List<String> payload = new ArrayList<>(lines.size() + 1);
+        payload.add(syncKey);
+        payload.addAll(lines);
+        return TaskwarriorMessageFactory.serialize(taskwarriorMessage(header.toMap(), String.join("\n", payload)));
+    }
+
+    @Benchmark
+    public byte[] reusedBuilder() {
+        builder.reset(header).syncKey(syncKey);
+        for (String line : lines) {
+            builder.task(line);
+        }
+        return TaskwarriorMessageFactory.serialize(builder.build());
+    }
+}
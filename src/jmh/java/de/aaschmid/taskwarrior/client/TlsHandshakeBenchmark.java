@@ -0,0 +1,67 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static java.util.Collections.singletonMap;
+
+/**
+ * Measures full mutual TLS handshakes, i.e. without session resumption, against {@link LocalTaskdServer} for different client keys. As
+ * the server runs in the same process, results contain the cost of both sides, e.g. verifying the client's signature.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TlsHandshakeBenchmark {
+
+    /** Name of client certificate and key in test PKI. */
+    @Param({ "client", "client-rsa4096", "client-ec" })
+    public String client;
+
+    private LocalTaskdServer server;
+    private TaskwarriorConfiguration config;
+    private SSLContext sslContext;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")));
+        config = server.configuration("user", client);
+        sslContext = SslContextFactory.createSslContext(config);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public SSLSession handshake() throws IOException {
+        try (SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket(config.getServerHost(), config.getServerPort())) {
+            socket.startHandshake();
+            SSLSession result = socket.getSession();
+            result.invalidate(); // prevent resumption by next handshake
+            return result;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile.taskwarriorTlsProfileBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+
+/**
+ * Benchmark matrix of {@link TaskwarriorTlsProfile}s: cost of a request with a full handshake (session resumption disabled) and
+ * throughput of a request uploading a large payload (session resumption enabled) against {@link LocalTaskdServer}. ChaCha20 requires
+ * Java 12 or later.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TlsProfileBenchmark {
+
+    @Param({ "jvm-default", "tls12-aes128gcm", "tls13-aes128gcm", "tls13-aes256gcm", "tls13-chacha20" })
+    public String profile;
+
+    @Param({ "1048576" })
+    public int payloadBytes;
+
+    private LocalTaskdServer server;
+    private TaskwarriorClient fullHandshakeClient;
+    private TaskwarriorClient resumingClient;
+    private TaskwarriorMessage statistics;
+    private TaskwarriorMessage upload;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")));
+
+        TaskwarriorTlsProfile tlsProfile = tlsProfile(profile);
+        TaskwarriorConfiguration fullHandshakeConfig = server.configuration("user", "client",
+                taskwarriorTlsProfileBuilder().from(tlsProfile).sessionResumption(false).build());
+        fullHandshakeClient = new TaskwarriorClient(fullHandshakeConfig);
+        resumingClient = new TaskwarriorClient(server.configuration("user", "client", tlsProfile));
+
+        statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                .authentication(fullHandshakeConfig)
+                .type(MessageType.STATISTICS)
+                .client("benchmark")
+                .build()
+                .toMap());
+        char[] payload = new char[payloadBytes];
+        Arrays.fill(payload, 'x');
+        upload = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                .authentication(fullHandshakeConfig)
+                .type(MessageType.SYNC)
+                .client("benchmark")
+                .build()
+                .toMap(), new String(payload));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Benchmark
+    public TaskwarriorMessage fullHandshake() {
+        return fullHandshakeClient.sendAndReceive(statistics);
+    }
+
+    @Benchmark
+    public TaskwarriorMessage bulkUpload() {
+        return resumingClient.sendAndReceive(upload);
+    }
+
+    private static TaskwarriorTlsProfile tlsProfile(String name) {
+        switch (name) {
+            case "jvm-default":
+                return TaskwarriorTlsProfile.defaultTaskwarriorTlsProfile();
+            case "tls12-aes128gcm":
+                return taskwarriorTlsProfileBuilder()
+                        .addProtocol("TLSv1.2")
+                        .addCipherSuite("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256")
+                        .build();
+            case "tls13-aes128gcm":
+                return taskwarriorTlsProfileBuilder().addProtocol("TLSv1.3").addCipherSuite("TLS_AES_128_GCM_SHA256").build();
+            case "tls13-aes256gcm":
+                return taskwarriorTlsProfileBuilder().addProtocol("TLSv1.3").addCipherSuite("TLS_AES_256_GCM_SHA384").build();
+            case "tls13-chacha20":
+                return taskwarriorTlsProfileBuilder().addProtocol("TLSv1.3").addCipherSuite("TLS_CHACHA20_POLY1305_SHA256").build();
+            default:
+                throw new IllegalArgumentException(String.format("Unknown TLS profile '%s'.", name));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static de.aaschmid.taskwarrior.client.WireCaptureOptions.defaultWireCaptureOptions;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+
+/**
+ * Measures the overhead of {@link TaskwarriorWireCapture} on the hot path of an exchange, i.e. serializing the request and deserializing
+ * the response as done by {@link TaskwarriorClient}, with capture disabled and enabled; without network and TLS which would hide it.
+ * Multiple threads share one capture to include contention on the ring buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class WireCaptureBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean capture;
+
+    /** Size of request and response payload in bytes. */
+    @Param({ "100", "100000" })
+    public int payloadSize;
+
+    private TaskwarriorWireCapture wireCapture;
+    private TaskwarriorMessage request;
+    private byte[] response;
+
+    @Setup
+    public void setUp() {
+        wireCapture = capture ? new TaskwarriorWireCapture(defaultWireCaptureOptions()) : null;
+
+        char[] payload = new char[payloadSize];
+        Arrays.fill(payload, 'x');
+        Map<String, String> headers = new HashMap<>();
+        headers.put("type", "sync");
+        headers.put("org", "Public");
+        headers.put("user", "user");
+        headers.put("key", "a1b2c3d4-0000-0000-0000-000000000000");
+        request = taskwarriorMessage(headers, new String(payload));
+        response = TaskwarriorMessageFactory.serialize(taskwarriorMessage(headers, new String(payload)));
+    }
+
+    @Benchmark
+    public void exchange(Blackhole blackhole) {
+        byte[] bytes = TaskwarriorMessageFactory.serialize(request);
+        if (wireCapture != null) {
+            wireCapture.sent(request, bytes);
+        }
+        blackhole.consume(bytes);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(response);
+        blackhole.consume(wireCapture == null
+                ? TaskwarriorMessageFactory.deserialize(in)
+                : TaskwarriorMessageFactory.deserialize(in, null, null, null, data -> wireCapture.received(request, data)));
+    }
+}
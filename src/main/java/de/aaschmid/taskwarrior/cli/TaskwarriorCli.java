@@ -0,0 +1,110 @@
+package de.aaschmid.taskwarrior.cli;
+
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+import de.aaschmid.taskwarrior.TaskwarriorException;
+import de.aaschmid.taskwarrior.client.TaskwarriorClient;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+
+import static de.aaschmid.taskwarrior.config.TaskwarriorConfiguration.taskwarriorPropertiesConfiguration;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+
+/**
+ * Command line entry point sending a single request for short-lived jobs, e.g. run as GraalVM native image built by the
+ * {@code nativeImage} task to save JVM startup and warm-up:
+ * <pre>
+ * taskwarrior-sync statistics &lt;properties-file&gt;
+ * taskwarrior-sync sync &lt;properties-file&gt; [&lt;sync-key&gt;]
+ * </pre>
+ * The properties file is read by {@link TaskwarriorConfiguration#taskwarriorPropertiesConfiguration(java.net.URL)}. For
+ * {@code statistics} the response headers are printed as {@code key: value} lines, for {@code sync} the payload, i.e. the tasks modified
+ * at the server followed by the sync key for the next sync as last line. Exits with {@code 0} on success, {@code 1} if the request
+ * failed or the server responded with an error code and {@code 2} on invalid arguments.
+ */
+public final class TaskwarriorCli {
+
+    static final int EXIT_SUCCESS = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String HEADER_KEY_CODE = "code";
+    private static final String HEADER_KEY_STATUS = "status";
+
+    private static final String USAGE = "Usage: taskwarrior-sync statistics <properties-file>%n"
+            + "       taskwarrior-sync sync <properties-file> [<sync-key>]%n";
+
+    private TaskwarriorCli() {
+        // static methods only
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        MessageType type = parseType(args);
+        if (type == null) {
+            err.printf(USAGE);
+            return EXIT_USAGE;
+        }
+
+        Path propertiesFile;
+        try {
+            propertiesFile = Paths.get(args[1]);
+        } catch (InvalidPathException e) {
+            err.println(e.getMessage());
+            err.printf(USAGE);
+            return EXIT_USAGE;
+        }
+
+        TaskwarriorMessage response;
+        try {
+            TaskwarriorConfiguration config = taskwarriorPropertiesConfiguration(propertiesFile.toUri().toURL());
+            TaskwarriorRequestHeader header = taskwarriorRequestHeaderBuilder().authentication(config).type(type).build();
+            try (TaskwarriorClient client = new TaskwarriorClient(config)) {
+                response = client.sendAndReceive(args.length > 2
+                        ? taskwarriorMessage(header.toMap(), args[2])
+                        : taskwarriorMessage(header.toMap()));
+            }
+        } catch (MalformedURLException | TaskwarriorException e) {
+            err.println(e.getMessage());
+            return EXIT_FAILURE;
+        }
+
+        String code = response.getHeaders().get(HEADER_KEY_CODE);
+        if (code == null || !code.startsWith("2")) {
+            err.printf("Request failed with code '%s': %s%n", code, response.getHeaders().get(HEADER_KEY_STATUS));
+            return EXIT_FAILURE;
+        }
+        if (type == MessageType.STATISTICS) {
+            for (Map.Entry<String, String> header : new TreeMap<>(response.getHeaders()).entrySet()) {
+                out.println(header.getKey() + ": " + header.getValue());
+            }
+        } else {
+            response.getPayload().ifPresent(out::println);
+        }
+        out.flush();
+        return EXIT_SUCCESS;
+    }
+
+    /** @return requested type or {@code null} if the arguments are invalid */
+    private static MessageType parseType(String[] args) {
+        if (args.length == 2 && "statistics".equals(args[0])) {
+            return MessageType.STATISTICS;
+        }
+        if ((args.length == 2 || args.length == 3) && "sync".equals(args[0])) {
+            return MessageType.SYNC;
+        }
+        return null;
+    }
+}
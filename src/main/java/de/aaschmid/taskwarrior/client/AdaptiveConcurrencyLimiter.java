@@ -0,0 +1,234 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Limits the number of concurrent requests to a taskwarrior server (= taskd) and learns the sustainable limit from observed
+ * latencies using additive increase / multiplicative decrease (AIMD):
+ * <ul>
+ * <li>The no-load latency is learned as minimum latency within a window of {@link ConcurrencyLimitOptions#getLatencyWindow()}
+ * samples.</li>
+ * <li>A request slower than no-load latency times {@link ConcurrencyLimitOptions#getLatencyTolerance()} or failing with a
+ * {@link TaskwarriorClientException} other than a {@link TaskwarriorClientCancelledException} signals congestion and multiplies the
+ * limit by {@link ConcurrencyLimitOptions#getBackoffRatio()}.
+ * </li>
+ * <li>Any other successful request increases the limit by one if at least half of the limit is in use.</li>
+ * </ul>
+ * Requests exceeding the limit wait up to {@link ConcurrencyLimitOptions#getMaxQueueWait()} for a free slot and are otherwise rejected
+ * with a {@link TaskwarriorClientLimitExceededException}, unless their request deadline expires or they are cancelled before.
+ * <p>
+ * Share one instance between all {@link TaskwarriorClient}s talking to the same server, see
+ * {@link TaskwarriorClientOptions#getConcurrencyLimiter()}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitOptions options;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder congested = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long noLoadLatencyNanos = Long.MAX_VALUE;
+    private long windowMinLatencyNanos = Long.MAX_VALUE;
+    private int windowSamples;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitOptions options) {
+        this.options = requireNonNull(options, "'options' must not be null.");
+        this.limit = options.getInitialLimit();
+    }
+
+    /** @return current limit of concurrent requests */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return number of requests waiting for a free slot */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return learned latency of a request to a not congested server or {@link Optional#empty()} if not learned yet */
+    public Optional<Duration> getNoLoadLatency() {
+        lock.lock();
+        try {
+            return noLoadLatencyNanos == Long.MAX_VALUE ? Optional.empty() : Optional.of(Duration.ofNanos(noLoadLatencyNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** @return number of requests which signaled congestion */
+    public long getCongestedCount() {
+        return congested.sum();
+    }
+
+    /** @param deadline of the given request; failures caused by it do not signal congestion */
+    <T> T execute(RequestDeadline deadline, Supplier<T> request) {
+        acquire(deadline);
+        long start = System.nanoTime();
+        boolean releasing = false; // by onSuccess or onCongestion
+        try {
+            T result = request.get();
+            releasing = true;
+            onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (TaskwarriorClientCancelledException | TaskwarriorClientLimitExceededException e) {
+            throw e; // aborted by client or rejected by a local limit, not related to server load
+        } catch (TaskwarriorClientException e) {
+            if (!deadline.isCancelled() && !deadline.isExpired()) { // otherwise caused by the caller's deadline
+                releasing = true;
+                onCongestion();
+            }
+            throw e;
+        } finally {
+            if (!releasing) {
+                release(); // not related to server load, also for errors
+            }
+        }
+    }
+
+    private void acquire(RequestDeadline deadline) {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return;
+            }
+
+            long remainingNanos = Math.min(options.getMaxQueueWait().toNanos(), deadline.getRemainingNanos());
+            Runnable wakeUp = this::signalReleased; // e.g. if cancelled while waiting
+            deadline.addAbortListener(wakeUp);
+            queued++;
+            try {
+                while (inFlight >= (int) limit) {
+                    deadline.checkNotAborted();
+                    if (remainingNanos <= 0) {
+                        rejected.increment();
+                        throw new TaskwarriorClientLimitExceededException("Concurrency limit of %d in-flight requests reached.", (int) limit);
+                    }
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                throw new TaskwarriorClientLimitExceededException("Interrupted while waiting for one of %d in-flight requests.", (int) limit);
+            } finally {
+                queued--;
+                deadline.removeAbortListener(wakeUp);
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalReleased() {
+        lock.lock();
+        try {
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            windowMinLatencyNanos = Math.min(windowMinLatencyNanos, latencyNanos);
+            noLoadLatencyNanos = Math.min(noLoadLatencyNanos, latencyNanos);
+            if (++windowSamples >= options.getLatencyWindow()) {
+                noLoadLatencyNanos = windowMinLatencyNanos; // allow to learn an increased no-load latency
+                windowMinLatencyNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+
+            if (latencyNanos > noLoadLatencyNanos * options.getLatencyTolerance()) {
+                decreaseLimit();
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(options.getMaxLimit(), limit + 1);
+            }
+            releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onCongestion() {
+        lock.lock();
+        try {
+            decreaseLimit();
+            releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            releaseLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decreaseLimit() {
+        congested.increment();
+        limit = Math.max(options.getMinLimit(), limit * options.getBackoffRatio());
+    }
+
+    private void releaseLocked() {
+        inFlight--;
+        released.signalAll();
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format(
+                    "AdaptiveConcurrencyLimiter{limit=%d, inFlight=%d, queued=%d, noLoadLatency=%dus}",
+                    (int) limit,
+                    inFlight,
+                    queued,
+                    noLoadLatencyNanos == Long.MAX_VALUE ? -1 : TimeUnit.NANOSECONDS.toMicros(noLoadLatencyNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/** Minimal ASN.1 DER encoder and decoder sufficient to (re-)wrap private keys, see X.690. */
+final class Asn1Der {
+
+    static final int TAG_INTEGER = 0x02;
+    static final int TAG_BIT_STRING = 0x03;
+    static final int TAG_OCTET_STRING = 0x04;
+    static final int TAG_NULL = 0x05;
+    static final int TAG_OBJECT_IDENTIFIER = 0x06;
+    static final int TAG_SEQUENCE = 0x30;
+
+    private static final int CONSTRUCTED = 0x20;
+
+    private Asn1Der() {
+        // utility class
+    }
+
+    /** Encodes the concatenated contents as single element with the given tag. */
+    static byte[] encode(int tag, byte[]... contents) {
+        int length = Arrays.stream(contents).mapToInt(c -> c.length).sum();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(length + 6);
+        result.write(tag);
+        if (length < 0x80) {
+            result.write(length);
+        } else {
+            int lengthBytes = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            result.write(0x80 | lengthBytes);
+            for (int i = lengthBytes - 1; i >= 0; i--) {
+                result.write(length >>> (8 * i));
+            }
+        }
+        for (byte[] content : contents) {
+            result.write(content, 0, content.length);
+        }
+        return result.toByteArray();
+    }
+
+    static byte[] integer(long value) {
+        return encode(TAG_INTEGER, BigInteger.valueOf(value).toByteArray());
+    }
+
+    static byte[] nullValue() {
+        return encode(TAG_NULL);
+    }
+
+    static byte[] octetString(byte[] content) {
+        return encode(TAG_OCTET_STRING, content);
+    }
+
+    static byte[] sequence(byte[]... elements) {
+        return encode(TAG_SEQUENCE, elements);
+    }
+
+    /** @param oid object identifier in dotted notation, e.g. {@code 1.2.840.113549.1.1.1} */
+    static byte[] objectIdentifier(String oid) {
+        String[] arcs = requireNonNull(oid, "'oid' must not be null.").split("\\.");
+        if (arcs.length < 2) {
+            throw new TaskwarriorKeyStoreException("Object identifier '%s' must have at least two arcs.", oid);
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try {
+            writeBase128(content, new BigInteger(arcs[0]).multiply(BigInteger.valueOf(40)).add(new BigInteger(arcs[1])));
+            for (int i = 2; i < arcs.length; i++) {
+                writeBase128(content, new BigInteger(arcs[i]));
+            }
+        } catch (NumberFormatException e) {
+            throw new TaskwarriorKeyStoreException("Object identifier '%s' contains invalid arcs.", oid);
+        }
+        return encode(TAG_OBJECT_IDENTIFIER, content.toByteArray());
+    }
+
+    private static void writeBase128(ByteArrayOutputStream out, BigInteger value) {
+        int groups = Math.max(1, (value.bitLength() + 6) / 7);
+        for (int i = groups - 1; i >= 0; i--) {
+            int group = value.shiftRight(7 * i).intValue() & 0x7F;
+            out.write(i > 0 ? group | 0x80 : group);
+        }
+    }
+
+    /** Decodes exactly one element spanning all of the given bytes. */
+    static Element decode(byte[] der) {
+        requireNonNull(der, "'der' must not be null.");
+
+        Element result = decode(der, 0, der.length);
+        if (result.end() != der.length) {
+            throw new TaskwarriorKeyStoreException("Unexpected %d trailing bytes after element.", der.length - result.end());
+        }
+        return result;
+    }
+
+    private static Element decode(byte[] der, int offset, int limit) {
+        if (limit - offset < 2) {
+            throw new TaskwarriorKeyStoreException("Truncated element at offset %d.", offset);
+        }
+        int tag = der[offset] & 0xFF;
+        if ((tag & 0x1F) == 0x1F) {
+            throw new TaskwarriorKeyStoreException("Unsupported multi-byte tag at offset %d.", offset);
+        }
+
+        int position = offset + 1;
+        int length = der[position++] & 0xFF;
+        if (length == 0x80) {
+            throw new TaskwarriorKeyStoreException("Indefinite length at offset %d is not allowed in DER.", offset);
+        }
+        if (length > 0x80) {
+            int lengthBytes = length & 0x7F;
+            if (lengthBytes > 3 || limit - position < lengthBytes) {
+                throw new TaskwarriorKeyStoreException("Unsupported or truncated length at offset %d.", offset);
+            }
+            length = 0;
+            for (int i = 0; i < lengthBytes; i++) {
+                length = (length << 8) | (der[position++] & 0xFF);
+            }
+        }
+        if (limit - position < length) {
+            throw new TaskwarriorKeyStoreException("Element at offset %d with length %d exceeds available %d bytes.", offset, length,
+                    limit - position);
+        }
+        return new Element(der, tag, offset, position, length);
+    }
+
+    /** A decoded element referencing the bytes it was decoded from. */
+    static final class Element {
+
+        private final byte[] der;
+        private final int tag;
+        private final int offset;
+        private final int contentOffset;
+        private final int contentLength;
+
+        private Element(byte[] der, int tag, int offset, int contentOffset, int contentLength) {
+            this.der = der;
+            this.tag = tag;
+            this.offset = offset;
+            this.contentOffset = contentOffset;
+            this.contentLength = contentLength;
+        }
+
+        int getTag() {
+            return tag;
+        }
+
+        byte[] getContent() {
+            return Arrays.copyOfRange(der, contentOffset, end());
+        }
+
+        byte[] getEncoded() {
+            return Arrays.copyOfRange(der, offset, end());
+        }
+
+        /** @return contained elements of a constructed element, e.g. a {@link #TAG_SEQUENCE} */
+        List<Element> getElements() {
+            if ((tag & CONSTRUCTED) == 0) {
+                throw new TaskwarriorKeyStoreException("Element with tag 0x%02x is not constructed.", tag);
+            }
+            List<Element> result = new ArrayList<>();
+            for (int position = contentOffset; position < end(); position = result.get(result.size() - 1).end()) {
+                result.add(decode(der, position, end()));
+            }
+            return result;
+        }
+
+        /** @return object identifier in dotted notation */
+        String getObjectIdentifier() {
+            expectTag(TAG_OBJECT_IDENTIFIER);
+            StringBuilder result = new StringBuilder();
+            BigInteger value = BigInteger.ZERO;
+            for (int i = contentOffset; i < end(); i++) {
+                value = value.shiftLeft(7).or(BigInteger.valueOf(der[i] & 0x7F));
+                if ((der[i] & 0x80) == 0) {
+                    if (result.length() == 0) {
+                        int first = value.compareTo(BigInteger.valueOf(80)) < 0 ? value.intValue() / 40 : 2;
+                        result.append(first).append('.').append(value.subtract(BigInteger.valueOf(first * 40L)));
+                    } else {
+                        result.append('.').append(value);
+                    }
+                    value = BigInteger.ZERO;
+                }
+            }
+            return result.toString();
+        }
+
+        Element expectTag(int expectedTag) {
+            if (tag != expectedTag) {
+                throw new TaskwarriorKeyStoreException("Expected tag 0x%02x but was 0x%02x at offset %d.", expectedTag, tag, offset);
+            }
+            return this;
+        }
+
+        private int end() {
+            return contentOffset + contentLength;
+        }
+    }
+}
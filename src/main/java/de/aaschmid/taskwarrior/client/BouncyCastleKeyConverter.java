@@ -0,0 +1,50 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.security.PrivateKey;
+
+import org.bouncycastle.asn1.pkcs.RSAPrivateKey;
+import org.bouncycastle.crypto.params.RSAPrivateCrtKeyParameters;
+import org.bouncycastle.crypto.util.PrivateKeyInfoFactory;
+import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
+
+/**
+ * Fallback conversion of keys the built-in {@link Asn1Der} based conversion cannot handle. BouncyCastle is an optional dependency, so
+ * only call this class if {@link #isAvailable()}.
+ */
+final class BouncyCastleKeyConverter {
+
+    private static final boolean AVAILABLE = isClassPresent("org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter");
+
+    private BouncyCastleKeyConverter() {
+        // utility class
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    static PrivateKey createPrivateKeyForPkcs1(byte[] privateKeyBytes) throws IOException {
+        RSAPrivateKey rsa = RSAPrivateKey.getInstance(privateKeyBytes);
+        RSAPrivateCrtKeyParameters keyParameters = new RSAPrivateCrtKeyParameters(
+                rsa.getModulus(),
+                rsa.getPublicExponent(),
+                rsa.getPrivateExponent(),
+                rsa.getPrime1(),
+                rsa.getPrime2(),
+                rsa.getExponent1(),
+                rsa.getExponent2(),
+                rsa.getCoefficient());
+
+        return new JcaPEMKeyConverter().getPrivateKey(PrivateKeyInfoFactory.createPrivateKeyInfo(keyParameters));
+    }
+
+    private static boolean isClassPresent(String className) {
+        try {
+            Class.forName(className, false, BouncyCastleKeyConverter.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
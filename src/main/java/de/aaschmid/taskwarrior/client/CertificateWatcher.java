@@ -0,0 +1,138 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Watches the directories of certificate and key files of all {@link ReloadingSslContext}s on a single daemon thread and lets them
+ * reload on any change. Changes are additionally checked every poll interval as file systems like NFS do not report them reliably.
+ */
+class CertificateWatcher implements AutoCloseable {
+
+    static final CertificateWatcher SHARED = new CertificateWatcher(Duration.ofMinutes(1));
+
+    /** Time to wait for further events such that a file is not read while it is still being written. */
+    private static final long QUIET_PERIOD_MILLIS = 100;
+
+    private final Duration pollInterval;
+    private final Map<List<Path>, ReloadingSslContext> contexts = new ConcurrentHashMap<>();
+    private final Set<Path> directories = new HashSet<>();
+    private final ReentrantLock lock = new ReentrantLock(); // no monitor as file I/O within would pin a virtual thread
+
+    private WatchService watchService;
+    private volatile boolean closed;
+
+    CertificateWatcher(Duration pollInterval) {
+        this.pollInterval = requireNonNull(pollInterval, "'pollInterval' must not be null.");
+    }
+
+    /**
+     * Returns the {@link ReloadingSslContext} for the given key files which is shared with all callers using the same files and watched
+     * until this watcher is closed.
+     */
+    ReloadingSslContext watch(TaskwarriorSslKeys sslKeys) {
+        requireNonNull(sslKeys, "'sslKeys' must not be null.");
+
+        File[] files = { sslKeys.getCaCertFile(), sslKeys.getPrivateKeyCertFile(), sslKeys.getPrivateKeyFile() };
+        List<Path> paths = Arrays.stream(files).map(f -> f.getAbsoluteFile().toPath()).collect(Collectors.toList());
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Certificate watcher is already closed.");
+            }
+            ReloadingSslContext result = contexts.get(paths);
+            if (result == null) {
+                result = new ReloadingSslContext(sslKeys);
+                for (Path path : paths) {
+                    register(path.getParent());
+                }
+                contexts.put(paths, result);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void register(Path directory) {
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                Thread thread = new Thread(this::run, "taskwarrior-certificate-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            if (directories.add(directory)) {
+                directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        } catch (IOException e) {
+            throw new TaskwarriorSslContextException(e, "Could not watch directory '%s' for certificate changes.", directory);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            if (watchService != null) {
+                watchService.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Reloads all contexts on any event as checking a few small files for changed content is cheap. */
+    private void run() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    do {
+                        key.pollEvents();
+                        key.reset();
+                    } while ((key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                }
+                reloadAll(contexts.values());
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Reloads each context separately such that an unexpected failure of one neither skips the others nor ends watching. */
+    static void reloadAll(Collection<ReloadingSslContext> contexts) {
+        for (ReloadingSslContext context : contexts) {
+            try {
+                context.reloadIfChanged();
+            } catch (RuntimeException e) {
+                context.reloadFailed();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.aaschmid.taskwarrior.client;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+
+/**
+ * JDK Flight Recorder events of client operations. This variant for Java 8 records nothing; on Java 11 and later the multi-release jar
+ * replaces it by the one in {@code src/main/java11} emitting {@code jdk.jfr} events through the same methods.
+ */
+final class ClientEvents {
+
+    private static final Span DISABLED = (message, payloadSize) -> {
+    };
+
+    private ClientEvents() {
+        // static methods only
+    }
+
+    /** @return span of a whole request including retries and hedged attempts */
+    static Span request() {
+        return DISABLED;
+    }
+
+    /** @return span of a TLS handshake */
+    static Span handshake() {
+        return DISABLED;
+    }
+
+    /** @return span of serializing a message to bytes */
+    static Span serialize() {
+        return DISABLED;
+    }
+
+    /** @return span of reading and deserializing a message from a stream */
+    static Span deserialize() {
+        return DISABLED;
+    }
+
+    /** @return span of building a key store from PEM files */
+    static Span keyStoreBuild() {
+        return DISABLED;
+    }
+
+    interface Span {
+
+        /**
+         * Ends this span and records it if its event is enabled and the span took longer than the configured threshold.
+         *
+         * @param message request or message the span belongs to providing type and account, may be {@code null} if there is none
+         * @param payloadSize size of the payload in bytes, length of the request payload for requests or {@code 0} if not applicable
+         */
+        void commit(TaskwarriorMessage message, long payloadSize);
+    }
+}
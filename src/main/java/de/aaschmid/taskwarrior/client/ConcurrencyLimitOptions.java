@@ -0,0 +1,84 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options of an {@link AdaptiveConcurrencyLimiter}. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface ConcurrencyLimitOptions {
+
+    class Builder extends ConcurrencyLimitOptionsBuilder {}
+
+    static Builder concurrencyLimitOptionsBuilder() {
+        return new Builder();
+    }
+
+    static ConcurrencyLimitOptions defaultConcurrencyLimitOptions() {
+        return concurrencyLimitOptionsBuilder().build();
+    }
+
+    @Value.Default
+    default int getInitialLimit() {
+        return 4;
+    }
+
+    @Value.Default
+    default int getMinLimit() {
+        return 1;
+    }
+
+    @Value.Default
+    default int getMaxLimit() {
+        return 64;
+    }
+
+    /** Factor the limit is multiplied with if congestion is detected. */
+    @Value.Default
+    default double getBackoffRatio() {
+        return 0.9;
+    }
+
+    /** Latency above the learned no-load latency multiplied by this factor is treated as congestion. */
+    @Value.Default
+    default double getLatencyTolerance() {
+        return 2.0;
+    }
+
+    /** Number of samples after which the learned no-load latency is reset to the minimum of the last samples. */
+    @Value.Default
+    default int getLatencyWindow() {
+        return 100;
+    }
+
+    /** Time a request waits for a free slot if limit is reached; {@link Duration#ZERO} lets requests fail fast. */
+    @Value.Default
+    default Duration getMaxQueueWait() {
+        return Duration.ZERO;
+    }
+
+    @Value.Check
+    default void check() {
+        if (getMinLimit() < 1 || getMinLimit() > getInitialLimit() || getInitialLimit() > getMaxLimit()) {
+            throw new IllegalArgumentException(String.format(
+                    "Limits must satisfy 1 <= 'minLimit' <= 'initialLimit' <= 'maxLimit' but were %d, %d and %d.",
+                    getMinLimit(),
+                    getInitialLimit(),
+                    getMaxLimit()));
+        }
+        if (getBackoffRatio() <= 0 || getBackoffRatio() >= 1) {
+            throw new IllegalArgumentException(String.format("'backoffRatio' must be in (0, 1) but was %s.", getBackoffRatio()));
+        }
+        if (getLatencyTolerance() < 1) {
+            throw new IllegalArgumentException(String.format("'latencyTolerance' must be at least 1 but was %s.", getLatencyTolerance()));
+        }
+        if (getLatencyWindow() < 1) {
+            throw new IllegalArgumentException(String.format("'latencyWindow' must be positive but was %d.", getLatencyWindow()));
+        }
+        if (getMaxQueueWait().isNegative()) {
+            throw new IllegalArgumentException(String.format("'maxQueueWait' must not be negative but was %s.", getMaxQueueWait()));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** Counts bytes read and records when the first and the last read returned; not thread-safe. */
+class CountingInputStream extends FilterInputStream {
+
+    private long count;
+    private long firstReadNanos;
+    private long lastReadNanos;
+
+    CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /** @return {@link System#nanoTime()} when the first read returned */
+    long getFirstReadNanos() {
+        return firstReadNanos;
+    }
+
+    /** @return {@link System#nanoTime()} when the last read returned */
+    long getLastReadNanos() {
+        return lastReadNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int result = super.read();
+        readReturned(result < 0 ? 0 : 1);
+        return result;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int result = super.read(b, off, len);
+        readReturned(Math.max(0, result));
+        return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long result = super.skip(n);
+        readReturned(result);
+        return result;
+    }
+
+    private void readReturned(long bytes) {
+        lastReadNanos = System.nanoTime();
+        if (firstReadNanos == 0) {
+            firstReadNanos = lastReadNanos;
+        }
+        count += bytes;
+    }
+}
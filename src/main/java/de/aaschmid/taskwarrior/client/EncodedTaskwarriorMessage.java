@@ -0,0 +1,80 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+
+/**
+ * Request already serialized by a {@link SyncRequestBuilder}, which is written as it is instead of being serialized again. Its payload is
+ * decoded on demand only. Unlike the immutable messages, it is only equal to itself.
+ */
+final class EncodedTaskwarriorMessage implements TaskwarriorMessage {
+
+    private final Map<String, String> headers;
+    private final byte[] frame;
+    private final int payloadStart; // -1 if none
+
+    EncodedTaskwarriorMessage(Map<String, String> headers, byte[] frame, int payloadStart) {
+        this.headers = Collections.unmodifiableMap(headers);
+        this.frame = frame;
+        this.payloadStart = payloadStart;
+    }
+
+    /** @return serialized message including its length prefix; must not be modified */
+    byte[] getFrame() {
+        return frame;
+    }
+
+    /** @return number of payload bytes */
+    int getPayloadSize() {
+        return payloadStart < 0 ? 0 : frame.length - payloadStart;
+    }
+
+    /** @return read-only view of the encoded payload, e.g. to compare payloads without decoding them */
+    Optional<ByteBuffer> getPayloadBytes() {
+        if (payloadStart < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(ByteBuffer.wrap(frame, payloadStart, frame.length - payloadStart).slice().asReadOnlyBuffer());
+    }
+
+    /**
+     * @param character ASCII character to search for; as UTF-8 encodes other characters to bytes {@code >= 0x80} only, the encoded
+     *        payload can be searched without decoding it
+     * @return {@code true} if the payload contains the given {@code character}
+     */
+    boolean payloadContains(char character) {
+        if (payloadStart >= 0) {
+            for (int i = payloadStart; i < frame.length; i++) {
+                if (frame[i] == character) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public Optional<String> getPayload() {
+        if (payloadStart < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new String(frame, payloadStart, frame.length - payloadStart, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String toString() {
+        return "TaskwarriorMessage{headers=" + headers
+                + ", payload=" + (payloadStart < 0 ? "null" : getPayloadSize() + " bytes encoded")
+                + "}";
+    }
+}
@@ -0,0 +1,243 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import de.aaschmid.taskwarrior.util.concurrent.BlockingThreads;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Selects and connects to one of multiple server addresses:
+ * <ul>
+ * <li>orders healthy addresses by exponentially weighted moving average (EWMA) of their connect latency, the first one being the better of
+ * two random ones to spread load (= power of two choices),</li>
+ * <li>quarantines addresses failing consecutively with exponential backoff, trying them only after all healthy ones, and</li>
+ * <li>races connections in this order by starting the next attempt if the previous one neither succeeded nor failed within the
+ * connection attempt delay (= happy eyeballs, see RFC 8305).</li>
+ * </ul>
+ */
+class EndpointSelector {
+
+    /** Recommended by RFC 8305. */
+    static final Duration DEFAULT_CONNECTION_ATTEMPT_DELAY = Duration.ofMillis(250);
+
+    private static final double EWMA_WEIGHT = 0.3;
+    private static final long MIN_QUARANTINE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_QUARANTINE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final ExecutorService CONNECT_EXECUTOR = BlockingThreads.newExecutor("taskwarrior-connect");
+
+    private final long connectionAttemptDelayNanos;
+    private final Map<InetSocketAddress, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    EndpointSelector(Duration connectionAttemptDelay) {
+        this.connectionAttemptDelayNanos = requireNonNull(connectionAttemptDelay, "'connectionAttemptDelay' must not be null.").toNanos();
+    }
+
+    /** @return given addresses in the order connections should be attempted */
+    List<InetSocketAddress> order(List<InetSocketAddress> addresses) {
+        long now = System.nanoTime();
+
+        // snapshot as sorting by concurrently changing values may violate the comparator contract
+        Map<InetSocketAddress, Double> latencies = new LinkedHashMap<>(); // keeps given order of not yet connected addresses
+        Map<InetSocketAddress, Long> quarantinedUntil = new HashMap<>();
+        for (InetSocketAddress address : addresses) {
+            Endpoint endpoint = endpoint(address);
+            if (endpoint.isQuarantined(now)) {
+                quarantinedUntil.put(address, endpoint.quarantinedUntilNanos);
+            } else {
+                latencies.put(address, endpoint.ewmaNanos);
+            }
+        }
+
+        List<InetSocketAddress> result = new ArrayList<>(latencies.keySet());
+        result.sort(Comparator.comparingDouble(latencies::get));
+        if (result.size() > 2) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(result.size());
+            int second = (first + 1 + random.nextInt(result.size() - 1)) % result.size();
+            result.add(0, result.remove(Math.min(first, second))); // sorted, hence lower index has lower latency
+        }
+
+        List<InetSocketAddress> quarantined = new ArrayList<>(quarantinedUntil.keySet());
+        quarantined.sort(Comparator.comparingLong(quarantinedUntil::get));
+        result.addAll(quarantined);
+        return result;
+    }
+
+    /** Connects to one of the given addresses; the connect latency or failure of each attempt is recorded. */
+    Socket connect(List<InetSocketAddress> addresses, Connector connector) throws IOException {
+        return connect(addresses, Optional.empty(), connector);
+    }
+
+    /**
+     * Connects to one of the given addresses, to the avoided one only after all others, e.g. such that a hedged request is sent to
+     * another server than the original one.
+     */
+    Socket connect(List<InetSocketAddress> addresses, Optional<InetSocketAddress> avoided, Connector connector) throws IOException {
+        List<InetSocketAddress> ordered = order(addresses);
+        if (avoided.isPresent() && ordered.remove(avoided.get())) {
+            ordered.add(avoided.get());
+        }
+        if (ordered.size() == 1) {
+            return attempt(ordered.get(0), connector, new AtomicBoolean(), new ArrayList<>());
+        }
+
+        AtomicBoolean won = new AtomicBoolean();
+        List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+        CompletionService<Socket> attempts = new ExecutorCompletionService<>(CONNECT_EXECUTOR);
+        List<Future<Socket>> futures = new ArrayList<>();
+
+        IOException failure = null;
+        int next = 0;
+        int pending = 0;
+        boolean startNext = true; // initially and immediately after a failed attempt
+        try {
+            while (next < ordered.size() || pending > 0) {
+                Future<Socket> done = null;
+                if (!startNext || next == ordered.size()) {
+                    done = next < ordered.size() ? attempts.poll(connectionAttemptDelayNanos, TimeUnit.NANOSECONDS) : attempts.take();
+                }
+                startNext = false;
+                if (done == null) {
+                    InetSocketAddress address = ordered.get(next++);
+                    futures.add(attempts.submit(() -> attempt(address, connector, won, sockets)));
+                    pending++;
+                    continue;
+                }
+                pending--;
+
+                try {
+                    Socket result = done.get();
+                    closeAllExcept(sockets, result);
+                    return result;
+                } catch (ExecutionException e) {
+                    IOException cause = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                    startNext = true;
+                }
+            }
+            throw requireNonNull(failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            won.set(true);
+            closeAllExcept(sockets, null);
+            futures.forEach(f -> f.cancel(true));
+            throw new InterruptedIOException("Interrupted while connecting to " + ordered);
+        }
+    }
+
+    private Socket attempt(InetSocketAddress address, Connector connector, AtomicBoolean won, List<Socket> sockets)
+            throws IOException {
+        long start = System.nanoTime();
+        Socket result;
+        try {
+            result = connector.connect(address, sockets::add);
+        } catch (IOException e) {
+            if (!won.get()) {
+                failed(address);
+            }
+            throw e;
+        }
+        succeeded(address, System.nanoTime() - start);
+
+        if (!won.compareAndSet(false, true)) {
+            result.close();
+            throw new IOException("Another connection attempt was faster than to " + address);
+        }
+        return result;
+    }
+
+    private static void closeAllExcept(List<Socket> sockets, Socket winner) {
+        Socket[] attempts;
+        synchronized (sockets) {
+            attempts = sockets.toArray(new Socket[0]); // closed outside of the monitor as closing may block
+        }
+        for (Socket socket : attempts) {
+            if (socket != winner) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // ignore, attempt fails anyway
+                }
+            }
+        }
+    }
+
+    void succeeded(InetSocketAddress address, long latencyNanos) {
+        endpoint(address).succeeded(latencyNanos);
+    }
+
+    void failed(InetSocketAddress address) {
+        endpoint(address).failed(System.nanoTime());
+    }
+
+    /** @return EWMA of connect latency to given address in nanoseconds, zero if not yet connected to */
+    double getLatencyNanos(InetSocketAddress address) {
+        return endpoint(address).ewmaNanos;
+    }
+
+    boolean isQuarantined(InetSocketAddress address) {
+        return endpoint(address).isQuarantined(System.nanoTime());
+    }
+
+    private Endpoint endpoint(InetSocketAddress address) {
+        return endpoints.computeIfAbsent(address, a -> new Endpoint());
+    }
+
+    /** Opens a plain, connected socket and registers it for closing before connecting such that attempts can be aborted. */
+    @FunctionalInterface
+    interface Connector {
+
+        Socket connect(InetSocketAddress address, Consumer<Socket> register) throws IOException;
+    }
+
+    private static class Endpoint {
+
+        private volatile double ewmaNanos;
+        private volatile long quarantinedUntilNanos;
+        private int consecutiveFailures;
+
+        synchronized void succeeded(long latencyNanos) {
+            ewmaNanos = ewmaNanos == 0 ? latencyNanos : EWMA_WEIGHT * latencyNanos + (1 - EWMA_WEIGHT) * ewmaNanos;
+            consecutiveFailures = 0;
+            quarantinedUntilNanos = 0;
+        }
+
+        synchronized void failed(long now) {
+            int failures = consecutiveFailures = Math.min(consecutiveFailures + 1, 30);
+            quarantinedUntilNanos = now + Math.min(MIN_QUARANTINE_NANOS << (failures - 1), MAX_QUARANTINE_NANOS);
+        }
+
+        boolean isQuarantined(long now) {
+            long until = quarantinedUntilNanos;
+            return until != 0 && now - until < 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+final class Futures {
+
+    private Futures() {
+        // utility class
+    }
+
+    /**
+     * Waits for the result of a future shared with others which cannot be abandoned, i.e. an interrupt is only restored afterwards.
+     * A {@link RuntimeException} the future failed with is rethrown as is.
+     */
+    static <T> T getUninterruptibly(Future<T> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new TaskwarriorClientException(e.getCause(), "Shared computation failed: %s", e.getCause().getMessage());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
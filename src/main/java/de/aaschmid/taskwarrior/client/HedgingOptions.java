@@ -0,0 +1,81 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options of a {@link TaskwarriorRequestHedger}. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface HedgingOptions {
+
+    class Builder extends HedgingOptionsBuilder {}
+
+    static Builder hedgingOptionsBuilder() {
+        return new Builder();
+    }
+
+    static HedgingOptions defaultHedgingOptions() {
+        return hedgingOptionsBuilder().build();
+    }
+
+    /** Percentile of recent latencies after which a request is hedged. */
+    @Value.Default
+    default double getPercentile() {
+        return 0.95;
+    }
+
+    /** Lower bound of the delay after which a request is hedged. */
+    @Value.Default
+    default Duration getMinDelay() {
+        return Duration.ofMillis(10);
+    }
+
+    /** Number of most recent latencies the percentile is calculated of. */
+    @Value.Default
+    default int getLatencyWindow() {
+        return 100;
+    }
+
+    /** Number of latencies required before any request is hedged. */
+    @Value.Default
+    default int getMinSamples() {
+        return 20;
+    }
+
+    /** Hedge tokens earned by every request, e.g. {@code 0.1} allows to hedge at most 10% of all requests in the long run. */
+    @Value.Default
+    default double getMaxHedgeRatio() {
+        return 0.1;
+    }
+
+    /** Maximum number of hedge tokens which can be saved up, i.e. hedges allowed in a burst; the budget starts full. */
+    @Value.Default
+    default int getHedgeBudgetCapacity() {
+        return 5;
+    }
+
+    @Value.Check
+    default void check() {
+        if (getPercentile() <= 0 || getPercentile() >= 1) {
+            throw new IllegalArgumentException(String.format("'percentile' must be in (0, 1) but was %s.", getPercentile()));
+        }
+        if (getMinDelay().isNegative()) {
+            throw new IllegalArgumentException(String.format("'minDelay' must not be negative but was %s.", getMinDelay()));
+        }
+        if (getMinSamples() < 1 || getMinSamples() > getLatencyWindow()) {
+            throw new IllegalArgumentException(String.format(
+                    "Samples must satisfy 1 <= 'minSamples' <= 'latencyWindow' but were %d and %d.",
+                    getMinSamples(),
+                    getLatencyWindow()));
+        }
+        if (getMaxHedgeRatio() < 0 || getMaxHedgeRatio() > 1) {
+            throw new IllegalArgumentException(String.format("'maxHedgeRatio' must be in [0, 1] but was %s.", getMaxHedgeRatio()));
+        }
+        if (getHedgeBudgetCapacity() < 0) {
+            throw new IllegalArgumentException(
+                    String.format("'hedgeBudgetCapacity' must not be negative but was %d.", getHedgeBudgetCapacity()));
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package de.aaschmid.taskwarrior.client;
 
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.KeyFactory;
 import java.security.KeyStore;
@@ -23,29 +20,36 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.bouncycastle.asn1.pkcs.RSAPrivateKey;
-import org.bouncycastle.crypto.params.RSAPrivateCrtKeyParameters;
-import org.bouncycastle.crypto.util.PrivateKeyInfoFactory;
-import org.bouncycastle.openssl.jcajce.JcaPEMKeyConverter;
-import org.bouncycastle.util.io.pem.PemObject;
-import org.bouncycastle.util.io.pem.PemReader;
-
 import static java.util.Objects.requireNonNull;
 
 class KeyStoreBuilder {
 
     private static final String CERTIFICATE_TYPE = "X.509";
     private static final String KEY_ALGORITHM_RSA = "RSA";
+    private static final String KEY_ALGORITHM_EC = "EC";
     private static final String PEM_TYPE_PKCS1 = "RSA PRIVATE KEY";
+    private static final String PEM_TYPE_SEC1 = "EC PRIVATE KEY";
+    private static final String PEM_TYPE_EC_PARAMETERS = "EC PARAMETERS";
     private static final String PEM_TYPE_PKCS8 = "PRIVATE KEY";
+    private static final String OID_RSA_ENCRYPTION = "1.2.840.113549.1.1.1";
+    private static final String OID_EC_PUBLIC_KEY = "1.2.840.10045.2.1";
+    private static final int TAG_SEC1_PARAMETERS = 0xA0; // context-specific, constructed [0]
 
+    private String keyStoreType = KeyStore.getDefaultType();
     private ProtectionParameter keyStoreProtection;
     private File caCertFile;
     private File privateKeyCertFile;
     private File privateKeyFile;
 
+    /** @param keyStoreType see {@link KeyStore#getInstance(String)} for valid types; defaults to {@link KeyStore#getDefaultType()} */
+    KeyStoreBuilder withKeyStoreType(String keyStoreType) {
+        this.keyStoreType = requireNonNull(keyStoreType, "'keyStoreType' must not be null.");
+        return this;
+    }
+
     KeyStoreBuilder withKeyStoreProtection(ProtectionParameter keyStoreProtection) {
         this.keyStoreProtection = requireNonNull(keyStoreProtection, "'keyStoreProtection' must not be null.");
         return this;
@@ -74,8 +78,8 @@ class KeyStoreBuilder {
     }
 
     /**
-     * Provide the non-null private key file to use. Supported are PKCS#1 and PKCS#8 keys in {@code *.PEM} format as well as PKCS#8 keys in
-     * {@code *.DER} format.
+     * Provide the non-null private key file to use. Supported are RSA keys in PKCS#1 and EC keys in SEC1 format as well as RSA and EC keys
+     * in PKCS#8 format, each either in {@code *.PEM} or in {@code *.DER} format. The key algorithm is detected automatically.
      */
     KeyStoreBuilder withPrivateKeyFile(File privateKeyFile) {
         requireNonNull(privateKeyFile, "'privateKeyFile' must not be null.");
@@ -87,9 +91,10 @@ class KeyStoreBuilder {
     }
 
     KeyStore build() {
+        ClientEvents.Span span = ClientEvents.keyStoreBuild();
         KeyStore result;
         try {
-            result = KeyStore.Builder.newInstance(KeyStore.getDefaultType(), null, keyStoreProtection).getKeyStore();
+            result = KeyStore.Builder.newInstance(keyStoreType, null, keyStoreProtection).getKeyStore();
         } catch (KeyStoreException e) {
             throw new TaskwarriorKeyStoreException(e, "Could not build keystore: %s", e.getMessage());
         }
@@ -112,6 +117,7 @@ class KeyStoreBuilder {
                     privateKeyFile);
         }
 
+        span.commit(null, 0);
         return result;
     }
 
@@ -131,54 +137,146 @@ class KeyStoreBuilder {
     }
 
     private PrivateKey createPrivateKeyFor(File privateKeyFile) {
+        byte[] bytes;
         try {
-            byte[] bytes = Files.readAllBytes(privateKeyFile.toPath());
-            if (privateKeyFile.getName().endsWith("pem")) {
-                PemReader pemReader = new PemReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
-                PemObject privateKeyObject = pemReader.readPemObject();
-
-                switch (privateKeyObject.getType()) {
-                    case PEM_TYPE_PKCS1:
-                        return createPrivateKeyForPkcs1(privateKeyObject.getContent());
-                    case PEM_TYPE_PKCS8:
-                        return createPrivateKeyForPkcs8(privateKeyObject.getContent());
-                    default:
-                        throw new TaskwarriorKeyStoreException("Unsupported key algorithm '%s'.", privateKeyObject.getType());
-                }
-            }
-            return createPrivateKeyForPkcs8(bytes);
+            bytes = Files.readAllBytes(privateKeyFile.toPath());
         } catch (IOException e) {
             throw new TaskwarriorKeyStoreException(e, "Could not read private key of '%s' via input stream.", privateKeyFile);
         }
+        if (privateKeyFile.getName().endsWith("pem")) {
+            List<PemObject> pemObjects = PemObject.parseAll(bytes);
+            Optional<byte[]> ecParameters = pemObjects.stream()
+                    .filter(o -> PEM_TYPE_EC_PARAMETERS.equals(o.getType()))
+                    .findFirst()
+                    .map(PemObject::getContent);
+            PemObject privateKeyObject = pemObjects.stream()
+                    .filter(o -> !PEM_TYPE_EC_PARAMETERS.equals(o.getType()))
+                    .findFirst()
+                    .orElseThrow(() -> new TaskwarriorKeyStoreException("No private key found in '%s'.", privateKeyFile));
+
+            switch (privateKeyObject.getType()) {
+                case PEM_TYPE_PKCS1:
+                    return createPrivateKeyForPkcs1(privateKeyObject.getContent());
+                case PEM_TYPE_SEC1:
+                    return createPrivateKeyForSec1(privateKeyObject.getContent(), ecParameters);
+                case PEM_TYPE_PKCS8:
+                    return createPrivateKeyForPkcs8(privateKeyObject.getContent());
+                default:
+                    throw new TaskwarriorKeyStoreException("Unsupported key algorithm '%s'.", privateKeyObject.getType());
+            }
+        }
+        return createPrivateKeyForDer(bytes);
     }
 
+    /** Detects PKCS#1, SEC1 and PKCS#8 by their structure; anything not decodable is passed to the key factory as PKCS#8. */
+    private PrivateKey createPrivateKeyForDer(byte[] privateKeyBytes) {
+        List<Asn1Der.Element> elements;
+        try {
+            elements = Asn1Der.decode(privateKeyBytes).expectTag(Asn1Der.TAG_SEQUENCE).getElements();
+        } catch (TaskwarriorKeyStoreException e) {
+            return createPrivateKeyForPkcs8(privateKeyBytes);
+        }
+
+        if (elements.size() >= 2 && elements.get(1).getTag() == Asn1Der.TAG_OCTET_STRING) {
+            return createPrivateKeyForSec1(privateKeyBytes, Optional.empty());
+        }
+        if (elements.size() >= 9 && elements.get(1).getTag() == Asn1Der.TAG_INTEGER) {
+            return createPrivateKeyForPkcs1(privateKeyBytes);
+        }
+        return createPrivateKeyForPkcs8(privateKeyBytes);
+    }
+
+    /** Wraps the PKCS#1 key into a PKCS#8 structure (RFC 5208) and falls back to BouncyCastle if available and wrapping fails. */
     private PrivateKey createPrivateKeyForPkcs1(byte[] privateKeyBytes) {
-        RSAPrivateKey rsa = RSAPrivateKey.getInstance(privateKeyBytes);
-        RSAPrivateCrtKeyParameters keyParameters = new RSAPrivateCrtKeyParameters(
-                rsa.getModulus(),
-                rsa.getPublicExponent(),
-                rsa.getPrivateExponent(),
-                rsa.getPrime1(),
-                rsa.getPrime2(),
-                rsa.getExponent1(),
-                rsa.getExponent2(),
-                rsa.getCoefficient());
+        try {
+            Asn1Der.decode(privateKeyBytes).expectTag(Asn1Der.TAG_SEQUENCE);
+            byte[] pkcs8 = Asn1Der.sequence(
+                    Asn1Der.integer(0),
+                    Asn1Der.sequence(Asn1Der.objectIdentifier(OID_RSA_ENCRYPTION), Asn1Der.nullValue()),
+                    Asn1Der.octetString(privateKeyBytes));
+            return createPrivateKeyForPkcs8(pkcs8);
+        } catch (TaskwarriorKeyStoreException e) {
+            if (!BouncyCastleKeyConverter.isAvailable()) {
+                throw e;
+            }
+            try {
+                return BouncyCastleKeyConverter.createPrivateKeyForPkcs1(privateKeyBytes);
+            } catch (IOException | RuntimeException bcException) {
+                e.addSuppressed(bcException);
+                throw e;
+            }
+        }
+    }
 
+    /**
+     * Wraps the SEC1 key (RFC 5915) into a PKCS#8 structure (RFC 5208) using the named curve of the key itself or, if missing there, of
+     * the given separate EC parameters.
+     */
+    private PrivateKey createPrivateKeyForSec1(byte[] privateKeyBytes, Optional<byte[]> ecParameters) {
+        byte[] namedCurve;
         try {
-            return new JcaPEMKeyConverter().getPrivateKey(PrivateKeyInfoFactory.createPrivateKeyInfo(keyParameters));
-        } catch (IOException e) {
-            throw new TaskwarriorKeyStoreException(e, "Failed to encode PKCS#1 private key of '%s'.", privateKeyFile);
+            namedCurve = Asn1Der.decode(privateKeyBytes)
+                    .expectTag(Asn1Der.TAG_SEQUENCE)
+                    .getElements()
+                    .stream()
+                    .filter(e -> e.getTag() == TAG_SEC1_PARAMETERS)
+                    .findFirst()
+                    .map(e -> namedCurveOf(e.getElements()))
+                    .orElseGet(() -> ecParameters.map(p -> Asn1Der.decode(p).expectTag(Asn1Der.TAG_OBJECT_IDENTIFIER).getEncoded())
+                            .orElseThrow(() -> new TaskwarriorKeyStoreException("Missing named curve.")));
+        } catch (TaskwarriorKeyStoreException e) {
+            throw new TaskwarriorKeyStoreException(e, "Invalid SEC1 EC private key in '%s': %s", privateKeyFile, e.getMessage());
         }
+
+        byte[] pkcs8 = Asn1Der.sequence(
+                Asn1Der.integer(0),
+                Asn1Der.sequence(Asn1Der.objectIdentifier(OID_EC_PUBLIC_KEY), namedCurve),
+                Asn1Der.octetString(privateKeyBytes));
+        return createPrivateKeyForPkcs8(pkcs8);
+    }
+
+    private static byte[] namedCurveOf(List<Asn1Der.Element> sec1Parameters) {
+        if (sec1Parameters.size() != 1) {
+            throw new TaskwarriorKeyStoreException("Expected one EC parameters element but found %d.", sec1Parameters.size());
+        }
+        return sec1Parameters.get(0).expectTag(Asn1Der.TAG_OBJECT_IDENTIFIER).getEncoded();
     }
 
     private PrivateKey createPrivateKeyForPkcs8(byte[] privateKeyBytes) {
+        String algorithm = detectPkcs8KeyAlgorithm(privateKeyBytes);
         try {
-            KeyFactory keyFactory = KeyFactory.getInstance(KEY_ALGORITHM_RSA);
+            KeyFactory keyFactory = KeyFactory.getInstance(algorithm);
             return keyFactory.generatePrivate(new PKCS8EncodedKeySpec(privateKeyBytes));
         } catch (NoSuchAlgorithmException e) {
-            throw new TaskwarriorKeyStoreException(e, "Key factory could not be initialized for algorithm '%s'.", KEY_ALGORITHM_RSA);
+            throw new TaskwarriorKeyStoreException(e, "Key factory could not be initialized for algorithm '%s'.", algorithm);
         } catch (InvalidKeySpecException e) {
-            throw new TaskwarriorKeyStoreException(e, "Invalid key spec for %s private key in '%s'.", KEY_ALGORITHM_RSA, privateKeyFile);
+            throw new TaskwarriorKeyStoreException(e, "Invalid key spec for %s private key in '%s'.", algorithm, privateKeyFile);
+        }
+    }
+
+    /** @return key algorithm of the given PKCS#8 key; {@link #KEY_ALGORITHM_RSA} if not decodable to let the key factory report errors */
+    private String detectPkcs8KeyAlgorithm(byte[] privateKeyBytes) {
+        String oid;
+        try {
+            oid = Asn1Der.decode(privateKeyBytes)
+                    .expectTag(Asn1Der.TAG_SEQUENCE)
+                    .getElements()
+                    .get(1)
+                    .expectTag(Asn1Der.TAG_SEQUENCE)
+                    .getElements()
+                    .get(0)
+                    .getObjectIdentifier();
+        } catch (TaskwarriorKeyStoreException | IndexOutOfBoundsException e) {
+            return KEY_ALGORITHM_RSA;
+        }
+
+        switch (oid) {
+            case OID_RSA_ENCRYPTION:
+                return KEY_ALGORITHM_RSA;
+            case OID_EC_PUBLIC_KEY:
+                return KEY_ALGORITHM_EC;
+            default:
+                throw new TaskwarriorKeyStoreException("Unsupported private key algorithm '%s' in '%s'.", oid, privateKeyFile);
         }
     }
 }
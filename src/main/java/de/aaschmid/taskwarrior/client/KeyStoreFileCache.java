@@ -0,0 +1,145 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Persists {@link KeyStore}s built from {@link TaskwarriorSslKeys} as PKCS#12 files such that later processes can load them directly
+ * instead of parsing certificates and keys again.
+ * <p>
+ * A cache file is named after the paths of its source files, readable by its owner only and protected by the content hash of its source
+ * files as password. It is rebuilt if any source file was modified after the cache file or if it cannot be loaded with the current
+ * content hash, i.e. if the content of a source file changed. As the cache is optional, a key store which cannot be written is used
+ * without caching it.
+ */
+class KeyStoreFileCache {
+
+    static final String KEY_STORE_TYPE = "PKCS12";
+
+    private static final String FILE_PREFIX = "taskwarrior-keystore-";
+    private static final String FILE_SUFFIX = ".p12";
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private final Path directory;
+
+    KeyStoreFileCache(Path directory) {
+        this.directory = requireNonNull(directory, "'directory' must not be null.");
+    }
+
+    /**
+     * Loads the cached {@link KeyStore} for the given keys or creates and caches it using the given factory which must build a
+     * {@link #KEY_STORE_TYPE} key store protected by the given password.
+     */
+    KeyStore loadOrBuild(TaskwarriorSslKeys sslKeys, String password, Supplier<KeyStore> factory) {
+        requireNonNull(sslKeys, "'sslKeys' must not be null.");
+        requireNonNull(password, "'password' must not be null.");
+        requireNonNull(factory, "'factory' must not be null.");
+
+        File[] sources = { sslKeys.getCaCertFile(), sslKeys.getPrivateKeyCertFile(), sslKeys.getPrivateKeyFile() };
+        Path cacheFile = cacheFileFor(sources);
+
+        if (isUpToDate(cacheFile, sources)) {
+            try (InputStream in = Files.newInputStream(cacheFile)) {
+                KeyStore result = KeyStore.getInstance(KEY_STORE_TYPE);
+                result.load(in, password.toCharArray());
+                return result;
+            } catch (IOException | GeneralSecurityException e) {
+                // corrupt or outdated, i.e. protected by the content hash of previous source files, hence rebuild
+            }
+        }
+
+        KeyStore result = factory.get();
+        store(cacheFile, result, password);
+        return result;
+    }
+
+    Path cacheFileFor(File... sources) {
+        String paths = Arrays.stream(sources).map(File::getAbsolutePath).collect(joining(File.pathSeparator));
+        return directory.resolve(FILE_PREFIX + UUID.nameUUIDFromBytes(paths.getBytes(StandardCharsets.UTF_8)) + FILE_SUFFIX);
+    }
+
+    private static boolean isUpToDate(Path cacheFile, File[] sources) {
+        File file = cacheFile.toFile();
+        if (!file.isFile()) {
+            return false;
+        }
+        long lastModified = file.lastModified();
+        return Arrays.stream(sources).allMatch(source -> source.isFile() && source.lastModified() <= lastModified);
+    }
+
+    private void store(Path cacheFile, KeyStore keyStore, String password) {
+        Path tempFile = null;
+        try {
+            createOwnerOnlyDirectory();
+            tempFile = createOwnerOnlyTempFile();
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                keyStore.store(out, password.toCharArray());
+            }
+            try {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            // ignore, e.g. read-only or full file system, as the key store is built again next time
+        } finally {
+            if (tempFile != null) {
+                deleteIfExists(tempFile); // no-op after successful move
+            }
+        }
+    }
+
+    private static void deleteIfExists(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // leftover temp file does not affect the cache
+        }
+    }
+
+    private void createOwnerOnlyDirectory() throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        if (isPosix()) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIRECTORY));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    private Path createOwnerOnlyTempFile() throws IOException {
+        if (isPosix()) {
+            return Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX, PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE));
+        }
+        File result = Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX).toFile();
+        boolean restricted = result.setReadable(false, false) && result.setReadable(true, true) && result.setWritable(true, true);
+        if (!restricted) {
+            throw new IOException(String.format("Could not restrict access to '%s' to its owner.", result));
+        }
+        return result.toPath();
+    }
+
+    private boolean isPosix() {
+        return directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+}
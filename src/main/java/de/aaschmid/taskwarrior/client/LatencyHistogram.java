@@ -0,0 +1,96 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds with log-linear buckets similar to HdrHistogram: values below 32 are counted exactly,
+ * each larger power of two is split into 32 linear buckets, such that any reported value is at most about 3% larger than the recorded
+ * one. Recording never allocates; reading is not atomic with respect to concurrent recording.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /** @param nanos non-negative value to record; negative values are recorded as zero */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public Duration getMax() {
+        return Duration.ofNanos(max.get());
+    }
+
+    public Duration getMean() {
+        long n = getCount();
+        return n == 0 ? Duration.ZERO : Duration.ofNanos(sum.sum() / n);
+    }
+
+    /**
+     * @param percentile between 0 (exclusive) and 100 (inclusive), e.g. {@code 99.9}
+     * @return upper bound of the bucket containing the value at the given percentile, at most the maximum recorded value
+     */
+    public Duration getValueAtPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException(String.format("'percentile' must be in (0, 100] but was %s.", percentile));
+        }
+        long total = getCount();
+        if (total == 0) {
+            return Duration.ZERO;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Duration.ofNanos(Math.min(upperBound(i), max.get()));
+            }
+        }
+        return getMax(); // concurrently recorded values are not yet counted
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "LatencyHistogram{count=%d, mean=%dus, p50=%dus, p99=%dus, max=%dus}",
+                getCount(),
+                getMean().toNanos() / 1000,
+                getValueAtPercentile(50).toNanos() / 1000,
+                getValueAtPercentile(99).toNanos() / 1000,
+                getMax().toNanos() / 1000);
+    }
+}
@@ -0,0 +1,87 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+
+/**
+ * Response whose payload stays in a memory-mapped temp file, see {@link ResponseSpillOptions}. The temp file is already deleted; its pages
+ * are freed by the operating system once this message is garbage collected. Unlike the immutable messages, it is only equal to itself.
+ */
+final class MappedTaskwarriorMessage implements TaskwarriorMessage {
+
+    private final Map<String, String> headers;
+    private final ByteBuffer payload; // null if none
+    private final Charset charset;
+
+    MappedTaskwarriorMessage(Map<String, String> headers, ByteBuffer payload, Charset charset) {
+        this.headers = Collections.unmodifiableMap(new HashMap<>(headers));
+        this.payload = payload;
+        this.charset = charset;
+    }
+
+    @Override
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public Optional<String> getPayload() {
+        return payload == null ? Optional.empty() : Optional.of(charset.decode(payload.duplicate()).toString());
+    }
+
+    @Override
+    public Optional<Reader> getPayloadReader() {
+        if (payload == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new InputStreamReader(new ByteBufferInputStream(payload.duplicate()), charset));
+    }
+
+    @Override
+    public String toString() {
+        return "TaskwarriorMessage{headers=" + headers
+                + ", payload=" + (payload == null ? "null" : payload.remaining() + " bytes mapped")
+                + "}";
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int result = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, result);
+            return result;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
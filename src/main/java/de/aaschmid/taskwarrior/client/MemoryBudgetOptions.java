@@ -0,0 +1,62 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options of a {@link ResponseMemoryBudget}. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface MemoryBudgetOptions {
+
+    /** What happens to a response which does not fit into the remaining budget. */
+    enum ExhaustedPolicy {
+        /**
+         * Waits up to {@link #getMaxWait()} until enough bytes are released by other responses, then fails; fails immediately if the
+         * response is larger than the whole budget.
+         */
+        WAIT,
+        /** Fails immediately. */
+        FAIL,
+        /** Receives the response into a temp file instead, which requires {@link TaskwarriorClientOptions#getResponseSpill()}. */
+        SPILL
+    }
+
+    class Builder extends MemoryBudgetOptionsBuilder {}
+
+    static Builder memoryBudgetOptionsBuilder() {
+        return new Builder();
+    }
+
+    static MemoryBudgetOptions defaultMemoryBudgetOptions() {
+        return memoryBudgetOptionsBuilder().build();
+    }
+
+    /** Bytes of all responses being received at the same time; defaults to a quarter of the maximum heap size. */
+    @Value.Default
+    default long getMaxBytes() {
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+
+    @Value.Default
+    default ExhaustedPolicy getExhaustedPolicy() {
+        return ExhaustedPolicy.WAIT;
+    }
+
+    /** Time a response waits for enough free bytes if {@link ExhaustedPolicy#WAIT} is used. */
+    @Value.Default
+    default Duration getMaxWait() {
+        return Duration.ofSeconds(30);
+    }
+
+    @Value.Check
+    default void check() {
+        if (getMaxBytes() < 1) {
+            throw new IllegalArgumentException(String.format("'maxBytes' must be positive but was %d.", getMaxBytes()));
+        }
+        if (getMaxWait().isNegative()) {
+            throw new IllegalArgumentException(String.format("'maxWait' must not be negative but was %s.", getMaxWait()));
+        }
+    }
+}
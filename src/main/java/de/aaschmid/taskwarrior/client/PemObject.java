@@ -0,0 +1,66 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/** Object of a PEM encoded file, see RFC 7468, consisting of its type label and its decoded DER content. */
+final class PemObject {
+
+    private static final Pattern PEM_OBJECT = Pattern.compile(
+            "-----BEGIN ([^-\\r\\n]+)-----\\r?\\n(.*?)-----END \\1-----",
+            Pattern.DOTALL);
+
+    private final String type;
+    private final byte[] content;
+
+    private PemObject(String type, byte[] content) {
+        this.type = type;
+        this.content = content;
+    }
+
+    /** Parses the first PEM object of the given bytes; explanatory text before the object is ignored. */
+    static PemObject parse(byte[] pem) {
+        return parseAll(pem).get(0);
+    }
+
+    /** Parses all PEM objects of the given bytes in order, e.g. {@code EC PARAMETERS} followed by {@code EC PRIVATE KEY}. */
+    static List<PemObject> parseAll(byte[] pem) {
+        requireNonNull(pem, "'pem' must not be null.");
+
+        List<PemObject> result = new ArrayList<>();
+        Matcher matcher = PEM_OBJECT.matcher(new String(pem, StandardCharsets.US_ASCII));
+        while (matcher.find()) {
+            result.add(parse(matcher));
+        }
+        if (result.isEmpty()) {
+            throw new TaskwarriorKeyStoreException("Could not find PEM encapsulation boundaries.");
+        }
+        return result;
+    }
+
+    private static PemObject parse(Matcher matcher) {
+        String base64 = matcher.group(2);
+        if (base64.contains(":")) {
+            throw new TaskwarriorKeyStoreException("Encrypted or otherwise headed PEM object of type '%s' is not supported.", matcher.group(1));
+        }
+        try {
+            return new PemObject(matcher.group(1), Base64.getMimeDecoder().decode(base64));
+        } catch (IllegalArgumentException e) {
+            throw new TaskwarriorKeyStoreException(e, "Invalid base64 content of PEM object of type '%s'.", matcher.group(1));
+        }
+    }
+
+    String getType() {
+        return type;
+    }
+
+    byte[] getContent() {
+        return content.clone();
+    }
+}
@@ -0,0 +1,329 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509ExtendedKeyManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.File;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyManagementException;
+import java.security.KeyStore;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.aaschmid.taskwarrior.TaskwarriorException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link SSLContext} whose key and trust material is swapped atomically if the content of CA certificate, private key certificate or
+ * private key file changes, see {@link #reloadIfChanged()}. Established connections continue to use the material they were handshaked
+ * with and handshakes never block on a reload; a reload failing, e.g. due to a partially written file, keeps the current material.
+ */
+class ReloadingSslContext {
+
+    private static final String PROTOCOL = "TLS";
+    private static final char ALIAS_SEPARATOR = '@';
+
+    private final TaskwarriorSslKeys sslKeys;
+    private final SSLContext sslContext;
+
+    private final AtomicReference<Material> current = new AtomicReference<>();
+    private volatile Material previous;
+
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failedReloads = new LongAdder();
+    private final ReentrantLock reloadLock = new ReentrantLock(); // no monitor as file I/O within would pin a virtual thread
+
+    ReloadingSslContext(TaskwarriorSslKeys sslKeys) {
+        this.sslKeys = requireNonNull(sslKeys, "'sslKeys' must not be null.");
+        this.current.set(loadMaterial(0));
+
+        try {
+            this.sslContext = SSLContext.getInstance(PROTOCOL);
+            this.sslContext.init(new KeyManager[] { new ReloadingKeyManager() }, new TrustManager[] { new ReloadingTrustManager() }, null);
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new TaskwarriorSslContextException(e, "Could not init reloading ssl context: %s", e.getMessage());
+        }
+    }
+
+    SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /** @return files whose content is reloaded */
+    File[] getFiles() {
+        return new File[] { sslKeys.getCaCertFile(), sslKeys.getPrivateKeyCertFile(), sslKeys.getPrivateKeyFile() };
+    }
+
+    long getReloadCount() {
+        return reloads.sum();
+    }
+
+    long getFailedReloadCount() {
+        return failedReloads.sum();
+    }
+
+    /** Counts a reload which failed unexpectedly, i.e. by an exception not handled by {@link #reloadIfChanged()} itself. */
+    void reloadFailed() {
+        failedReloads.increment();
+    }
+
+    /**
+     * Reloads key and trust material if the content of any file changed and invalidates all cached sessions such that no session
+     * authenticated with the old material is resumed.
+     *
+     * @return {@code true} if new material was loaded
+     */
+    boolean reloadIfChanged() {
+        reloadLock.lock();
+        try {
+            Material old = current.get();
+            Material loaded;
+            try {
+                if (old.contentHash.equals(SslContextCache.contentHash(getFiles()))) {
+                    return false;
+                }
+                loaded = loadMaterial(old.generation + 1);
+            } catch (TaskwarriorException | IllegalArgumentException e) {
+                failedReloads.increment();
+                return false;
+            }
+
+            previous = old; // in-progress handshakes may still look up private key and certificates by alias of previous generation
+            current.set(loaded);
+            invalidateSessions(sslContext.getClientSessionContext());
+            reloads.increment();
+            return true;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private Material loadMaterial(long generation) {
+        String contentHash = SslContextCache.contentHash(getFiles());
+        String password = UUID.randomUUID().toString();
+        KeyStore keyStore = new KeyStoreBuilder()
+                .withPasswordProtection(password)
+                .withCaCertFile(sslKeys.getCaCertFile())
+                .withPrivateKeyCertFile(sslKeys.getPrivateKeyCertFile())
+                .withPrivateKeyFile(sslKeys.getPrivateKeyFile())
+                .build();
+
+        try {
+            verifyKeyPairs(keyStore, password);
+
+            KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagerFactory.init(keyStore, password.toCharArray());
+            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init(keyStore);
+
+            return new Material(
+                    generation,
+                    contentHash,
+                    find(X509ExtendedKeyManager.class, keyManagerFactory.getKeyManagers()),
+                    find(X509ExtendedTrustManager.class, trustManagerFactory.getTrustManagers()));
+        } catch (GeneralSecurityException e) {
+            throw new TaskwarriorSslContextException(e, "Could not load key and trust material: %s", e.getMessage());
+        }
+    }
+
+    /** Detects private key and certificate not belonging together, e.g. if only one of both is already replaced during rotation. */
+    private static void verifyKeyPairs(KeyStore keyStore, String password) throws GeneralSecurityException {
+        byte[] data = password.getBytes(StandardCharsets.UTF_8);
+        for (String alias : Collections.list(keyStore.aliases())) {
+            if (keyStore.isKeyEntry(alias)) {
+                PrivateKey privateKey = (PrivateKey) keyStore.getKey(alias, password.toCharArray());
+                Certificate certificate = keyStore.getCertificate(alias);
+
+                String algorithm = "SHA256with" + ("EC".equals(privateKey.getAlgorithm()) ? "ECDSA" : privateKey.getAlgorithm());
+                Signature signature = Signature.getInstance(algorithm);
+                signature.initSign(privateKey);
+                signature.update(data);
+                byte[] signed = signature.sign();
+
+                signature.initVerify(certificate);
+                signature.update(data);
+                if (!signature.verify(signed)) {
+                    throw new TaskwarriorSslContextException("Private key '%s' does not belong to its certificate.", alias);
+                }
+            }
+        }
+    }
+
+    private static <T> T find(Class<T> type, Object[] candidates) {
+        return Arrays.stream(candidates)
+                .filter(type::isInstance)
+                .map(type::cast)
+                .findFirst()
+                .orElseThrow(() -> new TaskwarriorSslContextException("Default factory does not provide any %s.", type.getSimpleName()));
+    }
+
+    private static void invalidateSessions(SSLSessionContext sessionContext) {
+        for (Enumeration<byte[]> ids = sessionContext.getIds(); ids.hasMoreElements(); ) {
+            SSLSession session = sessionContext.getSession(ids.nextElement());
+            if (session != null) {
+                session.invalidate();
+            }
+        }
+    }
+
+    private Material materialFor(String alias) {
+        int separator = alias == null ? -1 : alias.indexOf(ALIAS_SEPARATOR);
+        if (separator < 0) {
+            return null;
+        }
+        long generation;
+        try {
+            generation = Long.parseLong(alias.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Material result = current.get();
+        if (result.generation == generation) {
+            return result;
+        }
+        result = previous;
+        return result != null && result.generation == generation ? result : null;
+    }
+
+    private static String delegateAlias(String alias) {
+        return alias.substring(alias.indexOf(ALIAS_SEPARATOR) + 1);
+    }
+
+    private static class Material {
+
+        private final long generation;
+        private final String contentHash;
+        private final X509ExtendedKeyManager keyManager;
+        private final X509ExtendedTrustManager trustManager;
+
+        Material(long generation, String contentHash, X509ExtendedKeyManager keyManager, X509ExtendedTrustManager trustManager) {
+            this.generation = generation;
+            this.contentHash = contentHash;
+            this.keyManager = keyManager;
+            this.trustManager = trustManager;
+        }
+
+        String alias(String delegateAlias) {
+            return delegateAlias == null ? null : generation + String.valueOf(ALIAS_SEPARATOR) + delegateAlias;
+        }
+
+        String[] aliases(String[] delegateAliases) {
+            return delegateAliases == null ? null : Arrays.stream(delegateAliases).map(this::alias).toArray(String[]::new);
+        }
+    }
+
+    /**
+     * Prefixes aliases with the generation of the material they belong to such that private key and certificate chain of one handshake
+     * always belong together, even if material is swapped in between.
+     */
+    private class ReloadingKeyManager extends X509ExtendedKeyManager {
+
+        @Override
+        public String[] getClientAliases(String keyType, Principal[] issuers) {
+            Material material = current.get();
+            return material.aliases(material.keyManager.getClientAliases(keyType, issuers));
+        }
+
+        @Override
+        public String chooseClientAlias(String[] keyTypes, Principal[] issuers, Socket socket) {
+            Material material = current.get();
+            return material.alias(material.keyManager.chooseClientAlias(keyTypes, issuers, socket));
+        }
+
+        @Override
+        public String chooseEngineClientAlias(String[] keyTypes, Principal[] issuers, SSLEngine engine) {
+            Material material = current.get();
+            return material.alias(material.keyManager.chooseEngineClientAlias(keyTypes, issuers, engine));
+        }
+
+        @Override
+        public String[] getServerAliases(String keyType, Principal[] issuers) {
+            Material material = current.get();
+            return material.aliases(material.keyManager.getServerAliases(keyType, issuers));
+        }
+
+        @Override
+        public String chooseServerAlias(String keyType, Principal[] issuers, Socket socket) {
+            Material material = current.get();
+            return material.alias(material.keyManager.chooseServerAlias(keyType, issuers, socket));
+        }
+
+        @Override
+        public String chooseEngineServerAlias(String keyType, Principal[] issuers, SSLEngine engine) {
+            Material material = current.get();
+            return material.alias(material.keyManager.chooseEngineServerAlias(keyType, issuers, engine));
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            Material material = materialFor(alias);
+            return material == null ? null : material.keyManager.getCertificateChain(delegateAlias(alias));
+        }
+
+        @Override
+        public PrivateKey getPrivateKey(String alias) {
+            Material material = materialFor(alias);
+            return material == null ? null : material.keyManager.getPrivateKey(delegateAlias(alias));
+        }
+    }
+
+    private class ReloadingTrustManager extends X509ExtendedTrustManager {
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+            current.get().trustManager.checkClientTrusted(chain, authType, socket);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) throws CertificateException {
+            current.get().trustManager.checkServerTrusted(chain, authType, socket);
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+            current.get().trustManager.checkClientTrusted(chain, authType, engine);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) throws CertificateException {
+            current.get().trustManager.checkServerTrusted(chain, authType, engine);
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            current.get().trustManager.checkClientTrusted(chain, authType);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            current.get().trustManager.checkServerTrusted(chain, authType);
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return current.get().trustManager.getAcceptedIssuers();
+        }
+    }
+}
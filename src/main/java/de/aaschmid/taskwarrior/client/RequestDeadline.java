@@ -0,0 +1,333 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.aaschmid.taskwarrior.TaskwarriorException;
+import de.aaschmid.taskwarrior.client.TaskwarriorClientTimeoutException.Phase;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Deadline of a single request whose remaining budget is spread across its phases. All sockets of the request are closed on expiry or
+ * cancellation such that also phases without socket timeouts, e.g. writing, are aborted.
+ * <p>
+ * Parallel attempts of the same request, e.g. hedged ones, get a {@link #child(Optional)} deadline which can be cancelled separately.
+ */
+class RequestDeadline implements AutoCloseable {
+
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread result = new Thread(r, "taskwarrior-request-deadline");
+        result.setDaemon(true);
+        return result;
+    });
+
+    static {
+        WATCHDOG.setRemoveOnCancelPolicy(true);
+    }
+
+    private final Optional<Duration> timeout;
+    private final long deadlineNanos;
+    private final RequestDeadline parent;
+    private final Optional<InetSocketAddress> avoidedAddress;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final ScheduledFuture<?> watchdog;
+    private final List<Runnable> abortListeners = new ArrayList<>();
+    private final Runnable parentAborted = this::aborted;
+    private boolean abortListenersRun; // guarded by abortListeners
+    private final AtomicReference<Phase> furthestPhase = new AtomicReference<>(Phase.CONNECT);
+
+    private volatile Phase phase = Phase.CONNECT;
+    private volatile boolean expired;
+    private volatile boolean cancelled;
+    private volatile InetSocketAddress connectedAddress;
+
+    /** @param timeout budget of the whole request starting now; unlimited if empty */
+    RequestDeadline(Optional<Duration> timeout) {
+        this(requireNonNull(timeout, "'timeout' must not be null."),
+                System.nanoTime() + timeout.map(Duration::toNanos).orElse(0L),
+                null,
+                Optional.empty());
+    }
+
+    private RequestDeadline(Optional<Duration> timeout, long deadlineNanos, RequestDeadline parent,
+            Optional<InetSocketAddress> avoidedAddress) {
+        this.timeout = timeout;
+        this.deadlineNanos = deadlineNanos;
+        this.parent = parent;
+        this.avoidedAddress = avoidedAddress;
+        this.watchdog = timeout.isPresent() ? WATCHDOG.schedule(this::expire, remainingNanos(), TimeUnit.NANOSECONDS) : null;
+        if (parent != null) {
+            parent.addAbortListener(parentAborted);
+        }
+    }
+
+    /**
+     * @param avoidedAddress server address the attempt should connect to only if no other is available
+     * @return deadline of a parallel attempt of this request sharing its budget, cancelled together with this deadline; must be closed
+     */
+    RequestDeadline child(Optional<InetSocketAddress> avoidedAddress) {
+        return new RequestDeadline(timeout, deadlineNanos, this, requireNonNull(avoidedAddress, "'avoidedAddress' must not be null."));
+    }
+
+    void enter(Phase phase) {
+        this.phase = requireNonNull(phase, "'phase' must not be null.");
+        reached(phase);
+        if (isCancelled()) {
+            throw new TaskwarriorClientCancelledException("Request was cancelled before %s.", phase);
+        }
+        if (isExpired()) {
+            throw timeoutException(null);
+        }
+    }
+
+    /** @return socket timeout for the current phase in milliseconds as minimum of given phase timeout and remaining budget, 0 if none */
+    int socketTimeoutMillis(Optional<Duration> phaseTimeout) {
+        long result = phaseTimeout.map(Duration::toNanos).orElse(Long.MAX_VALUE);
+        if (timeout.isPresent()) {
+            result = Math.min(result, remainingNanos());
+        }
+        if (result == Long.MAX_VALUE) {
+            return 0;
+        }
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(result)));
+    }
+
+    /** @return remaining budget in nanoseconds, {@link Long#MAX_VALUE} if unlimited */
+    long getRemainingNanos() {
+        return timeout.isPresent() ? remainingNanos() : Long.MAX_VALUE;
+    }
+
+    private long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * @throws TaskwarriorClientTimeoutException if this request expired
+     * @throws TaskwarriorClientCancelledException if this request was cancelled
+     */
+    void checkNotAborted() {
+        if (isCancelled()) {
+            throw new TaskwarriorClientCancelledException("Request was cancelled during %s.", phase);
+        }
+        if (isExpired()) {
+            throw timeoutException(null);
+        }
+    }
+
+    /**
+     * Runs the given listener once this request or its parent expires or is cancelled, e.g. to wake up a thread waiting for something
+     * else; immediately if already. Remove it by {@link #removeAbortListener(Runnable)} as soon as it is not needed anymore.
+     */
+    void addAbortListener(Runnable listener) {
+        synchronized (abortListeners) {
+            if (!abortListenersRun) {
+                abortListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    void removeAbortListener(Runnable listener) {
+        synchronized (abortListeners) {
+            abortListeners.remove(listener);
+        }
+    }
+
+    private void aborted() {
+        Runnable[] listeners;
+        synchronized (abortListeners) {
+            if (abortListenersRun) {
+                return;
+            }
+            abortListenersRun = true;
+            listeners = abortListeners.toArray(new Runnable[0]);
+            abortListeners.clear();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /** Registers a socket of this request to be closed on expiry or cancellation, i.e. immediately if already expired or cancelled. */
+    void register(Socket socket) {
+        synchronized (sockets) {
+            sockets.add(socket);
+        }
+        if (parent != null) {
+            parent.register(socket);
+        }
+        if (expired || cancelled) {
+            closeSockets();
+        }
+    }
+
+    void connected(InetSocketAddress address) {
+        this.connectedAddress = address;
+    }
+
+    /** @return server address connected to, if already connected */
+    Optional<InetSocketAddress> getConnectedAddress() {
+        return Optional.ofNullable(connectedAddress);
+    }
+
+    Optional<InetSocketAddress> getAvoidedAddress() {
+        return avoidedAddress;
+    }
+
+    void cancel() {
+        cancelled = true;
+        closeSockets();
+        aborted();
+    }
+
+    /** @return {@code true} if the budget of this request is used up, i.e. a failure is caused by the deadline rather than the server */
+    boolean isExpired() {
+        return expired || timeout.isPresent() && remainingNanos() <= 0;
+    }
+
+    boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled();
+    }
+
+    /** @return phase entered last */
+    Phase getPhase() {
+        return phase;
+    }
+
+    /** @return latest phase entered by this request or any of its child deadlines, e.g. hedges which may have been written already */
+    Phase getFurthestPhase() {
+        return furthestPhase.get();
+    }
+
+    private void reached(Phase phase) {
+        furthestPhase.accumulateAndGet(phase, (current, entered) -> current.compareTo(entered) >= 0 ? current : entered);
+        if (parent != null) {
+            parent.reached(phase);
+        }
+    }
+
+    /** @return {@code true} if neither cancelled nor expired and the remaining budget exceeds the given delay */
+    boolean allowsDelay(long delayNanos) {
+        return !isCancelled() && !expired && (!timeout.isPresent() || remainingNanos() > delayNanos);
+    }
+
+    private void expire() {
+        expired = true;
+        closeSockets();
+        aborted();
+    }
+
+    /**
+     * Waits for the result of an exchange shared with other requests, e.g. a coalesced one, until it completes or this request expires or
+     * is cancelled. The shared exchange itself is not aborted in the latter case. A {@link RuntimeException} the exchange failed with is
+     * rethrown as is.
+     *
+     * @throws TaskwarriorClientTimeoutException if this request expired before the shared exchange completed
+     * @throws TaskwarriorClientCancelledException if this request was cancelled or interrupted before the shared exchange completed
+     */
+    <T> T await(CompletableFuture<T> shared) {
+        CompletableFuture<Void> aborted = new CompletableFuture<>();
+        Runnable listener = () -> aborted.complete(null);
+        addAbortListener(listener);
+        try {
+            CompletableFuture<Object> completion = CompletableFuture.anyOf(shared, aborted);
+            if (timeout.isPresent()) {
+                completion.get(remainingNanos(), TimeUnit.NANOSECONDS);
+            } else {
+                completion.get();
+            }
+        } catch (ExecutionException | TimeoutException e) {
+            // handled below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskwarriorClientCancelledException(e, "Request was interrupted while waiting for a shared exchange.");
+        } finally {
+            removeAbortListener(listener);
+        }
+
+        if (shared.isDone()) {
+            return Futures.getUninterruptibly(shared);
+        }
+        if (isCancelled()) {
+            throw new TaskwarriorClientCancelledException("Request was cancelled while waiting for a shared exchange.");
+        }
+        throw new TaskwarriorClientTimeoutException(null, phase, "Request deadline of %d ms exceeded while waiting for a shared exchange.",
+                timeout.map(Duration::toMillis).orElse(0L));
+    }
+
+    private void closeSockets() {
+        Socket[] registered;
+        synchronized (sockets) {
+            registered = sockets.toArray(new Socket[0]); // closed outside of the monitor as closing may block sending close_notify
+        }
+        for (Socket socket : registered) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore, request fails anyway
+            }
+        }
+    }
+
+    /**
+     * @return a {@link TaskwarriorClientTimeoutException} for the current phase if the given failure was caused by the deadline or a
+     *         socket timeout, a {@link TaskwarriorClientCancelledException} if the request was cancelled and otherwise {@code null}
+     */
+    TaskwarriorException translate(Exception failure) {
+        if (isCancelled()) {
+            return new TaskwarriorClientCancelledException(failure, "Request was cancelled during %s.", phase);
+        }
+        if (expired || causedBySocketTimeout(failure)) {
+            return timeoutException(failure);
+        }
+        return null;
+    }
+
+    private TaskwarriorClientTimeoutException timeoutException(Exception cause) {
+        Phase current = phase;
+        if (isExpired()) {
+            return new TaskwarriorClientTimeoutException(cause, current, "Request deadline of %d ms exceeded during %s.",
+                    timeout.map(Duration::toMillis).orElse(0L), current);
+        }
+        return new TaskwarriorClientTimeoutException(cause, current, "Timeout for %s exceeded.", current);
+    }
+
+    private static boolean causedBySocketTimeout(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof SocketTimeoutException) {
+                return true;
+            }
+            for (Throwable suppressed : t.getSuppressed()) {
+                if (causedBySocketTimeout(suppressed)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+        if (parent != null) {
+            parent.removeAbortListener(parentAborted);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import de.aaschmid.taskwarrior.client.MemoryBudgetOptions.ExhaustedPolicy;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Process-wide budget of bytes for responses being received at the same time, such that a burst of large responses, e.g. initial syncs
+ * of big accounts, cannot run the heap out of memory.
+ * <p>
+ * Each response reserves its length as announced by its length prefix before its buffer is allocated and releases it as soon as it is
+ * parsed. A response which does not fit into the remaining budget is handled according to {@link MemoryBudgetOptions#getExhaustedPolicy()}
+ * and, if waiting, waits in arrival order such that large responses are not starved by small ones. A single response larger than the
+ * whole budget can never fit, hence it is spilled or rejected right away. Rejected responses fail with a
+ * {@link TaskwarriorClientLimitExceededException}, spilled ones are received into a temp file without reserving any bytes.
+ * <p>
+ * Share one instance between all {@link TaskwarriorClient}s of a process, see {@link TaskwarriorClientOptions#getResponseMemoryBudget()}.
+ */
+public class ResponseMemoryBudget {
+
+    private final MemoryBudgetOptions options;
+
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Deque<Object> waiting = new ArrayDeque<>();
+    private long usedBytes;
+    private long peakUsedBytes;
+
+    public ResponseMemoryBudget(MemoryBudgetOptions options) {
+        this.options = requireNonNull(options, "'options' must not be null.");
+    }
+
+    public long getMaxBytes() {
+        return options.getMaxBytes();
+    }
+
+    /** @return bytes currently reserved by responses being received */
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return maximum of {@link #getUsedBytes()} so far */
+    public long getPeakUsedBytes() {
+        lock.lock();
+        try {
+            return peakUsedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return number of responses currently waiting for enough free bytes */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return number of responses admitted so far */
+    public long getReservationCount() {
+        return reservations.sum();
+    }
+
+    /** @return number of responses which had to wait for enough free bytes, including rejected ones */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** @return number of responses received into a temp file because they did not fit into the remaining budget */
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+
+    boolean isSpilling() {
+        return options.getExhaustedPolicy() == ExhaustedPolicy.SPILL;
+    }
+
+    /**
+     * Reserves the given bytes, which must be {@link #release(long) released} afterwards unless the response must be spilled.
+     *
+     * @param deadline of the request receiving the response, which waiting for free bytes is bound by; {@code null} if unlimited
+     * @return reserved bytes which are {@code bytes}, or {@code -1} if the response must be spilled
+     * @throws TaskwarriorClientLimitExceededException if the bytes could not be reserved according to the policy or exceed
+     *         {@link #getMaxBytes()} and the policy does not spill
+     * @throws TaskwarriorClientTimeoutException if the request expired while waiting
+     * @throws TaskwarriorClientCancelledException if the request was cancelled while waiting
+     */
+    long reserve(long bytes, RequestDeadline deadline) {
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && fits(bytes)) {
+                admit(bytes);
+                return bytes;
+            }
+            if (options.getExhaustedPolicy() == ExhaustedPolicy.SPILL) {
+                spilled.increment();
+                return -1;
+            }
+            if (bytes > options.getMaxBytes()) {
+                rejected.increment();
+                throw new TaskwarriorClientLimitExceededException("Response of %d bytes exceeds response memory budget of %d bytes.",
+                        bytes,
+                        options.getMaxBytes());
+            }
+            if (options.getExhaustedPolicy() == ExhaustedPolicy.FAIL) {
+                rejected.increment();
+                throw new TaskwarriorClientLimitExceededException(
+                        "Response memory budget exhausted, %d of %d bytes in use, %d bytes requested.",
+                        usedBytes,
+                        options.getMaxBytes(),
+                        bytes);
+            }
+            awaitTurn(bytes, deadline);
+            admit(bytes);
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitTurn(long bytes, RequestDeadline deadline) {
+        Object ticket = new Object();
+        waiting.addLast(ticket);
+        waits.increment();
+        long remainingNanos = options.getMaxWait().toNanos();
+        Runnable wakeUp = this::signalReleased; // e.g. if cancelled while waiting
+        if (deadline != null) {
+            remainingNanos = Math.min(remainingNanos, deadline.getRemainingNanos());
+            deadline.addAbortListener(wakeUp);
+        }
+        try {
+            while (waiting.peekFirst() != ticket || !fits(bytes)) {
+                if (deadline != null) {
+                    deadline.checkNotAborted();
+                }
+                if (remainingNanos <= 0) {
+                    rejected.increment();
+                    throw new TaskwarriorClientLimitExceededException(
+                            "Response memory budget exhausted for %s, %d of %d bytes in use, %d bytes requested.",
+                            options.getMaxWait(),
+                            usedBytes,
+                            options.getMaxBytes(),
+                            bytes);
+                }
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new TaskwarriorClientLimitExceededException("Interrupted while waiting for %d bytes of response memory budget.", bytes);
+        } finally {
+            if (deadline != null) {
+                deadline.removeAbortListener(wakeUp);
+            }
+            waiting.remove(ticket);
+            released.signalAll(); // next in line may fit now
+        }
+    }
+
+    private boolean fits(long bytes) {
+        return usedBytes + bytes <= options.getMaxBytes();
+    }
+
+    private void admit(long bytes) {
+        usedBytes += bytes;
+        peakUsedBytes = Math.max(peakUsedBytes, usedBytes);
+        reservations.increment();
+    }
+
+    /** @param reserved bytes as returned by {@link #reserve(long, RequestDeadline)} */
+    void release(long reserved) {
+        lock.lock();
+        try {
+            usedBytes -= reserved;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalReleased() {
+        lock.lock();
+        try {
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
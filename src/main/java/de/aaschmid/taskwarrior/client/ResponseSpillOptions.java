@@ -0,0 +1,42 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/**
+ * Immutable options of receiving large responses into memory-mapped temp files instead of heap, see
+ * {@link TaskwarriorClientOptions#getResponseSpill()}.
+ */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface ResponseSpillOptions {
+
+    class Builder extends ResponseSpillOptionsBuilder {}
+
+    static Builder responseSpillOptionsBuilder() {
+        return new Builder();
+    }
+
+    static ResponseSpillOptions defaultResponseSpillOptions() {
+        return responseSpillOptionsBuilder().build();
+    }
+
+    /** Responses longer than this number of bytes are received into a temp file. */
+    @Value.Default
+    default int getThresholdBytes() {
+        return 16 * 1024 * 1024;
+    }
+
+    /** Directory to create temp files in; defaults to the system's temp directory. */
+    Optional<Path> getDirectory();
+
+    @Value.Check
+    default void check() {
+        if (getThresholdBytes() < 0) {
+            throw new IllegalArgumentException(String.format("'thresholdBytes' must not be negative but was %d.", getThresholdBytes()));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options of a {@link TaskwarriorRetryPolicy}. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface RetryOptions {
+
+    class Builder extends RetryOptionsBuilder {}
+
+    static Builder retryOptionsBuilder() {
+        return new Builder();
+    }
+
+    static RetryOptions defaultRetryOptions() {
+        return retryOptionsBuilder().build();
+    }
+
+    /** Maximum number of attempts per request including the first one. */
+    @Value.Default
+    default int getMaxAttempts() {
+        return 3;
+    }
+
+    /** Lower bound of the delay before every retry. */
+    @Value.Default
+    default Duration getBaseDelay() {
+        return Duration.ofMillis(50);
+    }
+
+    /** Upper bound of the delay before every retry. */
+    @Value.Default
+    default Duration getMaxDelay() {
+        return Duration.ofSeconds(2);
+    }
+
+    /** Retry tokens earned by every request, e.g. {@code 0.1} allows at most 10% additional load by retries in the long run. */
+    @Value.Default
+    default double getRetryBudgetRatio() {
+        return 0.1;
+    }
+
+    /** Maximum number of retry tokens which can be saved up, i.e. retries allowed in a burst; the budget starts full. */
+    @Value.Default
+    default int getRetryBudgetCapacity() {
+        return 10;
+    }
+
+    @Value.Check
+    default void check() {
+        if (getMaxAttempts() < 1) {
+            throw new IllegalArgumentException(String.format("'maxAttempts' must be positive but was %d.", getMaxAttempts()));
+        }
+        if (getBaseDelay().isNegative() || getBaseDelay().compareTo(getMaxDelay()) > 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Delays must satisfy 0 <= 'baseDelay' <= 'maxDelay' but were %s and %s.",
+                    getBaseDelay(),
+                    getMaxDelay()));
+        }
+        if (getRetryBudgetRatio() < 0 || getRetryBudgetRatio() > 1) {
+            throw new IllegalArgumentException(String.format("'retryBudgetRatio' must be in [0, 1] but was %s.", getRetryBudgetRatio()));
+        }
+        if (getRetryBudgetCapacity() < 0) {
+            throw new IllegalArgumentException(
+                    String.format("'retryBudgetCapacity' must not be negative but was %d.", getRetryBudgetCapacity()));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, least recently used cache of {@link SSLContext}s keyed by the content hash of CA certificate, private key certificate and
+ * private key files, such that all clients using the same credentials share a single, thread-safe {@link SSLContext} and reading and
+ * parsing of keys and certificates is done only once per process.
+ */
+class SslContextCache {
+
+    static final SslContextCache SHARED = new SslContextCache(16);
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final Map<String, CompletableFuture<SSLContext>> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    SslContextCache(int capacity) {
+        this.cache = new LinkedHashMap<String, CompletableFuture<SSLContext>>(capacity, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<SSLContext>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Returns the cached {@link SSLContext} for the current content of the given keys or creates it once using the given factory. */
+    SSLContext get(TaskwarriorSslKeys sslKeys, Supplier<SSLContext> factory) {
+        File[] files = { sslKeys.getCaCertFile(), sslKeys.getPrivateKeyCertFile(), sslKeys.getPrivateKeyFile() };
+        if (!Arrays.stream(files).allMatch(File::isFile)) {
+            return factory.get(); // let factory report missing files
+        }
+        String key = contentHash(files);
+
+        CompletableFuture<SSLContext> future;
+        boolean create = false;
+        synchronized (cache) {
+            future = cache.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                cache.put(key, future);
+                create = true;
+            }
+        }
+
+        if (!create) {
+            hits.increment();
+            return Futures.getUninterruptibly(future);
+        }
+        misses.increment();
+        try {
+            SSLContext result = factory.get();
+            future.complete(result);
+            return result;
+        } catch (Throwable t) { // including errors, as later callers for the same keys would wait forever otherwise
+            synchronized (cache) {
+                cache.remove(key, future);
+            }
+            future.completeExceptionally(t);
+            throw t;
+        }
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    static String contentHash(File... files) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new TaskwarriorSslContextException(e, "Cannot create message digest for algorithm '%s'.", HASH_ALGORITHM);
+        }
+        for (File file : files) {
+            try {
+                byte[] content = Files.readAllBytes(file.toPath());
+                digest.update(ByteBuffer.allocate(Long.BYTES).putLong(content.length).array()); // separate file contents unambiguously
+                digest.update(content);
+            } catch (IOException e) {
+                throw new TaskwarriorSslContextException(e, "Could not read '%s' to calculate its content hash.", file);
+            }
+        }
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+}
@@ -3,13 +3,21 @@ package de.aaschmid.taskwarrior.client;
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.TrustManagerFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static java.util.Objects.requireNonNull;
@@ -18,19 +26,55 @@ class SslContextFactory {
 
     private static final String DEFAULT_PROTOCOL = "TLS";
 
+    /** Returns an {@link SSLContext} for the given keys which is shared with all callers using keys with the same content. */
     static SSLContext createSslContext(TaskwarriorSslKeys sslKeys) {
+        return createSslContext(sslKeys, Optional.empty());
+    }
+
+    /**
+     * Returns an {@link SSLContext} for the given keys which is shared with all callers using keys with the same content.
+     *
+     * @param keyStoreCacheDirectory directory to persist the built {@link KeyStore} to and load it from, see {@link KeyStoreFileCache}
+     */
+    static SSLContext createSslContext(TaskwarriorSslKeys sslKeys, Optional<Path> keyStoreCacheDirectory) {
         requireNonNull(sslKeys, "'sslKeys' must not be null.");
+        requireNonNull(keyStoreCacheDirectory, "'keyStoreCacheDirectory' must not be null.");
+
+        return SslContextCache.SHARED.get(sslKeys, () -> createUncachedSslContext(sslKeys, keyStoreCacheDirectory));
+    }
+
+    /**
+     * Returns an {@link SSLContext} for the given keys which reloads key and trust material if the content of any of the files changes
+     * and which is shared with all callers using the same files, see {@link ReloadingSslContext}.
+     */
+    static SSLContext createReloadingSslContext(TaskwarriorSslKeys sslKeys) {
+        return CertificateWatcher.SHARED.watch(sslKeys).getSslContext();
+    }
+
+    private static SSLContext createUncachedSslContext(TaskwarriorSslKeys sslKeys, Optional<Path> keyStoreCacheDirectory) {
+        if (keyStoreCacheDirectory.isPresent()) {
+            String keystorePassword = SslContextCache.contentHash(
+                    sslKeys.getCaCertFile(),
+                    sslKeys.getPrivateKeyCertFile(),
+                    sslKeys.getPrivateKeyFile());
+            KeyStore keyStore = new KeyStoreFileCache(keyStoreCacheDirectory.get()).loadOrBuild(sslKeys, keystorePassword,
+                    () -> buildKeyStore(sslKeys, KeyStoreFileCache.KEY_STORE_TYPE, keystorePassword));
+            return createSslContext(DEFAULT_PROTOCOL, keyStore, keystorePassword);
+        }
 
         String keystorePassword = UUID.randomUUID().toString();
+        KeyStore keyStore = buildKeyStore(sslKeys, KeyStore.getDefaultType(), keystorePassword);
+        return createSslContext(DEFAULT_PROTOCOL, keyStore, keystorePassword);
+    }
 
-        KeyStore keyStore = new KeyStoreBuilder()
+    private static KeyStore buildKeyStore(TaskwarriorSslKeys sslKeys, String keyStoreType, String keystorePassword) {
+        return new KeyStoreBuilder()
+                .withKeyStoreType(keyStoreType)
                 .withPasswordProtection(keystorePassword)
                 .withCaCertFile(sslKeys.getCaCertFile())
                 .withPrivateKeyCertFile(sslKeys.getPrivateKeyCertFile())
                 .withPrivateKeyFile(sslKeys.getPrivateKeyFile())
                 .build();
-
-        return createSslContext(DEFAULT_PROTOCOL, keyStore, keystorePassword);
     }
 
     /** @param protocol see {@link SSLContext#getInstance(String)} for valid protocols */
@@ -53,6 +97,57 @@ class SslContextFactory {
         return sslContext;
     }
 
+    /**
+     * Creates the {@link SSLParameters} to apply to each socket of the given context for the given profile.
+     *
+     * @throws TaskwarriorSslContextException if the profile contains protocols or cipher suites not supported by the context or named
+     *         groups but the JVM does not support to configure them
+     */
+    static SSLParameters createSslParameters(SSLContext sslContext, TaskwarriorTlsProfile tlsProfile) {
+        requireNonNull(sslContext, "'sslContext' must not be null.");
+        requireNonNull(tlsProfile, "'tlsProfile' must not be null.");
+
+        SSLParameters supported = sslContext.getSupportedSSLParameters();
+        SSLParameters result = sslContext.getDefaultSSLParameters();
+        if (!tlsProfile.getProtocols().isEmpty()) {
+            result.setProtocols(supportedOrThrow("protocols", tlsProfile.getProtocols(), supported.getProtocols()));
+        }
+        if (!tlsProfile.getCipherSuites().isEmpty()) {
+            result.setCipherSuites(supportedOrThrow("cipher suites", tlsProfile.getCipherSuites(), supported.getCipherSuites()));
+        }
+        if (!tlsProfile.getNamedGroups().isEmpty()) {
+            setNamedGroups(result, tlsProfile.getNamedGroups());
+        }
+        return result;
+    }
+
+    private static String[] supportedOrThrow(String description, List<String> values, String[] supported) {
+        List<String> unsupported = new ArrayList<>(values);
+        unsupported.removeAll(Arrays.asList(supported));
+        if (!unsupported.isEmpty()) {
+            throw new TaskwarriorSslContextException("Unsupported TLS %s %s, supported are %s.", description, unsupported,
+                    Arrays.toString(supported));
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /** Uses {@code SSLParameters#setNamedGroups(String[])} reflectively as it is available since Java 20 only. */
+    private static void setNamedGroups(SSLParameters sslParameters, List<String> namedGroups) {
+        Method setNamedGroups;
+        try {
+            setNamedGroups = SSLParameters.class.getMethod("setNamedGroups", String[].class);
+        } catch (NoSuchMethodException e) {
+            throw new TaskwarriorSslContextException(e,
+                    "Configuring TLS named groups %s requires Java 20 or later, use system property 'jdk.tls.namedGroups' instead.",
+                    namedGroups);
+        }
+        try {
+            setNamedGroups.invoke(sslParameters, (Object) namedGroups.toArray(new String[0]));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new TaskwarriorSslContextException(e, "Could not configure TLS named groups %s.", namedGroups);
+        }
+    }
+
     private static KeyManager[] loadKeyMaterial(KeyStore keystore, String keyStorePassword)
             throws NoSuchAlgorithmException, UnrecoverableKeyException, KeyStoreException {
         KeyManagerFactory result = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
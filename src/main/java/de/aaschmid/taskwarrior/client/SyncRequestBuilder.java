@@ -0,0 +1,166 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Builds a sync request by encoding the optional sync key and task JSON lines one at a time straight to UTF-8 into a growable buffer
+ * already laid out as serialized message, such that memory stays proportional to the encoded size instead of joining all lines into
+ * payload strings first. The length prefix is computed once the request is complete.
+ * <p>
+ * The request is either {@link #build() built} as {@link TaskwarriorMessage} to be sent by a {@link TaskwarriorClient}, which writes the
+ * encoded bytes as they are, or {@link #writeTo(OutputStream) written} to a stream directly. The buffer is kept for the next request
+ * after {@link #reset(TaskwarriorRequestHeader)}, so a builder can be reused for many requests by the same thread; instances are not
+ * thread-safe.
+ */
+public final class SyncRequestBuilder {
+
+    private static final int LENGTH_PREFIX_BYTES = 4;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private Map<String, String> headers;
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int payloadStart;
+
+    private SyncRequestBuilder() {
+    }
+
+    /** @param header non-null header of type {@link MessageType#SYNC} */
+    public static SyncRequestBuilder syncRequestBuilder(TaskwarriorRequestHeader header) {
+        return new SyncRequestBuilder().reset(header);
+    }
+
+    /**
+     * Discards the current request, if any, and starts a new one keeping the already grown buffer.
+     *
+     * @param header non-null header of type {@link MessageType#SYNC}
+     * @return this builder
+     */
+    public SyncRequestBuilder reset(TaskwarriorRequestHeader header) {
+        requireNonNull(header, "'header' must not be null.");
+        if (header.getType() != MessageType.SYNC) {
+            throw new IllegalArgumentException(
+                    String.format("Header must be of type '%s' but was '%s'.", MessageType.SYNC, header.getType()));
+        }
+
+        headers = header.toMap();
+        size = LENGTH_PREFIX_BYTES;
+        for (Map.Entry<String, String> entry : headers.entrySet()) {
+            append(entry.getKey());
+            append(": ");
+            append(entry.getValue());
+            appendByte('\n');
+        }
+        appendByte('\n');
+        payloadStart = size;
+        return this;
+    }
+
+    /**
+     * Adds the sync key received by the previous sync as first payload line.
+     *
+     * @throws IllegalStateException if a sync key or task has already been added
+     * @return this builder
+     */
+    public SyncRequestBuilder syncKey(String syncKey) {
+        requireNonNull(syncKey, "'syncKey' must not be null.");
+        if (size > payloadStart) {
+            throw new IllegalStateException("Sync key must be added before any task.");
+        }
+        append(syncKey);
+        return this;
+    }
+
+    /**
+     * Adds the JSON representation of a modified task as next payload line.
+     *
+     * @return this builder
+     */
+    public SyncRequestBuilder task(CharSequence json) {
+        requireNonNull(json, "'json' must not be null.");
+        if (size > payloadStart) {
+            appendByte('\n');
+        }
+        append(json);
+        return this;
+    }
+
+    /** @return number of bytes of the serialized request including its length prefix */
+    public int size() {
+        return size;
+    }
+
+    /** @return the request as message owning a copy of the encoded bytes, which {@link TaskwarriorClient} sends as they are */
+    public TaskwarriorMessage build() {
+        writeLengthPrefix();
+        return new EncodedTaskwarriorMessage(headers, Arrays.copyOf(buffer, size), size > payloadStart ? payloadStart : -1);
+    }
+
+    /** Writes the serialized request including its length prefix without copying it. */
+    public void writeTo(OutputStream out) throws IOException {
+        requireNonNull(out, "'out' must not be null.");
+        writeLengthPrefix();
+        out.write(buffer, 0, size);
+    }
+
+    private void writeLengthPrefix() {
+        buffer[0] = (byte) (size >> 24);
+        buffer[1] = (byte) (size >> 16);
+        buffer[2] = (byte) (size >> 8);
+        buffer[3] = (byte) size;
+    }
+
+    /** Encodes like {@link String#getBytes(java.nio.charset.Charset)} with UTF-8, i.e. replaces unpaired surrogates by {@code '?'}. */
+    private void append(CharSequence chars) {
+        int length = chars.length();
+        ensureCapacity(length); // exact for ASCII, grown further on demand otherwise
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                appendByte(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[size++] = (byte) (0xc0 | c >> 6);
+                buffer[size++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                ensureCapacity(4);
+                buffer[size++] = (byte) (0xf0 | codePoint >> 18);
+                buffer[size++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buffer[size++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buffer[size++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                appendByte('?');
+            } else {
+                ensureCapacity(3);
+                buffer[size++] = (byte) (0xe0 | c >> 12);
+                buffer[size++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[size++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+    }
+
+    private void appendByte(int b) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) b;
+    }
+
+    private void ensureCapacity(int additional) {
+        long required = (long) size + additional;
+        if (required > buffer.length) {
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException(String.format("Sync request exceeds maximum size of %d bytes.", Integer.MAX_VALUE - 8));
+            }
+            buffer = Arrays.copyOf(buffer, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * buffer.length)));
+        }
+    }
+}
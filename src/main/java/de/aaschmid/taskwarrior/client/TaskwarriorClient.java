@@ -1,64 +1,404 @@
 package de.aaschmid.taskwarrior.client;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
+import de.aaschmid.taskwarrior.TaskwarriorException;
+import de.aaschmid.taskwarrior.client.TaskwarriorClientTimeoutException.Phase;
 import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.config.TaskwarriorResolvedConfiguration;
 import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.util.concurrent.BlockingThreads;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.defaultTaskwarriorClientOptions;
 import static de.aaschmid.taskwarrior.client.TaskwarriorMessageFactory.deserialize;
 import static de.aaschmid.taskwarrior.client.TaskwarriorMessageFactory.serialize;
 import static java.util.Objects.requireNonNull;
 
-public class TaskwarriorClient {
+public class TaskwarriorClient implements AutoCloseable {
+
+    private static final Executor ASYNC_EXECUTOR = BlockingThreads.newExecutor("taskwarrior-client-async");
 
     private final TaskwarriorConfiguration config;
+    private final TaskwarriorClientOptions options;
     private final SSLContext sslContext;
+    private final SSLParameters sslParameters;
+    private final boolean sessionResumption;
+    private final EndpointSelector endpointSelector;
+    private final Optional<WarmConnectionPool> warmPool;
+    private final TaskwarriorClientListener listener; // null if none to avoid any overhead
+    private final TaskwarriorWireCapture wireCapture; // null if disabled to avoid any overhead
+    private final ResponseMemoryBudget responseMemoryBudget; // null if unlimited
+    private final ResponseSpillOptions responseSpill; // null if disabled
 
     public TaskwarriorClient(TaskwarriorConfiguration config) {
-        this.config = requireNonNull(config, "'configuration' must not be null.");
-        this.sslContext = SslContextFactory.createSslContext(config);
+        this(config, defaultTaskwarriorClientOptions());
     }
 
-    @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "generated try-with-resources code causes failure in Java 11, see https://github.com/spotbugs/spotbugs/issues/756")
+    public TaskwarriorClient(TaskwarriorConfiguration config, TaskwarriorClientOptions options) {
+        requireNonNull(config, "'configuration' must not be null.");
+        this.options = requireNonNull(options, "'options' must not be null.");
+        this.config = TaskwarriorResolvedConfiguration.resolve(config, options.getServerHostTtl());
+        this.sslContext = options.isCertificateReloading()
+                ? SslContextFactory.createReloadingSslContext(this.config)
+                : SslContextFactory.createSslContext(this.config, options.getKeyStoreCacheDirectory());
+
+        TaskwarriorTlsProfile tlsProfile = this.config.getTlsProfile();
+        this.sslParameters = SslContextFactory.createSslParameters(sslContext, tlsProfile);
+        this.sessionResumption = tlsProfile.isSessionResumption();
+        this.endpointSelector = new EndpointSelector(options.getConnectionAttemptDelay());
+        this.listener = options.getListener().orElse(null);
+        this.wireCapture = options.getWireCapture().orElse(null);
+        this.responseMemoryBudget = options.getResponseMemoryBudget().orElse(null);
+        this.responseSpill = options.getResponseSpill().orElse(null);
+        this.warmPool = options.getWarmPool().map(o -> new WarmConnectionPool(o, this::openWarmSocket));
+    }
+
+    EndpointSelector getEndpointSelector() {
+        return endpointSelector;
+    }
+
+    /** @return warm pool of pre-handshaked connections, if enabled by {@link TaskwarriorClientOptions#getWarmPool()} */
+    Optional<WarmConnectionPool> getWarmPool() {
+        return warmPool;
+    }
+
+    /** Closes idle connections of the warm pool, if any; requests sent afterwards connect on demand. */
+    @Override
+    public void close() {
+        warmPool.ifPresent(WarmConnectionPool::close);
+    }
+
+    /** Sends the given message using the default request timeout of the options, if any. */
     public TaskwarriorMessage sendAndReceive(TaskwarriorMessage message) {
         requireNonNull(message, "'message' must not be null.");
 
-        try (Socket socket = sslContext.getSocketFactory().createSocket(config.getServerHost(), config.getServerPort())) {
-            return sendAndReceive(socket, message);
+        try (RequestDeadline deadline = new RequestDeadline(options.getRequestTimeout())) {
+            return send(message, deadline);
+        }
+    }
+
+    /**
+     * Sends the given message and awaits the response within the given timeout which is spread across connect, TLS handshake, write and
+     * read phase.
+     *
+     * @throws TaskwarriorClientTimeoutException containing the phase which ran out of time
+     */
+    public TaskwarriorMessage sendAndReceive(TaskwarriorMessage message, Duration timeout) {
+        requireNonNull(message, "'message' must not be null.");
+        requireNonNull(timeout, "'timeout' must not be null.");
+
+        try (RequestDeadline deadline = new RequestDeadline(Optional.of(timeout))) {
+            return send(message, deadline);
+        }
+    }
+
+    /** Sends the given message asynchronously using the default request timeout of the options, if any. */
+    public CompletableFuture<TaskwarriorMessage> sendAndReceiveAsync(TaskwarriorMessage message) {
+        requireNonNull(message, "'message' must not be null.");
+        return sendAsync(message, new RequestDeadline(options.getRequestTimeout()));
+    }
+
+    /**
+     * Sends the given message asynchronously within the given timeout starting now. Cancelling the returned future aborts the request by
+     * closing its connection.
+     *
+     * @see #sendAndReceive(TaskwarriorMessage, Duration)
+     */
+    public CompletableFuture<TaskwarriorMessage> sendAndReceiveAsync(TaskwarriorMessage message, Duration timeout) {
+        requireNonNull(message, "'message' must not be null.");
+        requireNonNull(timeout, "'timeout' must not be null.");
+        return sendAsync(message, new RequestDeadline(Optional.of(timeout)));
+    }
+
+    private CompletableFuture<TaskwarriorMessage> sendAsync(TaskwarriorMessage message, RequestDeadline deadline) {
+        CompletableFuture<TaskwarriorMessage> result = new CompletableFuture<>();
+        result.whenComplete((response, failure) -> {
+            if (result.isCancelled()) {
+                deadline.cancel();
+            }
+        });
+        ASYNC_EXECUTOR.execute(() -> {
+            try (RequestDeadline d = deadline) {
+                if (!result.isDone()) {
+                    result.complete(send(message, d));
+                }
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private TaskwarriorMessage send(TaskwarriorMessage message, RequestDeadline deadline) {
+        ClientEvents.Span span = ClientEvents.request();
+        try {
+            return coalescedExchange(message, deadline);
+        } catch (RuntimeException e) {
+            if (wireCapture != null) {
+                wireCapture.failed(message, e);
+            }
+            throw e;
+        } finally {
+            span.commit(message, payloadLength(message));
+        }
+    }
+
+    /** Avoids decoding the payload of requests built by a {@link SyncRequestBuilder}, whose length is given in bytes instead. */
+    private static long payloadLength(TaskwarriorMessage message) {
+        if (message instanceof EncodedTaskwarriorMessage) {
+            return ((EncodedTaskwarriorMessage) message).getPayloadSize();
+        }
+        return message.getPayload().isPresent() ? message.getPayload().get().length() : 0;
+    }
+
+    private TaskwarriorMessage coalescedExchange(TaskwarriorMessage message, RequestDeadline deadline) {
+        if (options.getRequestCoalescer().isPresent()) {
+            return options.getRequestCoalescer().get().execute(config, message, deadline, () -> retryingExchange(message, deadline));
+        }
+        return retryingExchange(message, deadline);
+    }
+
+    private TaskwarriorMessage retryingExchange(TaskwarriorMessage message, RequestDeadline deadline) {
+        if (options.getRetryPolicy().isPresent()) {
+            return options.getRetryPolicy().get().execute(message, deadline, attempt -> hedgedExchange(message, attempt));
+        }
+        return hedgedExchange(message, deadline);
+    }
+
+    private TaskwarriorMessage hedgedExchange(TaskwarriorMessage message, RequestDeadline deadline) {
+        if (options.getRequestHedger().isPresent()) {
+            return options.getRequestHedger().get().execute(message, deadline, attempt -> limitedExchange(message, attempt));
+        }
+        return limitedExchange(message, deadline);
+    }
+
+    private TaskwarriorMessage limitedExchange(TaskwarriorMessage message, RequestDeadline deadline) {
+        if (options.getConcurrencyLimiter().isPresent()) {
+            return options.getConcurrencyLimiter().get().execute(deadline, () -> exchange(message, deadline));
+        }
+        return exchange(message, deadline);
+    }
+
+    private TaskwarriorMessage exchange(TaskwarriorMessage message, RequestDeadline deadline) {
+        if (listener == null) {
+            return uninstrumentedExchange(message, deadline);
+        }
+        long start = System.nanoTime();
+        try {
+            TaskwarriorMessage result = uninstrumentedExchange(message, deadline);
+            listener.exchangeCompleted(message, System.nanoTime() - start, null);
+            return result;
+        } catch (RuntimeException e) {
+            listener.exchangeCompleted(message, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "generated try-with-resources code causes failure in Java 11, see https://github.com/spotbugs/spotbugs/issues/756")
+    private TaskwarriorMessage uninstrumentedExchange(TaskwarriorMessage message, RequestDeadline deadline) {
+        deadline.enter(Phase.CONNECT);
+        Optional<SSLSocket> warmSocket = warmPool.isPresent() ? warmPool.get().take(deadline.getAvoidedAddress()) : Optional.empty();
+        Socket connectedSocket;
+        long start = now();
+        if (warmSocket.isPresent()) {
+            connectedSocket = warmSocket.get();
+        } else {
+            List<InetSocketAddress> addresses = config.getServerAddresses();
+            start = phaseCompleted(message, TaskwarriorClientListener.Phase.RESOLVE, start);
+            connectedSocket = connect(addresses, deadline);
+            start = phaseCompleted(message, TaskwarriorClientListener.Phase.CONNECT, start);
+        }
+
+        InetSocketAddress address = (InetSocketAddress) connectedSocket.getRemoteSocketAddress();
+        deadline.connected(address);
+        deadline.register(connectedSocket);
+        try (SSLSocket socket = warmSocket.isPresent() ? warmSocket.get() : handshake(connectedSocket, address, message, deadline)) {
+            if (!warmSocket.isPresent()) {
+                phaseCompleted(message, TaskwarriorClientListener.Phase.HANDSHAKE, start);
+            }
+            return sendAndReceive(socket, message, deadline);
         } catch (IOException e) {
-            throw new TaskwarriorClientException(
+            if (isCausedByServer(deadline, e)) {
+                endpointSelector.failed(address);
+            }
+            throw translate(deadline, e, new TaskwarriorClientException(
                     e,
                     "Could not create socket connection to '%s:%d'.",
-                    config.getServerHost().getCanonicalHostName(),
-                    config.getServerPort());
+                    address.getAddress().getHostAddress(),
+                    address.getPort()));
+        } catch (TaskwarriorException e) {
+            if (isCausedByServer(deadline, e)) {
+                endpointSelector.failed(address);
+            }
+            throw translate(deadline, e, e);
+        }
+    }
+
+    /**
+     * @return {@code false} if the failure has a local cause, i.e. cancellation, the deadline given by the caller or the response memory
+     *         budget, which must not count against the server
+     */
+    private static boolean isCausedByServer(RequestDeadline deadline, Exception failure) {
+        return !deadline.isCancelled() && !deadline.isExpired() && !(failure instanceof TaskwarriorClientLimitExceededException);
+    }
+
+    private static TaskwarriorException translate(RequestDeadline deadline, Exception failure, TaskwarriorException otherwise) {
+        TaskwarriorException result = deadline.translate(failure);
+        return result == null ? otherwise : result;
+    }
+
+    /** @return current time in nanoseconds if a listener is registered, otherwise {@code 0} to avoid the overhead */
+    private long now() {
+        return listener == null ? 0 : System.nanoTime();
+    }
+
+    /** @return current time in nanoseconds if a listener is registered, otherwise {@code 0} */
+    private long phaseCompleted(TaskwarriorMessage message, TaskwarriorClientListener.Phase phase, long start) {
+        if (listener == null) {
+            return 0;
+        }
+        long result = System.nanoTime();
+        listener.phaseCompleted(message, phase, result - start);
+        return result;
+    }
+
+    /** @return plain socket connected to one of the given server addresses */
+    private Socket connect(List<InetSocketAddress> addresses, RequestDeadline deadline) {
+        try {
+            return endpointSelector.connect(
+                    addresses,
+                    deadline.getAvoidedAddress(),
+                    (address, register) -> connect(address, register, deadline));
+        } catch (IOException e) {
+            throw translate(deadline, e, new TaskwarriorClientException(e, "Could not create socket connection to any of %s.", addresses));
+        }
+    }
+
+    private Socket connect(InetSocketAddress address, Consumer<Socket> register, RequestDeadline deadline) throws IOException {
+        Socket result = new Socket();
+        register.accept(result);
+        deadline.register(result);
+        try {
+            result.connect(address, deadline.socketTimeoutMillis(options.getConnectTimeout()));
+            return result;
+        } catch (IOException e) {
+            result.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param request request the connection is opened for or {@code null} for warm pool connections
+     * @return socket layered over the given plain one whose handshake is completed; both are closed on failure
+     */
+    private SSLSocket handshake(Socket plainSocket, InetSocketAddress address, TaskwarriorMessage request, RequestDeadline deadline)
+            throws IOException {
+        SSLSocket result;
+        try {
+            result = (SSLSocket) sslContext.getSocketFactory().createSocket(plainSocket, address.getHostString(), address.getPort(), true);
+        } catch (IOException e) {
+            plainSocket.close();
+            throw e;
+        }
+        try {
+            deadline.register(result);
+            result.setSSLParameters(sslParameters);
+
+            deadline.enter(Phase.HANDSHAKE);
+            result.setSoTimeout(deadline.socketTimeoutMillis(options.getHandshakeTimeout()));
+            ClientEvents.Span span = ClientEvents.handshake();
+            result.startHandshake();
+            span.commit(request, 0);
+            if (!sessionResumption) {
+                result.getSession().invalidate(); // only prevents resumption by later connections
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            result.close();
+            throw e;
+        }
+    }
+
+    /** Opens a connection for the warm pool limited by the default request and phase timeouts. */
+    private SSLSocket openWarmSocket() throws IOException {
+        try (RequestDeadline deadline = new RequestDeadline(options.getRequestTimeout())) {
+            deadline.enter(Phase.CONNECT);
+            Socket plainSocket = connect(config.getServerAddresses(), deadline);
+            InetSocketAddress address = (InetSocketAddress) plainSocket.getRemoteSocketAddress();
+            try {
+                return handshake(plainSocket, address, null, deadline);
+            } catch (IOException | RuntimeException e) {
+                endpointSelector.failed(address);
+                throw e;
+            }
         }
     }
 
     @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "generated try-with-resources code causes failure in Java 11, see https://github.com/spotbugs/spotbugs/issues/756")
-    private TaskwarriorMessage sendAndReceive(Socket socket, TaskwarriorMessage message) {
+    private TaskwarriorMessage sendAndReceive(Socket socket, TaskwarriorMessage message, RequestDeadline deadline) {
         try (OutputStream out = socket.getOutputStream(); InputStream in = socket.getInputStream()) {
+            deadline.enter(Phase.WRITE);
+            long start = now();
             send(out, message);
-            return receive(in);
+            start = phaseCompleted(message, TaskwarriorClientListener.Phase.WRITE, start);
+
+            deadline.enter(Phase.READ);
+            socket.setSoTimeout(deadline.socketTimeoutMillis(options.getReadTimeout()));
+            if (listener == null) {
+                return receive(in, message, deadline);
+            }
+            return receive(new CountingInputStream(in), message, deadline, start);
         } catch (IOException e) {
-            throw new TaskwarriorClientException("Could not open input and/or output stream of socket.", e);
+            throw new TaskwarriorClientException(e, "Could not open input and/or output stream of socket.");
         }
     }
 
     private void send(OutputStream out, TaskwarriorMessage message) {
         try {
-            out.write(serialize(message));
+            byte[] bytes = serialize(message);
+            if (wireCapture != null) {
+                wireCapture.sent(message, bytes);
+            }
+            out.write(bytes);
             out.flush();
+            if (listener != null) {
+                listener.bytesSent(message, bytes.length);
+            }
         } catch (IOException e) {
-            throw new TaskwarriorClientException("Could not write and flush serialized message to output stream of socket.", e);
+            throw new TaskwarriorClientException(e, "Could not write and flush serialized message to output stream of socket.");
+        }
+    }
+
+    private TaskwarriorMessage receive(InputStream in, TaskwarriorMessage message, RequestDeadline deadline) {
+        if (wireCapture == null) {
+            return deserialize(in, responseMemoryBudget, deadline, responseSpill, data -> {
+            });
         }
+        return deserialize(in, responseMemoryBudget, deadline, responseSpill, data -> wireCapture.received(message, data));
     }
 
-    private TaskwarriorMessage receive(InputStream in) {
-        return deserialize(in);
+    private TaskwarriorMessage receive(CountingInputStream in, TaskwarriorMessage message, RequestDeadline deadline, long written) {
+        TaskwarriorMessage result = receive(in, message, deadline);
+        long parsed = System.nanoTime();
+        listener.bytesReceived(message, in.getCount());
+        listener.responseReceived(message, result);
+        listener.phaseCompleted(message, TaskwarriorClientListener.Phase.SERVER, in.getFirstReadNanos() - written);
+        listener.phaseCompleted(message, TaskwarriorClientListener.Phase.READ, in.getLastReadNanos() - in.getFirstReadNanos());
+        listener.phaseCompleted(message, TaskwarriorClientListener.Phase.PARSE, parsed - in.getLastReadNanos());
+        return result;
     }
 }
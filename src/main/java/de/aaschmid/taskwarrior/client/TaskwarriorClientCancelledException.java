@@ -0,0 +1,15 @@
+package de.aaschmid.taskwarrior.client;
+
+/** Exception occurs if a request of a {@link TaskwarriorClient} is cancelled, e.g. a slower hedged request or by its caller. */
+public class TaskwarriorClientCancelledException extends TaskwarriorClientException {
+
+    private static final long serialVersionUID = 7310658822349087524L;
+
+    public TaskwarriorClientCancelledException(Throwable cause, String format, Object... args) {
+        super(cause, format, args);
+    }
+
+    public TaskwarriorClientCancelledException(String format, Object... args) {
+        super(format, args);
+    }
+}
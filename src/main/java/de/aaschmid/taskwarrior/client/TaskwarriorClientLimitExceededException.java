@@ -0,0 +1,14 @@
+package de.aaschmid.taskwarrior.client;
+
+/**
+ * Exception occurs if a request is rejected by an {@link AdaptiveConcurrencyLimiter} because too many requests are in flight or if its
+ * response is rejected by a {@link ResponseMemoryBudget} because too many bytes are being received.
+ */
+public class TaskwarriorClientLimitExceededException extends TaskwarriorClientException {
+
+    private static final long serialVersionUID = 5126034837385094115L;
+
+    public TaskwarriorClientLimitExceededException(String format, Object... args) {
+        super(format, args);
+    }
+}
@@ -0,0 +1,53 @@
+package de.aaschmid.taskwarrior.client;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+
+/**
+ * Listener for instrumenting the exchanges of a {@link TaskwarriorClient} with a server, see
+ * {@link TaskwarriorClientOptions#getListener()}. Callbacks are invoked synchronously on the requesting thread and must therefore be fast
+ * and must not throw. Every attempt of a retried or hedged request is a separate exchange; phases skipped by a warm connection are not
+ * reported.
+ *
+ * @see TaskwarriorLatencyRecorder
+ */
+public interface TaskwarriorClientListener {
+
+    /** Phases of an exchange in the order they are run. */
+    enum Phase {
+        /** Looking up the server addresses, i.e. DNS if not resolved in the background. */
+        RESOLVE,
+        /** Connecting a TCP socket to one of the server addresses. */
+        CONNECT,
+        HANDSHAKE,
+        WRITE,
+        /** Time from having written the request until the first byte of the response arrives, i.e. server think time. */
+        SERVER,
+        /** Time from the first until the last byte of the response. */
+        READ,
+        PARSE
+    }
+
+    /**
+     * @param request message sent
+     * @param phase phase completed successfully
+     * @param nanos duration of the phase in nanoseconds
+     */
+    default void phaseCompleted(TaskwarriorMessage request, Phase phase, long nanos) {}
+
+    default void bytesSent(TaskwarriorMessage request, long bytes) {}
+
+    default void bytesReceived(TaskwarriorMessage request, long bytes) {}
+
+    /**
+     * @param request message sent
+     * @param response message received, e.g. containing the status {@code code} header
+     */
+    default void responseReceived(TaskwarriorMessage request, TaskwarriorMessage response) {}
+
+    /**
+     * @param request message sent
+     * @param nanos duration of the whole exchange in nanoseconds
+     * @param failure cause of the failed exchange or {@code null} if successful
+     */
+    default void exchangeCompleted(TaskwarriorMessage request, long nanos, Throwable failure) {}
+}
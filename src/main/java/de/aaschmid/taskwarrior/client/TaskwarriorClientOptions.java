@@ -0,0 +1,130 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorResolvedConfiguration;
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options of a {@link TaskwarriorClient}; all features are disabled by default. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface TaskwarriorClientOptions {
+
+    class Builder extends TaskwarriorClientOptionsBuilder {}
+
+    static Builder taskwarriorClientOptionsBuilder() {
+        return new Builder();
+    }
+
+    static TaskwarriorClientOptions defaultTaskwarriorClientOptions() {
+        return taskwarriorClientOptionsBuilder().build();
+    }
+
+    /** Limits concurrent requests; share one limiter between all clients talking to the same server. */
+    Optional<AdaptiveConcurrencyLimiter> getConcurrencyLimiter();
+
+    /** Coalesces concurrent identical requests; share one coalescer between all clients which should coalesce their requests. */
+    Optional<TaskwarriorRequestCoalescer> getRequestCoalescer();
+
+    /** Retries failed requests; share one policy between all clients talking to the same server to share its retry budget. */
+    Optional<TaskwarriorRetryPolicy> getRetryPolicy();
+
+    /**
+     * Hedges idempotent requests, i.e. sends a second one if the first is slow; share one hedger between all clients talking to the same
+     * server to share its hedge budget.
+     */
+    Optional<TaskwarriorRequestHedger> getRequestHedger();
+
+    /**
+     * Keeps connected and handshaked connections ready to take connect and handshake off the critical path of requests;
+     * {@link TaskwarriorClient#close()} closes them.
+     */
+    Optional<WarmPoolOptions> getWarmPool();
+
+    /** Instruments every exchange with a server, e.g. by a {@link TaskwarriorLatencyRecorder}. */
+    Optional<TaskwarriorClientListener> getListener();
+
+    /** Captures the most recent request and response frames to be dumped on demand or on failure. */
+    Optional<TaskwarriorWireCapture> getWireCapture();
+
+    /** Limits memory of responses being received at the same time; share one budget between all clients of a process. */
+    Optional<ResponseMemoryBudget> getResponseMemoryBudget();
+
+    /**
+     * Receives large responses into memory-mapped temp files instead of heap; required if the {@link #getResponseMemoryBudget()} spills
+     * responses not fitting into it.
+     */
+    Optional<ResponseSpillOptions> getResponseSpill();
+
+    /**
+     * Directory to persist the key store built from certificates and private key to, such that later processes load it directly instead
+     * of parsing certificates and keys again; cache files are readable by their owner only.
+     */
+    Optional<Path> getKeyStoreCacheDirectory();
+
+    /**
+     * Reloads certificates and private key if their files change, e.g. on rotation, without recreating the client; established
+     * connections are not affected. {@link #getKeyStoreCacheDirectory()} is not used if enabled.
+     */
+    @Value.Default
+    default boolean isCertificateReloading() {
+        return false;
+    }
+
+    /** Time after which the server host is re-resolved in the background, see {@link TaskwarriorResolvedConfiguration}. */
+    @Value.Default
+    default Duration getServerHostTtl() {
+        return TaskwarriorResolvedConfiguration.DEFAULT_SERVER_HOST_TTL;
+    }
+
+    /**
+     * Time after which a connection to the next of multiple {@link TaskwarriorServerLocation#getServerAddresses()} is attempted in
+     * parallel if the current attempt has neither succeeded nor failed yet.
+     */
+    @Value.Default
+    default Duration getConnectionAttemptDelay() {
+        return EndpointSelector.DEFAULT_CONNECTION_ATTEMPT_DELAY;
+    }
+
+    /**
+     * Default deadline of each request spread across connect, TLS handshake, write and read phase, see
+     * {@link TaskwarriorClient#sendAndReceive(de.aaschmid.taskwarrior.message.TaskwarriorMessage, Duration)}.
+     */
+    Optional<Duration> getRequestTimeout();
+
+    /** Limits connecting to a single server address additionally to the request's deadline. */
+    Optional<Duration> getConnectTimeout();
+
+    /** Limits the TLS handshake additionally to the request's deadline. */
+    Optional<Duration> getHandshakeTimeout();
+
+    /** Limits waiting for each chunk of the response additionally to the request's deadline. */
+    Optional<Duration> getReadTimeout();
+
+    @Value.Check
+    default void check() {
+        if (getServerHostTtl().isNegative()) {
+            throw new IllegalArgumentException(String.format("Server host TTL must not be negative but was %s.", getServerHostTtl()));
+        }
+        if (getConnectionAttemptDelay().isNegative()) {
+            throw new IllegalArgumentException(
+                    String.format("Connection attempt delay must not be negative but was %s.", getConnectionAttemptDelay()));
+        }
+        if (getResponseMemoryBudget().isPresent() && getResponseMemoryBudget().get().isSpilling() && !getResponseSpill().isPresent()) {
+            throw new IllegalArgumentException("Response memory budget spilling responses requires 'responseSpill'.");
+        }
+        checkPositive("Request timeout", getRequestTimeout());
+        checkPositive("Connect timeout", getConnectTimeout());
+        checkPositive("Handshake timeout", getHandshakeTimeout());
+        checkPositive("Read timeout", getReadTimeout());
+    }
+
+    static void checkPositive(String name, Optional<Duration> timeout) {
+        if (timeout.isPresent() && (timeout.get().isNegative() || timeout.get().isZero())) {
+            throw new IllegalArgumentException(String.format("%s must be positive but was %s.", name, timeout.get()));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package de.aaschmid.taskwarrior.client;
+
+import static java.util.Objects.requireNonNull;
+
+/** Exception occurs if a request of a {@link TaskwarriorClient} exceeds its deadline or the timeout of one of its phases. */
+public class TaskwarriorClientTimeoutException extends TaskwarriorClientException {
+
+    private static final long serialVersionUID = -3080318938236627349L;
+
+    /** Phases of a request in the order they are run. */
+    public enum Phase {
+        CONNECT,
+        HANDSHAKE,
+        WRITE,
+        READ
+    }
+
+    private final Phase phase;
+
+    public TaskwarriorClientTimeoutException(Throwable cause, Phase phase, String format, Object... args) {
+        super(cause, format, args);
+        this.phase = requireNonNull(phase, "'phase' must not be null.");
+    }
+
+    /** @return phase which ran out of time */
+    public Phase getPhase() {
+        return phase;
+    }
+}
@@ -0,0 +1,128 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_KEY_TYPE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link TaskwarriorClientListener} recording a {@link LatencyHistogram} per {@link MessageType} for each
+ * {@link TaskwarriorClientListener.Phase} and whole exchange as well as bytes sent and received and failed exchanges. Recording is
+ * lock-free and does not allocate; exchanges of unknown message types are ignored.
+ * <p>
+ * Share one instance between all {@link TaskwarriorClient}s whose exchanges should be recorded together.
+ */
+public class TaskwarriorLatencyRecorder implements TaskwarriorClientListener {
+
+    private static final MessageType[] MESSAGE_TYPES = MessageType.values();
+
+    private final Map<MessageType, Recording> recordings = new EnumMap<>(MessageType.class);
+
+    public TaskwarriorLatencyRecorder() {
+        for (MessageType type : MESSAGE_TYPES) {
+            recordings.put(type, new Recording());
+        }
+    }
+
+    /** @return histogram of the given phase of all exchanges of the given message type */
+    public LatencyHistogram getHistogram(MessageType type, Phase phase) {
+        return recording(type).phases.get(requireNonNull(phase, "'phase' must not be null."));
+    }
+
+    /** @return histogram of whole successful exchanges of the given message type */
+    public LatencyHistogram getExchangeHistogram(MessageType type) {
+        return recording(type).exchanges;
+    }
+
+    public long getFailureCount(MessageType type) {
+        return recording(type).failures.sum();
+    }
+
+    public long getBytesSent(MessageType type) {
+        return recording(type).bytesSent.sum();
+    }
+
+    public long getBytesReceived(MessageType type) {
+        return recording(type).bytesReceived.sum();
+    }
+
+    private Recording recording(MessageType type) {
+        return recordings.get(requireNonNull(type, "'type' must not be null."));
+    }
+
+    @Override
+    public void phaseCompleted(TaskwarriorMessage request, Phase phase, long nanos) {
+        Recording recording = recording(request);
+        if (recording != null) {
+            recording.phases.get(phase).record(nanos);
+        }
+    }
+
+    @Override
+    public void bytesSent(TaskwarriorMessage request, long bytes) {
+        Recording recording = recording(request);
+        if (recording != null) {
+            recording.bytesSent.add(bytes);
+        }
+    }
+
+    @Override
+    public void bytesReceived(TaskwarriorMessage request, long bytes) {
+        Recording recording = recording(request);
+        if (recording != null) {
+            recording.bytesReceived.add(bytes);
+        }
+    }
+
+    @Override
+    public void exchangeCompleted(TaskwarriorMessage request, long nanos, Throwable failure) {
+        Recording recording = recording(request);
+        if (recording == null) {
+            return;
+        }
+        if (failure == null) {
+            recording.exchanges.record(nanos);
+        } else {
+            recording.failures.increment();
+        }
+    }
+
+    private Recording recording(TaskwarriorMessage request) {
+        String type = request.getHeaders().get(HEADER_KEY_TYPE);
+        for (MessageType messageType : MESSAGE_TYPES) {
+            if (messageType.headerValue.equals(type)) {
+                return recordings.get(messageType);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("TaskwarriorLatencyRecorder{");
+        for (Map.Entry<MessageType, Recording> entry : recordings.entrySet()) {
+            result.append(entry.getKey()).append('=').append(entry.getValue().exchanges).append(", ");
+        }
+        return result.append("failures=").append(recordings.values().stream().mapToLong(r -> r.failures.sum()).sum()).append('}').toString();
+    }
+
+    private static class Recording {
+
+        private final Map<Phase, LatencyHistogram> phases = new EnumMap<>(Phase.class);
+        private final LatencyHistogram exchanges = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+
+        Recording() {
+            for (Phase phase : Phase.values()) {
+                phases.put(phase, new LatencyHistogram());
+            }
+        }
+    }
+}
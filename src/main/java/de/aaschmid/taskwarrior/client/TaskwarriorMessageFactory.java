@@ -1,13 +1,22 @@
 package de.aaschmid.taskwarrior.client;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -17,28 +26,83 @@ import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
 import de.aaschmid.taskwarrior.message.TaskwarriorMessageDeserializationException;
 
 import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
 
 class TaskwarriorMessageFactory {
 
     private static final Charset CHARSET_TRANSFER_MESSAGE = StandardCharsets.UTF_8;
 
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    private static final Path TEMP_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"));
+    private static final String TEMP_FILE_PREFIX = "taskwarrior-response-";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
     private static final String SEPARATOR_HEADER_NAME_VALUE = ": ";
     private static final Pattern PATTERN_HEADER_LINE = Pattern.compile("^(.+?)" + SEPARATOR_HEADER_NAME_VALUE + "(.+)$");
 
+    /** @return serialized message including its length prefix; must not be modified as it may be shared with the message */
     static byte[] serialize(TaskwarriorMessage message) {
+        if (message instanceof EncodedTaskwarriorMessage) {
+            return ((EncodedTaskwarriorMessage) message).getFrame();
+        }
+        ClientEvents.Span span = ClientEvents.serialize();
         String messageData = Stream.concat(Stream.of(message.getHeaders())
                 .map(Map::entrySet)
                 .flatMap(Set::stream)
                 .map(e -> e.getKey() + SEPARATOR_HEADER_NAME_VALUE + e.getValue()), Stream.of("", message.getPayload().orElse("")))
                 .collect(Collectors.joining("\n"));
         byte[] bytes = messageData.getBytes(CHARSET_TRANSFER_MESSAGE);
-        return addFourByteBigEndianBinaryByteCountMessageLengthPrefix(bytes);
+        byte[] result = addFourByteBigEndianBinaryByteCountMessageLengthPrefix(bytes);
+        span.commit(message, result.length);
+        return result;
     }
 
     static TaskwarriorMessage deserialize(InputStream in) {
+        return deserialize(in, null, null, null, data -> {
+        });
+    }
+
+    /**
+     * Receives a message into heap or, if longer than {@link ResponseSpillOptions#getThresholdBytes()} or spilled by the
+     * {@link ResponseMemoryBudget}, into a memory-mapped temp file.
+     *
+     * @param budget to reserve the length of a message received into heap against until it is parsed; {@code null} if unlimited
+     * @param deadline of the request receiving the message, which waiting for the {@code budget} is bound by; {@code null} if unlimited
+     * @param spill options of receiving large messages into a temp file; {@code null} to always receive into heap
+     * @param received is handed the complete message without length prefix before it is parsed; must not modify it
+     */
+    static TaskwarriorMessage deserialize(
+            InputStream in,
+            ResponseMemoryBudget budget,
+            RequestDeadline deadline,
+            ResponseSpillOptions spill,
+            Consumer<ByteBuffer> received) {
+        ClientEvents.Span span = ClientEvents.deserialize();
         int messageLength = receiveRemainingMessageLengthFromFourByteBigEndianBinaryByteCountPrefix(in);
-        byte[] data = readMessageAsByteArray(in, messageLength);
-        return parseResponse(new String(data, CHARSET_TRANSFER_MESSAGE));
+        TaskwarriorMessage result;
+        if (spill != null && messageLength > spill.getThresholdBytes()) {
+            result = deserializeMapped(in, messageLength, spill, received);
+        } else {
+            long reserved = budget == null ? 0 : budget.reserve(messageLength, deadline);
+            if (reserved < 0) {
+                result = deserializeMapped(in, messageLength, requireNonNull(spill, "'spill' must not be null."), received);
+            } else {
+                try {
+                    byte[] data = readMessageAsByteArray(in, messageLength);
+                    received.accept(ByteBuffer.wrap(data));
+                    result = parseResponse(new String(data, CHARSET_TRANSFER_MESSAGE));
+                } finally {
+                    if (budget != null) {
+                        budget.release(reserved);
+                    }
+                }
+            }
+        }
+        span.commit(null, messageLength + 4);
+        return result;
     }
 
     private static int receiveRemainingMessageLengthFromFourByteBigEndianBinaryByteCountPrefix(InputStream in) {
@@ -51,32 +115,115 @@ class TaskwarriorMessageFactory {
                         length);
             }
         } catch (IOException e) {
-            throw new TaskwarriorMessageDeserializationException("Could not read 4-byte, big-endian, binary byte count.", e);
+            throw new TaskwarriorMessageDeserializationException(e, "Could not read 4-byte, big-endian, binary byte count.");
         }
-        return ((sizeBytes[0] << 24) | (sizeBytes[1] << 16) | (sizeBytes[2] << 8) | sizeBytes[3]) - 4;
+        int result = ((sizeBytes[0] & 0xff) << 24 | (sizeBytes[1] & 0xff) << 16 | (sizeBytes[2] & 0xff) << 8 | (sizeBytes[3] & 0xff)) - 4;
+        if (result < 0) {
+            throw new TaskwarriorMessageDeserializationException("Encoded message length %d is invalid.", result + 4);
+        }
+        return result;
     }
 
+    /**
+     * Grows the buffer as bytes arrive up to the announced length, such that an invalid or hostile length prefix does not allocate
+     * gigabytes upfront.
+     */
     private static byte[] readMessageAsByteArray(InputStream in, int messageLength) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-        int readCount;
-        int remaining = messageLength;
-        byte[] buffer = new byte[1024];
+        byte[] result = new byte[Math.min(messageLength, INITIAL_BUFFER_BYTES)];
+        int offset = 0;
         try {
-            while ((readCount = in.read(buffer)) != -1) {
-                out.write(buffer, 0, readCount);
-                remaining -= readCount;
+            int readCount;
+            while (offset < messageLength) {
+                if (offset == result.length) {
+                    result = Arrays.copyOf(result, (int) Math.min(messageLength, 2L * result.length));
+                }
+                if ((readCount = in.read(result, offset, result.length - offset)) == -1) {
+                    break;
+                }
+                offset += readCount;
             }
+        } catch (IOException e) {
+            throw new TaskwarriorMessageDeserializationException(e, "Could not bytes of the message according to calculated length.");
+        }
+        if (offset < messageLength) {
+            throw new TaskwarriorMessageDeserializationException(
+                    "Could not retrieve complete message. Missing %d bytes.",
+                    messageLength - offset);
+        }
+        return result;
+    }
 
-            if (remaining > 0) {
-                throw new TaskwarriorMessageDeserializationException("Could not retrieve complete message. Missing %d bytes.", remaining);
+    /** The temp file is deleted as soon as it is mapped; the mapping stays valid until the buffer is garbage collected. */
+    private static TaskwarriorMessage deserializeMapped(
+            InputStream in,
+            int messageLength,
+            ResponseSpillOptions spill,
+            Consumer<ByteBuffer> received) {
+        ByteBuffer data;
+        try {
+            Path file = Files.createTempFile(spill.getDirectory().orElse(TEMP_DIRECTORY), TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+            FileChannel opened;
+            try {
+                opened = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            try (FileChannel channel = opened) {
+                ReadableByteChannel source = Channels.newChannel(in);
+                long position = 0;
+                long transferred;
+                while (position < messageLength && (transferred = channel.transferFrom(source, position, messageLength - position)) > 0) {
+                    position += transferred;
+                }
+                if (position < messageLength) {
+                    throw new TaskwarriorMessageDeserializationException(
+                            "Could not retrieve complete message. Missing %d bytes.",
+                            messageLength - position);
+                }
+                data = channel.map(MapMode.READ_ONLY, 0, messageLength);
             }
-
-            out.flush();
         } catch (IOException e) {
-            throw new TaskwarriorMessageDeserializationException("Could not bytes of the message according to calculated length.", e);
+            throw new TaskwarriorMessageDeserializationException(e, "Could not receive message of %d bytes into temp file.", messageLength);
+        }
+        received.accept(data.asReadOnlyBuffer());
+        return parseMappedResponse(data);
+    }
+
+    /** Decodes only the header; payload is trimmed like {@link String#trim()} does, which only removes single byte characters in UTF-8. */
+    private static TaskwarriorMessage parseMappedResponse(ByteBuffer data) {
+        int index = indexOfHeaderSeparator(data);
+        if (index < 0) {
+            throw new TaskwarriorMessageDeserializationException("Message of %d bytes has no header separator.", data.limit());
+        }
+
+        ByteBuffer header = data.duplicate();
+        header.limit(index);
+        Map<String, String> headers = parseHeaders(CHARSET_TRANSFER_MESSAGE.decode(header).toString());
+
+        int from = index + 2;
+        int to = data.limit();
+        if (from == to || (to - from == 1 && data.get(from) == '\n')) {
+            return new MappedTaskwarriorMessage(headers, null, CHARSET_TRANSFER_MESSAGE);
+        }
+        while (from < to && (data.get(from) & 0xff) <= ' ') {
+            from++;
+        }
+        while (to > from && (data.get(to - 1) & 0xff) <= ' ') {
+            to--;
+        }
+        ByteBuffer payload = data.duplicate();
+        payload.position(from).limit(to);
+        return new MappedTaskwarriorMessage(headers, payload.slice(), CHARSET_TRANSFER_MESSAGE);
+    }
+
+    private static int indexOfHeaderSeparator(ByteBuffer data) {
+        for (int i = 0; i < data.limit() - 1; i++) {
+            if (data.get(i) == '\n' && data.get(i + 1) == '\n') {
+                return i;
+            }
         }
-        return out.toByteArray();
+        return -1;
     }
 
     private static TaskwarriorMessage parseResponse(String message) {
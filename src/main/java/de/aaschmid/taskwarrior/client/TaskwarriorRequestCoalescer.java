@@ -0,0 +1,172 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_AUTH_KEY_KEY;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_AUTH_KEY_ORG;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_AUTH_KEY_USER;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_KEY_TYPE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Coalesces concurrent identical requests, i.e. requests to the same server for the same account with same message type and payload,
+ * into a single exchange with the server whose response (or failure) is shared by all of them. Optionally, successful
+ * {@link MessageType#STATISTICS} responses are cached for a short time.
+ * <p>
+ * Share one instance between all {@link TaskwarriorClient}s which should coalesce their requests, see
+ * {@link TaskwarriorClientOptions#getRequestCoalescer()}.
+ */
+public class TaskwarriorRequestCoalescer {
+
+    private static final String HEADER_KEY_CODE = "code";
+    private static final int CACHE_PURGE_THRESHOLD = 1024;
+
+    private final long statisticsCacheTtlNanos;
+
+    private final Map<RequestKey, CompletableFuture<TaskwarriorMessage>> inFlight = new ConcurrentHashMap<>();
+    private final Map<RequestKey, CachedResponse> statisticsCache = new ConcurrentHashMap<>();
+
+    private final LongAdder exchanges = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    /** Coalesces concurrent requests without caching any response. */
+    public TaskwarriorRequestCoalescer() {
+        this(Duration.ZERO);
+    }
+
+    /** @param statisticsCacheTtl non-null time to live of cached statistics responses; {@link Duration#ZERO} disables caching */
+    public TaskwarriorRequestCoalescer(Duration statisticsCacheTtl) {
+        requireNonNull(statisticsCacheTtl, "'statisticsCacheTtl' must not be null.");
+        if (statisticsCacheTtl.isNegative()) {
+            throw new IllegalArgumentException(String.format("'statisticsCacheTtl' must not be negative but was %s.", statisticsCacheTtl));
+        }
+        this.statisticsCacheTtlNanos = statisticsCacheTtl.toNanos();
+    }
+
+    /** @return number of exchanges actually sent to a server */
+    public long getExchangeCount() {
+        return exchanges.sum();
+    }
+
+    /** @return number of requests which joined an identical in-flight exchange */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /** @return number of requests answered by a cached statistics response */
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @param deadline of the given request, which a request joining an identical in-flight exchange waits for at most; the shared
+     *        exchange itself is bound by the deadline of the request which started it only
+     */
+    TaskwarriorMessage execute(TaskwarriorServerLocation server, TaskwarriorMessage request, RequestDeadline deadline,
+            Supplier<TaskwarriorMessage> exchange) {
+        RequestKey key = new RequestKey(server, request);
+        boolean cacheable = statisticsCacheTtlNanos > 0 && MessageType.STATISTICS.headerValue.equals(request.getHeaders().get(HEADER_KEY_TYPE));
+
+        if (cacheable) {
+            CachedResponse cached = statisticsCache.get(key);
+            if (cached != null && cached.isValid()) {
+                cacheHits.increment();
+                return cached.response;
+            }
+        }
+
+        CompletableFuture<TaskwarriorMessage> future = new CompletableFuture<>();
+        CompletableFuture<TaskwarriorMessage> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return deadline.await(existing);
+        }
+
+        try {
+            exchanges.increment();
+            TaskwarriorMessage result = exchange.get();
+            if (cacheable && "200".equals(result.getHeaders().get(HEADER_KEY_CODE))) {
+                cache(key, result);
+            }
+            future.complete(result);
+            return result;
+        } catch (Throwable t) { // including errors, as joined requests would wait forever otherwise
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private void cache(RequestKey key, TaskwarriorMessage response) {
+        if (statisticsCache.size() >= CACHE_PURGE_THRESHOLD) {
+            statisticsCache.values().removeIf(cached -> !cached.isValid());
+        }
+        statisticsCache.put(key, new CachedResponse(response, System.nanoTime() + statisticsCacheTtlNanos));
+    }
+
+    private static class CachedResponse {
+
+        private final TaskwarriorMessage response;
+        private final long expiresAtNanos;
+
+        CachedResponse(TaskwarriorMessage response, long expiresAtNanos) {
+            this.response = response;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isValid() {
+            return System.nanoTime() - expiresAtNanos < 0;
+        }
+    }
+
+    /**
+     * Identifies account (server and authentication), message type and payload of a request. The payload of an
+     * {@link EncodedTaskwarriorMessage} is compared by its encoded bytes, so it is not decoded just to be coalesced.
+     */
+    private static class RequestKey {
+
+        private final Object[] values;
+        private final int hashCode;
+
+        RequestKey(TaskwarriorServerLocation server, TaskwarriorMessage request) {
+            Map<String, String> headers = request.getHeaders();
+            this.values = new Object[] {
+                    server.getServerHost(),
+                    server.getServerPort(),
+                    headers.get(HEADER_AUTH_KEY_ORG),
+                    headers.get(HEADER_AUTH_KEY_USER),
+                    headers.get(HEADER_AUTH_KEY_KEY),
+                    headers.get(HEADER_KEY_TYPE),
+                    payloadOf(request) };
+            this.hashCode = Arrays.hashCode(values);
+        }
+
+        private static Object payloadOf(TaskwarriorMessage request) {
+            if (request instanceof EncodedTaskwarriorMessage) {
+                return ((EncodedTaskwarriorMessage) request).getPayloadBytes().orElse(null);
+            }
+            return request.getPayload().orElse(null);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof RequestKey && Arrays.equals(values, ((RequestKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import de.aaschmid.taskwarrior.util.concurrent.BlockingThreads;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_KEY_TYPE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Hedges idempotent requests to cut tail latency: if no response arrived within the {@link HedgingOptions#getPercentile()} of recent
+ * latencies, a second request is sent, preferably to another server address, and the slower of both is cancelled.
+ * <p>
+ * Hedges are limited by a budget: every request earns {@link HedgingOptions#getMaxHedgeRatio()} tokens, every hedge spends one, such
+ * that hedging cannot multiply the load of a slow server.
+ * <p>
+ * Share one instance between all {@link TaskwarriorClient}s talking to the same server, see
+ * {@link TaskwarriorClientOptions#getRequestHedger()}. Override {@link #isHedgeable(TaskwarriorMessage)} to hedge other requests than
+ * {@link MessageType#STATISTICS}.
+ */
+public class TaskwarriorRequestHedger {
+
+    private static final ExecutorService HEDGE_EXECUTOR = BlockingThreads.newExecutor("taskwarrior-hedge");
+
+    private final HedgingOptions options;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    private final long[] latencies;
+    private int samples;
+    private long hedgeDelayNanos = -1;
+    private double tokens;
+
+    public TaskwarriorRequestHedger(HedgingOptions options) {
+        this.options = requireNonNull(options, "'options' must not be null.");
+        this.latencies = new long[options.getLatencyWindow()];
+        this.tokens = options.getHedgeBudgetCapacity();
+    }
+
+    /** @return number of hedgeable requests */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /** @return number of hedges sent */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /** @return number of hedges whose response arrived before the one of the original request */
+    public long getHedgeWinCount() {
+        return hedgeWins.sum();
+    }
+
+    /** @return number of hedges not sent because the hedge budget was exhausted */
+    public long getDeniedCount() {
+        return denied.sum();
+    }
+
+    /** @return ratio of hedges sent to hedgeable requests */
+    public double getHedgeRate() {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 0 : (double) getHedgeCount() / requestCount;
+    }
+
+    /** @return current delay after which a request is hedged or {@link Optional#empty()} if not enough latencies are known yet */
+    public synchronized Optional<Duration> getHedgeDelay() {
+        return hedgeDelayNanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(hedgeDelayNanos));
+    }
+
+    /** @return {@code true} if the given request is idempotent and can be hedged, i.e. for {@link MessageType#STATISTICS} */
+    protected boolean isHedgeable(TaskwarriorMessage request) {
+        return MessageType.STATISTICS.headerValue.equals(request.getHeaders().get(HEADER_KEY_TYPE));
+    }
+
+    TaskwarriorMessage execute(TaskwarriorMessage request, RequestDeadline deadline,
+            Function<RequestDeadline, TaskwarriorMessage> attempt) {
+        if (!isHedgeable(request)) {
+            return attempt.apply(deadline);
+        }
+        requests.increment();
+        long delayNanos = deposit();
+        long start = System.nanoTime();
+        if (delayNanos < 0) {
+            TaskwarriorMessage result = attempt.apply(deadline);
+            record(System.nanoTime() - start);
+            return result;
+        }
+
+        RequestDeadline primary = deadline.child(Optional.empty());
+        RequestDeadline secondary = null;
+        AtomicBoolean recorded = new AtomicBoolean();
+        try {
+            CompletableFuture<TaskwarriorMessage> first = CompletableFuture.supplyAsync(() -> {
+                TaskwarriorMessage response = attempt.apply(primary);
+                if (recorded.compareAndSet(false, true)) {
+                    record(System.nanoTime() - start); // also if slower than a successful hedge but not abandoned in time
+                }
+                return response;
+            }, HEDGE_EXECUTOR);
+            TaskwarriorMessage result;
+            try {
+                result = first.get(delayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (withdraw()) {
+                    hedges.increment();
+                    secondary = deadline.child(primary.getConnectedAddress());
+                    CompletableFuture<TaskwarriorMessage> second = submit(attempt, secondary);
+                    result = firstSuccessful(first, second).get();
+                    if (second.isDone() && !second.isCompletedExceptionally() && second.join() == result) {
+                        hedgeWins.increment();
+                        if (recorded.compareAndSet(false, true)) {
+                            record(delayNanos); // original request is abandoned, its latency is only known to exceed the delay
+                        }
+                    }
+                } else {
+                    denied.increment();
+                    result = first.get();
+                }
+            }
+            return result;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new TaskwarriorClientException(e.getCause(), "Hedged request failed.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskwarriorClientCancelledException(e, "Interrupted while waiting for hedged request.");
+        } finally {
+            primary.cancel(); // no-op if already completed
+            primary.close();
+            if (secondary != null) {
+                secondary.cancel();
+                secondary.close();
+            }
+        }
+    }
+
+    private static CompletableFuture<TaskwarriorMessage> submit(Function<RequestDeadline, TaskwarriorMessage> attempt,
+            RequestDeadline deadline) {
+        return CompletableFuture.supplyAsync(() -> attempt.apply(deadline), HEDGE_EXECUTOR);
+    }
+
+    /** @return future completed by the first successful of the given ones or by the first failure if both fail */
+    private static CompletableFuture<TaskwarriorMessage> firstSuccessful(CompletableFuture<TaskwarriorMessage> first,
+            CompletableFuture<TaskwarriorMessage> second) {
+        CompletableFuture<TaskwarriorMessage> result = new CompletableFuture<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (CompletableFuture<TaskwarriorMessage> future : Arrays.asList(first, second)) {
+            future.whenComplete((response, t) -> {
+                if (t == null) {
+                    result.complete(response);
+                } else if (!failure.compareAndSet(null, t)) {
+                    result.completeExceptionally(failure.get() instanceof CompletionException ? failure.get().getCause() : failure.get());
+                }
+            });
+        }
+        return result;
+    }
+
+    /** @return current hedge delay in nanoseconds or {@code -1} if not known yet */
+    private synchronized long deposit() {
+        tokens = Math.min(options.getHedgeBudgetCapacity(), tokens + options.getMaxHedgeRatio());
+        return hedgeDelayNanos;
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private synchronized void record(long latencyNanos) {
+        latencies[samples++ % latencies.length] = latencyNanos;
+        int count = Math.min(samples, latencies.length);
+        if (count >= options.getMinSamples() && samples % Math.max(1, latencies.length / 10) == 0) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            long percentile = sorted[(int) Math.ceil(options.getPercentile() * count) - 1];
+            hedgeDelayNanos = Math.max(options.getMinDelay().toNanos(), percentile);
+        }
+        if (samples >= 2 * latencies.length) {
+            samples -= latencies.length; // prevent overflow, keeps index modulo window size
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "TaskwarriorRequestHedger{requests=%d, hedges=%d, hedgeWins=%d, denied=%d, hedgeDelay=%dus}",
+                getRequestCount(),
+                getHedgeCount(),
+                getHedgeWinCount(),
+                getDeniedCount(),
+                getHedgeDelay().map(d -> TimeUnit.NANOSECONDS.toMicros(d.toNanos())).orElse(-1L));
+    }
+}
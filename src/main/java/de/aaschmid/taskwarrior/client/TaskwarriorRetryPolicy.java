@@ -0,0 +1,187 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import de.aaschmid.taskwarrior.TaskwarriorException;
+import de.aaschmid.taskwarrior.client.TaskwarriorClientTimeoutException.Phase;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessageDeserializationException;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_KEY_TYPE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Retries requests failing with a {@link TaskwarriorClientException} or {@link TaskwarriorMessageDeserializationException}:
+ * <ul>
+ * <li>Failures before anything was written to the server, e.g. refused connections or connect and handshake timeouts, are retried for
+ * every request.</li>
+ * <li>Failures afterwards are retried for idempotent requests only, see {@link #isIdempotent(TaskwarriorMessage)}, as a {@code sync}
+ * uploading tasks may have been applied by the server already.</li>
+ * <li>Rejections by an {@link AdaptiveConcurrencyLimiter}, failed TLS handshakes, cancelled requests and exceeded request deadlines are
+ * never retried.</li>
+ * </ul>
+ * Retries are delayed by decorrelated jitter between {@link RetryOptions#getBaseDelay()} and {@link RetryOptions#getMaxDelay()} and
+ * limited by a retry budget: every request earns {@link RetryOptions#getRetryBudgetRatio()} tokens, every retry spends one, such that
+ * retries cannot multiply the load of a server during an outage.
+ * <p>
+ * Share one instance between all {@link TaskwarriorClient}s talking to the same server, see
+ * {@link TaskwarriorClientOptions#getRetryPolicy()}. Override {@link #isRetryable(TaskwarriorMessage, TaskwarriorException, Phase)} to
+ * change the classification of failures.
+ */
+public class TaskwarriorRetryPolicy {
+
+    private final RetryOptions options;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    private double tokens;
+
+    public TaskwarriorRetryPolicy(RetryOptions options) {
+        this.options = requireNonNull(options, "'options' must not be null.");
+        this.tokens = options.getRetryBudgetCapacity();
+    }
+
+    /** @return number of retries spent */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /** @return number of retries denied because the retry budget was exhausted */
+    public long getDeniedCount() {
+        return denied.sum();
+    }
+
+    /** @return retry tokens currently available */
+    public synchronized double getAvailableTokens() {
+        return tokens;
+    }
+
+    /**
+     * @param phase latest phase reached by the failed attempt including its hedges; later phases than {@link Phase#HANDSHAKE} may have
+     *            been applied by the server
+     * @return {@code true} if the request may be retried after the given failure
+     */
+    protected boolean isRetryable(TaskwarriorMessage request, TaskwarriorException failure, Phase phase) {
+        if (failure instanceof TaskwarriorClientLimitExceededException || causedBy(failure, SSLHandshakeException.class)) {
+            return false;
+        }
+        if (failure instanceof TaskwarriorClientTimeoutException) {
+            phase = ((TaskwarriorClientTimeoutException) failure).getPhase();
+        }
+        if (phase == Phase.CONNECT || phase == Phase.HANDSHAKE) {
+            return true; // nothing was written yet
+        }
+        return isIdempotent(request);
+    }
+
+    /**
+     * @return {@code true} for {@code statistics} requests and {@code sync} requests without uploaded tasks, i.e. payload consisting of
+     *         the sync key only
+     */
+    protected boolean isIdempotent(TaskwarriorMessage request) {
+        String type = request.getHeaders().get(HEADER_KEY_TYPE);
+        if (MessageType.STATISTICS.headerValue.equals(type)) {
+            return true;
+        }
+        if (MessageType.SYNC.headerValue.equals(type)) {
+            if (request instanceof EncodedTaskwarriorMessage) {
+                return !((EncodedTaskwarriorMessage) request).payloadContains('{');
+            }
+            return !request.getPayload().map(p -> p.contains("{")).orElse(false);
+        }
+        return false;
+    }
+
+    private static boolean causedBy(Throwable failure, Class<? extends Throwable> type) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @param attempt sends the request within the given deadline of a single attempt, a child of the given {@code deadline} */
+    TaskwarriorMessage execute(TaskwarriorMessage request, RequestDeadline deadline,
+            Function<RequestDeadline, TaskwarriorMessage> attempt) {
+        deposit();
+        long delayNanos = options.getBaseDelay().toNanos();
+        for (int attempts = 1;; attempts++) {
+            try (RequestDeadline attemptDeadline = deadline.child(Optional.empty())) {
+                try {
+                    return attempt.apply(attemptDeadline);
+                } catch (TaskwarriorClientException | TaskwarriorMessageDeserializationException e) {
+                    Phase failedPhase = attemptDeadline.getFurthestPhase(); // also of hedges of this attempt
+                    if (attempts >= options.getMaxAttempts() || deadline.isCancelled() || !isRetryable(request, e, failedPhase)) {
+                        throw e;
+                    }
+                    delayNanos = nextDelayNanos(delayNanos);
+                    if (!deadline.allowsDelay(delayNanos)) {
+                        throw e;
+                    }
+                    if (!withdraw()) {
+                        denied.increment();
+                        throw e;
+                    }
+                    retries.increment();
+                    if (!sleep(delayNanos, deadline)) {
+                        deadline.checkNotAborted();
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /** @return random delay between base delay and three times the given previous delay, capped by max delay */
+    long nextDelayNanos(long previousDelayNanos) {
+        long base = options.getBaseDelay().toNanos();
+        long upper = Math.min(options.getMaxDelay().toNanos(), Math.max(base, previousDelayNanos) * 3);
+        return upper <= base ? base : ThreadLocalRandom.current().nextLong(base, upper + 1);
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(options.getRetryBudgetCapacity(), tokens + options.getRetryBudgetRatio());
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /** @return {@code true} if the given delay elapsed, {@code false} if the request was aborted or interrupted before */
+    private static boolean sleep(long nanos, RequestDeadline deadline) {
+        CountDownLatch aborted = new CountDownLatch(1);
+        Runnable listener = aborted::countDown;
+        deadline.addAbortListener(listener);
+        try {
+            return !aborted.await(nanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            deadline.removeAbortListener(listener);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "TaskwarriorRetryPolicy{retries=%d, denied=%d, availableTokens=%.1f}",
+                getRetryCount(),
+                getDeniedCount(),
+                getAvailableTokens());
+    }
+}
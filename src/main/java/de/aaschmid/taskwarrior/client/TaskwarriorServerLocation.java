@@ -1,9 +1,21 @@
 package de.aaschmid.taskwarrior.client;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
 
 public interface TaskwarriorServerLocation {
 
     InetAddress getServerHost();
     int getServerPort();
-}
\ No newline at end of file
+
+    /**
+     * @return addresses of all replicas of the server to spread requests on and fail over to; defaults to {@link #getServerHost()} and
+     *         {@link #getServerPort()} only
+     */
+    default List<InetSocketAddress> getServerAddresses() {
+        return singletonList(new InetSocketAddress(getServerHost(), getServerPort()));
+    }
+}
@@ -12,4 +12,8 @@ public class TaskwarriorSslContextException extends TaskwarriorException {
     public TaskwarriorSslContextException(Throwable cause, String format, Object... args) {
         super(cause, format, args);
     }
+
+    public TaskwarriorSslContextException(String format, Object... args) {
+        super(format, args);
+    }
 }
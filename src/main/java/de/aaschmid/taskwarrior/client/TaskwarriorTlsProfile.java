@@ -0,0 +1,44 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.SSLParameters;
+import java.util.List;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/**
+ * Immutable TLS handshake and crypto profile of a {@link TaskwarriorClient}, e.g. to enforce TLS 1.3 or to prefer AES-GCM or ChaCha20
+ * depending on the CPU. Empty lists keep the defaults of the JVM.
+ */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface TaskwarriorTlsProfile {
+
+    class Builder extends TaskwarriorTlsProfileBuilder {}
+
+    static Builder taskwarriorTlsProfileBuilder() {
+        return new Builder();
+    }
+
+    static TaskwarriorTlsProfile defaultTaskwarriorTlsProfile() {
+        return taskwarriorTlsProfileBuilder().build();
+    }
+
+    /** Enabled protocols, e.g. {@code TLSv1.3}, see {@link SSLParameters#setProtocols(String[])}. */
+    List<String> getProtocols();
+
+    /** Enabled cipher suites in order of preference, e.g. {@code TLS_AES_128_GCM_SHA256}, see {@link SSLParameters#setCipherSuites}. */
+    List<String> getCipherSuites();
+
+    /**
+     * Named groups for key exchange in order of preference, e.g. {@code x25519}. Requires Java 20 or later; for older JVMs use system
+     * property {@code jdk.tls.namedGroups} instead.
+     */
+    List<String> getNamedGroups();
+
+    /** Whether sessions may be resumed (via session IDs or tickets) instead of always doing a full handshake. */
+    @Value.Default
+    default boolean isSessionResumption() {
+        return true;
+    }
+}
@@ -0,0 +1,253 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_AUTH_KEY_KEY;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_KEY_TYPE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fixed-size, lock-free ring buffer of the most recent request and response frames exchanged with a server, to look at after a sync went
+ * wrong, see {@link #dump()} and {@link WireCaptureOptions#getFailureDumpHandler()}.
+ * <p>
+ * Frames are captured from the serialized buffers: a frame whose payload fits into {@link WireCaptureOptions#getMaxPayloadBytes()} is
+ * kept by reference without copying, only larger ones are copied up to that limit such that huge payloads are not retained. Decoding to
+ * text is deferred until frames are read. The authentication {@code key} header is redacted.
+ * <p>
+ * Share one instance between all {@link TaskwarriorClient}s whose frames should be captured together, see
+ * {@link TaskwarriorClientOptions#getWireCapture()}.
+ */
+public class TaskwarriorWireCapture {
+
+    public enum Direction {
+        SENT,
+        RECEIVED
+    }
+
+    private static final String REDACTED_KEY_LINE = HEADER_AUTH_KEY_KEY + ": <redacted>";
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final WireCaptureOptions options;
+    private final AtomicReferenceArray<Frame> frames;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public TaskwarriorWireCapture(WireCaptureOptions options) {
+        this.options = requireNonNull(options, "'options' must not be null.");
+
+        int capacity = options.getCapacity() == 1 ? 1 : Integer.highestOneBit(options.getCapacity() - 1) << 1;
+        this.frames = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /** @param frame serialized request including its four byte length prefix; must not be modified afterwards */
+    void sent(TaskwarriorMessage request, byte[] frame) {
+        record(Direction.SENT, request, frame, 4, frame.length - 4, frame.length - 4);
+    }
+
+    /**
+     * @param data serialized response without length prefix; must not be modified afterwards. Only the header and retained payload is
+     *         copied out of a buffer without accessible array, e.g. of a memory-mapped response.
+     */
+    void received(TaskwarriorMessage request, ByteBuffer data) {
+        if (data.hasArray()) {
+            record(Direction.RECEIVED, request, data.array(), data.arrayOffset() + data.position(), data.remaining(), data.remaining());
+            return;
+        }
+        byte[] retained = new byte[(int) Math.min(data.remaining(), MAX_HEADER_BYTES + (long) options.getMaxPayloadBytes())];
+        data.duplicate().get(retained);
+        record(Direction.RECEIVED, request, retained, 0, retained.length, data.remaining());
+    }
+
+    /** Hands a dump including the given failure to the {@link WireCaptureOptions#getFailureDumpHandler()}, if any. */
+    void failed(TaskwarriorMessage request, Throwable failure) {
+        if (options.getFailureDumpHandler().isPresent()) {
+            options.getFailureDumpHandler().get().accept(String.format(
+                    "%s request failed with %s, captured frames:%n%s",
+                    type(request),
+                    failure,
+                    dump()));
+        }
+    }
+
+    /** @param available number of bytes of the frame in {@code bytes}, less than {@code length} if only its start is given */
+    private void record(Direction direction, TaskwarriorMessage request, byte[] bytes, int offset, int available, int length) {
+        int end = offset + available;
+        int headerEnd = indexOfBlankLine(bytes, offset, (int) Math.min(end, offset + (long) MAX_HEADER_BYTES)); // not a huge payload
+        int retainedEnd = headerEnd < 0
+                ? Math.min(end, offset + options.getMaxPayloadBytes())
+                : (int) Math.min(end, headerEnd + 2L + options.getMaxPayloadBytes());
+
+        long seq = sequence.getAndIncrement();
+        Frame frame = retainedEnd == end
+                ? new Frame(seq, direction, type(request), bytes, offset, headerEnd, retainedEnd, length)
+                : new Frame(seq, direction, type(request), Arrays.copyOfRange(bytes, offset, retainedEnd), 0,
+                        headerEnd < 0 ? -1 : headerEnd - offset, retainedEnd - offset, length);
+        frames.set((int) seq & mask, frame);
+    }
+
+    private static int indexOfBlankLine(byte[] bytes, int from, int to) {
+        for (int i = from; i < to - 1; i++) {
+            if (bytes[i] == '\n' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String type(TaskwarriorMessage request) {
+        return request.getHeaders().get(HEADER_KEY_TYPE);
+    }
+
+    /** @return number of frames captured so far including the ones already overwritten */
+    public long getCapturedCount() {
+        return sequence.get();
+    }
+
+    /** @return currently captured frames, oldest first */
+    public List<Frame> getFrames() {
+        List<Frame> result = new ArrayList<>(frames.length());
+        for (int i = 0; i < frames.length(); i++) {
+            Frame frame = frames.get(i);
+            if (frame != null) {
+                result.add(frame);
+            }
+        }
+        result.sort(Comparator.comparingLong(Frame::getSequence));
+        return result;
+    }
+
+    /** Writes all currently captured frames, oldest first, as text. */
+    public void dump(Writer out) throws IOException {
+        requireNonNull(out, "'out' must not be null.");
+        for (Frame frame : getFrames()) {
+            out.write(frame.toString());
+        }
+        out.flush();
+    }
+
+    /** @return all currently captured frames, oldest first, as text */
+    public String dump() {
+        StringWriter result = new StringWriter();
+        try {
+            dump(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen for StringWriter
+        }
+        return result.toString();
+    }
+
+    /** Captured request or response frame. */
+    public static final class Frame {
+
+        private final long sequence;
+        private final Instant timestamp = Instant.now();
+        private final Direction direction;
+        private final String messageType;
+        private final byte[] bytes;
+        private final int offset;
+        private final int headerEnd;
+        private final int retainedEnd;
+        private final int length;
+
+        private Frame(
+                long sequence,
+                Direction direction,
+                String messageType,
+                byte[] bytes,
+                int offset,
+                int headerEnd,
+                int retainedEnd,
+                int length) {
+            this.sequence = sequence;
+            this.direction = direction;
+            this.messageType = messageType;
+            this.bytes = bytes;
+            this.offset = offset;
+            this.headerEnd = headerEnd;
+            this.retainedEnd = retainedEnd;
+            this.length = length;
+        }
+
+        /** @return number of frames captured before this one by the same capture */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Instant getTimestamp() {
+            return timestamp;
+        }
+
+        public Direction getDirection() {
+            return direction;
+        }
+
+        /** @return type of the request this frame belongs to, e.g. {@code sync}, or {@code null} if unknown */
+        public String getMessageType() {
+            return messageType;
+        }
+
+        /** @return number of bytes of the whole frame without length prefix */
+        public int getLength() {
+            return length;
+        }
+
+        /** @return header block, one header per line, with the authentication key redacted */
+        public String getHeaders() {
+            String headers = decode(offset, headerEnd < 0 ? retainedEnd : headerEnd);
+            StringBuilder result = new StringBuilder(headers.length());
+            for (String line : headers.split("\n", -1)) {
+                if (result.length() > 0) {
+                    result.append('\n');
+                }
+                result.append(line.startsWith(HEADER_AUTH_KEY_KEY + ":") ? REDACTED_KEY_LINE : line);
+            }
+            return result.toString();
+        }
+
+        /** @return payload truncated to {@link WireCaptureOptions#getMaxPayloadBytes()} */
+        public String getPayload() {
+            return headerEnd < 0 ? "" : decode(headerEnd + 2, retainedEnd);
+        }
+
+        /** @return {@code true} if {@link #getPayload()} misses bytes of the original payload */
+        public boolean isTruncated() {
+            return retainedEnd - offset < length;
+        }
+
+        /** A multi-byte character cut by truncation is decoded as replacement character. */
+        private String decode(int from, int to) {
+            return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder(128 + retainedEnd - offset)
+                    .append("--- #").append(sequence)
+                    .append(' ').append(timestamp)
+                    .append(' ').append(direction)
+                    .append(' ').append(messageType)
+                    .append(' ').append(length).append(" bytes\n")
+                    .append(getHeaders()).append("\n\n")
+                    .append(getPayload());
+            if (isTruncated()) {
+                result.append("[... ").append(length - (retainedEnd - offset)).append(" more bytes]");
+            }
+            return result.append('\n').toString();
+        }
+    }
+}
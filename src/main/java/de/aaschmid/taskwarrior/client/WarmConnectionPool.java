@@ -0,0 +1,287 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.aaschmid.taskwarrior.util.concurrent.BlockingThreads;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps up to {@link WarmPoolOptions#getTargetSize()} connected and fully handshaked {@link SSLSocket}s ready, such that connect and
+ * handshake are off the critical path of a request. As a server handles a single request per connection, every connection is used only
+ * once and replaced in the background. Idle connections are closed after {@link WarmPoolOptions#getIdleTimeout()} and checked for being
+ * closed by the server before being handed out.
+ * <p>
+ * Idle connections are closed by {@link #close()} only. A pool which is not closed does not leak its expiry task though, as the task
+ * does not keep the pool from being garbage collected and cancels itself afterwards.
+ */
+class WarmConnectionPool implements AutoCloseable {
+
+    private static final ExecutorService OPEN_EXECUTOR = BlockingThreads.newExecutor("taskwarrior-warm-pool");
+
+    private static final ScheduledExecutorService EXPIRY_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread result = new Thread(r, "taskwarrior-warm-pool-expiry");
+        result.setDaemon(true);
+        return result;
+    });
+
+    /** Opens a connected and handshaked socket. */
+    @FunctionalInterface
+    interface Opener {
+
+        SSLSocket open() throws IOException;
+    }
+
+    private final long idleTimeoutNanos;
+    private final int targetSize;
+    private final Opener opener;
+    private final ScheduledFuture<?> expiry;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private int opening;
+    private boolean closed;
+
+    WarmConnectionPool(WarmPoolOptions options, Opener opener) {
+        requireNonNull(options, "'options' must not be null.");
+        this.idleTimeoutNanos = options.getIdleTimeout().toNanos();
+        this.targetSize = options.getTargetSize();
+        this.opener = requireNonNull(opener, "'opener' must not be null.");
+
+        long period = Math.max(TimeUnit.MILLISECONDS.toNanos(1), idleTimeoutNanos / 2);
+        ExpiryTask task = new ExpiryTask(this);
+        this.expiry = EXPIRY_EXECUTOR.scheduleWithFixedDelay(task, period, period, TimeUnit.NANOSECONDS);
+        task.future = expiry;
+        refill();
+    }
+
+    /** @return periodic task expiring idle connections */
+    ScheduledFuture<?> getExpiry() {
+        return expiry;
+    }
+
+    /** @return number of requests served by a warm connection */
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    /** @return number of requests which had to connect on demand */
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    /** @return number of idle connections closed as expired or closed by the server */
+    long getDiscardedCount() {
+        return discarded.sum();
+    }
+
+    /** @return number of failed attempts to open a warm connection */
+    long getFailureCount() {
+        return failures.sum();
+    }
+
+    synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @param avoided server address to take a connection to only if there is none to another one
+     * @return the most recently opened usable idle connection, if any; the pool is refilled in the background
+     */
+    Optional<SSLSocket> take(Optional<InetSocketAddress> avoided) {
+        try {
+            while (true) {
+                Idle connection = poll(avoided);
+                if (connection == null) {
+                    misses.increment();
+                    return Optional.empty();
+                }
+                if (isUsable(connection)) {
+                    hits.increment();
+                    return Optional.of(connection.socket);
+                }
+                discard(connection);
+            }
+        } finally {
+            refill();
+        }
+    }
+
+    private synchronized Idle poll(Optional<InetSocketAddress> avoided) {
+        Idle fallback = null;
+        for (Iterator<Idle> it = idle.descendingIterator(); it.hasNext();) {
+            Idle connection = it.next();
+            if (!avoided.isPresent() || !avoided.get().equals(connection.socket.getRemoteSocketAddress())) {
+                it.remove();
+                return connection;
+            }
+            if (fallback == null) {
+                fallback = connection;
+            }
+        }
+        if (fallback != null) {
+            idle.remove(fallback);
+        }
+        return fallback;
+    }
+
+    /** Detects connections closed by the server by a non-blocking read; a live connection must not have sent anything yet. */
+    private boolean isUsable(Idle connection) {
+        if (System.nanoTime() - connection.createdNanos >= idleTimeoutNanos || connection.socket.isClosed()) {
+            return false;
+        }
+        try {
+            connection.socket.setSoTimeout(1);
+            connection.socket.getInputStream().read();
+            return false; // either closed or unexpected data
+        } catch (SocketTimeoutException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void expire() {
+        long now = System.nanoTime();
+        while (true) {
+            Idle oldest;
+            synchronized (this) {
+                oldest = idle.peekFirst();
+                if (oldest == null || now - oldest.createdNanos < idleTimeoutNanos) {
+                    break;
+                }
+                idle.removeFirst();
+            }
+            discard(oldest);
+        }
+        refill();
+    }
+
+    private void refill() {
+        int missing;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            missing = targetSize - idle.size() - opening;
+            if (missing <= 0) {
+                return;
+            }
+            opening += missing;
+        }
+        for (int i = 0; i < missing; i++) {
+            OPEN_EXECUTOR.execute(this::open);
+        }
+    }
+
+    private void open() {
+        SSLSocket socket;
+        try {
+            socket = opener.open();
+        } catch (IOException | RuntimeException e) {
+            failures.increment(); // refilled on next take or expiry instead of retrying an unavailable server in a loop
+            synchronized (this) {
+                opening--;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            opening--;
+            if (!closed) {
+                idle.addLast(new Idle(socket, System.nanoTime()));
+                return;
+            }
+        }
+        closeQuietly(socket);
+    }
+
+    private void discard(Idle connection) {
+        discarded.increment();
+        closeQuietly(connection.socket);
+    }
+
+    private static void closeQuietly(SSLSocket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore, connection is not used anymore
+        }
+    }
+
+    @Override
+    public void close() {
+        expiry.cancel(false);
+        Idle[] connections;
+        synchronized (this) {
+            closed = true;
+            connections = idle.toArray(new Idle[0]);
+            idle.clear();
+        }
+        for (Idle connection : connections) {
+            closeQuietly(connection.socket);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "WarmConnectionPool{idle=%d, opening=%d, hits=%d, misses=%d, discarded=%d, failures=%d}",
+                idle.size(),
+                opening,
+                getHitCount(),
+                getMissCount(),
+                getDiscardedCount(),
+                getFailureCount());
+    }
+
+    /** Expires idle connections of a pool which is referenced weakly such that it can be garbage collected if it is not closed. */
+    private static class ExpiryTask implements Runnable {
+
+        private final WeakReference<WarmConnectionPool> pool;
+        private volatile ScheduledFuture<?> future; // set right after scheduling, i.e. before the pool can be collected
+
+        ExpiryTask(WarmConnectionPool pool) {
+            this.pool = new WeakReference<>(pool);
+        }
+
+        @Override
+        public void run() {
+            WarmConnectionPool current = pool.get();
+            if (current == null) {
+                future.cancel(false);
+                return;
+            }
+            current.expire();
+        }
+    }
+
+    private static class Idle {
+
+        private final SSLSocket socket;
+        private final long createdNanos;
+
+        Idle(SSLSocket socket, long createdNanos) {
+            this.socket = socket;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
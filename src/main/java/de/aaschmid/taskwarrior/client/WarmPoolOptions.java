@@ -0,0 +1,44 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options of the warm pool of pre-handshaked connections of a {@link TaskwarriorClient}. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface WarmPoolOptions {
+
+    class Builder extends WarmPoolOptionsBuilder {}
+
+    static Builder warmPoolOptionsBuilder() {
+        return new Builder();
+    }
+
+    static WarmPoolOptions defaultWarmPoolOptions() {
+        return warmPoolOptionsBuilder().build();
+    }
+
+    /** Number of idle connections the pool keeps ready. */
+    @Value.Default
+    default int getTargetSize() {
+        return 2;
+    }
+
+    /** Time after which an idle connection is closed and replaced; should be shorter than the server's idle timeout. */
+    @Value.Default
+    default Duration getIdleTimeout() {
+        return Duration.ofSeconds(10);
+    }
+
+    @Value.Check
+    default void check() {
+        if (getTargetSize() < 1) {
+            throw new IllegalArgumentException(String.format("'targetSize' must be positive but was %d.", getTargetSize()));
+        }
+        if (getIdleTimeout().isNegative() || getIdleTimeout().isZero()) {
+            throw new IllegalArgumentException(String.format("'idleTimeout' must be positive but was %s.", getIdleTimeout()));
+        }
+    }
+}
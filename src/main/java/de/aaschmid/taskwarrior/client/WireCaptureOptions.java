@@ -0,0 +1,48 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options of a {@link TaskwarriorWireCapture}. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface WireCaptureOptions {
+
+    class Builder extends WireCaptureOptionsBuilder {}
+
+    static Builder wireCaptureOptionsBuilder() {
+        return new Builder();
+    }
+
+    static WireCaptureOptions defaultWireCaptureOptions() {
+        return wireCaptureOptionsBuilder().build();
+    }
+
+    /** Number of most recent frames, i.e. requests and responses, kept; rounded up to the next power of two. */
+    @Value.Default
+    default int getCapacity() {
+        return 64;
+    }
+
+    /** Number of payload bytes kept per frame; headers are always kept completely. */
+    @Value.Default
+    default int getMaxPayloadBytes() {
+        return 256;
+    }
+
+    /** Receives a dump of all captured frames whenever a request fails, e.g. to log it. */
+    Optional<Consumer<String>> getFailureDumpHandler();
+
+    @Value.Check
+    default void check() {
+        if (getCapacity() < 1 || getCapacity() > 1 << 20) {
+            throw new IllegalArgumentException(String.format("'capacity' must be in [1, %d] but was %d.", 1 << 20, getCapacity()));
+        }
+        if (getMaxPayloadBytes() < 0) {
+            throw new IllegalArgumentException(String.format("'maxPayloadBytes' must not be negative but was %d.", getMaxPayloadBytes()));
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.net.URL;
 
 import de.aaschmid.taskwarrior.client.TaskwarriorServerLocation;
 import de.aaschmid.taskwarrior.client.TaskwarriorSslKeys;
+import de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile;
 import de.aaschmid.taskwarrior.message.TaskwarriorAuthentication;
 
 public interface TaskwarriorConfiguration extends TaskwarriorServerLocation, TaskwarriorSslKeys, TaskwarriorAuthentication {
@@ -11,4 +12,9 @@ public interface TaskwarriorConfiguration extends TaskwarriorServerLocation, Tas
     static TaskwarriorPropertiesConfiguration taskwarriorPropertiesConfiguration(URL propertiesUrl) {
         return new TaskwarriorPropertiesConfiguration(propertiesUrl);
     }
-}
\ No newline at end of file
+
+    /** @return TLS handshake and crypto profile; JVM defaults if not overridden */
+    default TaskwarriorTlsProfile getTlsProfile() {
+        return TaskwarriorTlsProfile.defaultTaskwarriorTlsProfile();
+    }
+}
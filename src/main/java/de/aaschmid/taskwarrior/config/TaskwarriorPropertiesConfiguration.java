@@ -4,20 +4,34 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 
+import de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile;
+
+import static de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile.taskwarriorTlsProfileBuilder;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.AUTH_KEY;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.ORGANIZATION;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SERVER_HOST;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SERVER_PORT;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SERVER_REPLICAS;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_CERT_CA_FILE;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_CIPHER_SUITES;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_NAMED_GROUPS;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_PRIVATE_KEY_CERT_FILE;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_PRIVATE_KEY_FILE;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_PROTOCOLS;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_SESSION_RESUMPTION;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.USER;
 import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
 
 /** {@link TaskwarriorConfiguration} based on a specified properties file */
 public class TaskwarriorPropertiesConfiguration implements TaskwarriorConfiguration {
@@ -29,10 +43,16 @@ public class TaskwarriorPropertiesConfiguration implements TaskwarriorConfigurat
 
         SERVER_HOST("taskwarrior.server.host"),
         SERVER_PORT("taskwarrior.server.port"),
+        SERVER_REPLICAS("taskwarrior.server.replicas"),
 
         SSL_CERT_CA_FILE("taskwarrior.ssl.cert.ca.file"),
         SSL_PRIVATE_KEY_CERT_FILE("taskwarrior.ssl.cert.key.file"),
-        SSL_PRIVATE_KEY_FILE("taskwarrior.ssl.private.key.file");
+        SSL_PRIVATE_KEY_FILE("taskwarrior.ssl.private.key.file"),
+
+        SSL_PROTOCOLS("taskwarrior.ssl.protocols"),
+        SSL_CIPHER_SUITES("taskwarrior.ssl.cipher.suites"),
+        SSL_NAMED_GROUPS("taskwarrior.ssl.named.groups"),
+        SSL_SESSION_RESUMPTION("taskwarrior.ssl.session.resumption");
 
         public final String key;
 
@@ -82,7 +102,39 @@ public class TaskwarriorPropertiesConfiguration implements TaskwarriorConfigurat
 
     @Override
     public int getServerPort() {
-        String port = getExistingProperty(SERVER_PORT.key);
+        return parsePort(getExistingProperty(SERVER_PORT.key));
+    }
+
+    /**
+     * @return all addresses of the server host followed by all addresses of the optional, comma separated {@code host[:port]} replicas
+     *         which default to the server port; IPv6 literals with port are enclosed in brackets, e.g. {@code [::1]:53589}
+     */
+    @Override
+    public List<InetSocketAddress> getServerAddresses() {
+        int port = getServerPort();
+
+        List<InetSocketAddress> result = new ArrayList<>(resolveAll(getExistingProperty(SERVER_HOST.key), port));
+        for (String replica : getListProperty(SERVER_REPLICAS.key)) {
+            int separator = replica.lastIndexOf(':');
+            if (separator > 0 && (replica.startsWith("[") ? replica.charAt(separator - 1) == ']' : replica.indexOf(':') == separator)) {
+                result.addAll(resolveAll(replica.substring(0, separator), parsePort(replica.substring(separator + 1))));
+            } else {
+                result.addAll(resolveAll(replica, port));
+            }
+        }
+        return result;
+    }
+
+    private static List<InetSocketAddress> resolveAll(String host, int port) {
+        String unbracketed = host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+        try {
+            return Arrays.stream(InetAddress.getAllByName(unbracketed)).map(a -> new InetSocketAddress(a, port)).collect(toList());
+        } catch (UnknownHostException e) {
+            throw new TaskwarriorConfigurationException(e, "Cannot resolve host address '%s'.", host);
+        }
+    }
+
+    private static int parsePort(String port) {
         try {
             return Integer.decode(port);
         } catch (NumberFormatException e) {
@@ -110,6 +162,37 @@ public class TaskwarriorPropertiesConfiguration implements TaskwarriorConfigurat
         return getExistingProperty(USER.key);
     }
 
+    /** @return TLS profile of the optional {@code taskwarrior.ssl.*} properties; lists are comma separated */
+    @Override
+    public TaskwarriorTlsProfile getTlsProfile() {
+        TaskwarriorTlsProfile.Builder result = taskwarriorTlsProfileBuilder()
+                .protocols(getListProperty(SSL_PROTOCOLS.key))
+                .cipherSuites(getListProperty(SSL_CIPHER_SUITES.key))
+                .namedGroups(getListProperty(SSL_NAMED_GROUPS.key));
+
+        String sessionResumption = getOptionalProperty(SSL_SESSION_RESUMPTION.key);
+        if (sessionResumption != null) {
+            if (!"true".equalsIgnoreCase(sessionResumption) && !"false".equalsIgnoreCase(sessionResumption)) {
+                throw new TaskwarriorConfigurationException("Session resumption '%s' is neither 'true' nor 'false'.", sessionResumption);
+            }
+            result.sessionResumption(Boolean.parseBoolean(sessionResumption));
+        }
+        return result.build();
+    }
+
+    private String getOptionalProperty(String key) {
+        String value = taskwarriorProperties.getProperty(key);
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    private List<String> getListProperty(String key) {
+        String value = getOptionalProperty(key);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(v -> !v.isEmpty()).collect(toList());
+    }
+
     private String getExistingProperty(String key) {
         String value = taskwarriorProperties.getProperty(key);
         if (value == null) {
@@ -0,0 +1,176 @@
+package de.aaschmid.taskwarrior.config;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.aaschmid.taskwarrior.TaskwarriorException;
+import de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Snapshot of a {@link TaskwarriorConfiguration} whose values are parsed and validated once on creation such that getters neither
+ * parse, touch the file system nor resolve host names.
+ * <p>
+ * Server host and addresses are re-resolved in the background by the given configuration if they are older than the given time to
+ * live; until then, and also if re-resolving fails, the last resolved ones are returned.
+ * </p>
+ */
+public final class TaskwarriorResolvedConfiguration implements TaskwarriorConfiguration {
+
+    /** Same as the default of the JVM's own {@code networkaddress.cache.ttl}. */
+    public static final Duration DEFAULT_SERVER_HOST_TTL = Duration.ofSeconds(30);
+
+    private static final Executor REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread result = new Thread(r, "taskwarrior-server-host-refresh");
+        result.setDaemon(true);
+        return result;
+    });
+
+    private final TaskwarriorConfiguration config;
+    private final long serverHostTtlNanos;
+
+    private final int serverPort;
+    private final File caCertFile;
+    private final File privateKeyCertFile;
+    private final File privateKeyFile;
+    private final UUID authKey;
+    private final String organization;
+    private final String user;
+    private final TaskwarriorTlsProfile tlsProfile;
+
+    private volatile InetAddress serverHost;
+    private volatile List<InetSocketAddress> serverAddresses;
+    private volatile long serverHostResolvedNanos;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private TaskwarriorResolvedConfiguration(TaskwarriorConfiguration config, Duration serverHostTtl) {
+        this.config = config;
+        this.serverHostTtlNanos = serverHostTtl.toNanos();
+
+        this.serverHost = requireNonNull(config.getServerHost(), "'serverHost' must not be null.");
+        this.serverAddresses = copyOf(config.getServerAddresses());
+        this.serverHostResolvedNanos = System.nanoTime();
+        this.serverPort = config.getServerPort();
+        this.caCertFile = requireNonNull(config.getCaCertFile(), "'caCertFile' must not be null.");
+        this.privateKeyCertFile = requireNonNull(config.getPrivateKeyCertFile(), "'privateKeyCertFile' must not be null.");
+        this.privateKeyFile = requireNonNull(config.getPrivateKeyFile(), "'privateKeyFile' must not be null.");
+        this.authKey = requireNonNull(config.getAuthKey(), "'authKey' must not be null.");
+        this.organization = requireNonNull(config.getOrganization(), "'organization' must not be null.");
+        this.user = requireNonNull(config.getUser(), "'user' must not be null.");
+        this.tlsProfile = requireNonNull(config.getTlsProfile(), "'tlsProfile' must not be null.");
+    }
+
+    /**
+     * Resolves all values of the given configuration once; returns the given configuration itself if it is already resolved.
+     *
+     * @param serverHostTtl time after which the server host is re-resolved in the background, zero re-resolves after every access
+     * @throws TaskwarriorException if the given configuration contains any invalid value
+     */
+    public static TaskwarriorResolvedConfiguration resolve(TaskwarriorConfiguration config, Duration serverHostTtl) {
+        requireNonNull(config, "'config' must not be null.");
+        requireNonNull(serverHostTtl, "'serverHostTtl' must not be null.");
+        if (serverHostTtl.isNegative()) {
+            throw new IllegalArgumentException(String.format("Server host TTL must not be negative but was %s.", serverHostTtl));
+        }
+
+        if (config instanceof TaskwarriorResolvedConfiguration
+                && ((TaskwarriorResolvedConfiguration) config).serverHostTtlNanos == serverHostTtl.toNanos()) {
+            return (TaskwarriorResolvedConfiguration) config;
+        }
+        if (config instanceof TaskwarriorResolvedConfiguration) {
+            config = ((TaskwarriorResolvedConfiguration) config).config;
+        }
+        return new TaskwarriorResolvedConfiguration(config, serverHostTtl);
+    }
+
+    private static List<InetSocketAddress> copyOf(List<InetSocketAddress> serverAddresses) {
+        List<InetSocketAddress> result = new ArrayList<>(requireNonNull(serverAddresses, "'serverAddresses' must not be null."));
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("Server addresses must not be empty.");
+        }
+        return unmodifiableList(result);
+    }
+
+    @Override
+    public InetAddress getServerHost() {
+        refreshIfExpired();
+        return serverHost;
+    }
+
+    @Override
+    public List<InetSocketAddress> getServerAddresses() {
+        refreshIfExpired();
+        return serverAddresses;
+    }
+
+    private void refreshIfExpired() {
+        if (System.nanoTime() - serverHostResolvedNanos >= serverHostTtlNanos && refreshing.compareAndSet(false, true)) {
+            REFRESH_EXECUTOR.execute(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        try {
+            InetAddress resolved = config.getServerHost();
+            if (resolved != null) {
+                serverHost = resolved;
+            }
+            serverAddresses = copyOf(config.getServerAddresses());
+        } catch (RuntimeException e) {
+            // keep last resolved address, e.g. during a temporary DNS outage
+        } finally {
+            serverHostResolvedNanos = System.nanoTime();
+            refreshing.set(false);
+        }
+    }
+
+    @Override
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    @Override
+    public File getCaCertFile() {
+        return caCertFile;
+    }
+
+    @Override
+    public File getPrivateKeyCertFile() {
+        return privateKeyCertFile;
+    }
+
+    @Override
+    public File getPrivateKeyFile() {
+        return privateKeyFile;
+    }
+
+    @Override
+    public UUID getAuthKey() {
+        return authKey;
+    }
+
+    @Override
+    public String getOrganization() {
+        return organization;
+    }
+
+    @Override
+    public String getUser() {
+        return user;
+    }
+
+    @Override
+    public TaskwarriorTlsProfile getTlsProfile() {
+        return tlsProfile;
+    }
+}
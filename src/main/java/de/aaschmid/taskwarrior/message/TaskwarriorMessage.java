@@ -1,5 +1,7 @@
 package de.aaschmid.taskwarrior.message;
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.Map;
 import java.util.Optional;
 
@@ -20,5 +22,11 @@ public interface TaskwarriorMessage {
 
     Map<String, String> getHeaders();
 
+    /** Large responses received into a temp file are decoded on every call, prefer {@link #getPayloadReader()} for them. */
     Optional<String> getPayload();
+
+    /** @return new reader of the payload which decodes responses received into a temp file while reading instead of at once */
+    default Optional<Reader> getPayloadReader() {
+        return getPayload().map(StringReader::new);
+    }
 }
@@ -7,6 +7,10 @@ public class TaskwarriorMessageDeserializationException extends TaskwarriorExcep
 
     private static final long serialVersionUID = -4817349426539597530L;
 
+    public TaskwarriorMessageDeserializationException(Throwable cause, String format, Object... args) {
+        super(cause, format, args);
+    }
+
     public TaskwarriorMessageDeserializationException(String format, Object... args) {
         super(format, args);
     }
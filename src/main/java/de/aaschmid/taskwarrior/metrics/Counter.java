@@ -0,0 +1,47 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count per combination of label values, e.g. requests per message type. Incrementing is lock-free and
+ * contention is spread over the cells of a {@link LongAdder}; only the first increment of new label values allocates.
+ *
+ * @see MetricsRegistry#counter(String, String, String...)
+ */
+public final class Counter extends Metric<LongAdder> {
+
+    Counter(String name, String help, String... labelNames) {
+        super(name, help, "counter", labelNames);
+    }
+
+    public void inc(String... labelValues) {
+        child(labelValues).increment();
+    }
+
+    /** @param amount non-negative amount to add */
+    public void add(long amount, String... labelValues) {
+        if (amount < 0) {
+            throw new IllegalArgumentException(String.format("'amount' must not be negative but was %d.", amount));
+        }
+        child(labelValues).add(amount);
+    }
+
+    /** @return current count of the given label values, {@code 0} if never incremented */
+    public long get(String... labelValues) {
+        LongAdder result = existingChild(labelValues);
+        return result == null ? 0 : result.sum();
+    }
+
+    @Override
+    LongAdder newChild() {
+        return new LongAdder();
+    }
+
+    @Override
+    void writeChild(Writer out, List<String> labelValues, LongAdder child) throws IOException {
+        writeSample(out, "", labelValues, null, null, Long.toString(child.sum()));
+    }
+}
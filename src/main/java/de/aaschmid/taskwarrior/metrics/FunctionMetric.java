@@ -0,0 +1,30 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/** Unlabeled gauge or counter whose value is read from another component on every scrape. */
+final class FunctionMetric extends Metric<DoubleSupplier> {
+
+    private final DoubleSupplier value;
+
+    FunctionMetric(String name, String help, String type, DoubleSupplier value) {
+        super(name, help, type);
+        this.value = requireNonNull(value, "'value' must not be null.");
+        child();
+    }
+
+    @Override
+    DoubleSupplier newChild() {
+        return value;
+    }
+
+    @Override
+    void writeChild(Writer out, List<String> labelValues, DoubleSupplier child) throws IOException {
+        writeSample(out, "", labelValues, null, null, format(child.getAsDouble()));
+    }
+}
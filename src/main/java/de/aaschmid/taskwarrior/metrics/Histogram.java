@@ -0,0 +1,125 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Distribution of observed values per combination of label values counted in buckets of fixed upper bounds, e.g. request durations in
+ * seconds or payload sizes in bytes. Observing is lock-free using a {@link LongAdder} per bucket.
+ *
+ * @see MetricsRegistry#histogram(String, String, double[], String...)
+ */
+public final class Histogram extends Metric<Histogram.Child> {
+
+    /** Upper bounds in seconds suitable for request durations, from 5 ms to 10 s. */
+    static final double[] DURATION_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    /** Upper bounds in bytes suitable for payload sizes, from 64 B to 16 MiB in steps of factor four. */
+    static final double[] SIZE_BUCKETS = exponentialBuckets(64, 4, 10);
+
+    private final double[] upperBounds;
+    private final String[] upperBoundLabels;
+
+    Histogram(String name, String help, double[] upperBounds, String... labelNames) {
+        super(name, help, "histogram", labelNames);
+        requireNonNull(upperBounds, "'upperBounds' must not be null.");
+        if (upperBounds.length == 0) {
+            throw new IllegalArgumentException(String.format("Histogram '%s' requires at least one bucket.", name));
+        }
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i - 1] >= upperBounds[i]) {
+                throw new IllegalArgumentException(String.format(
+                        "Upper bounds of histogram '%s' must be strictly increasing but were %s.",
+                        name,
+                        Arrays.toString(upperBounds)));
+            }
+        }
+        if (getLabelNames().contains("le")) {
+            throw new IllegalArgumentException(String.format("Label name 'le' of histogram '%s' is reserved for buckets.", name));
+        }
+        this.upperBounds = upperBounds.clone();
+        this.upperBoundLabels = new String[upperBounds.length + 1];
+        for (int i = 0; i < upperBounds.length; i++) {
+            upperBoundLabels[i] = format(upperBounds[i]);
+        }
+        upperBoundLabels[upperBounds.length] = "+Inf";
+    }
+
+    /** @return {@code count} upper bounds starting at {@code start} each {@code factor} times larger than the previous one */
+    public static double[] exponentialBuckets(double start, double factor, int count) {
+        if (start <= 0 || factor <= 1 || count < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "'start' must be positive, 'factor' greater than 1 and 'count' positive but were %s, %s and %d.",
+                    start,
+                    factor,
+                    count));
+        }
+        double[] result = new double[count];
+        result[0] = start;
+        for (int i = 1; i < count; i++) {
+            result[i] = result[i - 1] * factor;
+        }
+        return result;
+    }
+
+    public void observe(double value, String... labelValues) {
+        child(labelValues).observe(value);
+    }
+
+    /** @return number of observed values of the given label values */
+    public long getCount(String... labelValues) {
+        Child result = existingChild(labelValues);
+        return result == null ? 0 : result.count.sum();
+    }
+
+    /** @return sum of observed values of the given label values */
+    public double getSum(String... labelValues) {
+        Child result = existingChild(labelValues);
+        return result == null ? 0 : result.sum.sum();
+    }
+
+    @Override
+    Child newChild() {
+        return new Child(upperBounds);
+    }
+
+    @Override
+    void writeChild(Writer out, List<String> labelValues, Child child) throws IOException {
+        long cumulative = 0;
+        for (int i = 0; i < child.buckets.length; i++) {
+            cumulative += child.buckets[i].sum();
+            writeSample(out, "_bucket", labelValues, "le", upperBoundLabels[i], Long.toString(cumulative));
+        }
+        writeSample(out, "_sum", labelValues, null, null, format(child.sum.sum()));
+        writeSample(out, "_count", labelValues, null, null, Long.toString(child.count.sum()));
+    }
+
+    static final class Child {
+
+        private final double[] upperBounds;
+        private final LongAdder[] buckets;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Child(double[] upperBounds) {
+            this.upperBounds = upperBounds;
+            this.buckets = new LongAdder[upperBounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void observe(double value) {
+            int index = Arrays.binarySearch(upperBounds, value);
+            buckets[index >= 0 ? index : -index - 1].increment();
+            count.increment();
+            sum.add(value);
+        }
+    }
+}
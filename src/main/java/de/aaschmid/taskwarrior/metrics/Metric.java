@@ -0,0 +1,171 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Metric family of a {@link MetricsRegistry}, i.e. one child of type {@code T} per distinct combination of label values, rendered in the
+ * Prometheus text exposition format.
+ */
+abstract class Metric<T> {
+
+    private static final Pattern PATTERN_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern PATTERN_LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private final String name;
+    private final String help;
+    private final String type;
+    private final List<String> labelNames;
+    private final Map<List<String>, T> children = new ConcurrentHashMap<>();
+
+    Metric(String name, String help, String type, String... labelNames) {
+        this.name = requireNonNull(name, "'name' must not be null.");
+        this.help = requireNonNull(help, "'help' must not be null.");
+        this.type = type;
+        this.labelNames = Collections.unmodifiableList(Arrays.asList(requireNonNull(labelNames, "'labelNames' must not be null.")));
+
+        if (!PATTERN_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException(String.format("Metric name '%s' must match '%s'.", name, PATTERN_NAME.pattern()));
+        }
+        for (String labelName : labelNames) {
+            if (labelName == null || !PATTERN_LABEL_NAME.matcher(labelName).matches() || labelName.startsWith("__")) {
+                throw new IllegalArgumentException(String.format(
+                        "Label name '%s' of metric '%s' must match '%s' and must not start with '__'.",
+                        labelName,
+                        name,
+                        PATTERN_LABEL_NAME.pattern()));
+            }
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    List<String> getLabelNames() {
+        return labelNames;
+    }
+
+    abstract T newChild();
+
+    /** @return child for the given label values, created on first use */
+    T child(String... labelValues) {
+        List<String> key = key(labelValues);
+        T result = children.get(key);
+        if (result == null) {
+            T created = newChild();
+            result = children.putIfAbsent(Collections.unmodifiableList(new ArrayList<>(key)), created);
+            if (result == null) {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    /** @return child for the given label values or {@code null} if none was created yet */
+    T existingChild(String... labelValues) {
+        return children.get(key(labelValues));
+    }
+
+    private List<String> key(String... labelValues) {
+        requireNonNull(labelValues, "'labelValues' must not be null.");
+        if (labelValues.length != labelNames.size()) {
+            throw new IllegalArgumentException(String.format(
+                    "Metric '%s' requires %d label values for %s but got %d.",
+                    name,
+                    labelNames.size(),
+                    labelNames,
+                    labelValues.length));
+        }
+        for (String labelValue : labelValues) {
+            requireNonNull(labelValue, "'labelValues' must not contain null.");
+        }
+        return Arrays.asList(labelValues);
+    }
+
+    void write(Writer out) throws IOException {
+        out.write("# HELP ");
+        out.write(name);
+        out.write(' ');
+        out.write(escape(help, false));
+        out.write("\n# TYPE ");
+        out.write(name);
+        out.write(' ');
+        out.write(type);
+        out.write('\n');
+        for (Map.Entry<List<String>, T> entry : children.entrySet()) {
+            writeChild(out, entry.getKey(), entry.getValue());
+        }
+    }
+
+    abstract void writeChild(Writer out, List<String> labelValues, T child) throws IOException;
+
+    /** Writes a single sample line, optionally with an additional label such as {@code le} of histogram buckets. */
+    void writeSample(Writer out, String suffix, List<String> labelValues, String extraLabel, String extraValue, String value)
+            throws IOException {
+        out.write(name);
+        out.write(suffix);
+        if (!labelValues.isEmpty() || extraLabel != null) {
+            out.write('{');
+            for (int i = 0; i < labelValues.size(); i++) {
+                writeLabel(out, i > 0, labelNames.get(i), labelValues.get(i));
+            }
+            if (extraLabel != null) {
+                writeLabel(out, !labelValues.isEmpty(), extraLabel, extraValue);
+            }
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    private static void writeLabel(Writer out, boolean separator, String labelName, String labelValue) throws IOException {
+        if (separator) {
+            out.write(',');
+        }
+        out.write(labelName);
+        out.write("=\"");
+        out.write(escape(labelValue, true));
+        out.write('"');
+    }
+
+    static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    /** Escapes backslash and line feed as well as double quotes within label values. */
+    private static String escape(String value, boolean quotes) {
+        StringBuilder result = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = c == '\\' ? "\\\\" : c == '\n' ? "\\n" : quotes && c == '"' ? "\\\"" : null;
+            if (replacement != null && result == null) {
+                result = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (result != null) {
+                if (replacement != null) {
+                    result.append(replacement);
+                } else {
+                    result.append(c);
+                }
+            }
+        }
+        return result == null ? value : result.toString();
+    }
+}
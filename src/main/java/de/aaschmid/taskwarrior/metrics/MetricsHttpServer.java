@@ -0,0 +1,99 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Embedded HTTP endpoint serving the metrics of a {@link MetricsRegistry} at {@code /metrics} for Prometheus to scrape, based on the
+ * {@code com.sun.net.httpserver} server of the JDK. Requests are handled by a single daemon thread as scrapes are rare.
+ */
+public class MetricsHttpServer implements AutoCloseable {
+
+    public static final String PATH = "/metrics";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private MetricsHttpServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * @param address address to bind to, e.g. {@code new InetSocketAddress(9400)} or port {@code 0} for an ephemeral one
+     * @throws TaskwarriorMetricsException if the server cannot be bound to the given address
+     */
+    public static MetricsHttpServer start(MetricsRegistry registry, InetSocketAddress address) {
+        requireNonNull(registry, "'registry' must not be null.");
+        requireNonNull(address, "'address' must not be null.");
+
+        HttpServer server;
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            throw new TaskwarriorMetricsException(e, "Could not bind metrics endpoint to '%s'.", address);
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread result = new Thread(r, "taskwarrior-metrics-http");
+            result.setDaemon(true);
+            return result;
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, exchange -> handle(registry, exchange));
+        server.start();
+        return new MetricsHttpServer(server, executor);
+    }
+
+    @SuppressFBWarnings(value = "RCN_REDUNDANT_NULLCHECK_WOULD_HAVE_BEEN_A_NPE", justification = "generated try-with-resources code causes failure in Java 11, see https://github.com/spotbugs/spotbugs/issues/756")
+    private static void handle(MetricsRegistry registry, HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+            try (Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+                registry.write(writer);
+            }
+            exchange.getResponseHeaders().set("Content-Type", MetricsRegistry.CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                body.writeTo(out);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** @return address the server is bound to, e.g. to look up an ephemeral port */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /** Stops serving metrics immediately. */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
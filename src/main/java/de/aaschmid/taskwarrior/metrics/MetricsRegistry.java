@@ -0,0 +1,95 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lightweight registry of {@link Counter}s, {@link Histogram}s and gauges rendered in the Prometheus text exposition format version
+ * 0.0.4 without depending on any metrics library, e.g. scraped via {@link MetricsHttpServer}. Metrics are rendered in registration order.
+ *
+ * @see TaskwarriorMetrics
+ */
+public class MetricsRegistry {
+
+    /** Content type of {@link #write(Writer)} to be used by HTTP endpoints. */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Map<String, Metric<?>> metrics = new LinkedHashMap<>();
+
+    /**
+     * @param name unique metric name, should end with {@code _total}
+     * @param labelNames names of labels whose values must be given in the same order on each increment
+     * @throws IllegalArgumentException if a metric with the same name is already registered or names are invalid
+     */
+    public Counter counter(String name, String help, String... labelNames) {
+        return register(new Counter(name, help, labelNames));
+    }
+
+    /**
+     * @param name unique metric name, should end with the unit of the observed values such as {@code _seconds} or {@code _bytes}
+     * @param upperBounds strictly increasing upper bounds of the buckets, see {@link Histogram#exponentialBuckets(double, double, int)}
+     * @param labelNames names of labels whose values must be given in the same order on each observation
+     * @throws IllegalArgumentException if a metric with the same name is already registered or names or buckets are invalid
+     */
+    public Histogram histogram(String name, String help, double[] upperBounds, String... labelNames) {
+        return register(new Histogram(name, help, upperBounds, labelNames));
+    }
+
+    /**
+     * Registers a gauge whose current value is read on every scrape.
+     *
+     * @throws IllegalArgumentException if a metric with the same name is already registered or the name is invalid
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        register(new FunctionMetric(name, help, "gauge", value));
+    }
+
+    /**
+     * Registers a counter maintained by another component whose current value is read on every scrape.
+     *
+     * @throws IllegalArgumentException if a metric with the same name is already registered or the name is invalid
+     */
+    public void counterFunction(String name, String help, DoubleSupplier value) {
+        register(new FunctionMetric(name, help, "counter", value));
+    }
+
+    private synchronized <M extends Metric<?>> M register(M metric) {
+        if (metrics.containsKey(metric.getName())) {
+            throw new IllegalArgumentException(String.format("Metric '%s' is already registered.", metric.getName()));
+        }
+        metrics.put(metric.getName(), metric);
+        return metric;
+    }
+
+    /** Writes all metrics in the Prometheus text exposition format, see {@link #CONTENT_TYPE}. */
+    public void write(Writer out) throws IOException {
+        requireNonNull(out, "'out' must not be null.");
+
+        Metric<?>[] snapshot;
+        synchronized (this) {
+            snapshot = metrics.values().toArray(new Metric<?>[0]);
+        }
+        for (Metric<?> metric : snapshot) {
+            metric.write(out);
+        }
+        out.flush();
+    }
+
+    /** @return all metrics in the Prometheus text exposition format */
+    public String scrape() {
+        StringWriter result = new StringWriter();
+        try {
+            write(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen for StringWriter
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,163 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import de.aaschmid.taskwarrior.client.ResponseMemoryBudget;
+import de.aaschmid.taskwarrior.client.TaskwarriorClientListener;
+import de.aaschmid.taskwarrior.client.TaskwarriorClientOptions;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.sync.TaskwarriorSyncScheduler;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_KEY_TYPE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link TaskwarriorClientListener} maintaining Prometheus metrics of all exchanges of the clients it is registered at via
+ * {@link TaskwarriorClientOptions#getListener()}: request rates, failures, response codes of the {@code code} header, durations, payload
+ * sizes and TLS handshakes, each labeled with the message type. Sync lag and throughput of a {@link TaskwarriorSyncScheduler} can be
+ * added by {@link #monitor(TaskwarriorSyncScheduler)}, usage of a {@link ResponseMemoryBudget} by {@link #monitor(ResponseMemoryBudget)}.
+ * <p>
+ * Share one instance between all clients of a process, e.g. all accounts of a sync fleet, and expose its registry via
+ * {@link MetricsHttpServer}.
+ */
+public class TaskwarriorMetrics implements TaskwarriorClientListener {
+
+    private static final String HEADER_KEY_CODE = "code";
+    private static final String UNKNOWN = "unknown";
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final MetricsRegistry registry;
+
+    private final Counter requests;
+    private final Counter failures;
+    private final Counter responses;
+    private final Counter handshakes;
+    private final Histogram durations;
+    private final Histogram requestSizes;
+    private final Histogram responseSizes;
+
+    public TaskwarriorMetrics() {
+        this(new MetricsRegistry());
+    }
+
+    /** @param registry registry to add the client metrics to, which must not contain metrics of another instance */
+    public TaskwarriorMetrics(MetricsRegistry registry) {
+        this.registry = requireNonNull(registry, "'registry' must not be null.");
+
+        this.requests = registry.counter("taskwarrior_client_requests_total", "Exchanges with a taskwarrior server.", "type");
+        this.failures = registry.counter("taskwarrior_client_request_failures_total", "Exchanges failed without response.", "type");
+        this.responses = registry.counter("taskwarrior_client_responses_total", "Responses by their code header.", "type", "code");
+        this.handshakes = registry.counter("taskwarrior_client_handshakes_total", "TLS handshakes of new connections.", "type");
+        this.durations = registry.histogram(
+                "taskwarrior_client_request_duration_seconds",
+                "Duration of successful exchanges.",
+                Histogram.DURATION_BUCKETS,
+                "type");
+        this.requestSizes = registry.histogram(
+                "taskwarrior_client_request_size_bytes",
+                "Size of serialized requests.",
+                Histogram.SIZE_BUCKETS,
+                "type");
+        this.responseSizes = registry.histogram(
+                "taskwarrior_client_response_size_bytes",
+                "Size of serialized responses.",
+                Histogram.SIZE_BUCKETS,
+                "type");
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Adds gauges and counters of the given scheduler which are read on every scrape. Only a single scheduler can be monitored per
+     * registry.
+     *
+     * @return this instance
+     */
+    public TaskwarriorMetrics monitor(TaskwarriorSyncScheduler scheduler) {
+        requireNonNull(scheduler, "'scheduler' must not be null.");
+
+        registry.gauge("taskwarrior_sync_accounts", "Registered accounts.", scheduler::getAccountCount);
+        registry.gauge("taskwarrior_sync_queue_depth", "Due accounts waiting for a free worker.", scheduler::getQueueDepth);
+        registry.gauge("taskwarrior_sync_running", "Currently running syncs.", scheduler::getRunningSyncCount);
+        registry.counterFunction("taskwarrior_sync_completed_total", "Successful syncs.", scheduler::getCompletedSyncCount);
+        registry.counterFunction("taskwarrior_sync_failed_total", "Failed syncs.", scheduler::getFailedSyncCount);
+        registry.gauge(
+                "taskwarrior_sync_lag_seconds",
+                "Time the most recently started sync waited for a free worker after being due.",
+                () -> scheduler.getLastLag().toNanos() / NANOS_PER_SECOND);
+        registry.gauge(
+                "taskwarrior_sync_lag_max_seconds",
+                "Maximum time any sync waited for a free worker after being due.",
+                () -> scheduler.getMaxLag().toNanos() / NANOS_PER_SECOND);
+        return this;
+    }
+
+    /**
+     * Adds gauges and counters of the given budget which are read on every scrape. Only a single budget can be monitored per registry.
+     *
+     * @return this instance
+     */
+    public TaskwarriorMetrics monitor(ResponseMemoryBudget budget) {
+        requireNonNull(budget, "'budget' must not be null.");
+
+        registry.gauge(
+                "taskwarrior_client_response_budget_bytes",
+                "Bytes of responses allowed in memory at the same time.",
+                budget::getMaxBytes);
+        registry.gauge(
+                "taskwarrior_client_response_budget_used_bytes",
+                "Bytes reserved by responses being received.",
+                budget::getUsedBytes);
+        registry.gauge(
+                "taskwarrior_client_response_budget_used_max_bytes",
+                "Maximum bytes reserved at the same time.",
+                budget::getPeakUsedBytes);
+        registry.gauge("taskwarrior_client_response_budget_waiting", "Responses waiting for enough free bytes.", budget::getWaiting);
+        registry.counterFunction("taskwarrior_client_response_budget_waits_total", "Responses which had to wait.", budget::getWaitCount);
+        registry.counterFunction("taskwarrior_client_response_budget_rejections_total", "Rejected responses.", budget::getRejectedCount);
+        registry.counterFunction(
+                "taskwarrior_client_response_budget_spills_total",
+                "Responses received into a temp file because they did not fit.",
+                budget::getSpilledCount);
+        return this;
+    }
+
+    @Override
+    public void phaseCompleted(TaskwarriorMessage request, Phase phase, long nanos) {
+        if (phase == Phase.HANDSHAKE) {
+            handshakes.inc(type(request));
+        }
+    }
+
+    @Override
+    public void bytesSent(TaskwarriorMessage request, long bytes) {
+        requestSizes.observe(bytes, type(request));
+    }
+
+    @Override
+    public void bytesReceived(TaskwarriorMessage request, long bytes) {
+        responseSizes.observe(bytes, type(request));
+    }
+
+    @Override
+    public void responseReceived(TaskwarriorMessage request, TaskwarriorMessage response) {
+        String code = response.getHeaders().get(HEADER_KEY_CODE);
+        responses.inc(type(request), code == null ? UNKNOWN : code);
+    }
+
+    @Override
+    public void exchangeCompleted(TaskwarriorMessage request, long nanos, Throwable failure) {
+        String type = type(request);
+        requests.inc(type);
+        if (failure == null) {
+            durations.observe(nanos / NANOS_PER_SECOND, type);
+        } else {
+            failures.inc(type);
+        }
+    }
+
+    private static String type(TaskwarriorMessage request) {
+        String result = request.getHeaders().get(HEADER_KEY_TYPE);
+        return result == null ? UNKNOWN : result;
+    }
+}
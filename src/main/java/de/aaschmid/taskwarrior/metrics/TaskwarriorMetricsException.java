@@ -0,0 +1,13 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import de.aaschmid.taskwarrior.TaskwarriorException;
+
+/** Exception occurs if metrics cannot be exposed, e.g. because the port of the {@link MetricsHttpServer} is in use. */
+public class TaskwarriorMetricsException extends TaskwarriorException {
+
+    private static final long serialVersionUID = 5320887165204172639L;
+
+    public TaskwarriorMetricsException(Throwable cause, String format, Object... args) {
+        super(cause, format, args);
+    }
+}
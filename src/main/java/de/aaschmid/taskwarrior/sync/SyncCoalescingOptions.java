@@ -0,0 +1,44 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+/** Immutable options controlling when a {@link TaskwarriorSyncCoalescer} flushes its pending task modifications. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface SyncCoalescingOptions {
+
+    class Builder extends SyncCoalescingOptionsBuilder {}
+
+    static Builder syncCoalescingOptionsBuilder() {
+        return new Builder();
+    }
+
+    static SyncCoalescingOptions defaultSyncCoalescingOptions() {
+        return syncCoalescingOptionsBuilder().build();
+    }
+
+    /** Number of distinct pending tasks which triggers an immediate flush. */
+    @Value.Default
+    default int getMaxPendingTasks() {
+        return 500;
+    }
+
+    /** Maximum time the first pending modification waits before all pending modifications are flushed. */
+    @Value.Default
+    default Duration getFlushWindow() {
+        return Duration.ofSeconds(1);
+    }
+
+    @Value.Check
+    default void check() {
+        if (getMaxPendingTasks() < 1) {
+            throw new IllegalArgumentException(String.format("'maxPendingTasks' must be positive but was %d.", getMaxPendingTasks()));
+        }
+        if (getFlushWindow().isNegative() || getFlushWindow().isZero()) {
+            throw new IllegalArgumentException(String.format("'flushWindow' must be positive but was %s.", getFlushWindow()));
+        }
+    }
+}
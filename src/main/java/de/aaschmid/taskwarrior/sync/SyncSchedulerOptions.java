@@ -0,0 +1,80 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+import static de.aaschmid.taskwarrior.sync.SyncCoalescingOptions.defaultSyncCoalescingOptions;
+
+/** Immutable options of a {@link TaskwarriorSyncScheduler}. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface SyncSchedulerOptions {
+
+    class Builder extends SyncSchedulerOptionsBuilder {}
+
+    static Builder syncSchedulerOptionsBuilder() {
+        return new Builder();
+    }
+
+    static SyncSchedulerOptions defaultSyncSchedulerOptions() {
+        return syncSchedulerOptionsBuilder().build();
+    }
+
+    /**
+     * Maximum number of concurrently running syncs, i.e. concurrent connections to taskd servers. Workers are virtual threads on Java 21
+     * and later, such that even thousands of them run on a few carrier threads.
+     */
+    @Value.Default
+    default int getWorkerThreads() {
+        return 4;
+    }
+
+    /** Regular interval between two syncs of the same account. */
+    @Value.Default
+    default Duration getSyncInterval() {
+        return Duration.ofMinutes(5);
+    }
+
+    /** Fraction in {@code [0, 1)} by which each interval is randomly stretched or shrunk to spread syncs of different accounts. */
+    @Value.Default
+    default double getJitter() {
+        return 0.1;
+    }
+
+    /** Delay before the first retry of a failed sync which is doubled for every further consecutive failure. */
+    @Value.Default
+    default Duration getInitialBackoff() {
+        return Duration.ofSeconds(1);
+    }
+
+    /** Upper limit of the delay after consecutive failures. */
+    @Value.Default
+    default Duration getMaxBackoff() {
+        return Duration.ofMinutes(5);
+    }
+
+    /** Options for coalescing local modifications of each account, see {@link TaskwarriorSyncAccount#modify}. */
+    @Value.Default
+    default SyncCoalescingOptions getCoalescingOptions() {
+        return defaultSyncCoalescingOptions();
+    }
+
+    @Value.Check
+    default void check() {
+        if (getWorkerThreads() < 1) {
+            throw new IllegalArgumentException(String.format("'workerThreads' must be positive but was %d.", getWorkerThreads()));
+        }
+        if (getJitter() < 0 || getJitter() >= 1) {
+            throw new IllegalArgumentException(String.format("'jitter' must be in [0, 1) but was %s.", getJitter()));
+        }
+        if (getSyncInterval().isNegative() || getSyncInterval().isZero()) {
+            throw new IllegalArgumentException(String.format("'syncInterval' must be positive but was %s.", getSyncInterval()));
+        }
+        if (getInitialBackoff().isNegative() || getInitialBackoff().compareTo(getMaxBackoff()) > 0) {
+            throw new IllegalArgumentException(String.format(
+                    "'initialBackoff' must not be negative or greater than 'maxBackoff' but was %s.", getInitialBackoff()));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import de.aaschmid.taskwarrior.client.TaskwarriorClient;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+
+import static de.aaschmid.taskwarrior.sync.TaskwarriorSyncBatch.taskwarriorSyncBatch;
+import static java.util.Collections.emptyMap;
+
+/** Account registered at a {@link TaskwarriorSyncScheduler} which keeps track of sync key and local modifications of the account. */
+public class TaskwarriorSyncAccount {
+
+    private static final TaskwarriorSyncBatch NO_MODIFICATIONS = taskwarriorSyncBatch(emptyMap(), 0);
+    private static final String HEADER_KEY_CODE = "code";
+    private static final String HEADER_KEY_STATUS = "status";
+
+    private final TaskwarriorSyncScheduler scheduler;
+    private final TaskwarriorConfiguration config;
+    private final Consumer<TaskwarriorMessage> responseHandler;
+    private final TaskwarriorSyncCoalescer coalescer;
+
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private volatile String syncKey;
+    private volatile RuntimeException lastFailure;
+    private TaskwarriorClient client; // only used by the single worker currently syncing this account
+
+    // scheduling state guarded by this
+    ScheduledFuture<?> scheduled;
+    long dueNanos;
+    boolean queued;
+    boolean running;
+    boolean syncAgain;
+    boolean unregistered;
+    int consecutiveFailures;
+
+    TaskwarriorSyncAccount(
+            TaskwarriorSyncScheduler scheduler,
+            TaskwarriorConfiguration config,
+            Optional<String> syncKey,
+            Consumer<TaskwarriorMessage> responseHandler) {
+        this.scheduler = scheduler;
+        this.config = config;
+        this.syncKey = syncKey.orElse(null);
+        this.responseHandler = responseHandler;
+        this.coalescer = new TaskwarriorSyncCoalescer(scheduler.getOptions().getCoalescingOptions(), batch -> {
+            coalescer().putBack(batch); // synced by the scheduler
+            syncNow();
+        }, scheduler.getTimer());
+    }
+
+    /**
+     * Records a local modification to be uploaded by the next sync of this account. If the modifications reach the limits of
+     * {@link SyncSchedulerOptions#getCoalescingOptions()}, this account is synced with priority.
+     *
+     * @see TaskwarriorSyncCoalescer#modify(UUID, String)
+     */
+    public void modify(UUID uuid, String task) {
+        coalescer.modify(uuid, task);
+    }
+
+    /** Queues this account to be synced as soon as possible instead of waiting for its next regular sync. */
+    public void syncNow() {
+        scheduler.expedite(this);
+    }
+
+    public TaskwarriorConfiguration getConfiguration() {
+        return config;
+    }
+
+    public Optional<String> getSyncKey() {
+        return Optional.ofNullable(syncKey);
+    }
+
+    public boolean hasPendingModifications() {
+        return coalescer.hasPendingModifications();
+    }
+
+    /** @return total number of local modifications superseded by a newer one before being uploaded */
+    public long getAbsorbedWriteCount() {
+        return coalescer.getAbsorbedWriteCount();
+    }
+
+    public long getSyncCount() {
+        return syncs.sum();
+    }
+
+    public long getFailedSyncCount() {
+        return failures.sum();
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public Optional<RuntimeException> getLastFailure() {
+        return Optional.ofNullable(lastFailure);
+    }
+
+    TaskwarriorSyncCoalescer coalescer() {
+        return coalescer;
+    }
+
+    /** Closes the client of this account, if created; must only be called while no sync of this account is running. */
+    void closeClient() {
+        TaskwarriorClient closed;
+        synchronized (this) {
+            closed = client;
+            client = null;
+        }
+        if (closed != null) {
+            closed.close();
+        }
+    }
+
+    /** Uploads all pending modifications and hands the response to the response handler; requeues modifications on failure. */
+    void sync(Function<TaskwarriorConfiguration, TaskwarriorClient> clientFactory) {
+        Optional<TaskwarriorSyncBatch> batch = coalescer.drain();
+        TaskwarriorMessage response;
+        try {
+            if (client == null) {
+                client = clientFactory.apply(config);
+            }
+            response = client.sendAndReceive(batch.orElse(NO_MODIFICATIONS).toSyncMessage(config, getSyncKey()));
+
+            String code = response.getHeaders().get(HEADER_KEY_CODE);
+            if (code == null || !code.startsWith("2")) {
+                throw new TaskwarriorSyncException(
+                        "Sync of user '%s' failed with code '%s': %s",
+                        config.getUser(),
+                        code,
+                        response.getHeaders().get(HEADER_KEY_STATUS));
+            }
+        } catch (RuntimeException e) {
+            batch.ifPresent(coalescer::putBack); // retried by the scheduler
+            failures.increment();
+            lastFailure = e;
+            throw e;
+        }
+        syncs.increment();
+        response.getPayloadReader().flatMap(TaskwarriorSyncAccount::syncKeyOf).ifPresent(key -> syncKey = key);
+        responseHandler.accept(response);
+    }
+
+    /** The sync key is the last line of the response payload, which is streamed to not decode large payloads at once. */
+    private static Optional<String> syncKeyOf(Reader payload) {
+        StringBuilder lastLine = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            for (int read = payload.read(buffer); read != -1; read = payload.read(buffer)) {
+                int lineStart = read;
+                while (lineStart > 0 && buffer[lineStart - 1] != '\n') {
+                    lineStart--;
+                }
+                if (lineStart > 0) {
+                    lastLine.setLength(0);
+                }
+                lastLine.append(buffer, lineStart, read - lineStart);
+            }
+        } catch (IOException e) {
+            return Optional.empty(); // cannot happen for in-memory and memory-mapped payloads
+        }
+        try {
+            return Optional.of(UUID.fromString(lastLine.toString().trim()).toString());
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import de.aaschmid.taskwarrior.client.SyncRequestBuilder;
+import de.aaschmid.taskwarrior.message.TaskwarriorAuthentication;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import de.aaschmid.taskwarrior.util.immutables.HiddenImplementationStyle;
+import org.immutables.value.Value;
+
+import static de.aaschmid.taskwarrior.client.SyncRequestBuilder.syncRequestBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Objects.requireNonNull;
+
+/** Immutable set of coalesced task modifications, i.e. only the newest version of each modified task, flushed at once. */
+@Value.Immutable
+@HiddenImplementationStyle
+public interface TaskwarriorSyncBatch {
+
+    static TaskwarriorSyncBatch taskwarriorSyncBatch(Map<UUID, String> modifications, long absorbedWrites) {
+        return new TaskwarriorSyncBatchBuilder().modifications(modifications).absorbedWrites(absorbedWrites).build();
+    }
+
+    /** Newest task JSON line per modified task {@link UUID}, in order of first modification. */
+    Map<UUID, String> getModifications();
+
+    /** Number of modifications which have been superseded by a newer modification of the same task within this batch. */
+    long getAbsorbedWrites();
+
+    /**
+     * Creates a single sync request message containing the optional sync key followed by all tasks of this batch, encoded by a
+     * {@link SyncRequestBuilder}.
+     *
+     * @param authentication non-null authentication of the account to sync
+     * @param syncKey non-null, optional sync key received by the previous sync
+     */
+    default TaskwarriorMessage toSyncMessage(TaskwarriorAuthentication authentication, Optional<String> syncKey) {
+        requireNonNull(authentication, "'authentication' must not be null.");
+        requireNonNull(syncKey, "'syncKey' must not be null.");
+
+        TaskwarriorRequestHeader header = taskwarriorRequestHeaderBuilder()
+                .authentication(authentication)
+                .type(TaskwarriorRequestHeader.MessageType.SYNC)
+                .build();
+
+        SyncRequestBuilder result = syncRequestBuilder(header);
+        syncKey.ifPresent(result::syncKey);
+        getModifications().values().forEach(result::task);
+        return result.build();
+    }
+}
@@ -0,0 +1,222 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static de.aaschmid.taskwarrior.sync.TaskwarriorSyncBatch.taskwarriorSyncBatch;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Queue in front of sync which merges successive modifications of the same task (identified by its {@link UUID}) into its newest
+ * version. Pending modifications are flushed as single {@link TaskwarriorSyncBatch} to the given flush handler as soon as either
+ * {@link SyncCoalescingOptions#getMaxPendingTasks()} distinct tasks are pending or {@link SyncCoalescingOptions#getFlushWindow()} has
+ * elapsed since the first pending modification.
+ * <p>
+ * The flush handler is always called from a single background thread, i.e. batches are handled sequentially in flush order.
+ */
+public class TaskwarriorSyncCoalescer implements AutoCloseable {
+
+    private final SyncCoalescingOptions options;
+    private final Consumer<TaskwarriorSyncBatch> flushHandler;
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder absorbedWrites = new LongAdder();
+    private final LongAdder flushedBatches = new LongAdder();
+
+    private final Object lock = new Object();
+    private Map<UUID, String> pending = new LinkedHashMap<>();
+    private long pendingAbsorbedWrites;
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    public TaskwarriorSyncCoalescer(SyncCoalescingOptions options, Consumer<TaskwarriorSyncBatch> flushHandler) {
+        this(options, flushHandler, Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread result = new Thread(r, "taskwarrior-sync-coalescer");
+            result.setDaemon(true);
+            return result;
+        }), true);
+    }
+
+    /** Uses the given single threaded {@code executor} shared with others, e.g. by {@link TaskwarriorSyncScheduler}, without owning it. */
+    TaskwarriorSyncCoalescer(SyncCoalescingOptions options, Consumer<TaskwarriorSyncBatch> flushHandler, ScheduledExecutorService executor) {
+        this(options, flushHandler, executor, false);
+    }
+
+    private TaskwarriorSyncCoalescer(
+            SyncCoalescingOptions options,
+            Consumer<TaskwarriorSyncBatch> flushHandler,
+            ScheduledExecutorService executor,
+            boolean ownsExecutor) {
+        this.options = requireNonNull(options, "'options' must not be null.");
+        this.flushHandler = requireNonNull(flushHandler, "'flushHandler' must not be null.");
+        this.executor = requireNonNull(executor, "'executor' must not be null.");
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Records a modification of the task with the given {@link UUID}. A still pending modification of the same task is replaced.
+     *
+     * @param uuid non-null {@link UUID} of the modified task
+     * @param task non-null JSON representation of the newest version of the modified task
+     */
+    public void modify(UUID uuid, String task) {
+        requireNonNull(uuid, "'uuid' must not be null.");
+        requireNonNull(task, "'task' must not be null.");
+
+        TaskwarriorSyncBatch batch = null;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Coalescer is already closed.");
+            }
+            writes.increment();
+            if (pending.put(uuid, task) != null) {
+                pendingAbsorbedWrites++;
+                absorbedWrites.increment();
+            }
+
+            if (pending.size() >= options.getMaxPendingTasks()) {
+                batch = drainPending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = executor.schedule(this::flush, options.getFlushWindow().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (batch != null) {
+            handOver(batch);
+        }
+    }
+
+    /** Flushes all pending modifications to the flush handler immediately, if any. */
+    public void flush() {
+        drain().ifPresent(this::handOver);
+    }
+
+    /**
+     * Removes and returns all pending modifications without calling the flush handler, e.g. to sync them synchronously.
+     *
+     * @return the pending modifications or {@link Optional#empty()} if there are none
+     */
+    public Optional<TaskwarriorSyncBatch> drain() {
+        synchronized (lock) {
+            return Optional.ofNullable(drainPending());
+        }
+    }
+
+    /**
+     * Puts back the modifications of a previously drained batch which could not be synced, e.g. because of a failed request. Tasks
+     * which have been modified again in the meantime are not overwritten as the pending modification is newer, i.e. the requeued one
+     * counts as absorbed. The put back modifications are flushed like recorded ones unless this coalescer is already closed.
+     *
+     * @param batch non-null batch to put back
+     */
+    public void requeue(TaskwarriorSyncBatch batch) {
+        requireNonNull(batch, "'batch' must not be null.");
+
+        TaskwarriorSyncBatch flushed = null;
+        synchronized (lock) {
+            putBackPending(batch);
+
+            if (closed || pending.isEmpty()) {
+                // ignore, left for drain() after close
+            } else if (pending.size() >= options.getMaxPendingTasks()) {
+                flushed = drainPending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = executor.schedule(this::flush, options.getFlushWindow().toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (flushed != null) {
+            handOver(flushed);
+        }
+    }
+
+    /**
+     * Puts back the modifications of the given batch like {@link #requeue(TaskwarriorSyncBatch)} but without flushing them, e.g. for
+     * {@link TaskwarriorSyncAccount} whose flush handler leaves them pending for the next sync.
+     */
+    void putBack(TaskwarriorSyncBatch batch) {
+        requireNonNull(batch, "'batch' must not be null.");
+
+        synchronized (lock) {
+            putBackPending(batch);
+        }
+    }
+
+    public boolean hasPendingModifications() {
+        synchronized (lock) {
+            return !pending.isEmpty();
+        }
+    }
+
+    public int getPendingTaskCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /** @return total number of recorded modifications */
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    /** @return total number of modifications which were superseded by a newer one before being flushed */
+    public long getAbsorbedWriteCount() {
+        return absorbedWrites.sum();
+    }
+
+    /** @return total number of batches handed over to the flush handler */
+    public long getFlushedBatchCount() {
+        return flushedBatches.sum();
+    }
+
+    /** Flushes all pending modifications and stops accepting new ones. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private void putBackPending(TaskwarriorSyncBatch batch) {
+        Map<UUID, String> requeued = new LinkedHashMap<>(batch.getModifications());
+        for (Map.Entry<UUID, String> newer : pending.entrySet()) {
+            if (requeued.put(newer.getKey(), newer.getValue()) != null) { // newer pending modification wins
+                pendingAbsorbedWrites++;
+                absorbedWrites.increment();
+            }
+        }
+        pending = requeued;
+        pendingAbsorbedWrites += batch.getAbsorbedWrites();
+    }
+
+    private TaskwarriorSyncBatch drainPending() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        TaskwarriorSyncBatch result = taskwarriorSyncBatch(pending, pendingAbsorbedWrites);
+        pending = new LinkedHashMap<>();
+        pendingAbsorbedWrites = 0;
+        return result;
+    }
+
+    private void handOver(TaskwarriorSyncBatch batch) {
+        flushedBatches.increment();
+        executor.execute(() -> flushHandler.accept(batch));
+    }
+}
@@ -0,0 +1,13 @@
+package de.aaschmid.taskwarrior.sync;
+
+import de.aaschmid.taskwarrior.TaskwarriorException;
+
+/** Exception occurs if a taskwarrior server (= taskd) rejects a sync. */
+public class TaskwarriorSyncException extends TaskwarriorException {
+
+    private static final long serialVersionUID = 3107728913646215410L;
+
+    public TaskwarriorSyncException(String format, Object... args) {
+        super(format, args);
+    }
+}
@@ -0,0 +1,307 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import de.aaschmid.taskwarrior.client.TaskwarriorClient;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.util.concurrent.BlockingThreads;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Runs the syncs of many accounts, i.e. {@link TaskwarriorConfiguration}s, on a bounded pool of
+ * {@link SyncSchedulerOptions#getWorkerThreads()} workers.
+ * <p>
+ * Every account is synced regularly after a randomly jittered {@link SyncSchedulerOptions#getSyncInterval()} starting at a random
+ * offset such that accounts do not sync all at once. Failed syncs are retried after an exponentially growing, jittered backoff. If
+ * more accounts are due than workers are available, accounts with pending local modifications are synced first, then the ones which
+ * are due the longest.
+ * <p>
+ * On Java 21 and later workers are virtual threads, see {@link BlockingThreads}, so thousands of them only cost memory for their
+ * stacks and may be configured to sync as many accounts concurrently.
+ */
+public class TaskwarriorSyncScheduler implements AutoCloseable {
+
+    private final SyncSchedulerOptions options;
+    private final Function<TaskwarriorConfiguration, TaskwarriorClient> clientFactory;
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+    private final PriorityBlockingQueue<DueSync> ready = new PriorityBlockingQueue<>(11, DueSync.PRIORITY);
+    private final List<TaskwarriorSyncAccount> accounts = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger runningSyncs = new AtomicInteger();
+    private final LongAdder completedSyncs = new LongAdder();
+    private final LongAdder failedSyncs = new LongAdder();
+    private final AtomicLong lastLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public TaskwarriorSyncScheduler(SyncSchedulerOptions options) {
+        this(options, TaskwarriorClient::new);
+    }
+
+    /** @param clientFactory creates the client used for all syncs of an account on its first sync */
+    public TaskwarriorSyncScheduler(SyncSchedulerOptions options, Function<TaskwarriorConfiguration, TaskwarriorClient> clientFactory) {
+        this.options = requireNonNull(options, "'options' must not be null.");
+        this.clientFactory = requireNonNull(clientFactory, "'clientFactory' must not be null.");
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("taskwarrior-sync-scheduler"));
+        this.workers = Executors.newFixedThreadPool(options.getWorkerThreads(), BlockingThreads.threadFactory("taskwarrior-sync-worker"));
+    }
+
+    public TaskwarriorSyncAccount register(TaskwarriorConfiguration config, Consumer<TaskwarriorMessage> responseHandler) {
+        return register(config, Optional.empty(), responseHandler);
+    }
+
+    /**
+     * Registers the given account whose first sync happens at a random point in time within the next sync interval.
+     *
+     * @param config non-null configuration of the account
+     * @param syncKey non-null, optional sync key of the last sync of this account, e.g. from a previous run
+     * @param responseHandler non-null handler of every successful sync response, i.e. the tasks modified at the server
+     */
+    public TaskwarriorSyncAccount register(
+            TaskwarriorConfiguration config,
+            Optional<String> syncKey,
+            Consumer<TaskwarriorMessage> responseHandler) {
+        requireNonNull(config, "'config' must not be null.");
+        requireNonNull(syncKey, "'syncKey' must not be null.");
+        requireNonNull(responseHandler, "'responseHandler' must not be null.");
+        if (closed) {
+            throw new IllegalStateException("Scheduler is already closed.");
+        }
+
+        TaskwarriorSyncAccount result = new TaskwarriorSyncAccount(this, config, syncKey, responseHandler);
+        accounts.add(result);
+        schedule(result, (long) (ThreadLocalRandom.current().nextDouble() * options.getSyncInterval().toNanos()));
+        return result;
+    }
+
+    /**
+     * Stops syncing the given account and closes its client. A currently running sync is completed before its client is closed.
+     *
+     * @return the local modifications which have not been synced yet
+     */
+    public Optional<TaskwarriorSyncBatch> unregister(TaskwarriorSyncAccount account) {
+        requireNonNull(account, "'account' must not be null.");
+
+        boolean running;
+        synchronized (account) {
+            account.unregistered = true;
+            if (account.scheduled != null) {
+                account.scheduled.cancel(false);
+            }
+            running = account.running;
+        }
+        accounts.remove(account);
+        if (!running) {
+            account.closeClient(); // otherwise closed after the running sync
+        }
+        return account.coalescer().drain();
+    }
+
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    /** @return number of accounts which are due but wait for a free worker */
+    public int getQueueDepth() {
+        return ready.size();
+    }
+
+    public int getRunningSyncCount() {
+        return runningSyncs.get();
+    }
+
+    public long getCompletedSyncCount() {
+        return completedSyncs.sum();
+    }
+
+    public long getFailedSyncCount() {
+        return failedSyncs.sum();
+    }
+
+    /** @return time the most recently started sync waited for a free worker after being due */
+    public Duration getLastLag() {
+        return Duration.ofNanos(lastLagNanos.get());
+    }
+
+    /** @return maximum time any sync waited for a free worker after being due */
+    public Duration getMaxLag() {
+        return Duration.ofNanos(maxLagNanos.get());
+    }
+
+    /** Stops all future syncs and closes the clients of all accounts; currently running syncs are completed before. */
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        workers.shutdown();
+        for (TaskwarriorSyncAccount account : accounts) {
+            boolean running;
+            synchronized (account) {
+                running = account.running;
+            }
+            if (!running) {
+                account.closeClient(); // otherwise closed after the running sync
+            }
+        }
+    }
+
+    SyncSchedulerOptions getOptions() {
+        return options;
+    }
+
+    ScheduledExecutorService getTimer() {
+        return timer;
+    }
+
+    void expedite(TaskwarriorSyncAccount account) {
+        synchronized (account) {
+            if (account.running) {
+                account.syncAgain = true;
+                return;
+            }
+            if (account.scheduled != null) {
+                account.scheduled.cancel(false);
+            }
+            account.dueNanos = System.nanoTime();
+        }
+        enqueue(account);
+    }
+
+    private void schedule(TaskwarriorSyncAccount account, long delayNanos) {
+        synchronized (account) {
+            if (closed || account.unregistered) {
+                return;
+            }
+            account.dueNanos = System.nanoTime() + delayNanos;
+            account.scheduled = timer.schedule(() -> enqueue(account), delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void enqueue(TaskwarriorSyncAccount account) {
+        DueSync dueSync;
+        synchronized (account) {
+            if (closed || account.unregistered || account.queued || account.running) {
+                return;
+            }
+            account.queued = true;
+            dueSync = new DueSync(account, account.dueNanos, account.hasPendingModifications());
+        }
+        ready.add(dueSync);
+        workers.execute(this::syncNext);
+    }
+
+    private void syncNext() {
+        DueSync dueSync = ready.poll();
+        if (dueSync == null) {
+            return;
+        }
+        TaskwarriorSyncAccount account = dueSync.account;
+
+        long lag = Math.max(0, System.nanoTime() - dueSync.dueNanos);
+        lastLagNanos.set(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+
+        synchronized (account) {
+            account.queued = false;
+            account.running = true;
+        }
+        runningSyncs.incrementAndGet();
+        boolean success = false;
+        try {
+            account.sync(clientFactory);
+            success = true;
+            completedSyncs.increment();
+        } catch (RuntimeException e) {
+            failedSyncs.increment(); // details are available via account
+        } finally {
+            runningSyncs.decrementAndGet();
+            reschedule(account, success);
+        }
+    }
+
+    private void reschedule(TaskwarriorSyncAccount account, boolean success) {
+        long delayNanos;
+        boolean stopped;
+        synchronized (account) {
+            account.running = false;
+            stopped = closed || account.unregistered;
+            if (success) {
+                account.consecutiveFailures = 0;
+                delayNanos = account.syncAgain ? 0 : jittered(options.getSyncInterval().toNanos());
+            } else {
+                account.consecutiveFailures++;
+                delayNanos = backoff(account.consecutiveFailures);
+            }
+            account.syncAgain = false;
+        }
+        if (stopped) {
+            account.closeClient();
+            return;
+        }
+        schedule(account, delayNanos);
+    }
+
+    private long jittered(long nanos) {
+        double jitter = options.getJitter();
+        return (long) (nanos * (1 - jitter + 2 * jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    /** Exponential backoff with "equal jitter", i.e. a random delay between half and full backoff. */
+    private long backoff(int consecutiveFailures) {
+        long initial = options.getInitialBackoff().toNanos();
+        long max = options.getMaxBackoff().toNanos();
+        long backoff = initial;
+        for (int i = 1; i < consecutiveFailures && backoff < max; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, max);
+        return backoff / 2 + (long) (ThreadLocalRandom.current().nextDouble() * backoff / 2);
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread result = new Thread(r, name + "-" + count.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        };
+    }
+
+    private static class DueSync {
+
+        /** Accounts with pending modifications first, then earliest due. */
+        static final Comparator<DueSync> PRIORITY = Comparator.<DueSync, Boolean> comparing(d -> !d.pendingModifications)
+                .thenComparing((d1, d2) -> Long.compare(d1.dueNanos - d2.dueNanos, 0));
+
+        private final TaskwarriorSyncAccount account;
+        private final long dueNanos;
+        private final boolean pendingModifications;
+
+        DueSync(TaskwarriorSyncAccount account, long dueNanos, boolean pendingModifications) {
+            this.account = account;
+            this.dueNanos = dueNanos;
+            this.pendingModifications = pendingModifications;
+        }
+    }
+}
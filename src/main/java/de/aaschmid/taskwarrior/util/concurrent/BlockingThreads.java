@@ -0,0 +1,42 @@
+package de.aaschmid.taskwarrior.util.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads running blocking work like connecting, TLS handshakes and awaiting responses. This variant for Java 8 creates daemon platform
+ * threads; on Java 21 and later the multi-release jar replaces it by the one in {@code src/main/java21} creating virtual threads through
+ * the same methods, such that thousands of concurrent requests only occupy a few carrier threads while blocked in socket I/O.
+ */
+public final class BlockingThreads {
+
+    private BlockingThreads() {
+        // static methods only
+    }
+
+    /** @return {@code true} if blocking work runs on virtual threads */
+    public static boolean isVirtual() {
+        return false;
+    }
+
+    /** @return factory of threads named {@code <name>-<n>}, e.g. for a fixed pool bounding the number of concurrent tasks */
+    public static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread result = new Thread(r, name + "-" + count.incrementAndGet());
+            result.setDaemon(true);
+            return result;
+        };
+    }
+
+    /** @return unbounded executor running each task on a thread with the given name, reusing idle platform threads */
+    public static ExecutorService newExecutor(String name) {
+        return Executors.newCachedThreadPool(r -> {
+            Thread result = new Thread(r, name);
+            result.setDaemon(true);
+            return result;
+        });
+    }
+}
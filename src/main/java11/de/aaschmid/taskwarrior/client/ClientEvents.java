@@ -0,0 +1,175 @@
+package de.aaschmid.taskwarrior.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_AUTH_KEY_ORG;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_AUTH_KEY_USER;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.HEADER_KEY_TYPE;
+
+/**
+ * JDK Flight Recorder events of client operations, see {@code src/main/java} for the Java 8 variant recording nothing.
+ * <p>
+ * A span is only allocated if its event type is enabled in the running recording and its fields are only extracted from the message if
+ * the span took longer than the configured threshold, such that spans cost a single check while no recording is running. By default
+ * requests and handshakes are recorded if they take longer than 20 ms and key store builds always, while serialization and
+ * deserialization happen once per request and must be enabled explicitly, e.g. in a custom {@code .jfc} settings file.
+ */
+final class ClientEvents {
+
+    private static final Span DISABLED = (message, payloadSize) -> {
+    };
+
+    private static final EventType REQUEST = EventType.getEventType(RequestEvent.class);
+    private static final EventType HANDSHAKE = EventType.getEventType(HandshakeEvent.class);
+    private static final EventType SERIALIZE = EventType.getEventType(SerializeEvent.class);
+    private static final EventType DESERIALIZE = EventType.getEventType(DeserializeEvent.class);
+    private static final EventType KEY_STORE_BUILD = EventType.getEventType(KeyStoreBuildEvent.class);
+
+    private ClientEvents() {
+        // static methods only
+    }
+
+    /** @return span of a whole request including retries and hedged attempts */
+    static Span request() {
+        return REQUEST.isEnabled() ? begin(new RequestEvent()) : DISABLED;
+    }
+
+    /** @return span of a TLS handshake */
+    static Span handshake() {
+        return HANDSHAKE.isEnabled() ? begin(new HandshakeEvent()) : DISABLED;
+    }
+
+    /** @return span of serializing a message to bytes */
+    static Span serialize() {
+        return SERIALIZE.isEnabled() ? begin(new SerializeEvent()) : DISABLED;
+    }
+
+    /** @return span of reading and deserializing a message from a stream */
+    static Span deserialize() {
+        return DESERIALIZE.isEnabled() ? begin(new DeserializeEvent()) : DISABLED;
+    }
+
+    /** @return span of building a key store from PEM files */
+    static Span keyStoreBuild() {
+        return KEY_STORE_BUILD.isEnabled() ? begin(new KeyStoreBuildEvent()) : DISABLED;
+    }
+
+    private static Span begin(ClientEvent event) {
+        event.begin();
+        return event;
+    }
+
+    interface Span {
+
+        /**
+         * Ends this span and records it if its event is enabled and the span took longer than the configured threshold.
+         *
+         * @param message request or message the span belongs to providing type and account, may be {@code null} if there is none
+         * @param payloadSize size of the payload in bytes, length of the request payload for requests or {@code 0} if not applicable
+         */
+        void commit(TaskwarriorMessage message, long payloadSize);
+    }
+
+    @Category({ "Taskwarrior", "Client" })
+    abstract static class ClientEvent extends Event implements Span {
+
+        @Label("Message Type")
+        String messageType;
+
+        @Label("Account")
+        @Description("Organization and user separated by slash")
+        String account;
+
+        @Override
+        public void commit(TaskwarriorMessage message, long payloadSize) {
+            end();
+            if (shouldCommit()) {
+                if (message != null) {
+                    messageType = message.getHeaders().get(HEADER_KEY_TYPE);
+                    String org = message.getHeaders().get(HEADER_AUTH_KEY_ORG);
+                    String user = message.getHeaders().get(HEADER_AUTH_KEY_USER);
+                    account = org == null && user == null ? null : org + "/" + user;
+                }
+                setPayloadSize(payloadSize);
+                commit();
+            }
+        }
+
+        void setPayloadSize(long payloadSize) {
+            // no payload by default
+        }
+    }
+
+    @Name("de.aaschmid.taskwarrior.Request")
+    @Label("Taskwarrior Request")
+    @Description("Request sent to and response received from a taskwarrior server including retries and hedged attempts")
+    @Threshold("20 ms")
+    static final class RequestEvent extends ClientEvent {
+
+        @Label("Payload Length")
+        @Description("Number of characters of the request payload")
+        long payloadLength;
+
+        @Override
+        void setPayloadSize(long payloadSize) {
+            payloadLength = payloadSize;
+        }
+    }
+
+    @Name("de.aaschmid.taskwarrior.Handshake")
+    @Label("Taskwarrior TLS Handshake")
+    @Threshold("20 ms")
+    @StackTrace(false)
+    static final class HandshakeEvent extends ClientEvent {
+    }
+
+    @Name("de.aaschmid.taskwarrior.Serialize")
+    @Label("Taskwarrior Message Serialization")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class SerializeEvent extends ClientEvent {
+
+        @Label("Payload Size")
+        @DataAmount
+        long payloadSize;
+
+        @Override
+        void setPayloadSize(long payloadSize) {
+            this.payloadSize = payloadSize;
+        }
+    }
+
+    @Name("de.aaschmid.taskwarrior.Deserialize")
+    @Label("Taskwarrior Message Deserialization")
+    @Description("Reading a message from the socket including awaiting its bytes and parsing it")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class DeserializeEvent extends ClientEvent {
+
+        @Label("Payload Size")
+        @DataAmount
+        long payloadSize;
+
+        @Override
+        void setPayloadSize(long payloadSize) {
+            this.payloadSize = payloadSize;
+        }
+    }
+
+    @Name("de.aaschmid.taskwarrior.KeyStoreBuild")
+    @Label("Taskwarrior Key Store Build")
+    @Description("Building a key store from CA certificate, private key certificate and private key PEM files")
+    static final class KeyStoreBuildEvent extends ClientEvent {
+    }
+}
@@ -0,0 +1,35 @@
+package de.aaschmid.taskwarrior.util.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads running blocking work like connecting, TLS handshakes and awaiting responses, see {@code src/main/java} for the Java 8 variant
+ * creating platform threads.
+ * <p>
+ * Virtual threads are cheap to create and unmount from their carrier thread while blocked in socket I/O, so they are not pooled and an
+ * executor starts a new one per task. Code run on them must not block while holding a monitor, i.e. within {@code synchronized}, as this
+ * pins the carrier thread until Java 24; locks around blocking calls are therefore {@link java.util.concurrent.locks.ReentrantLock}s.
+ */
+public final class BlockingThreads {
+
+    private BlockingThreads() {
+        // static methods only
+    }
+
+    /** @return {@code true} if blocking work runs on virtual threads */
+    public static boolean isVirtual() {
+        return true;
+    }
+
+    /** @return factory of virtual threads named {@code <name>-<n>}, e.g. for a fixed pool bounding the number of concurrent tasks */
+    public static ThreadFactory threadFactory(String name) {
+        return Thread.ofVirtual().name(name + "-", 1).factory();
+    }
+
+    /** @return unbounded executor running each task on a new virtual thread with the given name */
+    public static ExecutorService newExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name).factory());
+    }
+}
@@ -0,0 +1,122 @@
+package de.aaschmid.taskwarrior.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.aaschmid.taskwarrior.client.LocalTaskdServer;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static de.aaschmid.taskwarrior.client.LocalTaskdServer.pkiFile;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskwarriorCliTest {
+
+    private static final String SYNC_KEY = "f92d5c8d-4cf9-4cf5-b72f-1f4a70cf9b20";
+
+    @TempDir
+    Path tempDir;
+
+    private final List<TaskwarriorMessage> requests = new CopyOnWriteArrayList<>();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    void run_shouldPrintUsageIfArgumentsAreInvalid() {
+        int actual = run("sync");
+
+        assertThat(actual).isEqualTo(TaskwarriorCli.EXIT_USAGE);
+        assertThat(err.toString()).startsWith("Usage: taskwarrior-sync statistics <properties-file>");
+        assertThat(out.size()).isZero();
+    }
+
+    @Test
+    void run_shouldPrintSortedResponseHeadersOfStatistics() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> respond(request, "200", null))) {
+            int actual = run("statistics", propertiesFile(server).toString());
+
+            assertThat(actual).isEqualTo(TaskwarriorCli.EXIT_SUCCESS);
+            assertThat(out.toString()).isEqualTo(format("code: 200%nstatus: Ok%n"));
+            assertThat(requests).hasSize(1);
+            assertThat(requests.get(0).getHeaders()).containsEntry("type", "statistics").containsEntry("user", "cli-user");
+        }
+    }
+
+    @Test
+    void run_shouldSendSyncKeyAndPrintPayloadOfSync() throws Exception {
+        String payload = "{\"description\":\"task\"}\n" + UUID.randomUUID();
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> respond(request, "200", payload))) {
+            int actual = run("sync", propertiesFile(server).toString(), SYNC_KEY);
+
+            assertThat(actual).isEqualTo(TaskwarriorCli.EXIT_SUCCESS);
+            assertThat(out.toString()).isEqualTo(format("%s%n", payload));
+            assertThat(requests).hasSize(1);
+            assertThat(requests.get(0).getPayload()).hasValue(SYNC_KEY);
+        }
+    }
+
+    @Test
+    void run_shouldFailIfServerRespondsWithErrorCode() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> respond(request, "430", null))) {
+            int actual = run("sync", propertiesFile(server).toString());
+
+            assertThat(actual).isEqualTo(TaskwarriorCli.EXIT_FAILURE);
+            assertThat(err.toString()).isEqualTo(format("Request failed with code '430': Access denied%n"));
+            assertThat(out.size()).isZero();
+        }
+    }
+
+    @Test
+    void run_shouldFailIfPropertiesFileDoesNotExist() {
+        int actual = run("statistics", tempDir.resolve("missing.properties").toString());
+
+        assertThat(actual).isEqualTo(TaskwarriorCli.EXIT_FAILURE);
+        assertThat(err.toString()).startsWith("Cannot read '").contains("missing.properties");
+    }
+
+    @Test
+    void run_shouldPrintUsageIfPropertiesFileIsNoValidPath() {
+        int actual = run("statistics", "invalid\u0000.properties");
+
+        assertThat(actual).isEqualTo(TaskwarriorCli.EXIT_USAGE);
+        assertThat(err.toString()).contains("Usage: taskwarrior-sync statistics <properties-file>");
+        assertThat(out.size()).isZero();
+    }
+
+    private int run(String... args) {
+        return TaskwarriorCli.run(args, new PrintStream(out, true), new PrintStream(err, true));
+    }
+
+    private TaskwarriorMessage respond(TaskwarriorMessage request, String code, String payload) {
+        requests.add(request);
+        Map<String, String> headers = new HashMap<>();
+        headers.put("code", code);
+        headers.put("status", code.startsWith("2") ? "Ok" : "Access denied");
+        return payload == null ? taskwarriorMessage(headers) : taskwarriorMessage(headers, payload);
+    }
+
+    private Path propertiesFile(LocalTaskdServer server) throws IOException {
+        String properties = String.join("\n",
+                "taskwarrior.server.host=" + server.configuration("cli-user").getServerHost().getHostAddress(),
+                "taskwarrior.server.port=" + server.getPort(),
+                "taskwarrior.ssl.cert.ca.file=" + pkiFile("ca.cert.pem").getAbsolutePath(),
+                "taskwarrior.ssl.cert.key.file=" + pkiFile("client.cert.pem").getAbsolutePath(),
+                "taskwarrior.ssl.private.key.file=" + pkiFile("client.key.pem").getAbsolutePath(),
+                "taskwarrior.auth.organization=org",
+                "taskwarrior.auth.user=cli-user",
+                "taskwarrior.auth.key=" + UUID.randomUUID());
+        return Files.write(tempDir.resolve("taskwarrior.properties"), properties.getBytes(UTF_8));
+    }
+}
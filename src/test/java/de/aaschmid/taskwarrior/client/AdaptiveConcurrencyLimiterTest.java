@@ -0,0 +1,238 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.client.TaskwarriorClientTimeoutException.Phase;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.ConcurrencyLimitOptions.concurrencyLimitOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final RequestDeadline NO_DEADLINE = new RequestDeadline(Optional.empty());
+
+    @Test
+    void options_shouldThrowIllegalArgumentExceptionIfLimitsAreInconsistent() {
+        assertThatThrownBy(() -> concurrencyLimitOptionsBuilder().minLimit(5).initialLimit(4).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limits must satisfy 1 <= 'minLimit' <= 'initialLimit' <= 'maxLimit' but were 5, 4 and 64.");
+    }
+
+    @Test
+    void execute_shouldDecreaseLimitOnTaskwarriorClientException() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrencyLimitOptionsBuilder().initialLimit(10).build());
+
+        assertThatThrownBy(() -> limiter.execute(NO_DEADLINE, () -> {
+            throw new TaskwarriorClientException("failure");
+        })).isInstanceOf(TaskwarriorClientException.class);
+
+        assertThat(limiter.getLimit()).isEqualTo(9);
+        assertThat(limiter.getInFlight()).isZero();
+        assertThat(limiter.getCongestedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldNotChangeLimitOnOtherExceptions() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrencyLimitOptionsBuilder().initialLimit(10).build());
+
+        assertThatThrownBy(() -> limiter.execute(NO_DEADLINE, () -> {
+            throw new IllegalStateException("failure");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void execute_shouldNotChangeLimitOnLocalFailures() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrencyLimitOptionsBuilder().initialLimit(10).build());
+
+        assertThatThrownBy(() -> limiter.execute(NO_DEADLINE, () -> {
+            throw new TaskwarriorClientLimitExceededException("Response memory budget exhausted.");
+        })).isInstanceOf(TaskwarriorClientLimitExceededException.class);
+        try (RequestDeadline deadline = new RequestDeadline(Optional.of(Duration.ofMillis(10)))) {
+            assertThatThrownBy(() -> limiter.execute(deadline, () -> {
+                sleep(Duration.ofMillis(20));
+                throw new TaskwarriorClientTimeoutException(null, Phase.READ, "Request deadline exceeded.");
+            })).isInstanceOf(TaskwarriorClientTimeoutException.class);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getCongestedCount()).isZero();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void execute_shouldReleaseSlotOnErrors() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrencyLimitOptionsBuilder().initialLimit(10).build());
+
+        assertThatThrownBy(() -> limiter.execute(NO_DEADLINE, () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void execute_shouldDecreaseLimitIfLatencyExceedsLearnedNoLoadLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrencyLimitOptionsBuilder().initialLimit(10).build());
+        limiter.execute(NO_DEADLINE, () -> sleep(Duration.ofMillis(1)));
+
+        limiter.execute(NO_DEADLINE, () -> sleep(Duration.ofMillis(50)));
+
+        assertThat(limiter.getNoLoadLatency()).hasValueSatisfying(l -> assertThat(l).isLessThan(Duration.ofMillis(50)));
+        assertThat(limiter.getLimit()).isEqualTo(9);
+    }
+
+    @Test
+    void execute_shouldFailFastIfLimitIsReached() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                concurrencyLimitOptionsBuilder().minLimit(1).initialLimit(1).maxLimit(1).build());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocking = executor.submit(() -> limiter.execute(NO_DEADLINE, () -> {
+                started.countDown();
+                return await(release);
+            }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThatThrownBy(() -> limiter.execute(NO_DEADLINE, () -> "rejected"))
+                    .isInstanceOf(TaskwarriorClientLimitExceededException.class)
+                    .hasMessage("Concurrency limit of 1 in-flight requests reached.");
+            assertThat(limiter.getRejectedCount()).isEqualTo(1);
+
+            release.countDown();
+            blocking.get(10, TimeUnit.SECONDS);
+            assertThat(limiter.execute(NO_DEADLINE, () -> "accepted")).isEqualTo("accepted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_shouldStopWaitingForFreeSlotIfDeadlineExpiresOrRequestIsCancelled() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrencyLimitOptionsBuilder()
+                .minLimit(1).initialLimit(1).maxLimit(1)
+                .maxQueueWait(Duration.ofSeconds(30))
+                .build());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (RequestDeadline expiring = new RequestDeadline(Optional.of(Duration.ofMillis(50)));
+                RequestDeadline cancelled = new RequestDeadline(Optional.empty())) {
+            Future<?> blocking = executor.submit(() -> limiter.execute(NO_DEADLINE, () -> {
+                started.countDown();
+                return await(release);
+            }));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> limiter.execute(expiring, () -> "expired"))
+                    .isInstanceOf(TaskwarriorClientTimeoutException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+
+            Future<?> waiting = executor.submit(() -> limiter.execute(cancelled, () -> "cancelled"));
+            while (limiter.getQueued() == 0) {
+                Thread.sleep(1);
+            }
+            cancelled.cancel();
+            assertThatThrownBy(() -> waiting.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(TaskwarriorClientCancelledException.class);
+            assertThat(limiter.getRejectedCount()).isZero();
+
+            release.countDown();
+            blocking.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldQueueExcessRequestsAndLearnLimitFromServerLatency() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrencyLimitOptionsBuilder()
+                .initialLimit(4)
+                .maxLimit(8)
+                .maxQueueWait(Duration.ofSeconds(30))
+                .build());
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().concurrencyLimiter(limiter).build());
+            TaskwarriorMessage statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                    .authentication(config)
+                    .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                    .client("test")
+                    .build()
+                    .toMap());
+
+            server.setLatency(Duration.ofMillis(1));
+            sendConcurrently(client, statistics, 16, 5);
+            int limitWithFastServer = limiter.getLimit();
+
+            server.setLatency(Duration.ofMillis(250));
+            sendConcurrently(client, statistics, 16, 1);
+
+            assertThat(server.getMaxConcurrentRequests()).isLessThanOrEqualTo(8);
+            assertThat(limiter.getLimit()).isLessThan(limitWithFastServer);
+            assertThat(limiter.getRejectedCount()).isZero();
+            assertThat(limiter.getInFlight()).isZero();
+        }
+    }
+
+    private static void sendConcurrently(TaskwarriorClient client, TaskwarriorMessage message, int threads, int requestsPerThread)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < requestsPerThread; j++) {
+                        assertThat(client.sendAndReceive(message).getHeaders()).containsEntry("code", "200");
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "slept";
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
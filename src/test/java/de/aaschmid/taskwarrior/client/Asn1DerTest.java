@@ -0,0 +1,63 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Asn1DerTest {
+
+    @Test
+    void objectIdentifier_shouldEncodeRsaEncryption() {
+        assertThat(Asn1Der.objectIdentifier("1.2.840.113549.1.1.1"))
+                .containsExactly(0x06, 0x09, 0x2A, 0x86, 0x48, 0x86, 0xF7, 0x0D, 0x01, 0x01, 0x01);
+    }
+
+    @Test
+    void getObjectIdentifier_shouldDecodeEncodedObjectIdentifier() {
+        assertThat(Asn1Der.decode(Asn1Der.objectIdentifier("1.2.840.10045.3.1.7")).getObjectIdentifier()).isEqualTo("1.2.840.10045.3.1.7");
+    }
+
+    @Test
+    void encode_shouldUseLongFormLengthForLongContent() {
+        byte[] actual = Asn1Der.octetString(new byte[300]);
+
+        assertThat(actual).hasSize(304).startsWith(0x04, 0x82, 0x01, 0x2C);
+        assertThat(Asn1Der.decode(actual).getContent()).hasSize(300);
+    }
+
+    @Test
+    void getElements_shouldDecodeNestedElements() {
+        byte[] der = Asn1Der.sequence(Asn1Der.integer(0), Asn1Der.sequence(Asn1Der.nullValue()), Asn1Der.octetString(new byte[] { 42 }));
+
+        List<Asn1Der.Element> actual = Asn1Der.decode(der).expectTag(Asn1Der.TAG_SEQUENCE).getElements();
+
+        assertThat(actual).extracting(Asn1Der.Element::getTag)
+                .containsExactly(Asn1Der.TAG_INTEGER, Asn1Der.TAG_SEQUENCE, Asn1Der.TAG_OCTET_STRING);
+        assertThat(actual.get(1).getElements()).extracting(Asn1Der.Element::getTag).containsExactly(Asn1Der.TAG_NULL);
+        assertThat(actual.get(2).getContent()).containsExactly(42);
+    }
+
+    @Test
+    void decode_shouldThrowTaskwarriorKeyStoreExceptionOnTrailingBytes() {
+        assertThatThrownBy(() -> Asn1Der.decode(new byte[] { 0x05, 0x00, 0x00 }))
+                .isInstanceOf(TaskwarriorKeyStoreException.class)
+                .hasMessage("Unexpected 1 trailing bytes after element.");
+    }
+
+    @Test
+    void decode_shouldThrowTaskwarriorKeyStoreExceptionOnIndefiniteLength() {
+        assertThatThrownBy(() -> Asn1Der.decode(new byte[] { 0x30, (byte) 0x80, 0x00, 0x00 }))
+                .isInstanceOf(TaskwarriorKeyStoreException.class)
+                .hasMessage("Indefinite length at offset 0 is not allowed in DER.");
+    }
+
+    @Test
+    void decode_shouldThrowTaskwarriorKeyStoreExceptionIfLengthExceedsContent() {
+        assertThatThrownBy(() -> Asn1Der.decode(new byte[] { 0x04, 0x05, 0x00 }))
+                .isInstanceOf(TaskwarriorKeyStoreException.class)
+                .hasMessage("Element at offset 0 with length 5 exceeds available 1 bytes.");
+    }
+}
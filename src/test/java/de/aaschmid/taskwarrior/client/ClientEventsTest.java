@@ -0,0 +1,123 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static de.aaschmid.taskwarrior.client.LocalTaskdServer.pkiFile;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientEventsTest {
+
+    private static final String PREFIX = "de.aaschmid.taskwarrior.";
+    private static final String[] EVENTS = { "Request", "Handshake", "Serialize", "Deserialize", "KeyStoreBuild" };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sendAndReceive_shouldEmitRequestHandshakeSerializeAndDeserializeEventsWithMessageFields() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200"), "response"))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config);
+            TaskwarriorMessage request = taskwarriorMessage(
+                    taskwarriorRequestHeaderBuilder().authentication(config).type(MessageType.SYNC).client("test").build().toMap(),
+                    "payload");
+
+            List<RecordedEvent> events = record(() -> client.sendAndReceive(request));
+
+            RecordedEvent requestEvent = single(events, "Request");
+            assertThat(requestEvent.getString("messageType")).isEqualTo("sync");
+            assertThat(requestEvent.getString("account")).isEqualTo("Public/user");
+            assertThat(requestEvent.getLong("payloadLength")).isEqualTo(7);
+
+            RecordedEvent handshake = single(events, "Handshake");
+            assertThat(handshake.getString("account")).isEqualTo("Public/user");
+            assertThat(handshake.getStartTime()).isAfterOrEqualTo(requestEvent.getStartTime());
+            assertThat(handshake.getEndTime()).isBeforeOrEqualTo(requestEvent.getEndTime());
+
+            RecordedEvent serialize = single(events, "Serialize");
+            assertThat(serialize.getString("messageType")).isEqualTo("sync");
+            assertThat(serialize.getLong("payloadSize")).isEqualTo(TaskwarriorMessageFactory.serialize(request).length);
+
+            RecordedEvent deserialize = single(events, "Deserialize");
+            assertThat(deserialize.getString("messageType")).isNull();
+            assertThat(deserialize.getLong("payloadSize")).isEqualTo(4 + "code: 200\n\nresponse".length());
+        }
+    }
+
+    @Test
+    void build_shouldEmitKeyStoreBuildEvent() throws Exception {
+        List<RecordedEvent> events = record(() -> new KeyStoreBuilder()
+                .withPasswordProtection("test")
+                .withCaCertFile(pkiFile("ca.cert.pem"))
+                .withPrivateKeyCertFile(pkiFile("client.cert.pem"))
+                .withPrivateKeyFile(pkiFile("client.key.pem"))
+                .build());
+
+        assertThat(single(events, "KeyStoreBuild").getDuration()).isGreaterThan(Duration.ZERO);
+    }
+
+    @Test
+    void sendAndReceive_shouldNotEmitEventsIfDisabled() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config);
+            TaskwarriorMessage request = taskwarriorMessage(
+                    taskwarriorRequestHeaderBuilder().authentication(config).type(MessageType.STATISTICS).client("test").build().toMap());
+
+            try (Recording recording = new Recording()) {
+                for (String event : EVENTS) {
+                    recording.disable(PREFIX + event);
+                }
+                recording.start();
+                client.sendAndReceive(request);
+                recording.stop();
+
+                assertThat(read(recording)).noneMatch(e -> e.getEventType().getName().startsWith(PREFIX));
+            }
+        }
+    }
+
+    private List<RecordedEvent> record(Runnable runnable) throws Exception {
+        try (Recording recording = new Recording()) {
+            for (String event : EVENTS) {
+                recording.enable(PREFIX + event).withoutThreshold();
+            }
+            recording.start();
+            runnable.run();
+            recording.stop();
+            return read(recording);
+        }
+    }
+
+    /** @return events recorded by the current thread, i.e. without the ones of the stand-in server */
+    private List<RecordedEvent> read(Recording recording) throws Exception {
+        Path file = tempDir.resolve("recording.jfr");
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getThread() != null && Thread.currentThread().getName().equals(e.getThread().getJavaName()))
+                .collect(Collectors.toList());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> result = events.stream()
+                .filter(e -> e.getEventType().getName().equals(PREFIX + name))
+                .collect(Collectors.toList());
+        assertThat(result).as(name).hasSize(1);
+        return result.get(0);
+    }
+}
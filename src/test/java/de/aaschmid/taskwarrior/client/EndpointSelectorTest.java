@@ -0,0 +1,211 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.MemoryBudgetOptions.memoryBudgetOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EndpointSelectorTest {
+
+    private final InetSocketAddress a = new InetSocketAddress(InetAddress.getLoopbackAddress(), 1001);
+    private final InetSocketAddress b = new InetSocketAddress(InetAddress.getLoopbackAddress(), 1002);
+    private final InetSocketAddress c = new InetSocketAddress(InetAddress.getLoopbackAddress(), 1003);
+
+    @Test
+    void order_shouldKeepGivenOrderIfNoAddressWasConnectedYet() {
+        EndpointSelector selector = new EndpointSelector(Duration.ofMillis(250));
+
+        assertThat(selector.order(Arrays.asList(a, b))).containsExactly(a, b);
+    }
+
+    @Test
+    void order_shouldPreferAddressWithLowerLatency() {
+        EndpointSelector selector = new EndpointSelector(Duration.ofMillis(250));
+
+        selector.succeeded(a, TimeUnit.MILLISECONDS.toNanos(10));
+        selector.succeeded(b, TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertThat(selector.order(Arrays.asList(a, b))).containsExactly(b, a);
+    }
+
+    @Test
+    void order_shouldTryQuarantinedAddressesLast() {
+        EndpointSelector selector = new EndpointSelector(Duration.ofMillis(250));
+        selector.succeeded(a, TimeUnit.MILLISECONDS.toNanos(1));
+        selector.succeeded(b, TimeUnit.MILLISECONDS.toNanos(10));
+
+        selector.failed(a);
+
+        assertThat(selector.isQuarantined(a)).isTrue();
+        assertThat(selector.order(Arrays.asList(a, b))).containsExactly(b, a);
+
+        selector.succeeded(a, TimeUnit.MILLISECONDS.toNanos(1));
+
+        assertThat(selector.isQuarantined(a)).isFalse();
+        assertThat(selector.order(Arrays.asList(a, b))).containsExactly(a, b);
+    }
+
+    @Test
+    void order_shouldSpreadLoadButNeverPreferSlowestAddress() {
+        EndpointSelector selector = new EndpointSelector(Duration.ofMillis(250));
+        selector.succeeded(a, TimeUnit.MILLISECONDS.toNanos(1));
+        selector.succeeded(b, TimeUnit.MILLISECONDS.toNanos(2));
+        selector.succeeded(c, TimeUnit.MILLISECONDS.toNanos(3));
+
+        Map<InetSocketAddress, Integer> firsts = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            List<InetSocketAddress> order = selector.order(Arrays.asList(a, b, c));
+            assertThat(order).containsExactlyInAnyOrder(a, b, c);
+            firsts.merge(order.get(0), 1, Integer::sum);
+        }
+
+        assertThat(firsts).containsOnlyKeys(a, b);
+        assertThat(firsts.get(a)).isGreaterThan(firsts.get(b));
+    }
+
+    @Test
+    void connect_shouldRaceNextAddressIfConnectingToFirstIsSlow() throws IOException {
+        EndpointSelector selector = new EndpointSelector(Duration.ofMillis(50));
+        Socket fast = new Socket();
+
+        long start = System.nanoTime();
+        Socket actual = selector.connect(Arrays.asList(a, b), (address, register) -> {
+            if (address.equals(a)) {
+                sleep(2_000);
+                return new Socket();
+            }
+            return fast;
+        });
+
+        assertThat(actual).isSameAs(fast);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void connect_shouldAttemptNextAddressImmediatelyIfFirstFails() throws IOException {
+        EndpointSelector selector = new EndpointSelector(Duration.ofSeconds(10));
+        Socket second = new Socket();
+
+        long start = System.nanoTime();
+        Socket actual = selector.connect(Arrays.asList(a, b), (address, register) -> {
+            if (address.equals(a)) {
+                throw new ConnectException("Connection refused");
+            }
+            return second;
+        });
+
+        assertThat(actual).isSameAs(second);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(selector.isQuarantined(a)).isTrue();
+        assertThat(selector.isQuarantined(b)).isFalse();
+    }
+
+    @Test
+    void connect_shouldThrowFirstFailureWithOthersSuppressedIfAllFail() {
+        EndpointSelector selector = new EndpointSelector(Duration.ofMillis(250));
+
+        assertThatThrownBy(() -> selector.connect(Arrays.asList(a, b), (address, register) -> {
+            throw new ConnectException("Connection refused: " + address.getPort());
+        }))
+                .isInstanceOf(ConnectException.class)
+                .hasMessage("Connection refused: 1001")
+                .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+    }
+
+    @Test
+    void sendAndReceive_shouldFailOverToRunningReplica() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = LocalTaskdServer.replicatedConfiguration("user", 1, server.getPort());
+            TaskwarriorClient client = new TaskwarriorClient(config);
+            TaskwarriorMessage statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                    .authentication(config)
+                    .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                    .client("test")
+                    .build()
+                    .toMap());
+
+            for (int i = 0; i < 10; i++) {
+                assertThat(client.sendAndReceive(statistics).getHeaders()).containsEntry("code", "200");
+            }
+
+            assertThat(server.getRequestCount()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldSpreadRequestsOnRunningReplicas() throws Exception {
+        try (LocalTaskdServer server1 = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")));
+                LocalTaskdServer server2 = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")));
+                LocalTaskdServer server3 = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = LocalTaskdServer.replicatedConfiguration("user", server1.getPort(), server2.getPort(),
+                    server3.getPort());
+            TaskwarriorClient client = new TaskwarriorClient(config);
+            TaskwarriorMessage statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                    .authentication(config)
+                    .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                    .client("test")
+                    .build()
+                    .toMap());
+
+            for (int i = 0; i < 60; i++) {
+                assertThat(client.sendAndReceive(statistics).getHeaders()).containsEntry("code", "200");
+            }
+
+            assertThat(server1.getRequestCount() + server2.getRequestCount() + server3.getRequestCount()).isEqualTo(60);
+            assertThat(Arrays.asList(server1.getRequestCount(), server2.getRequestCount(), server3.getRequestCount()))
+                    .filteredOn(count -> count > 0)
+                    .hasSizeGreaterThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldNotQuarantineServerForLocalFailures() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200"), "response"))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder()
+                    .responseMemoryBudget(new ResponseMemoryBudget(memoryBudgetOptionsBuilder().maxBytes(10).build()))
+                    .build());
+            TaskwarriorMessage statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                    .authentication(config)
+                    .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                    .client("test")
+                    .build()
+                    .toMap());
+
+            assertThatThrownBy(() -> client.sendAndReceive(statistics)).isInstanceOf(TaskwarriorClientLimitExceededException.class);
+            server.setLatency(Duration.ofMillis(500));
+            assertThatThrownBy(() -> client.sendAndReceive(statistics, Duration.ofMillis(200)))
+                    .isInstanceOf(TaskwarriorClientTimeoutException.class);
+
+            assertThat(client.getEndpointSelector().isQuarantined(config.getServerAddresses().get(0))).isFalse();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static de.aaschmid.taskwarrior.client.LocalTaskdServer.pkiFile;
+import static de.aaschmid.taskwarrior.client.SslContextCacheTest.sslKeys;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+class KeyStoreFileCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger built = new AtomicInteger();
+
+    private Path cacheDirectory;
+    private TaskwarriorSslKeys sslKeys;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cacheDirectory = tempDir.resolve("cache");
+        sslKeys = sslKeys(copy("ca.cert.pem"), copy("client.cert.pem"), copy("client.key.pem"));
+    }
+
+    @Test
+    void loadOrBuild_shouldBuildAndStoreKeyStoreOnlyOnce() throws KeyStoreException {
+        KeyStoreFileCache cache = new KeyStoreFileCache(cacheDirectory);
+
+        KeyStore first = cache.loadOrBuild(sslKeys, "password", () -> build("password"));
+        KeyStore second = new KeyStoreFileCache(cacheDirectory).loadOrBuild(sslKeys, "password", () -> build("password"));
+
+        assertThat(built).hasValue(1);
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getType()).isEqualTo(KeyStoreFileCache.KEY_STORE_TYPE);
+        assertThat(second.isKeyEntry("key")).isTrue();
+        assertThat(second.isCertificateEntry("ca_0")).isTrue();
+        assertThat(cacheDirectory.toFile().list()).hasSize(1);
+    }
+
+    @Test
+    void loadOrBuild_shouldReturnBuiltKeyStoreIfCacheFileCannotBeWritten() throws Exception {
+        Files.write(cacheDirectory, "not a directory".getBytes(UTF_8));
+
+        KeyStore actual = new KeyStoreFileCache(cacheDirectory).loadOrBuild(sslKeys, "password", () -> build("password"));
+
+        assertThat(built).hasValue(1);
+        assertThat(actual.isKeyEntry("key")).isTrue();
+    }
+
+    @Test
+    void loadOrBuild_shouldRestrictAccessToOwner() throws IOException {
+        assumeThat(cacheDirectory.getFileSystem().supportedFileAttributeViews()).contains("posix");
+
+        new KeyStoreFileCache(cacheDirectory).loadOrBuild(sslKeys, "password", () -> build("password"));
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheDirectory))).isEqualTo("rwx------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(cacheFile()))).isEqualTo("rw-------");
+    }
+
+    @Test
+    void loadOrBuild_shouldRebuildIfSourceFileWasModifiedAfterCacheFile() {
+        KeyStoreFileCache cache = new KeyStoreFileCache(cacheDirectory);
+        cache.loadOrBuild(sslKeys, "password", () -> build("password"));
+
+        assertThat(sslKeys.getPrivateKeyFile().setLastModified(cacheFile().toFile().lastModified() + 10_000)).isTrue();
+        cache.loadOrBuild(sslKeys, "password", () -> build("password"));
+
+        assertThat(built).hasValue(2);
+    }
+
+    @Test
+    void loadOrBuild_shouldRebuildIfContentHashChanged() throws IOException {
+        KeyStoreFileCache cache = new KeyStoreFileCache(cacheDirectory);
+        cache.loadOrBuild(sslKeys, "password", () -> build("password"));
+        replaceKeepingLastModified(sslKeys.getPrivateKeyCertFile(), pkiFile("server.cert.pem"));
+        replaceKeepingLastModified(sslKeys.getPrivateKeyFile(), pkiFile("server.key.pem"));
+
+        cache.loadOrBuild(sslKeys, "changed", () -> build("changed"));
+
+        assertThat(built).hasValue(2);
+    }
+
+    @Test
+    void loadOrBuild_shouldRebuildIfCacheFileIsCorrupt() throws IOException {
+        KeyStoreFileCache cache = new KeyStoreFileCache(cacheDirectory);
+        cache.loadOrBuild(sslKeys, "password", () -> build("password"));
+
+        Files.write(cacheFile(), "corrupt".getBytes(UTF_8));
+        KeyStore actual = cache.loadOrBuild(sslKeys, "password", () -> build("password"));
+
+        assertThat(built).hasValue(2);
+        assertThat(actual).isNotNull();
+    }
+
+    @Test
+    void createSslContext_shouldUseKeyStoreCacheDirectory() {
+        SslContextCache.SHARED.clear();
+
+        assertThat(SslContextFactory.createSslContext(sslKeys, Optional.of(cacheDirectory))).isNotNull();
+
+        assertThat(cacheFile()).isRegularFile();
+    }
+
+    private KeyStore build(String password) {
+        built.incrementAndGet();
+        return new KeyStoreBuilder()
+                .withKeyStoreType(KeyStoreFileCache.KEY_STORE_TYPE)
+                .withPasswordProtection(password)
+                .withCaCertFile(sslKeys.getCaCertFile())
+                .withPrivateKeyCertFile(sslKeys.getPrivateKeyCertFile())
+                .withPrivateKeyFile(sslKeys.getPrivateKeyFile())
+                .build();
+    }
+
+    private Path cacheFile() {
+        return new KeyStoreFileCache(cacheDirectory).cacheFileFor(
+                sslKeys.getCaCertFile(),
+                sslKeys.getPrivateKeyCertFile(),
+                sslKeys.getPrivateKeyFile());
+    }
+
+    private static void replaceKeepingLastModified(File target, File source) throws IOException {
+        long lastModified = target.lastModified();
+        Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertThat(target.setLastModified(lastModified)).isTrue();
+    }
+
+    private File copy(String name) throws IOException {
+        return Files.copy(pkiFile(name).toPath(), tempDir.resolve(name)).toFile();
+    }
+}
@@ -0,0 +1,76 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void index_shouldBeMonotonicAndUpperBoundShouldContainValue() {
+        int previous = -1;
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int index = LatencyHistogram.index(value);
+
+            assertThat(index).isGreaterThanOrEqualTo(previous);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(value).isLessThanOrEqualTo((long) (value * 1.04) + 1);
+            previous = index;
+        }
+        assertThat(LatencyHistogram.upperBound(LatencyHistogram.index(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void getValueAtPercentile_shouldBeAccurateWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(10_000);
+        assertThat(histogram.getValueAtPercentile(50).toNanos()).isCloseTo(5_000_000L, within(5_000_000L * 4 / 100));
+        assertThat(histogram.getValueAtPercentile(99).toNanos()).isCloseTo(9_900_000L, within(9_900_000L * 4 / 100));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(Duration.ofMillis(10));
+        assertThat(histogram.getMax()).isEqualTo(Duration.ofMillis(10));
+        assertThat(histogram.getMean().toNanos()).isEqualTo(5_000_500L);
+    }
+
+    @Test
+    void getValueAtPercentile_shouldThrowForInvalidPercentile() {
+        assertThatThrownBy(() -> new LatencyHistogram().getValueAtPercentile(0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("'percentile' must be in (0, 100] but was 0.0.");
+    }
+
+    @Test
+    void record_shouldNotLoseConcurrentValues() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        histogram.record(i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(800_000);
+        assertThat(histogram.getValueAtPercentile(100).toNanos()).isEqualTo(99_999);
+    }
+}
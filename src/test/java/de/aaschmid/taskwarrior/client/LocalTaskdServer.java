@@ -0,0 +1,276 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.util.concurrent.BlockingThreads;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.requireNonNull;
+
+/** Local stand-in for a taskwarrior server (= taskd) which, like taskd, answers exactly one request per TLS connection. */
+public class LocalTaskdServer implements AutoCloseable {
+
+    private final Function<TaskwarriorMessage, TaskwarriorMessage> handler;
+    private final SSLServerSocket serverSocket;
+    private final ExecutorService executor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile Consumer<SSLSession> handshakeListener = session -> {};
+
+    private LocalTaskdServer(Function<TaskwarriorMessage, TaskwarriorMessage> handler) throws IOException {
+        this.handler = requireNonNull(handler, "'handler' must not be null.");
+
+        String password = UUID.randomUUID().toString();
+        KeyStoreBuilder keyStoreBuilder = new KeyStoreBuilder()
+                .withPasswordProtection(password)
+                .withCaCertFile(pkiFile("ca.cert.pem"))
+                .withPrivateKeyCertFile(pkiFile("server.cert.pem"))
+                .withPrivateKeyFile(pkiFile("server.key.pem"));
+        this.serverSocket = (SSLServerSocket) SslContextFactory.createSslContext("TLS", keyStoreBuilder.build(), password)
+                .getServerSocketFactory()
+                .createServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        this.serverSocket.setNeedClientAuth(true);
+
+        this.executor = BlockingThreads.newExecutor("local-taskd"); // thread per connection is only feasible for many on virtual threads
+        this.executor.execute(this::accept);
+    }
+
+    /** @param handler creates the response for each received request */
+    public static LocalTaskdServer start(Function<TaskwarriorMessage, TaskwarriorMessage> handler) throws IOException {
+        return new LocalTaskdServer(handler);
+    }
+
+    /** @return file of test PKI; copied to a temporary file if packaged into a jar, e.g. for benchmarks */
+    public static File pkiFile(String name) {
+        URL resource = requireNonNull(LocalTaskdServer.class.getResource("/pki/" + name), name);
+        try {
+            if ("file".equals(resource.getProtocol())) {
+                return Paths.get(resource.toURI()).toFile();
+            }
+            Path result = Files.createTempFile(name.replace(".pem", ""), ".pem");
+            result.toFile().deleteOnExit();
+            try (InputStream in = resource.openStream()) {
+                Files.copy(in, result, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return result.toFile();
+        } catch (URISyntaxException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** @return configuration of an account with the given user name pointing to this server */
+    public TaskwarriorConfiguration configuration(String user) {
+        return configuration(user, "client");
+    }
+
+    /**
+     * @param client name of client certificate and key in test PKI, e.g. {@code client-ec}
+     * @return configuration of an account with the given user name and client certificate pointing to this server
+     */
+    public TaskwarriorConfiguration configuration(String user, String client) {
+        return configuration(user, client, TaskwarriorTlsProfile.defaultTaskwarriorTlsProfile());
+    }
+
+    /** @return configuration of an account with the given user name, client certificate and TLS profile pointing to this server */
+    public TaskwarriorConfiguration configuration(String user, String client, TaskwarriorTlsProfile tlsProfile) {
+        return new StandInConfiguration(singletonList(getPort()), user, client, tlsProfile);
+    }
+
+    /**
+     * @param ports ports of replicated servers on the loopback address, e.g. of running stand-ins or of closed ones; use a privileged
+     *         port like {@code 1} for a closed one as a recently closed ephemeral port may be chosen as local port of a connection
+     * @return configuration of an account with the given user name pointing to the given replicas
+     */
+    public static TaskwarriorConfiguration replicatedConfiguration(String user, int... ports) {
+        List<Integer> replicaPorts = Arrays.stream(ports).boxed().collect(Collectors.toList());
+        return new StandInConfiguration(replicaPorts, user, "client", TaskwarriorTlsProfile.defaultTaskwarriorTlsProfile());
+    }
+
+    /** Injects the given server think time before every response. */
+    public void setLatency(Duration latency) {
+        this.latency = requireNonNull(latency, "'latency' must not be null.");
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxInFlight.get();
+    }
+
+    /** @param handshakeListener notified with the session of each request */
+    public void setHandshakeListener(Consumer<SSLSession> handshakeListener) {
+        this.handshakeListener = requireNonNull(handshakeListener, "'handshakeListener' must not be null.");
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (SocketException e) {
+                return; // closed
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            int length = in.readInt();
+            byte[] data = new byte[length - 4];
+            in.readFully(data);
+            requests.increment();
+            handshakeListener.accept(((SSLSocket) s).getSession());
+
+            TaskwarriorMessage response = respond(new String(data, StandardCharsets.UTF_8));
+            s.getOutputStream().write(TaskwarriorMessageFactory.serialize(response));
+            s.getOutputStream().flush();
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    /** Counts concurrent requests until the response is sent as the client cannot send another request before receiving it. */
+    private TaskwarriorMessage respond(String request) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            TaskwarriorMessage result = handler.apply(parseRequest(request));
+            if (!latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /** Lenient as opposed to {@link TaskwarriorMessageFactory#deserialize}, e.g. the client header is empty if not run from a jar. */
+    private static TaskwarriorMessage parseRequest(String data) {
+        int index = data.indexOf("\n\n");
+        Map<String, String> headers = new HashMap<>();
+        for (String line : data.substring(0, index).split("\n")) {
+            int separator = line.indexOf(':');
+            headers.put(line.substring(0, separator), line.substring(separator + 1).trim());
+        }
+        String payload = data.substring(index + 2);
+        return payload.isEmpty() ? taskwarriorMessage(headers) : taskwarriorMessage(headers, payload);
+    }
+
+    private static class StandInConfiguration implements TaskwarriorConfiguration {
+
+        private final List<Integer> ports;
+        private final String user;
+        private final String client;
+        private final TaskwarriorTlsProfile tlsProfile;
+
+        StandInConfiguration(List<Integer> ports, String user, String client, TaskwarriorTlsProfile tlsProfile) {
+            this.ports = ports;
+            this.user = user;
+            this.client = client;
+            this.tlsProfile = tlsProfile;
+        }
+
+        @Override
+        public InetAddress getServerHost() {
+            return InetAddress.getLoopbackAddress();
+        }
+
+        @Override
+        public int getServerPort() {
+            return ports.get(0);
+        }
+
+        @Override
+        public List<InetSocketAddress> getServerAddresses() {
+            return ports.stream().map(p -> new InetSocketAddress(getServerHost(), p)).collect(Collectors.toList());
+        }
+
+        @Override
+        public File getCaCertFile() {
+            return pkiFile("ca.cert.pem");
+        }
+
+        @Override
+        public File getPrivateKeyCertFile() {
+            return pkiFile(client + ".cert.pem");
+        }
+
+        @Override
+        public File getPrivateKeyFile() {
+            return pkiFile(client + ".key.pem");
+        }
+
+        @Override
+        public UUID getAuthKey() {
+            return UUID.nameUUIDFromBytes(user.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String getOrganization() {
+            return "Public";
+        }
+
+        @Override
+        public String getUser() {
+            return user;
+        }
+
+        @Override
+        public TaskwarriorTlsProfile getTlsProfile() {
+            return tlsProfile;
+        }
+    }
+}
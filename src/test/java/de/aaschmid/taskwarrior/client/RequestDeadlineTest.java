@@ -0,0 +1,155 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.client.TaskwarriorClientTimeoutException.Phase;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestDeadlineTest {
+
+    @Test
+    void enter_shouldThrowTimeoutExceptionWithPhaseIfDeadlineIsExceeded() throws Exception {
+        try (RequestDeadline deadline = new RequestDeadline(Optional.of(Duration.ofMillis(1)))) {
+            Thread.sleep(10);
+
+            assertThatThrownBy(() -> deadline.enter(Phase.WRITE))
+                    .isInstanceOf(TaskwarriorClientTimeoutException.class)
+                    .hasMessage("Request deadline of 1 ms exceeded during WRITE.")
+                    .satisfies(e -> assertThat(((TaskwarriorClientTimeoutException) e).getPhase()).isEqualTo(Phase.WRITE));
+        }
+    }
+
+    @Test
+    void socketTimeoutMillis_shouldReturnMinimumOfPhaseTimeoutAndRemainingBudget() {
+        try (RequestDeadline unlimited = new RequestDeadline(Optional.empty());
+                RequestDeadline limited = new RequestDeadline(Optional.of(Duration.ofSeconds(10)))) {
+            assertThat(unlimited.socketTimeoutMillis(Optional.empty())).isZero();
+            assertThat(unlimited.socketTimeoutMillis(Optional.of(Duration.ofSeconds(1)))).isEqualTo(1000);
+            assertThat(limited.socketTimeoutMillis(Optional.of(Duration.ofSeconds(1)))).isEqualTo(1000);
+            assertThat(limited.socketTimeoutMillis(Optional.empty())).isBetween(1, 10_000);
+        }
+    }
+
+    @Test
+    void addAbortListener_shouldRunListenerOfChildIfParentIsCancelled() {
+        try (RequestDeadline parent = new RequestDeadline(Optional.empty());
+                RequestDeadline child = parent.child(Optional.empty())) {
+            CompletableFuture<Void> aborted = new CompletableFuture<>();
+            child.addAbortListener(() -> aborted.complete(null));
+
+            parent.cancel();
+
+            assertThat(aborted).isDone();
+            assertThatThrownBy(child::checkNotAborted).isInstanceOf(TaskwarriorClientCancelledException.class);
+        }
+    }
+
+    @Test
+    void close_shouldDetachChildFromParent() {
+        try (RequestDeadline parent = new RequestDeadline(Optional.empty())) {
+            CompletableFuture<Void> aborted = new CompletableFuture<>();
+            try (RequestDeadline child = parent.child(Optional.empty())) {
+                child.addAbortListener(() -> aborted.complete(null));
+            }
+
+            parent.cancel();
+
+            assertThat(aborted).isNotDone();
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldThrowTimeoutExceptionIfReadTimeoutIsExceeded() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder()
+                    .readTimeout(Duration.ofMillis(100))
+                    .build());
+            server.setLatency(Duration.ofSeconds(2));
+
+            assertThatThrownBy(() -> client.sendAndReceive(statistics(config)))
+                    .isInstanceOf(TaskwarriorClientTimeoutException.class)
+                    .hasMessage("Timeout for READ exceeded.")
+                    .satisfies(e -> assertThat(((TaskwarriorClientTimeoutException) e).getPhase()).isEqualTo(Phase.READ));
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldThrowTimeoutExceptionIfServerDoesNotHandshake() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            TaskwarriorConfiguration config = LocalTaskdServer.replicatedConfiguration("user", silent.getLocalPort());
+            TaskwarriorClient client = new TaskwarriorClient(config);
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> client.sendAndReceive(statistics(config), Duration.ofMillis(200)))
+                    .isInstanceOf(TaskwarriorClientTimeoutException.class)
+                    .hasMessage("Request deadline of 200 ms exceeded during HANDSHAKE.")
+                    .satisfies(e -> assertThat(((TaskwarriorClientTimeoutException) e).getPhase()).isEqualTo(Phase.HANDSHAKE));
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void sendAndReceiveAsync_shouldCompleteExceptionallyIfDeadlineIsExceeded() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config);
+            server.setLatency(Duration.ofSeconds(2));
+
+            CompletableFuture<TaskwarriorMessage> response = client.sendAndReceiveAsync(statistics(config), Duration.ofMillis(200));
+
+            assertThatThrownBy(() -> response.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(TaskwarriorClientTimeoutException.class)
+                    .satisfies(e -> assertThat(((TaskwarriorClientTimeoutException) e.getCause()).getPhase()).isEqualTo(Phase.READ));
+        }
+    }
+
+    @Test
+    void sendAndReceiveAsync_shouldAbortRequestIfCancelled() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config);
+            server.setLatency(Duration.ofSeconds(2));
+
+            CompletableFuture<TaskwarriorMessage> response = client.sendAndReceiveAsync(statistics(config));
+            awaitRequest(server);
+            assertThat(response.cancel(true)).isTrue();
+
+            server.setLatency(Duration.ZERO);
+            assertThat(client.sendAndReceiveAsync(statistics(config)).get(5, TimeUnit.SECONDS).getHeaders()).containsEntry("code", "200");
+        }
+    }
+
+    private static void awaitRequest(LocalTaskdServer server) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getRequestCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static TaskwarriorMessage statistics(TaskwarriorConfiguration config) {
+        return taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                .authentication(config)
+                .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                .client("test")
+                .build()
+                .toMap());
+    }
+}
@@ -0,0 +1,185 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.client.MemoryBudgetOptions.ExhaustedPolicy;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessageDeserializationException;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.MemoryBudgetOptions.memoryBudgetOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResponseMemoryBudgetTest {
+
+    @Test
+    void options_shouldThrowIllegalArgumentExceptionIfMaxBytesIsNotPositive() {
+        assertThatThrownBy(() -> memoryBudgetOptionsBuilder().maxBytes(0).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("'maxBytes' must be positive but was 0.");
+    }
+
+    @Test
+    void reserve_shouldRejectImmediatelyIfExhaustedAndPolicyIsFail() {
+        ResponseMemoryBudget budget = budget(ExhaustedPolicy.FAIL, Duration.ofSeconds(10));
+        budget.reserve(80, null);
+
+        assertThatThrownBy(() -> budget.reserve(30, null))
+                .isInstanceOf(TaskwarriorClientLimitExceededException.class)
+                .hasMessage("Response memory budget exhausted, 80 of 100 bytes in use, 30 bytes requested.");
+        assertThat(budget.getUsedBytes()).isEqualTo(80);
+        assertThat(budget.getRejectedCount()).isEqualTo(1);
+        assertThat(budget.getWaitCount()).isZero();
+    }
+
+    @Test
+    void reserve_shouldRejectAfterMaxWaitIfPolicyIsWait() {
+        ResponseMemoryBudget budget = budget(ExhaustedPolicy.WAIT, Duration.ofMillis(20));
+        budget.reserve(80, null);
+
+        assertThatThrownBy(() -> budget.reserve(30, null))
+                .isInstanceOf(TaskwarriorClientLimitExceededException.class)
+                .hasMessageStartingWith("Response memory budget exhausted for PT0.02S");
+        assertThat(budget.getWaitCount()).isEqualTo(1);
+        assertThat(budget.getRejectedCount()).isEqualTo(1);
+        assertThat(budget.getWaiting()).isZero();
+    }
+
+    @Test
+    void reserve_shouldStopWaitingIfRequestDeadlineExpires() {
+        ResponseMemoryBudget budget = budget(ExhaustedPolicy.WAIT, Duration.ofSeconds(10));
+        budget.reserve(80, null);
+
+        try (RequestDeadline deadline = new RequestDeadline(Optional.of(Duration.ofMillis(50)))) {
+            assertThatThrownBy(() -> budget.reserve(30, deadline))
+                    .isInstanceOf(TaskwarriorClientTimeoutException.class)
+                    .hasMessageStartingWith("Request deadline of 50 ms exceeded");
+        }
+        assertThat(budget.getWaiting()).isZero();
+        assertThat(budget.getUsedBytes()).isEqualTo(80);
+    }
+
+    @Test
+    void reserve_shouldStopWaitingIfRequestIsCancelled() throws Exception {
+        ResponseMemoryBudget budget = budget(ExhaustedPolicy.WAIT, Duration.ofSeconds(10));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (RequestDeadline deadline = new RequestDeadline(Optional.empty())) {
+            budget.reserve(80, null);
+
+            Future<?> waiting = executor.submit(() -> budget.reserve(30, deadline));
+            awaitWaiting(budget, 1);
+            deadline.cancel();
+
+            assertThatThrownBy(() -> waiting.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(TaskwarriorClientCancelledException.class);
+            assertThat(budget.getWaiting()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reserve_shouldWaitForReleaseInArrivalOrder() throws Exception {
+        ResponseMemoryBudget budget = budget(ExhaustedPolicy.WAIT, Duration.ofSeconds(10));
+        List<Long> admitted = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            budget.reserve(100, null);
+
+            Future<?> large = executor.submit(() -> admitted.add(budget.reserve(90, null)));
+            awaitWaiting(budget, 1);
+            Future<?> small = executor.submit(() -> admitted.add(budget.reserve(10, null)));
+            awaitWaiting(budget, 2);
+
+            budget.release(10);
+            Thread.sleep(50);
+            assertThat(admitted).as("small reservation fitting must not overtake waiting large one").isEmpty();
+            assertThat(budget.getWaiting()).isEqualTo(2);
+
+            budget.release(90);
+            large.get(5, TimeUnit.SECONDS);
+            small.get(5, TimeUnit.SECONDS);
+
+            assertThat(admitted).containsExactlyInAnyOrder(90L, 10L);
+            assertThat(budget.getUsedBytes()).isEqualTo(100);
+            assertThat(budget.getPeakUsedBytes()).isEqualTo(100);
+            assertThat(budget.getWaitCount()).isEqualTo(2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reserve_shouldRejectResponseLargerThanBudgetImmediatelyUnlessSpilling() {
+        ResponseMemoryBudget waiting = budget(ExhaustedPolicy.WAIT, Duration.ofSeconds(10));
+        ResponseMemoryBudget spilling = budget(ExhaustedPolicy.SPILL, Duration.ZERO);
+
+        assertThatThrownBy(() -> waiting.reserve(1_000, null))
+                .isInstanceOf(TaskwarriorClientLimitExceededException.class)
+                .hasMessage("Response of 1000 bytes exceeds response memory budget of 100 bytes.");
+        assertThat(waiting.getUsedBytes()).isZero();
+        assertThat(waiting.getWaitCount()).isZero();
+        assertThat(spilling.reserve(1_000, null)).isEqualTo(-1);
+        assertThat(spilling.getSpilledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deserialize_shouldReleaseReservationAfterParsingAndOnFailure() {
+        ResponseMemoryBudget budget = budget(ExhaustedPolicy.FAIL, Duration.ZERO);
+        byte[] valid = TaskwarriorMessageFactory.serialize(taskwarriorMessage(singletonMap("code", "200"), "payload"));
+
+        TaskwarriorMessage actual = TaskwarriorMessageFactory.deserialize(new ByteArrayInputStream(valid), budget, null, null, data -> {
+            assertThat(budget.getUsedBytes()).isEqualTo(data.remaining());
+        });
+        assertThatThrownBy(() -> TaskwarriorMessageFactory.deserialize(new ByteArrayInputStream(new byte[] { 0, 0, 0, 8, 24 }), budget,
+                null, null, data -> {
+                })).isInstanceOf(TaskwarriorMessageDeserializationException.class);
+
+        assertThat(actual.getPayload()).hasValue("payload");
+        assertThat(budget.getReservationCount()).isEqualTo(2);
+        assertThat(budget.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void sendAndReceive_shouldReserveResponsesAgainstBudget() throws Exception {
+        ResponseMemoryBudget budget = new ResponseMemoryBudget(memoryBudgetOptionsBuilder().maxBytes(1024).build());
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200"), "response"))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().responseMemoryBudget(budget).build());
+
+            TaskwarriorMessage response = client.sendAndReceive(taskwarriorMessage(
+                    taskwarriorRequestHeaderBuilder().authentication(config).type(MessageType.STATISTICS).client("test").build().toMap()));
+
+            assertThat(response.getPayload()).hasValue("response");
+            assertThat(budget.getReservationCount()).isEqualTo(1);
+            assertThat(budget.getPeakUsedBytes()).isEqualTo("code: 200\n\nresponse".length());
+            assertThat(budget.getUsedBytes()).isZero();
+        }
+    }
+
+    private static ResponseMemoryBudget budget(ExhaustedPolicy policy, Duration maxWait) {
+        return new ResponseMemoryBudget(memoryBudgetOptionsBuilder().maxBytes(100).exhaustedPolicy(policy).maxWait(maxWait).build());
+    }
+
+    private static void awaitWaiting(ResponseMemoryBudget budget, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (budget.getWaiting() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(budget.getWaiting()).isEqualTo(expected);
+    }
+}
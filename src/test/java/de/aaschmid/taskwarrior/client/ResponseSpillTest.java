@@ -0,0 +1,157 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import de.aaschmid.taskwarrior.client.MemoryBudgetOptions.ExhaustedPolicy;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessageDeserializationException;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static de.aaschmid.taskwarrior.client.MemoryBudgetOptions.memoryBudgetOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.ResponseSpillOptions.responseSpillOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class ResponseSpillTest {
+
+    private static final String PAYLOAD = String.join("\n", Collections.nCopies(100, "{\"description\":\"t\u00e4sk\"}"));
+
+    @TempDir
+    Path directory;
+
+    private final List<ByteBuffer> received = new CopyOnWriteArrayList<>();
+
+    @Test
+    void options_shouldThrowIllegalArgumentExceptionIfBudgetSpillsWithoutResponseSpill() {
+        ResponseMemoryBudget budget = new ResponseMemoryBudget(memoryBudgetOptionsBuilder().exhaustedPolicy(ExhaustedPolicy.SPILL).build());
+
+        assertThatThrownBy(() -> taskwarriorClientOptionsBuilder().responseMemoryBudget(budget).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Response memory budget spilling responses requires 'responseSpill'.");
+    }
+
+    @Test
+    void deserialize_shouldMapResponseAboveThresholdFromDeletedTempFile() throws Exception {
+        TaskwarriorMessage actual = deserialize(serialize(" \n" + PAYLOAD + "\n"), null, spill(100));
+
+        assertThat(actual).isInstanceOf(MappedTaskwarriorMessage.class);
+        assertThat(actual.getHeaders()).containsOnly(entry("code", "200"));
+        assertThat(actual.getPayload()).hasValue(PAYLOAD);
+        assertThat(read(actual.getPayloadReader().get())).isEqualTo(PAYLOAD);
+        assertThat(received).hasSize(1);
+        assertThat(received.get(0).hasArray()).isFalse();
+        assertThat(filesIn(directory)).isEmpty();
+    }
+
+    @Test
+    void deserialize_shouldKeepResponseUpToThresholdInHeap() {
+        byte[] bytes = serialize(PAYLOAD);
+
+        TaskwarriorMessage actual = deserialize(bytes, null, spill(bytes.length - 4));
+
+        assertThat(actual).isEqualTo(taskwarriorMessage(singletonMap("code", "200"), PAYLOAD));
+        assertThat(actual.getPayloadReader().map(ResponseSpillTest::read)).hasValue(PAYLOAD);
+    }
+
+    @Test
+    void deserialize_shouldMapResponseWithoutPayload() {
+        TaskwarriorMessage actual = deserialize(serialize("\n"), null, spill(0));
+
+        assertThat(actual.getHeaders()).containsOnlyKeys("code");
+        assertThat(actual.getPayload()).isEmpty();
+        assertThat(actual.getPayloadReader()).isEmpty();
+    }
+
+    @Test
+    void deserialize_shouldSpillResponseNotFittingIntoBudgetIfPolicyIsSpill() {
+        ResponseMemoryBudget budget = new ResponseMemoryBudget(memoryBudgetOptionsBuilder()
+                .maxBytes(100)
+                .exhaustedPolicy(ExhaustedPolicy.SPILL)
+                .build());
+        long reserved = budget.reserve(50, null);
+
+        TaskwarriorMessage actual = deserialize(serialize(PAYLOAD.substring(0, 60)), budget, spill(Integer.MAX_VALUE));
+
+        assertThat(actual).isInstanceOf(MappedTaskwarriorMessage.class);
+        assertThat(actual.getPayload()).hasValue(PAYLOAD.substring(0, 60));
+        assertThat(budget.getSpilledCount()).isEqualTo(1);
+        assertThat(budget.getUsedBytes()).isEqualTo(reserved);
+    }
+
+    @Test
+    void deserialize_shouldThrowAndDeleteTempFileIfMessageIsIncomplete() throws Exception {
+        byte[] bytes = serialize(PAYLOAD);
+        byte[] incomplete = new byte[bytes.length - 10];
+        System.arraycopy(bytes, 0, incomplete, 0, incomplete.length);
+
+        assertThatThrownBy(() -> deserialize(incomplete, null, spill(0)))
+                .isInstanceOf(TaskwarriorMessageDeserializationException.class)
+                .hasMessage("Could not retrieve complete message. Missing 10 bytes.");
+        assertThat(filesIn(directory)).isEmpty();
+    }
+
+    @Test
+    void sendAndReceive_shouldSpillLargeResponsesAndCaptureTheirStart() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200"), PAYLOAD))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorWireCapture capture = new TaskwarriorWireCapture(WireCaptureOptions.defaultWireCaptureOptions());
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder()
+                    .responseSpill(spill(100))
+                    .wireCapture(capture)
+                    .build());
+
+            TaskwarriorMessage response = client.sendAndReceive(taskwarriorMessage(
+                    taskwarriorRequestHeaderBuilder().authentication(config).type(MessageType.SYNC).client("test").build().toMap()));
+
+            assertThat(response).isInstanceOf(MappedTaskwarriorMessage.class);
+            assertThat(response.getPayload()).hasValue(PAYLOAD);
+            assertThat(capture.getFrames().get(1).getLength()).isEqualTo(serialize(PAYLOAD).length - 4);
+            assertThat(capture.getFrames().get(1).isTruncated()).isTrue();
+        }
+    }
+
+    private ResponseSpillOptions spill(int thresholdBytes) {
+        return responseSpillOptionsBuilder().thresholdBytes(thresholdBytes).directory(directory).build();
+    }
+
+    private TaskwarriorMessage deserialize(byte[] bytes, ResponseMemoryBudget budget, ResponseSpillOptions spill) {
+        return TaskwarriorMessageFactory.deserialize(new ByteArrayInputStream(bytes), budget, null, spill, received::add);
+    }
+
+    private static byte[] serialize(String payload) {
+        return TaskwarriorMessageFactory.serialize(taskwarriorMessage(singletonMap("code", "200"), payload));
+    }
+
+    private static String read(Reader reader) {
+        try (BufferedReader buffered = new BufferedReader(reader)) {
+            return buffered.lines().collect(Collectors.joining("\n"));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static List<Path> filesIn(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package de.aaschmid.taskwarrior.client;
+
+import javax.net.ssl.SSLContext;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static de.aaschmid.taskwarrior.client.LocalTaskdServer.pkiFile;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SslContextCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Test
+    void get_shouldReturnSameSslContextForKeysWithSameContent() throws IOException {
+        SslContextCache cache = new SslContextCache(2);
+        TaskwarriorSslKeys keys = sslKeys(pkiFile("ca.cert.pem"), pkiFile("client.cert.pem"), pkiFile("client.key.pem"));
+        TaskwarriorSslKeys copiedKeys = sslKeys(copy(pkiFile("ca.cert.pem")), copy(pkiFile("client.cert.pem")), copy(pkiFile("client.key.pem")));
+
+        SSLContext actual1 = cache.get(keys, () -> SslContextFactory.createSslContext(keys));
+        SSLContext actual2 = cache.get(copiedKeys, this::newSslContext);
+
+        assertThat(actual2).isSameAs(actual1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldCreateNewSslContextIfContentChanged() throws IOException {
+        SslContextCache cache = new SslContextCache(2);
+        File caCertFile = copy(pkiFile("ca.cert.pem"));
+        TaskwarriorSslKeys keys = sslKeys(caCertFile, pkiFile("client.cert.pem"), pkiFile("client.key.pem"));
+        SSLContext before = cache.get(keys, this::newSslContext);
+
+        Files.write(caCertFile.toPath(), "\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        SSLContext after = cache.get(keys, this::newSslContext);
+
+        assertThat(after).isNotSameAs(before);
+        assertThat(created).hasValue(2);
+    }
+
+    @Test
+    void get_shouldEvictLeastRecentlyUsedSslContext() throws IOException {
+        SslContextCache cache = new SslContextCache(2);
+        TaskwarriorSslKeys keys1 = keysWithCaSuffix("1");
+        TaskwarriorSslKeys keys2 = keysWithCaSuffix("2");
+        TaskwarriorSslKeys keys3 = keysWithCaSuffix("3");
+
+        SSLContext first = cache.get(keys1, this::newSslContext);
+        cache.get(keys2, this::newSslContext);
+        cache.get(keys1, this::newSslContext);
+        cache.get(keys3, this::newSslContext);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(keys1, this::newSslContext)).isSameAs(first);
+        cache.get(keys2, this::newSslContext);
+        assertThat(created).hasValue(4);
+    }
+
+    @Test
+    void get_shouldNotCacheFailures() {
+        SslContextCache cache = new SslContextCache(2);
+        TaskwarriorSslKeys keys = sslKeys(pkiFile("ca.cert.pem"), pkiFile("client.cert.pem"), pkiFile("client.key.pem"));
+
+        assertThatThrownBy(() -> cache.get(keys, () -> {
+            throw new TaskwarriorSslContextException(new IllegalStateException(), "failure");
+        })).isInstanceOf(TaskwarriorSslContextException.class);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(keys, this::newSslContext)).isNotNull();
+    }
+
+    @Test
+    void get_shouldNotCacheErrors() {
+        SslContextCache cache = new SslContextCache(2);
+        TaskwarriorSslKeys keys = sslKeys(pkiFile("ca.cert.pem"), pkiFile("client.cert.pem"), pkiFile("client.key.pem"));
+
+        assertThatThrownBy(() -> cache.get(keys, () -> {
+            throw new NoClassDefFoundError("org/bouncycastle/openssl/PEMParser");
+        })).isInstanceOf(NoClassDefFoundError.class);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(keys, this::newSslContext)).isNotNull();
+    }
+
+    private SSLContext newSslContext() {
+        created.incrementAndGet();
+        try {
+            return SSLContext.getInstance("TLS");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private TaskwarriorSslKeys keysWithCaSuffix(String suffix) throws IOException {
+        File caCertFile = copy(pkiFile("ca.cert.pem"), "ca" + suffix + ".cert.pem");
+        Files.write(caCertFile.toPath(), suffix.getBytes(UTF_8), StandardOpenOption.APPEND);
+        return sslKeys(caCertFile, pkiFile("client.cert.pem"), pkiFile("client.key.pem"));
+    }
+
+    private File copy(File file) throws IOException {
+        return copy(file, file.getName());
+    }
+
+    private File copy(File file, String name) throws IOException {
+        return Files.copy(file.toPath(), tempDir.resolve(name)).toFile();
+    }
+
+    static TaskwarriorSslKeys sslKeys(File caCertFile, File privateKeyCertFile, File privateKeyFile) {
+        return new TaskwarriorSslKeys() {
+            @Override
+            public File getCaCertFile() {
+                return caCertFile;
+            }
+
+            @Override
+            public File getPrivateKeyCertFile() {
+                return privateKeyCertFile;
+            }
+
+            @Override
+            public File getPrivateKeyFile() {
+                return privateKeyFile;
+            }
+        };
+    }
+}
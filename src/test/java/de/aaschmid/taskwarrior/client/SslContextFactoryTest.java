@@ -1,13 +1,25 @@
 package de.aaschmid.taskwarrior.client;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
 import java.security.KeyStore;
 import java.security.KeyStore.PasswordProtection;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
 import org.junit.jupiter.api.Test;
 
+import static de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile.defaultTaskwarriorTlsProfile;
+import static de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile.taskwarriorTlsProfileBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -60,7 +72,62 @@ class SslContextFactoryTest {
         assertThat(sslContext.getProtocol()).isEqualTo("SSL");
     }
 
-    // Note: Good case is tested via integration test
+    @Test
+    void createSslParameters_shouldKeepJvmDefaultsForDefaultProfile() throws Exception {
+        SSLContext sslContext = SSLContext.getDefault();
+
+        SSLParameters actual = SslContextFactory.createSslParameters(sslContext, defaultTaskwarriorTlsProfile());
+
+        assertThat(actual.getProtocols()).containsExactly(sslContext.getDefaultSSLParameters().getProtocols());
+        assertThat(actual.getCipherSuites()).containsExactly(sslContext.getDefaultSSLParameters().getCipherSuites());
+    }
+
+    @Test
+    void createSslParameters_shouldThrowTaskwarriorSslContextExceptionIfProtocolIsUnsupported() throws Exception {
+        TaskwarriorTlsProfile tlsProfile = taskwarriorTlsProfileBuilder().addProtocols("TLSv1.2", "TLSv9").build();
+
+        assertThatThrownBy(() -> SslContextFactory.createSslParameters(SSLContext.getDefault(), tlsProfile))
+                .isInstanceOf(TaskwarriorSslContextException.class)
+                .hasMessageStartingWith("Unsupported TLS protocols [TLSv9], supported are [");
+    }
+
+    @Test
+    void createSslParameters_shouldThrowTaskwarriorSslContextExceptionIfCipherSuiteIsUnsupported() throws Exception {
+        TaskwarriorTlsProfile tlsProfile = taskwarriorTlsProfileBuilder().addCipherSuite("TLS_NULL").build();
+
+        assertThatThrownBy(() -> SslContextFactory.createSslParameters(SSLContext.getDefault(), tlsProfile))
+                .isInstanceOf(TaskwarriorSslContextException.class)
+                .hasMessageStartingWith("Unsupported TLS cipher suites [TLS_NULL], supported are [");
+    }
+
+    @Test
+    void sendAndReceive_shouldUseConfiguredProtocolAndCipherSuite() throws Exception {
+        TaskwarriorTlsProfile tlsProfile = taskwarriorTlsProfileBuilder()
+                .addProtocol("TLSv1.2")
+                .addCipherSuite("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256")
+                .sessionResumption(false)
+                .build();
+        List<SSLSession> sessions = new CopyOnWriteArrayList<>();
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            server.setHandshakeListener(sessions::add);
+            TaskwarriorConfiguration config = server.configuration("user", "client", tlsProfile);
+            TaskwarriorClient client = new TaskwarriorClient(config);
+            TaskwarriorMessage statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                    .authentication(config)
+                    .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                    .client("test")
+                    .build()
+                    .toMap());
+
+            assertThat(client.sendAndReceive(statistics).getHeaders()).containsEntry("code", "200");
+            assertThat(client.sendAndReceive(statistics).getHeaders()).containsEntry("code", "200");
+        }
+
+        assertThat(sessions).hasSize(2)
+                .allSatisfy(s -> assertThat(s.getProtocol()).isEqualTo("TLSv1.2"))
+                .allSatisfy(s -> assertThat(s.getCipherSuite()).isEqualTo("TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256"));
+        assertThat(sessions.get(1).getId()).as("not resumed").isNotEqualTo(sessions.get(0).getId());
+    }
 
     private static KeyStore createDefaultKeyStore(String password) throws KeyStoreException {
         return KeyStore.Builder.newInstance(KeyStore.getDefaultType(), null, new PasswordProtection(password.toCharArray())).getKeyStore();
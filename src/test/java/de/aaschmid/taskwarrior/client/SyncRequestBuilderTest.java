@@ -0,0 +1,106 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.SyncRequestBuilder.syncRequestBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorAuthentication.taskwarriorAuthentication;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SyncRequestBuilderTest {
+
+    private static final String SYNC_KEY = "a1b2c3d4-0000-0000-0000-000000000000";
+    private static final String TASK_1 = "{\"description\":\"ascii\"}";
+    private static final String TASK_2 = "{\"description\":\"\u00e4\u20ac\uD83D\uDE00 unpaired \uD83D\"}";
+
+    private final TaskwarriorRequestHeader header = taskwarriorRequestHeaderBuilder()
+            .authentication(taskwarriorAuthentication(UUID.randomUUID(), "org", "user"))
+            .type(MessageType.SYNC)
+            .client("test")
+            .build();
+
+    @Test
+    void syncRequestBuilder_shouldThrowIllegalArgumentExceptionIfHeaderIsNotOfTypeSync() {
+        TaskwarriorRequestHeader statistics = taskwarriorRequestHeaderBuilder().from(header).type(MessageType.STATISTICS).build();
+
+        assertThatThrownBy(() -> syncRequestBuilder(statistics))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Header must be of type 'SYNC' but was 'STATISTICS'.");
+    }
+
+    @Test
+    void build_shouldEncodeSameBytesAsSerializingJoinedPayload() {
+        TaskwarriorMessage actual = syncRequestBuilder(header).syncKey(SYNC_KEY).task(TASK_1).task(TASK_2).build();
+
+        String payload = String.join("\n", SYNC_KEY, TASK_1, TASK_2);
+        assertThat(TaskwarriorMessageFactory.serialize(actual))
+                .isEqualTo(TaskwarriorMessageFactory.serialize(taskwarriorMessage(header.toMap(), payload)));
+        assertThat(actual.getHeaders()).isEqualTo(header.toMap());
+        assertThat(actual.getPayload()).hasValue(new String(payload.getBytes(UTF_8), UTF_8)); // unpaired surrogate replaced
+    }
+
+    @Test
+    void build_shouldEncodeMessageWithoutPayload() {
+        TaskwarriorMessage actual = syncRequestBuilder(header).build();
+
+        assertThat(actual.getPayload()).isEmpty();
+        assertThat(TaskwarriorMessageFactory.serialize(actual))
+                .isEqualTo(TaskwarriorMessageFactory.serialize(taskwarriorMessage(header.toMap())));
+    }
+
+    @Test
+    void writeTo_shouldWriteSameBytesAsBuildAfterReset() throws Exception {
+        SyncRequestBuilder builder = syncRequestBuilder(header);
+        for (int i = 0; i < 1_000; i++) {
+            builder.task(TASK_2);
+        }
+        TaskwarriorMessage expected = builder.reset(header).task(TASK_1).build();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        builder.writeTo(actual);
+
+        assertThat(actual.toByteArray()).isEqualTo(TaskwarriorMessageFactory.serialize(expected)).hasSize(builder.size());
+        assertThat(TaskwarriorMessageFactory.deserialize(new ByteArrayInputStream(actual.toByteArray())).getPayload()).hasValue(TASK_1);
+    }
+
+    @Test
+    void syncKey_shouldThrowIllegalStateExceptionIfTaskHasAlreadyBeenAdded() {
+        SyncRequestBuilder builder = syncRequestBuilder(header).task(TASK_1);
+
+        assertThatThrownBy(() -> builder.syncKey(SYNC_KEY))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Sync key must be added before any task.");
+    }
+
+    @Test
+    void sendAndReceive_shouldSendEncodedRequest() throws Exception {
+        List<TaskwarriorMessage> requests = new CopyOnWriteArrayList<>();
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> {
+            requests.add(request);
+            return taskwarriorMessage(singletonMap("code", "200"));
+        })) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorRequestHeader syncHeader = taskwarriorRequestHeaderBuilder().authentication(config).type(MessageType.SYNC).build();
+
+            new TaskwarriorClient(config).sendAndReceive(syncRequestBuilder(syncHeader).syncKey(SYNC_KEY).task(TASK_1).build());
+
+            assertThat(requests).hasSize(1);
+            assertThat(requests.get(0).getHeaders()).isEqualTo(syncHeader.toMap());
+            assertThat(requests.get(0).getPayload()).hasValue(SYNC_KEY + "\n" + TASK_1);
+        }
+    }
+}
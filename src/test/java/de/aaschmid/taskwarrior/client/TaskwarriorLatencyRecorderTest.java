@@ -0,0 +1,62 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+
+import de.aaschmid.taskwarrior.client.TaskwarriorClientListener.Phase;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskwarriorLatencyRecorderTest {
+
+    private final TaskwarriorLatencyRecorder recorder = new TaskwarriorLatencyRecorder();
+
+    @Test
+    void sendAndReceive_shouldRecordEveryPhaseAndBytesPerMessageType() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().listener(recorder).build());
+            server.setLatency(Duration.ofMillis(100));
+
+            client.sendAndReceive(request(config, MessageType.STATISTICS));
+            client.sendAndReceive(request(config, MessageType.STATISTICS));
+
+            for (Phase phase : Phase.values()) {
+                assertThat(recorder.getHistogram(MessageType.STATISTICS, phase).getCount()).as(phase.name()).isEqualTo(2);
+                assertThat(recorder.getHistogram(MessageType.SYNC, phase).getCount()).as(phase.name()).isZero();
+            }
+            assertThat(recorder.getHistogram(MessageType.STATISTICS, Phase.SERVER).getValueAtPercentile(50))
+                    .isGreaterThanOrEqualTo(Duration.ofMillis(100));
+            assertThat(recorder.getExchangeHistogram(MessageType.STATISTICS).getCount()).isEqualTo(2);
+            assertThat(recorder.getExchangeHistogram(MessageType.STATISTICS).getMax())
+                    .isGreaterThanOrEqualTo(recorder.getHistogram(MessageType.STATISTICS, Phase.SERVER).getMax());
+            assertThat(recorder.getBytesSent(MessageType.STATISTICS)).isPositive();
+            assertThat(recorder.getBytesReceived(MessageType.STATISTICS)).isPositive();
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldCountFailedExchanges() {
+        TaskwarriorConfiguration config = LocalTaskdServer.replicatedConfiguration("user", 1);
+        TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().listener(recorder).build());
+
+        assertThatThrownBy(() -> client.sendAndReceive(request(config, MessageType.SYNC))).isInstanceOf(TaskwarriorClientException.class);
+
+        assertThat(recorder.getFailureCount(MessageType.SYNC)).isEqualTo(1);
+        assertThat(recorder.getHistogram(MessageType.SYNC, Phase.RESOLVE).getCount()).isEqualTo(1);
+        assertThat(recorder.getHistogram(MessageType.SYNC, Phase.CONNECT).getCount()).isZero();
+        assertThat(recorder.getExchangeHistogram(MessageType.SYNC).getCount()).isZero();
+    }
+
+    private static TaskwarriorMessage request(TaskwarriorConfiguration config, MessageType type) {
+        return taskwarriorMessage(taskwarriorRequestHeaderBuilder().authentication(config).type(type).client("test").build().toMap());
+    }
+}
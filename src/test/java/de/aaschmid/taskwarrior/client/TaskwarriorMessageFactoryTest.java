@@ -3,6 +3,7 @@ package de.aaschmid.taskwarrior.client;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +22,7 @@ import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarri
 import static java.lang.String.format;
 import static java.lang.String.join;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.entry;
@@ -80,6 +82,15 @@ class TaskwarriorMessageFactoryTest {
                 .hasMessage("Could not retrieve complete message. Missing 3 bytes.");
     }
 
+    @Test
+    void deserialize_shouldNotAllocateAnnouncedLengthUpfrontIfPeerIsNoTaskwarriorServer() {
+        InputStream is = new ByteArrayInputStream("HTTP/1.1 400".getBytes(UTF_8)); // announces 0x48545450 bytes
+
+        assertThatThrownBy(() -> deserialize(is))
+                .isInstanceOf(TaskwarriorMessageDeserializationException.class)
+                .hasMessage("Could not retrieve complete message. Missing 1213486148 bytes.");
+    }
+
     @Test
     void deserialize_shouldThrowTaskwarriorMessageDeserializationExceptionIfHeaderEntryIsBroken() {
         byte[] messageBytes = new byte[95];
@@ -145,4 +156,13 @@ class TaskwarriorMessageFactoryTest {
                 entry("header2", "val2"));
         assertThat(actual.getPayload()).hasValue("This is the expected payload.");
     }
+
+    @Test
+    void deserialize_shouldReturnMessageWhoseLengthPrefixContainsBytesAboveSignedRange() {
+        String payload = String.join("", Collections.nCopies(200, "x"));
+
+        TaskwarriorMessage actual = deserialize(new ByteArrayInputStream(serialize(taskwarriorMessage(singletonMap("code", "200"), payload))));
+
+        assertThat(actual.getPayload()).hasValue(payload);
+    }
 }
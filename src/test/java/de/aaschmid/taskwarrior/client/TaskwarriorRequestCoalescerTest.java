@@ -0,0 +1,296 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.SyncRequestBuilder.syncRequestBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorAuthentication.taskwarriorAuthentication;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskwarriorRequestCoalescerTest {
+
+    private static final TaskwarriorServerLocation SERVER = new TaskwarriorServerLocation() {
+        @Override
+        public InetAddress getServerHost() {
+            return InetAddress.getLoopbackAddress();
+        }
+
+        @Override
+        public int getServerPort() {
+            return 53589;
+        }
+    };
+    private static final RequestDeadline NO_DEADLINE = new RequestDeadline(Optional.empty());
+
+    private final UUID authKey = UUID.randomUUID();
+    private final AtomicInteger exchanges = new AtomicInteger();
+
+    @Test
+    void shouldThrowIllegalArgumentExceptionIfTtlIsNegative() {
+        assertThatThrownBy(() -> new TaskwarriorRequestCoalescer(Duration.ofSeconds(-1)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("'statisticsCacheTtl' must not be negative but was PT-1S.");
+    }
+
+    @Test
+    void execute_shouldShareResultOfInFlightIdenticalRequest() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+        TaskwarriorMessage request = message(MessageType.SYNC, "key");
+
+        List<TaskwarriorMessage> results = runConcurrently(4, () -> coalescer.execute(SERVER, request, NO_DEADLINE, this::slowExchange));
+
+        assertThat(exchanges).hasValue(1);
+        assertThat(results).hasSize(4).containsOnly(results.get(0));
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void execute_shouldNotCoalesceRequestsWithDifferentPayloads() {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+
+        coalescer.execute(SERVER, message(MessageType.SYNC, "key1"), NO_DEADLINE, this::slowExchange);
+        coalescer.execute(SERVER, message(MessageType.SYNC, "key2"), NO_DEADLINE, this::slowExchange);
+
+        assertThat(exchanges).hasValue(2);
+        assertThat(coalescer.getCoalescedCount()).isZero();
+    }
+
+    @Test
+    void execute_shouldCoalesceEncodedRequestsWithEqualPayloadBytes() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+        AtomicInteger count = new AtomicInteger();
+
+        runConcurrently(4, () -> {
+            String task = count.incrementAndGet() % 2 == 0 ? "{}" : "{\"a\":1}";
+            return coalescer.execute(SERVER, syncRequestBuilder(header(MessageType.SYNC)).syncKey("key").task(task).build(), NO_DEADLINE,
+                    this::slowExchange);
+        });
+
+        assertThat(exchanges).hasValue(2);
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void execute_shouldShareFailureOfInFlightIdenticalRequest() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+        TaskwarriorMessage request = message(MessageType.STATISTICS, null);
+
+        List<TaskwarriorMessage> results = runConcurrently(3, () -> {
+            try {
+                return coalescer.execute(SERVER, request, NO_DEADLINE, () -> {
+                    slowExchange();
+                    throw new TaskwarriorClientException("failure");
+                });
+            } catch (TaskwarriorClientException e) {
+                return null;
+            }
+        });
+
+        assertThat(exchanges).hasValue(1);
+        assertThat(results).containsOnlyNulls();
+    }
+
+    @Test
+    void execute_shouldShareErrorOfInFlightIdenticalRequest() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+        TaskwarriorMessage request = message(MessageType.STATISTICS, null);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<TaskwarriorMessage> results = runConcurrently(3, () -> {
+            try {
+                return coalescer.execute(SERVER, request, NO_DEADLINE, () -> {
+                    slowExchange();
+                    throw new StackOverflowError();
+                });
+            } catch (TaskwarriorClientException | StackOverflowError e) {
+                failures.add(e);
+                return null;
+            }
+        });
+
+        assertThat(exchanges).hasValue(1);
+        assertThat(results).containsOnlyNulls();
+        assertThat(failures).hasSize(3).filteredOn(StackOverflowError.class::isInstance).hasSize(1);
+    }
+
+    @Test
+    void execute_shouldStopWaitingForInFlightIdenticalRequestIfOwnDeadlineExpires() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+        TaskwarriorMessage request = message(MessageType.SYNC, "key");
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<TaskwarriorMessage> leader = startBlockedExchange(coalescer, request, finish);
+
+        try (RequestDeadline deadline = new RequestDeadline(Optional.of(Duration.ofMillis(50)))) {
+            assertThatThrownBy(() -> coalescer.execute(SERVER, request, deadline, this::slowExchange))
+                    .isInstanceOf(TaskwarriorClientTimeoutException.class)
+                    .hasMessage("Request deadline of 50 ms exceeded while waiting for a shared exchange.");
+        } finally {
+            finish.countDown();
+        }
+        assertThat(leader.get(30, TimeUnit.SECONDS).getHeaders()).containsEntry("code", "200");
+        assertThat(coalescer.getCoalescedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldStopWaitingForInFlightIdenticalRequestIfCancelled() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+        TaskwarriorMessage request = message(MessageType.SYNC, "key");
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<TaskwarriorMessage> leader = startBlockedExchange(coalescer, request, finish);
+
+        try (RequestDeadline deadline = new RequestDeadline(Optional.empty())) {
+            CompletableFuture<TaskwarriorMessage> joiner = CompletableFuture.supplyAsync(
+                    () -> coalescer.execute(SERVER, request, deadline, this::slowExchange));
+            while (coalescer.getCoalescedCount() == 0) {
+                Thread.sleep(1);
+            }
+            deadline.cancel();
+
+            assertThatThrownBy(() -> joiner.get(30, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(TaskwarriorClientCancelledException.class);
+            assertThat(leader).isNotDone();
+        } finally {
+            finish.countDown();
+        }
+        assertThat(leader.get(30, TimeUnit.SECONDS).getHeaders()).containsEntry("code", "200");
+    }
+
+    @Test
+    void execute_shouldCacheStatisticsResponsesOnlyIfEnabled() {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer(Duration.ofMinutes(1));
+
+        coalescer.execute(SERVER, message(MessageType.STATISTICS, null), NO_DEADLINE, this::slowExchange);
+        coalescer.execute(SERVER, message(MessageType.STATISTICS, null), NO_DEADLINE, this::slowExchange);
+        coalescer.execute(SERVER, message(MessageType.SYNC, null), NO_DEADLINE, this::slowExchange);
+        coalescer.execute(SERVER, message(MessageType.SYNC, null), NO_DEADLINE, this::slowExchange);
+
+        assertThat(exchanges).hasValue(3);
+        assertThat(coalescer.getCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_shouldNotCacheStatisticsResponsesAfterTtl() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer(Duration.ofMillis(10));
+
+        coalescer.execute(SERVER, message(MessageType.STATISTICS, null), NO_DEADLINE, this::slowExchange);
+        Thread.sleep(20);
+        coalescer.execute(SERVER, message(MessageType.STATISTICS, null), NO_DEADLINE, this::slowExchange);
+
+        assertThat(exchanges).hasValue(2);
+        assertThat(coalescer.getCacheHitCount()).isZero();
+    }
+
+    @Test
+    void sendAndReceive_shouldShareOneConnectionBetweenClientsOfSameAccount() throws Exception {
+        TaskwarriorRequestCoalescer coalescer = new TaskwarriorRequestCoalescer();
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            server.setLatency(Duration.ofMillis(500));
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClientOptions options = taskwarriorClientOptionsBuilder().requestCoalescer(coalescer).build();
+            TaskwarriorClient client1 = new TaskwarriorClient(config, options);
+            TaskwarriorClient client2 = new TaskwarriorClient(config, options);
+            TaskwarriorMessage statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                    .authentication(config)
+                    .type(MessageType.STATISTICS)
+                    .client("test")
+                    .build()
+                    .toMap());
+
+            AtomicInteger count = new AtomicInteger();
+            List<TaskwarriorMessage> results = runConcurrently(6,
+                    () -> (count.incrementAndGet() % 2 == 0 ? client1 : client2).sendAndReceive(statistics));
+
+            assertThat(results).allSatisfy(r -> assertThat(r.getHeaders()).containsEntry("code", "200"));
+            assertThat(server.getRequestCount()).isEqualTo(1);
+            assertThat(coalescer.getCoalescedCount()).isEqualTo(5);
+        }
+    }
+
+    private TaskwarriorMessage message(MessageType type, String payload) {
+        TaskwarriorRequestHeader header = header(type);
+        return payload == null ? taskwarriorMessage(header.toMap()) : taskwarriorMessage(header.toMap(), payload);
+    }
+
+    private TaskwarriorRequestHeader header(MessageType type) {
+        return taskwarriorRequestHeaderBuilder()
+                .authentication(taskwarriorAuthentication(authKey, "org", "user"))
+                .type(type)
+                .client("test")
+                .build();
+    }
+
+    private static CompletableFuture<TaskwarriorMessage> startBlockedExchange(TaskwarriorRequestCoalescer coalescer,
+            TaskwarriorMessage request, CountDownLatch finish) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Supplier<TaskwarriorMessage> blockedExchange = () -> {
+            started.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return taskwarriorMessage(singletonMap("code", "200"));
+        };
+        CompletableFuture<TaskwarriorMessage> result = CompletableFuture.supplyAsync(
+                () -> coalescer.execute(SERVER, request, NO_DEADLINE, blockedExchange));
+        assertThat(started.await(30, TimeUnit.SECONDS)).isTrue();
+        return result;
+    }
+
+    private TaskwarriorMessage slowExchange() {
+        exchanges.incrementAndGet();
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return taskwarriorMessage(singletonMap("code", "200"));
+    }
+
+    private static List<TaskwarriorMessage> runConcurrently(int threads, Callable<TaskwarriorMessage> call) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TaskwarriorMessage>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+            List<TaskwarriorMessage> result = new ArrayList<>();
+            for (Future<TaskwarriorMessage> future : futures) {
+                result.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.HedgingOptions.hedgingOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskwarriorRequestHedgerTest {
+
+    private static final TaskwarriorMessage STATISTICS = taskwarriorMessage(singletonMap("type", "statistics"));
+    private static final TaskwarriorMessage SYNC = taskwarriorMessage(singletonMap("type", "sync"));
+
+    private final TaskwarriorRequestHedger hedger = new TaskwarriorRequestHedger(hedgingOptionsBuilder()
+            .minDelay(Duration.ofMillis(20))
+            .latencyWindow(10)
+            .minSamples(10)
+            .hedgeBudgetCapacity(1)
+            .maxHedgeRatio(0)
+            .build());
+
+    @Test
+    void getHedgeDelay_shouldBeLearnedFromLatencies() {
+        assertThat(hedger.getHedgeDelay()).isEmpty();
+
+        warmUp();
+
+        assertThat(hedger.getHedgeDelay()).hasValueSatisfying(d -> assertThat(d).isGreaterThanOrEqualTo(Duration.ofMillis(20)));
+    }
+
+    @Test
+    void execute_shouldNotHedgeRequestsWhichAreNotIdempotent() {
+        warmUp();
+
+        assertThat(execute(SYNC, deadline -> sleepAndRespond(100))).isSameAs(SYNC);
+
+        assertThat(hedger.getRequestCount()).isEqualTo(10);
+        assertThat(hedger.getHedgeCount()).isZero();
+    }
+
+    @Test
+    void execute_shouldReturnHedgeAndCancelOriginalIfOriginalIsSlow() {
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        TaskwarriorMessage actual = execute(STATISTICS, deadline -> {
+            if (attempts.incrementAndGet() == 1) {
+                awaitCancellation(deadline);
+                throw new TaskwarriorClientCancelledException("Cancelled.");
+            }
+            return SYNC; // marks hedge
+        });
+
+        assertThat(actual).isSameAs(SYNC);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(hedger.getHedgeCount()).isEqualTo(1);
+        assertThat(hedger.getHedgeWinCount()).isEqualTo(1);
+        assertThat(hedger.getHedgeRate()).isEqualTo(1.0 / 11);
+    }
+
+    @Test
+    void execute_shouldRecordHedgeDelayAsLatencyOfAbandonedOriginal() {
+        warmUp();
+        AtomicInteger attempts = new AtomicInteger();
+
+        execute(STATISTICS, deadline -> {
+            if (attempts.incrementAndGet() == 1) {
+                awaitCancellation(deadline);
+                throw new TaskwarriorClientCancelledException("Cancelled.");
+            }
+            return sleepAndRespond(200); // slow hedge must not count as latency of the original request
+        });
+
+        assertThat(hedger.getHedgeWinCount()).isEqualTo(1);
+        assertThat(hedger.getHedgeDelay()).hasValueSatisfying(d -> assertThat(d).isLessThan(Duration.ofMillis(200)));
+    }
+
+    @Test
+    void execute_shouldDenyHedgesIfBudgetIsExhausted() {
+        warmUp();
+
+        execute(STATISTICS, deadline -> sleepAndRespond(100));
+        execute(STATISTICS, deadline -> sleepAndRespond(500)); // slower than learned hedge delay including the first one
+
+        assertThat(hedger.getHedgeCount()).isEqualTo(1);
+        assertThat(hedger.getDeniedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sendAndReceive_shouldHedgeSlowStatisticsRequest() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> {
+            if (requests.incrementAndGet() == 11) {
+                sleepAndRespond(5_000);
+            }
+            return taskwarriorMessage(singletonMap("code", "200"));
+        })) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().requestHedger(hedger).build());
+            TaskwarriorMessage statistics = taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                    .authentication(config)
+                    .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                    .client("test")
+                    .build()
+                    .toMap());
+
+            for (int i = 0; i < 10; i++) {
+                client.sendAndReceive(statistics);
+            }
+            long start = System.nanoTime();
+            assertThat(client.sendAndReceive(statistics).getHeaders()).containsEntry("code", "200");
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(4));
+            assertThat(hedger.getHedgeWinCount()).isEqualTo(1);
+            assertThat(server.getRequestCount()).isEqualTo(12);
+        }
+    }
+
+    private void warmUp() {
+        for (int i = 0; i < 10; i++) {
+            execute(STATISTICS, deadline -> STATISTICS);
+        }
+    }
+
+    private TaskwarriorMessage execute(TaskwarriorMessage request, Function<RequestDeadline, TaskwarriorMessage> attempt) {
+        try (RequestDeadline deadline = new RequestDeadline(Optional.empty())) {
+            return hedger.execute(request, deadline, attempt);
+        }
+    }
+
+    private static void awaitCancellation(RequestDeadline deadline) {
+        long end = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!deadline.isCancelled() && System.nanoTime() < end) {
+            sleepAndRespond(1);
+        }
+    }
+
+    private static TaskwarriorMessage sleepAndRespond(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return SYNC;
+    }
+}
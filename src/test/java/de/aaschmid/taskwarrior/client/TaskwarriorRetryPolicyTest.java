@@ -0,0 +1,217 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import de.aaschmid.taskwarrior.client.TaskwarriorClientTimeoutException.Phase;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessageDeserializationException;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.RetryOptions.defaultRetryOptions;
+import static de.aaschmid.taskwarrior.client.RetryOptions.retryOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.SyncRequestBuilder.syncRequestBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorAuthentication.taskwarriorAuthentication;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskwarriorRetryPolicyTest {
+
+    private static final TaskwarriorMessage STATISTICS = taskwarriorMessage(singletonMap("type", "statistics"));
+    private static final TaskwarriorMessage SYNC = taskwarriorMessage(singletonMap("type", "sync"), "2f52d5b3-4b5e-4cfb-8f5c-1ac1a0b0f1e4");
+    private static final TaskwarriorMessage SYNC_WITH_TASKS = taskwarriorMessage(
+            singletonMap("type", "sync"),
+            "{\"description\":\"test\",\"status\":\"pending\",\"uuid\":\"f2b3c0a4-1f1e-4d0e-8f0a-3f0b0c7d0e1f\"}");
+
+    private final TaskwarriorRetryPolicy policy = new TaskwarriorRetryPolicy(defaultRetryOptions());
+
+    @Test
+    void isRetryable_shouldRetryEveryRequestIfNothingWasWrittenYet() {
+        TaskwarriorClientException refused = new TaskwarriorClientException(new ConnectException("Connection refused"), "Could not connect.");
+
+        assertThat(policy.isRetryable(SYNC_WITH_TASKS, refused, Phase.CONNECT)).isTrue();
+        assertThat(policy.isRetryable(SYNC_WITH_TASKS, timeout(Phase.HANDSHAKE), Phase.HANDSHAKE)).isTrue();
+    }
+
+    @Test
+    void isRetryable_shouldRetryOnlyIdempotentRequestsIfRequestWasWritten() {
+        TaskwarriorMessageDeserializationException truncated = new TaskwarriorMessageDeserializationException("Truncated.");
+
+        assertThat(policy.isRetryable(STATISTICS, truncated, Phase.READ)).isTrue();
+        assertThat(policy.isRetryable(SYNC, truncated, Phase.READ)).isTrue();
+        assertThat(policy.isRetryable(SYNC_WITH_TASKS, truncated, Phase.READ)).isFalse();
+        assertThat(policy.isRetryable(SYNC_WITH_TASKS, timeout(Phase.WRITE), Phase.WRITE)).isFalse();
+    }
+
+    @Test
+    void isRetryable_shouldDetectUploadedTasksInEncodedSyncRequests() {
+        TaskwarriorMessageDeserializationException truncated = new TaskwarriorMessageDeserializationException("Truncated.");
+        TaskwarriorRequestHeader header = taskwarriorRequestHeaderBuilder()
+                .authentication(taskwarriorAuthentication(UUID.randomUUID(), "org", "user"))
+                .type(TaskwarriorRequestHeader.MessageType.SYNC)
+                .build();
+
+        assertThat(policy.isRetryable(syncRequestBuilder(header).build(), truncated, Phase.READ)).isTrue();
+        assertThat(policy.isRetryable(syncRequestBuilder(header).syncKey(SYNC.getPayload().get()).build(), truncated, Phase.READ)).isTrue();
+        assertThat(policy.isRetryable(syncRequestBuilder(header).task("{\"description\":\"\u00e4\"}").build(), truncated, Phase.READ))
+                .isFalse();
+    }
+
+    @Test
+    void isRetryable_shouldNotRetryRejectedRequestsAndFailedHandshakes() {
+        TaskwarriorClientException handshake = new TaskwarriorClientException(new SSLHandshakeException("bad certificate"), "Failed.");
+
+        assertThat(policy.isRetryable(STATISTICS, new TaskwarriorClientLimitExceededException("Limit reached."), Phase.CONNECT)).isFalse();
+        assertThat(policy.isRetryable(STATISTICS, handshake, Phase.HANDSHAKE)).isFalse();
+    }
+
+    @Test
+    void nextDelayNanos_shouldReturnDecorrelatedJitterBetweenBaseAndMaxDelay() {
+        TaskwarriorRetryPolicy policy = new TaskwarriorRetryPolicy(retryOptionsBuilder()
+                .baseDelay(Duration.ofMillis(10))
+                .maxDelay(Duration.ofMillis(100))
+                .build());
+
+        long delay = Duration.ofMillis(10).toNanos();
+        for (int i = 0; i < 1000; i++) {
+            long next = policy.nextDelayNanos(delay);
+            assertThat(next).isBetween(Duration.ofMillis(10).toNanos(), Math.min(delay * 3, Duration.ofMillis(100).toNanos()));
+            delay = next;
+        }
+    }
+
+    @Test
+    void execute_shouldDenyRetriesIfBudgetIsExhausted() {
+        TaskwarriorRetryPolicy policy = new TaskwarriorRetryPolicy(retryOptionsBuilder()
+                .maxAttempts(3)
+                .baseDelay(Duration.ZERO)
+                .maxDelay(Duration.ZERO)
+                .retryBudgetRatio(0)
+                .retryBudgetCapacity(3)
+                .build());
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            try (RequestDeadline deadline = new RequestDeadline(Optional.empty())) {
+                assertThatThrownBy(() -> policy.execute(STATISTICS, deadline, attempt -> {
+                    attempts.incrementAndGet();
+                    throw new TaskwarriorMessageDeserializationException("Truncated.");
+                })).isInstanceOf(TaskwarriorMessageDeserializationException.class);
+            }
+        }
+
+        assertThat(attempts).hasValue(3 + 3);
+        assertThat(policy.getRetryCount()).isEqualTo(3);
+        assertThat(policy.getDeniedCount()).isEqualTo(2);
+        assertThat(policy.getAvailableTokens()).isZero();
+    }
+
+    @Test
+    void execute_shouldEarnRetryTokensBySuccessfulRequests() {
+        TaskwarriorRetryPolicy policy = new TaskwarriorRetryPolicy(retryOptionsBuilder()
+                .retryBudgetRatio(0.5)
+                .retryBudgetCapacity(1)
+                .build());
+
+        try (RequestDeadline deadline = new RequestDeadline(Optional.empty())) {
+            policy.execute(STATISTICS, deadline, attempt -> STATISTICS);
+        }
+
+        assertThat(policy.getAvailableTokens()).isEqualTo(1.0);
+    }
+
+    @Test
+    void execute_shouldClassifyFailureByPhaseReachedByHedgesOfFailedAttempt() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try (RequestDeadline deadline = new RequestDeadline(Optional.empty())) {
+            assertThatThrownBy(() -> policy.execute(SYNC_WITH_TASKS, deadline, attempt -> {
+                attempts.incrementAndGet();
+                try (RequestDeadline hedge = attempt.child(Optional.empty())) {
+                    hedge.enter(Phase.WRITE);
+                }
+                throw new TaskwarriorMessageDeserializationException("Truncated.");
+            })).isInstanceOf(TaskwarriorMessageDeserializationException.class);
+        }
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void execute_shouldStopDelayingRetryIfRequestIsCancelled() throws Exception {
+        TaskwarriorRetryPolicy policy = new TaskwarriorRetryPolicy(retryOptionsBuilder()
+                .baseDelay(Duration.ofSeconds(30))
+                .maxDelay(Duration.ofSeconds(30))
+                .build());
+        CountDownLatch failed = new CountDownLatch(1);
+
+        try (RequestDeadline deadline = new RequestDeadline(Optional.empty())) {
+            Thread canceller = new Thread(() -> {
+                try {
+                    failed.await();
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                deadline.cancel();
+            });
+            canceller.start();
+
+            long start = System.nanoTime();
+            assertThatThrownBy(() -> policy.execute(STATISTICS, deadline, attempt -> {
+                failed.countDown();
+                throw new TaskwarriorMessageDeserializationException("Truncated.");
+            })).isInstanceOf(TaskwarriorClientCancelledException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+            canceller.join();
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldRetryStatisticsButNotSyncWithTasksIfServerFails() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> {
+            if (requests.incrementAndGet() % 2 == 1) {
+                throw new IllegalStateException("Server fails every other request.");
+            }
+            return taskwarriorMessage(singletonMap("code", "200"));
+        })) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorRetryPolicy policy = new TaskwarriorRetryPolicy(retryOptionsBuilder().baseDelay(Duration.ofMillis(1)).build());
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().retryPolicy(policy).build());
+
+            assertThat(client.sendAndReceive(request(config, TaskwarriorRequestHeader.MessageType.STATISTICS, Optional.empty())).getHeaders())
+                    .containsEntry("code", "200");
+            assertThat(server.getRequestCount()).isEqualTo(2);
+
+            assertThatThrownBy(() -> client.sendAndReceive(request(config, TaskwarriorRequestHeader.MessageType.SYNC,
+                    SYNC_WITH_TASKS.getPayload())))
+                    .isInstanceOf(TaskwarriorMessageDeserializationException.class);
+            assertThat(server.getRequestCount()).isEqualTo(3);
+            assertThat(policy.getRetryCount()).isEqualTo(1);
+        }
+    }
+
+    private static TaskwarriorClientTimeoutException timeout(Phase phase) {
+        return new TaskwarriorClientTimeoutException(new IOException("timeout"), phase, "Timeout for %s exceeded.", phase);
+    }
+
+    private static TaskwarriorMessage request(TaskwarriorConfiguration config, TaskwarriorRequestHeader.MessageType type,
+            Optional<String> payload) {
+        TaskwarriorRequestHeader header = taskwarriorRequestHeaderBuilder().authentication(config).type(type).client("test").build();
+        return payload.isPresent() ? taskwarriorMessage(header.toMap(), payload.get()) : taskwarriorMessage(header.toMap());
+    }
+}
@@ -0,0 +1,144 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import de.aaschmid.taskwarrior.client.TaskwarriorWireCapture.Direction;
+import de.aaschmid.taskwarrior.client.TaskwarriorWireCapture.Frame;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.WireCaptureOptions.wireCaptureOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskwarriorWireCaptureTest {
+
+    private final List<String> dumps = new CopyOnWriteArrayList<>();
+
+    @Test
+    void sendAndReceive_shouldCaptureRequestAndResponseFramesWithRedactedKey() throws Exception {
+        TaskwarriorWireCapture capture = new TaskwarriorWireCapture(wireCaptureOptionsBuilder().build());
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200"), "response"))) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().wireCapture(capture).build());
+
+            client.sendAndReceive(request(config, "payload"));
+
+            List<Frame> frames = capture.getFrames();
+            assertThat(frames).extracting(Frame::getDirection).containsExactly(Direction.SENT, Direction.RECEIVED);
+            assertThat(frames).extracting(Frame::getMessageType).containsOnly("sync");
+            assertThat(frames.get(0).getHeaders()).contains("type: sync", "user: user", "key: <redacted>")
+                    .doesNotContain(config.getAuthKey().toString());
+            assertThat(frames.get(0).getPayload()).isEqualTo("payload");
+            assertThat(frames.get(1).getHeaders()).isEqualTo("code: 200");
+            assertThat(frames.get(1).getPayload()).isEqualTo("response");
+            assertThat(frames.get(1).getLength()).isEqualTo("code: 200\n\nresponse".length());
+            assertThat(frames).noneMatch(Frame::isTruncated);
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldHandDumpToFailureHandlerIfRequestFails() throws Exception {
+        TaskwarriorWireCapture capture = new TaskwarriorWireCapture(wireCaptureOptionsBuilder().failureDumpHandler(dumps::add).build());
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> {
+            if (request.getPayload().orElse("").equals("fail")) {
+                throw new IllegalStateException("server closes connection without response");
+            }
+            return taskwarriorMessage(singletonMap("code", "200"));
+        })) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().wireCapture(capture).build());
+            client.sendAndReceive(request(config, "ok"));
+
+            assertThatThrownBy(() -> client.sendAndReceive(request(config, "fail"))).isInstanceOf(RuntimeException.class);
+
+            assertThat(dumps).hasSize(1);
+            assertThat(dumps.get(0)).startsWith("sync request failed with ")
+                    .contains("#0 ", "#1 ", "#2 ")
+                    .contains(" RECEIVED sync ", "code: 200")
+                    .endsWith(" SENT sync " + capture.getFrames().get(2).getLength() + " bytes\n"
+                            + capture.getFrames().get(2).getHeaders() + "\n\nfail\n");
+        }
+    }
+
+    @Test
+    void sent_shouldKeepOnlyMostRecentFramesInOrder() {
+        TaskwarriorWireCapture capture = new TaskwarriorWireCapture(wireCaptureOptionsBuilder().capacity(3).build());
+        for (int i = 0; i < 10; i++) {
+            capture.sent(message("statistics"), TaskwarriorMessageFactory.serialize(taskwarriorMessage(singletonMap("n", "" + i))));
+        }
+
+        assertThat(capture.getCapturedCount()).isEqualTo(10);
+        assertThat(capture.getFrames()).extracting(Frame::getSequence).containsExactly(6L, 7L, 8L, 9L); // capacity rounded up to 4
+        assertThat(capture.getFrames()).extracting(Frame::getHeaders).containsExactly("n: 6", "n: 7", "n: 8", "n: 9");
+    }
+
+    @Test
+    void received_shouldKeepSmallFramesByReferenceAndCopyTruncatedPayloadOfLargeOnes() {
+        TaskwarriorWireCapture capture = new TaskwarriorWireCapture(wireCaptureOptionsBuilder().maxPayloadBytes(4).build());
+        byte[] small = "code: 200\n\nabcd".getBytes(UTF_8);
+        byte[] large = "code: 200\n\nabcdefgh".getBytes(UTF_8);
+
+        capture.received(message("sync"), ByteBuffer.wrap(small));
+        capture.received(message("sync"), ByteBuffer.wrap(large));
+        small[small.length - 1] = 'X'; // frame shares the buffer of the small message
+
+        List<Frame> frames = capture.getFrames();
+        assertThat(frames.get(0).getPayload()).isEqualTo("abcX");
+        assertThat(frames.get(0).isTruncated()).isFalse();
+        assertThat(frames.get(1).getHeaders()).isEqualTo("code: 200");
+        assertThat(frames.get(1).getPayload()).isEqualTo("abcd");
+        assertThat(frames.get(1).isTruncated()).isTrue();
+        assertThat(frames.get(1).toString()).endsWith("\n\nabcd[... 4 more bytes]\n");
+    }
+
+    @Test
+    void received_shouldCopyRetainedBytesOfBufferWithoutAccessibleArray() {
+        TaskwarriorWireCapture capture = new TaskwarriorWireCapture(wireCaptureOptionsBuilder().maxPayloadBytes(4).build());
+        byte[] bytes = "code: 200\n\nabcdefgh".getBytes(UTF_8);
+
+        capture.received(message("sync"), ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+        bytes[bytes.length - 5] = 'X';
+
+        Frame frame = capture.getFrames().get(0);
+        assertThat(frame.getHeaders()).isEqualTo("code: 200");
+        assertThat(frame.getPayload()).isEqualTo("abcd");
+        assertThat(frame.getLength()).isEqualTo(bytes.length);
+        assertThat(frame.isTruncated()).isTrue();
+    }
+
+    @Test
+    void received_shouldSearchEndOfHeadersWithinMaxHeaderBytesOnly() {
+        TaskwarriorWireCapture capture = new TaskwarriorWireCapture(wireCaptureOptionsBuilder().maxPayloadBytes(4).build());
+        char[] garbage = new char[64 * 1024];
+        Arrays.fill(garbage, 'x');
+        byte[] bytes = (new String(garbage) + "\n\nabcd").getBytes(UTF_8);
+
+        capture.received(message("sync"), ByteBuffer.wrap(bytes));
+
+        Frame frame = capture.getFrames().get(0);
+        assertThat(frame.getHeaders()).isEqualTo("xxxx");
+        assertThat(frame.getPayload()).isEmpty();
+        assertThat(frame.isTruncated()).isTrue();
+    }
+
+    private static TaskwarriorMessage message(String type) {
+        return taskwarriorMessage(singletonMap("type", type));
+    }
+
+    private static TaskwarriorMessage request(TaskwarriorConfiguration config, String payload) {
+        return taskwarriorMessage(
+                taskwarriorRequestHeaderBuilder().authentication(config).type(MessageType.SYNC).client("test").build().toMap(),
+                payload);
+    }
+}
@@ -0,0 +1,116 @@
+package de.aaschmid.taskwarrior.client;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.BooleanSupplier;
+
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.WarmPoolOptions.warmPoolOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WarmConnectionPoolTest {
+
+    @Test
+    void sendAndReceive_shouldUseWarmConnectionsAndRefillPool() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")));
+                TaskwarriorClient client = client(server, Duration.ofSeconds(30))) {
+            WarmConnectionPool pool = client.getWarmPool().get();
+            await(() -> pool.getIdleCount() == 2);
+
+            for (int i = 0; i < 3; i++) {
+                assertThat(client.sendAndReceive(statistics(server)).getHeaders()).containsEntry("code", "200");
+            }
+
+            assertThat(pool.getHitCount() + pool.getMissCount()).isEqualTo(3);
+            assertThat(pool.getHitCount()).isGreaterThanOrEqualTo(2);
+            await(() -> pool.getIdleCount() == 2);
+            assertThat(server.getRequestCount()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldReplaceExpiredConnections() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")));
+                TaskwarriorClient client = client(server, Duration.ofMillis(100))) {
+            WarmConnectionPool pool = client.getWarmPool().get();
+
+            await(() -> pool.getDiscardedCount() >= 2 && pool.getIdleCount() == 2);
+
+            assertThat(client.sendAndReceive(statistics(server)).getHeaders()).containsEntry("code", "200");
+            assertThat(pool.getFailureCount()).isZero();
+        }
+    }
+
+    @Test
+    void close_shouldCloseIdleConnections() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> taskwarriorMessage(singletonMap("code", "200")))) {
+            TaskwarriorClient client = client(server, Duration.ofSeconds(30));
+            WarmConnectionPool pool = client.getWarmPool().get();
+            await(() -> pool.getIdleCount() == 2);
+
+            client.close();
+
+            assertThat(pool.getIdleCount()).isZero();
+            assertThat(client.sendAndReceive(statistics(server)).getHeaders()).containsEntry("code", "200");
+            assertThat(pool.getIdleCount()).isZero();
+        }
+    }
+
+    @Test
+    void close_shouldCancelExpiry() {
+        WarmConnectionPool pool = unreachableServerPool();
+
+        pool.close();
+
+        assertThat(pool.getExpiry().isCancelled()).isTrue();
+    }
+
+    @Test
+    void expiry_shouldCancelItselfIfPoolIsGarbageCollectedWithoutBeingClosed() throws Exception {
+        ScheduledFuture<?> expiry = unreachableServerPool().getExpiry();
+
+        await(() -> {
+            System.gc();
+            return expiry.isCancelled();
+        });
+    }
+
+    private static WarmConnectionPool unreachableServerPool() {
+        return new WarmConnectionPool(warmPoolOptionsBuilder().targetSize(1).idleTimeout(Duration.ofMillis(10)).build(), () -> {
+            throw new IOException("unreachable");
+        });
+    }
+
+    private static TaskwarriorClient client(LocalTaskdServer server, Duration idleTimeout) {
+        return new TaskwarriorClient(server.configuration("user"), taskwarriorClientOptionsBuilder()
+                .warmPool(warmPoolOptionsBuilder().targetSize(2).idleTimeout(idleTimeout).build())
+                .build());
+    }
+
+    private static TaskwarriorMessage statistics(LocalTaskdServer server) {
+        TaskwarriorConfiguration config = server.configuration("user");
+        return taskwarriorMessage(taskwarriorRequestHeaderBuilder()
+                .authentication(config)
+                .type(TaskwarriorRequestHeader.MessageType.STATISTICS)
+                .client("test")
+                .build()
+                .toMap());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -1,6 +1,7 @@
 package de.aaschmid.taskwarrior.config;
 
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URL;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
@@ -12,13 +13,20 @@ import de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.Propert
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import static de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile.defaultTaskwarriorTlsProfile;
+import static de.aaschmid.taskwarrior.client.TaskwarriorTlsProfile.taskwarriorTlsProfileBuilder;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.AUTH_KEY;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.ORGANIZATION;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SERVER_HOST;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SERVER_PORT;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SERVER_REPLICAS;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_CERT_CA_FILE;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_CIPHER_SUITES;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_NAMED_GROUPS;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_PRIVATE_KEY_CERT_FILE;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_PRIVATE_KEY_FILE;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_PROTOCOLS;
+import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.SSL_SESSION_RESUMPTION;
 import static de.aaschmid.taskwarrior.config.TaskwarriorPropertiesConfiguration.PropertyKey.USER;
 import static java.lang.String.format;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -96,6 +104,37 @@ class TaskwarriorPropertiesConfigurationTest {
         assertThat(config.getServerPort()).isEqualTo(12345);
     }
 
+    @Test
+    void shouldReturnServerHostAndPortAsOnlyServerAddressWithoutReplicas() throws Exception {
+        TaskwarriorPropertiesConfiguration config = configFor(prop(SERVER_HOST, "127.0.0.1"), prop(SERVER_PORT, "53589"));
+        assertThat(config.getServerAddresses()).containsExactly(new InetSocketAddress("127.0.0.1", 53589));
+    }
+
+    @Test
+    void shouldSuccessfullyParseReplicasWithAndWithoutPort() throws Exception {
+        TaskwarriorPropertiesConfiguration config = configFor(
+                prop(SERVER_HOST, "127.0.0.1"),
+                prop(SERVER_PORT, "53589"),
+                prop(SERVER_REPLICAS, "127.0.0.2, 127.0.0.3:53590,[::1]:53591,[::1]"));
+        assertThat(config.getServerAddresses()).containsExactly(
+                new InetSocketAddress("127.0.0.1", 53589),
+                new InetSocketAddress("127.0.0.2", 53589),
+                new InetSocketAddress("127.0.0.3", 53590),
+                new InetSocketAddress("::1", 53591),
+                new InetSocketAddress("::1", 53589));
+    }
+
+    @Test
+    void shouldThrowTaskwarriorConfigurationExceptionForInvalidReplicaPort() throws Exception {
+        TaskwarriorPropertiesConfiguration config = configFor(
+                prop(SERVER_HOST, "127.0.0.1"),
+                prop(SERVER_PORT, "53589"),
+                prop(SERVER_REPLICAS, "127.0.0.2:invalid"));
+        assertThatThrownBy(config::getServerAddresses)
+                .isInstanceOf(TaskwarriorConfigurationException.class)
+                .hasMessage("Cannot resolve port 'invalid' because it is not a parsable.");
+    }
+
     @Test
     void shouldThrowTaskwarriorConfigurationExceptionIfCaCertIsMissing() throws Exception {
         TaskwarriorPropertiesConfiguration config = configFor();
@@ -220,6 +259,35 @@ class TaskwarriorPropertiesConfigurationTest {
         assertThat(config.getUser()).isEqualTo("user");
     }
 
+    @Test
+    void shouldUseJvmDefaultsIfTlsProfileIsMissing() throws Exception {
+        TaskwarriorPropertiesConfiguration config = configFor(prop(SSL_PROTOCOLS, ""));
+        assertThat(config.getTlsProfile()).isEqualTo(defaultTaskwarriorTlsProfile());
+    }
+
+    @Test
+    void shouldSuccessfullyParseTlsProfile() throws Exception {
+        TaskwarriorPropertiesConfiguration config = configFor(
+                prop(SSL_PROTOCOLS, "TLSv1.3"),
+                prop(SSL_CIPHER_SUITES, " TLS_AES_128_GCM_SHA256 , TLS_CHACHA20_POLY1305_SHA256,"),
+                prop(SSL_NAMED_GROUPS, "x25519"),
+                prop(SSL_SESSION_RESUMPTION, "FALSE"));
+        assertThat(config.getTlsProfile()).isEqualTo(taskwarriorTlsProfileBuilder()
+                .addProtocol("TLSv1.3")
+                .addCipherSuites("TLS_AES_128_GCM_SHA256", "TLS_CHACHA20_POLY1305_SHA256")
+                .addNamedGroup("x25519")
+                .sessionResumption(false)
+                .build());
+    }
+
+    @Test
+    void shouldThrowTaskwarriorConfigurationExceptionForInvalidSessionResumption() throws Exception {
+        TaskwarriorPropertiesConfiguration config = configFor(prop(SSL_SESSION_RESUMPTION, "yes"));
+        assertThatThrownBy(config::getTlsProfile)
+                .isInstanceOf(TaskwarriorConfigurationException.class)
+                .hasMessage("Session resumption 'yes' is neither 'true' nor 'false'.");
+    }
+
     private TaskwarriorPropertiesConfiguration configFor(String... lines) throws Exception {
         Path properties = Files.createFile(tempDir.resolve("taskwarrior.properties"));
         Files.write(properties, Arrays.asList(lines));
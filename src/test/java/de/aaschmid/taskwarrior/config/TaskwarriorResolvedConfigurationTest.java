@@ -0,0 +1,151 @@
+package de.aaschmid.taskwarrior.config;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskwarriorResolvedConfigurationTest {
+
+    private final CountingConfiguration config = new CountingConfiguration();
+
+    @Test
+    void resolve_shouldReadEveryValueOnlyOnce() {
+        TaskwarriorResolvedConfiguration resolved = TaskwarriorResolvedConfiguration.resolve(config, Duration.ofHours(1));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(resolved.getServerHost()).isEqualTo(InetAddress.getLoopbackAddress());
+            assertThat(resolved.getServerPort()).isEqualTo(53589);
+            assertThat(resolved.getServerAddresses()).containsExactly(new InetSocketAddress(InetAddress.getLoopbackAddress(), 53589));
+            assertThat(resolved.getPrivateKeyFile()).isEqualTo(new File("private.key.pem"));
+            assertThat(resolved.getUser()).isEqualTo("user");
+        }
+
+        assertThat(config.serverHostCalls).hasValue(1);
+        assertThat(config.otherCalls).hasValue(8);
+    }
+
+    @Test
+    void resolve_shouldReturnResolvedConfigurationWithSameTtl() {
+        TaskwarriorResolvedConfiguration resolved = TaskwarriorResolvedConfiguration.resolve(config, Duration.ofHours(1));
+
+        assertThat(TaskwarriorResolvedConfiguration.resolve(resolved, Duration.ofHours(1))).isSameAs(resolved);
+        assertThat(TaskwarriorResolvedConfiguration.resolve(resolved, Duration.ofMinutes(1))).isNotSameAs(resolved);
+    }
+
+    @Test
+    void resolve_shouldThrowForInvalidConfiguration() {
+        config.serverHost.set(null);
+
+        assertThatThrownBy(() -> TaskwarriorResolvedConfiguration.resolve(config, Duration.ZERO))
+                .isInstanceOf(NullPointerException.class)
+                .hasMessage("'serverHost' must not be null.");
+    }
+
+    @Test
+    void getServerHost_shouldReResolveInBackgroundAfterTtl() throws Exception {
+        TaskwarriorResolvedConfiguration resolved = TaskwarriorResolvedConfiguration.resolve(config, Duration.ZERO);
+        InetAddress changed = InetAddress.getByAddress("taskd", new byte[] { 10, 0, 0, 1 });
+        config.serverHost.set(changed);
+
+        assertThat(awaitServerHost(resolved, changed)).isEqualTo(changed);
+    }
+
+    @Test
+    void getServerHost_shouldKeepLastAddressIfReResolvingFails() throws Exception {
+        TaskwarriorResolvedConfiguration resolved = TaskwarriorResolvedConfiguration.resolve(config, Duration.ZERO);
+        config.failure.set(new TaskwarriorConfigurationException("Cannot resolve host address '%s'.", "taskd"));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (config.serverHostCalls.get() < 3 && System.nanoTime() < deadline) {
+            assertThat(resolved.getServerHost()).isEqualTo(InetAddress.getLoopbackAddress());
+            Thread.sleep(1);
+        }
+        assertThat(config.serverHostCalls.get()).isGreaterThanOrEqualTo(3);
+    }
+
+    private static InetAddress awaitServerHost(TaskwarriorResolvedConfiguration resolved, InetAddress expected) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        InetAddress result = resolved.getServerHost();
+        while (!expected.equals(result) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+            result = resolved.getServerHost();
+        }
+        return result;
+    }
+
+    private static class CountingConfiguration implements TaskwarriorConfiguration {
+
+        private final AtomicInteger serverHostCalls = new AtomicInteger();
+        private final AtomicInteger otherCalls = new AtomicInteger();
+        private final AtomicReference<InetAddress> serverHost = new AtomicReference<>(InetAddress.getLoopbackAddress());
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+        @Override
+        public InetAddress getServerHost() {
+            serverHostCalls.incrementAndGet();
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            return serverHost.get();
+        }
+
+        @Override
+        public List<InetSocketAddress> getServerAddresses() {
+            otherCalls.incrementAndGet();
+            return singletonList(new InetSocketAddress(serverHost.get(), 53589));
+        }
+
+        @Override
+        public int getServerPort() {
+            otherCalls.incrementAndGet();
+            return 53589;
+        }
+
+        @Override
+        public File getCaCertFile() {
+            otherCalls.incrementAndGet();
+            return new File("ca.cert.pem");
+        }
+
+        @Override
+        public File getPrivateKeyCertFile() {
+            otherCalls.incrementAndGet();
+            return new File("private.cert.pem");
+        }
+
+        @Override
+        public File getPrivateKeyFile() {
+            otherCalls.incrementAndGet();
+            return new File("private.key.pem");
+        }
+
+        @Override
+        public UUID getAuthKey() {
+            otherCalls.incrementAndGet();
+            return UUID.nameUUIDFromBytes(new byte[0]);
+        }
+
+        @Override
+        public String getOrganization() {
+            otherCalls.incrementAndGet();
+            return "Public";
+        }
+
+        @Override
+        public String getUser() {
+            otherCalls.incrementAndGet();
+            return "user";
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Test
+    void scrape_shouldRenderCountersWithEscapedLabelValues() {
+        Counter counter = registry.counter("requests_total", "Requests\\sent\nso far.", "type", "code");
+        counter.inc("sync", "200");
+        counter.add(2, "sync", "200");
+        counter.inc("a\"b\\c\nd", "500");
+
+        assertThat(registry.scrape()).startsWith("# HELP requests_total Requests\\\\sent\\nso far.\n# TYPE requests_total counter\n")
+                .contains("requests_total{type=\"sync\",code=\"200\"} 3\n")
+                .contains("requests_total{type=\"a\\\"b\\\\c\\nd\",code=\"500\"} 1\n");
+        assertThat(counter.get("sync", "200")).isEqualTo(3);
+        assertThat(counter.get("sync", "404")).isZero();
+    }
+
+    @Test
+    void scrape_shouldRenderCumulativeHistogramBuckets() {
+        Histogram histogram = registry.histogram("size_bytes", "Sizes.", new double[] { 10, 100, 1000 }, "type");
+        histogram.observe(5, "sync");
+        histogram.observe(10, "sync");
+        histogram.observe(50, "sync");
+        histogram.observe(5000.5, "sync");
+
+        assertThat(registry.scrape()).isEqualTo("# HELP size_bytes Sizes.\n"
+                + "# TYPE size_bytes histogram\n"
+                + "size_bytes_bucket{type=\"sync\",le=\"10\"} 2\n"
+                + "size_bytes_bucket{type=\"sync\",le=\"100\"} 3\n"
+                + "size_bytes_bucket{type=\"sync\",le=\"1000\"} 3\n"
+                + "size_bytes_bucket{type=\"sync\",le=\"+Inf\"} 4\n"
+                + "size_bytes_sum{type=\"sync\"} 5065.5\n"
+                + "size_bytes_count{type=\"sync\"} 4\n");
+        assertThat(histogram.getCount("sync")).isEqualTo(4);
+        assertThat(histogram.getSum("sync")).isEqualTo(5065.5);
+    }
+
+    @Test
+    void scrape_shouldRenderGaugesAndCounterFunctionsInRegistrationOrder() {
+        registry.gauge("queue_depth", "Queue depth.", () -> 0.25);
+        registry.counterFunction("completed_total", "Completed.", () -> 42);
+
+        assertThat(registry.scrape()).isEqualTo("# HELP queue_depth Queue depth.\n"
+                + "# TYPE queue_depth gauge\n"
+                + "queue_depth 0.25\n"
+                + "# HELP completed_total Completed.\n"
+                + "# TYPE completed_total counter\n"
+                + "completed_total 42\n");
+    }
+
+    @Test
+    void register_shouldThrowForDuplicateOrInvalidNames() {
+        registry.counter("requests_total", "Requests.");
+
+        assertThatThrownBy(() -> registry.gauge("requests_total", "Requests.", () -> 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Metric 'requests_total' is already registered.");
+        assertThatThrownBy(() -> registry.counter("requests-total", "Requests."))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Metric name 'requests-total' must match");
+        assertThatThrownBy(() -> registry.histogram("size_bytes", "Sizes.", new double[] { 1 }, "le"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Label name 'le' of histogram 'size_bytes' is reserved for buckets.");
+        assertThatThrownBy(() -> registry.histogram("duration_seconds", "Durations.", new double[] { 1, 1 }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Upper bounds of histogram 'duration_seconds' must be strictly increasing but were [1.0, 1.0].");
+    }
+
+    @Test
+    void inc_shouldThrowForWrongNumberOfLabelValues() {
+        Counter counter = registry.counter("requests_total", "Requests.", "type");
+
+        assertThatThrownBy(() -> counter.inc("sync", "200"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Metric 'requests_total' requires 1 label values for [type] but got 2.");
+    }
+
+    @Test
+    void inc_shouldNotLoseConcurrentIncrements() throws Exception {
+        Counter counter = registry.counter("requests_total", "Requests.", "type");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String type = t % 2 == 0 ? "sync" : "statistics";
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100_000; i++) {
+                        counter.inc(type);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(counter.get("sync")).isEqualTo(400_000);
+        assertThat(counter.get("statistics")).isEqualTo(400_000);
+    }
+}
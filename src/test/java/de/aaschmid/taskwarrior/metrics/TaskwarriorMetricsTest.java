@@ -0,0 +1,140 @@
+package de.aaschmid.taskwarrior.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.aaschmid.taskwarrior.client.LocalTaskdServer;
+import de.aaschmid.taskwarrior.client.ResponseMemoryBudget;
+import de.aaschmid.taskwarrior.client.TaskwarriorClient;
+import de.aaschmid.taskwarrior.config.TaskwarriorConfiguration;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.MessageType;
+import de.aaschmid.taskwarrior.sync.TaskwarriorSyncScheduler;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.client.MemoryBudgetOptions.memoryBudgetOptionsBuilder;
+import static de.aaschmid.taskwarrior.client.TaskwarriorClientOptions.taskwarriorClientOptionsBuilder;
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.message.TaskwarriorRequestHeader.taskwarriorRequestHeaderBuilder;
+import static de.aaschmid.taskwarrior.sync.SyncSchedulerOptions.syncSchedulerOptionsBuilder;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskwarriorMetricsTest {
+
+    private final TaskwarriorMetrics metrics = new TaskwarriorMetrics();
+
+    @Test
+    void sendAndReceive_shouldCountRequestsResponseCodesHandshakesAndPayloadSizes() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(TaskwarriorMetricsTest::respond)) {
+            TaskwarriorConfiguration config = server.configuration("user");
+            TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().listener(metrics).build());
+
+            client.sendAndReceive(request(config, MessageType.SYNC, "ok"));
+            client.sendAndReceive(request(config, MessageType.SYNC, "bad"));
+            client.sendAndReceive(request(config, MessageType.STATISTICS, "ok"));
+
+            String scraped = metrics.getRegistry().scrape();
+            assertThat(scraped)
+                    .contains("taskwarrior_client_requests_total{type=\"sync\"} 2\n")
+                    .contains("taskwarrior_client_requests_total{type=\"statistics\"} 1\n")
+                    .contains("taskwarrior_client_responses_total{type=\"sync\",code=\"200\"} 1\n")
+                    .contains("taskwarrior_client_responses_total{type=\"sync\",code=\"430\"} 1\n")
+                    .contains("taskwarrior_client_handshakes_total{type=\"sync\"} 2\n")
+                    .contains("taskwarrior_client_request_duration_seconds_count{type=\"statistics\"} 1\n")
+                    .contains("taskwarrior_client_request_size_bytes_count{type=\"sync\"} 2\n")
+                    .contains("taskwarrior_client_response_size_bytes_bucket{type=\"sync\",le=\"+Inf\"} 2\n")
+                    .doesNotContain("taskwarrior_client_request_failures_total{");
+        }
+    }
+
+    @Test
+    void sendAndReceive_shouldCountFailedExchanges() {
+        TaskwarriorConfiguration config = LocalTaskdServer.replicatedConfiguration("user", 1);
+        TaskwarriorClient client = new TaskwarriorClient(config, taskwarriorClientOptionsBuilder().listener(metrics).build());
+
+        try {
+            client.sendAndReceive(request(config, MessageType.SYNC, "ok"));
+        } catch (RuntimeException e) {
+            // expected as nothing listens on port 1
+        }
+
+        assertThat(metrics.getRegistry().scrape())
+                .contains("taskwarrior_client_requests_total{type=\"sync\"} 1\n")
+                .contains("taskwarrior_client_request_failures_total{type=\"sync\"} 1\n")
+                .doesNotContain("taskwarrior_client_request_duration_seconds_count{");
+    }
+
+    @Test
+    void start_shouldServeMetricsInPrometheusTextFormatIncludingSyncScheduler() throws Exception {
+        try (TaskwarriorSyncScheduler scheduler = new TaskwarriorSyncScheduler(syncSchedulerOptionsBuilder()
+                .syncInterval(Duration.ofMinutes(1))
+                .build());
+             MetricsHttpServer server = MetricsHttpServer.start(
+                     metrics.monitor(scheduler).getRegistry(),
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            URL url = new URL("http", "localhost", server.getAddress().getPort(), MetricsHttpServer.PATH);
+
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertThat(connection.getResponseCode()).isEqualTo(200);
+            assertThat(connection.getContentType()).isEqualTo(MetricsRegistry.CONTENT_TYPE);
+            assertThat(read(connection.getInputStream()))
+                    .contains("# TYPE taskwarrior_client_requests_total counter\n")
+                    .contains("# TYPE taskwarrior_client_request_duration_seconds histogram\n")
+                    .contains("taskwarrior_sync_accounts 0\n")
+                    .contains("taskwarrior_sync_completed_total 0\n")
+                    .contains("# TYPE taskwarrior_sync_lag_seconds gauge\n");
+
+            HttpURLConnection post = (HttpURLConnection) url.openConnection();
+            post.setRequestMethod("POST");
+            assertThat(post.getResponseCode()).isEqualTo(405);
+        }
+    }
+
+    @Test
+    void monitor_shouldExposeResponseMemoryBudget() {
+        ResponseMemoryBudget budget = new ResponseMemoryBudget(memoryBudgetOptionsBuilder().maxBytes(1024).build());
+
+        assertThat(metrics.monitor(budget).getRegistry().scrape())
+                .contains("# TYPE taskwarrior_client_response_budget_bytes gauge\ntaskwarrior_client_response_budget_bytes 1024\n")
+                .contains("taskwarrior_client_response_budget_used_bytes 0\n")
+                .contains("taskwarrior_client_response_budget_waiting 0\n")
+                .contains("# TYPE taskwarrior_client_response_budget_rejections_total counter\n");
+    }
+
+    private static TaskwarriorMessage request(TaskwarriorConfiguration config, MessageType type, String payload) {
+        return taskwarriorMessage(
+                taskwarriorRequestHeaderBuilder().authentication(config).type(type).client("test").build().toMap(),
+                payload);
+    }
+
+    private static TaskwarriorMessage respond(TaskwarriorMessage request) {
+        if ("bad".equals(request.getPayload().orElse(""))) {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("code", "430");
+            headers.put("status", "Access denied");
+            return taskwarriorMessage(headers);
+        }
+        return taskwarriorMessage(singletonMap("code", "200"));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            result.write(buffer, 0, read);
+        }
+        in.close();
+        return new String(result.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
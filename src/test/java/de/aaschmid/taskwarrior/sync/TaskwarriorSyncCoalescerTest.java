@@ -0,0 +1,197 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorAuthentication.taskwarriorAuthentication;
+import static de.aaschmid.taskwarrior.sync.SyncCoalescingOptions.syncCoalescingOptionsBuilder;
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+class TaskwarriorSyncCoalescerTest {
+
+    private final UUID uuid1 = UUID.randomUUID();
+    private final UUID uuid2 = UUID.randomUUID();
+
+    private final List<TaskwarriorSyncBatch> flushed = new CopyOnWriteArrayList<>();
+
+    @Test
+    void options_shouldThrowIllegalArgumentExceptionIfMaxPendingTasksIsNotPositive() {
+        assertThatThrownBy(() -> syncCoalescingOptionsBuilder().maxPendingTasks(0).build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("'maxPendingTasks' must be positive but was 0.");
+    }
+
+    @Test
+    void modify_shouldThrowNullPointerExceptionIfUuidIsNull() {
+        try (TaskwarriorSyncCoalescer coalescer = coalescer(10, Duration.ofHours(1))) {
+            assertThatThrownBy(() -> coalescer.modify(null, "{}"))
+                    .isInstanceOf(NullPointerException.class)
+                    .hasMessage("'uuid' must not be null.");
+        }
+    }
+
+    @Test
+    void modify_shouldMergeModificationsOfSameTaskIntoNewestVersion() {
+        try (TaskwarriorSyncCoalescer coalescer = coalescer(10, Duration.ofHours(1))) {
+            coalescer.modify(uuid1, task(uuid1, "first"));
+            coalescer.modify(uuid2, task(uuid2, "other"));
+            coalescer.modify(uuid1, task(uuid1, "second"));
+            coalescer.modify(uuid1, task(uuid1, "third"));
+
+            Optional<TaskwarriorSyncBatch> actual = coalescer.drain();
+
+            assertThat(actual).hasValueSatisfying(batch -> {
+                assertThat(batch.getModifications()).containsExactly(entry(uuid1, task(uuid1, "third")), entry(uuid2, task(uuid2, "other")));
+                assertThat(batch.getAbsorbedWrites()).isEqualTo(2);
+            });
+            assertThat(coalescer.getWriteCount()).isEqualTo(4);
+            assertThat(coalescer.getAbsorbedWriteCount()).isEqualTo(2);
+            assertThat(coalescer.hasPendingModifications()).isFalse();
+        }
+    }
+
+    @Test
+    void modify_shouldFlushIfMaxPendingTasksIsReached() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TaskwarriorSyncCoalescer coalescer = new TaskwarriorSyncCoalescer(
+                syncCoalescingOptionsBuilder().maxPendingTasks(2).flushWindow(Duration.ofHours(1)).build(),
+                batch -> {
+                    flushed.add(batch);
+                    latch.countDown();
+                })) {
+            coalescer.modify(uuid1, task(uuid1, "first"));
+            coalescer.modify(uuid1, task(uuid1, "second"));
+            coalescer.modify(uuid2, task(uuid2, "other"));
+
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(flushed).hasSize(1);
+            assertThat(flushed.get(0).getModifications()).containsOnlyKeys(uuid1, uuid2);
+            assertThat(coalescer.getFlushedBatchCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void modify_shouldFlushAfterFlushWindowElapsed() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TaskwarriorSyncCoalescer coalescer = new TaskwarriorSyncCoalescer(
+                syncCoalescingOptionsBuilder().flushWindow(Duration.ofMillis(50)).build(),
+                batch -> {
+                    flushed.add(batch);
+                    latch.countDown();
+                })) {
+            coalescer.modify(uuid1, task(uuid1, "first"));
+
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(flushed).hasSize(1);
+            assertThat(coalescer.hasPendingModifications()).isFalse();
+        }
+    }
+
+    @Test
+    void requeue_shouldNotOverwriteNewerPendingModifications() {
+        try (TaskwarriorSyncCoalescer coalescer = coalescer(10, Duration.ofHours(1))) {
+            coalescer.modify(uuid1, task(uuid1, "first"));
+            coalescer.modify(uuid2, task(uuid2, "other"));
+            TaskwarriorSyncBatch failed = coalescer.drain().orElseThrow(IllegalStateException::new);
+            coalescer.modify(uuid1, task(uuid1, "second"));
+
+            coalescer.requeue(failed);
+
+            assertThat(coalescer.drain()).hasValueSatisfying(batch -> {
+                assertThat(batch.getModifications()).containsOnly(entry(uuid1, task(uuid1, "second")), entry(uuid2, task(uuid2, "other")));
+                assertThat(batch.getAbsorbedWrites()).isEqualTo(1);
+            });
+            assertThat(coalescer.getAbsorbedWriteCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void requeue_shouldFlushAfterFlushWindowElapsedWithoutFurtherModifications() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TaskwarriorSyncCoalescer coalescer = new TaskwarriorSyncCoalescer(
+                syncCoalescingOptionsBuilder().flushWindow(Duration.ofMillis(50)).build(),
+                batch -> {
+                    flushed.add(batch);
+                    latch.countDown();
+                })) {
+            coalescer.modify(uuid1, task(uuid1, "first"));
+            TaskwarriorSyncBatch failed = coalescer.drain().orElseThrow(IllegalStateException::new);
+
+            coalescer.requeue(failed);
+
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(flushed).hasSize(1);
+            assertThat(flushed.get(0).getModifications()).containsOnlyKeys(uuid1);
+            assertThat(coalescer.hasPendingModifications()).isFalse();
+        }
+    }
+
+    @Test
+    void requeue_shouldFlushIfMaxPendingTasksIsReached() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        try (TaskwarriorSyncCoalescer coalescer = new TaskwarriorSyncCoalescer(
+                syncCoalescingOptionsBuilder().maxPendingTasks(2).flushWindow(Duration.ofHours(1)).build(),
+                batch -> {
+                    flushed.add(batch);
+                    latch.countDown();
+                })) {
+            coalescer.modify(uuid1, task(uuid1, "first"));
+            TaskwarriorSyncBatch failed = coalescer.drain().orElseThrow(IllegalStateException::new);
+            coalescer.modify(uuid2, task(uuid2, "other"));
+
+            coalescer.requeue(failed);
+
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(flushed.get(0).getModifications()).containsOnlyKeys(uuid1, uuid2);
+        }
+    }
+
+    @Test
+    void close_shouldFlushPendingModifications() throws Exception {
+        TaskwarriorSyncCoalescer coalescer = coalescer(10, Duration.ofHours(1));
+        coalescer.modify(uuid1, task(uuid1, "first"));
+
+        coalescer.close();
+
+        assertThat(coalescer.getFlushedBatchCount()).isEqualTo(1);
+        assertThatThrownBy(() -> coalescer.modify(uuid2, task(uuid2, "other")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Coalescer is already closed.");
+    }
+
+    @Test
+    void toSyncMessage_shouldContainSyncKeyAndTasks() {
+        try (TaskwarriorSyncCoalescer coalescer = coalescer(10, Duration.ofHours(1))) {
+            coalescer.modify(uuid1, task(uuid1, "first"));
+            coalescer.modify(uuid2, task(uuid2, "other"));
+            TaskwarriorSyncBatch batch = coalescer.drain().orElseThrow(IllegalStateException::new);
+            String syncKey = UUID.randomUUID().toString();
+
+            TaskwarriorMessage actual = batch.toSyncMessage(taskwarriorAuthentication(UUID.randomUUID(), "org", "user"), Optional.of(syncKey));
+
+            assertThat(actual.getHeaders()).contains(entry("type", "sync"), entry("org", "org"), entry("user", "user"));
+            assertThat(actual.getPayload()).hasValue(String.join("\n", syncKey, task(uuid1, "first"), task(uuid2, "other")));
+        }
+    }
+
+    private TaskwarriorSyncCoalescer coalescer(int maxPendingTasks, Duration flushWindow) {
+        return new TaskwarriorSyncCoalescer(
+                syncCoalescingOptionsBuilder().maxPendingTasks(maxPendingTasks).flushWindow(flushWindow).build(),
+                flushed::add);
+    }
+
+    private static String task(UUID uuid, String description) {
+        return format("{\"description\":\"%s\",\"status\":\"pending\",\"uuid\":\"%s\"}", description, uuid);
+    }
+}
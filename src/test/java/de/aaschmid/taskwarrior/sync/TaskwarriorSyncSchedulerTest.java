@@ -0,0 +1,219 @@
+package de.aaschmid.taskwarrior.sync;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+import de.aaschmid.taskwarrior.client.LocalTaskdServer;
+import de.aaschmid.taskwarrior.client.TaskwarriorClient;
+import de.aaschmid.taskwarrior.message.TaskwarriorMessage;
+import de.aaschmid.taskwarrior.util.concurrent.BlockingThreads;
+import org.junit.jupiter.api.Test;
+
+import static de.aaschmid.taskwarrior.message.TaskwarriorMessage.taskwarriorMessage;
+import static de.aaschmid.taskwarrior.sync.SyncSchedulerOptions.syncSchedulerOptionsBuilder;
+import static java.lang.String.format;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TaskwarriorSyncSchedulerTest {
+
+    private final List<String> syncedUsers = new CopyOnWriteArrayList<>();
+
+    @Test
+    void soak_shouldSyncManyAccountsRegularlyWithBoundedConcurrency() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(this::syncResponse);
+             TaskwarriorSyncScheduler scheduler = new TaskwarriorSyncScheduler(syncSchedulerOptionsBuilder()
+                     .workerThreads(3)
+                     .syncInterval(Duration.ofMillis(200))
+                     .jitter(0.5)
+                     .build())) {
+            server.setLatency(Duration.ofMillis(5));
+
+            List<TaskwarriorSyncAccount> accounts = IntStream.range(0, 30)
+                    .mapToObj(i -> scheduler.register(server.configuration("user" + i), response -> {}))
+                    .collect(Collectors.toList());
+            for (int i = 0; i < 100; i++) {
+                UUID uuid = UUID.randomUUID();
+                accounts.get(i % accounts.size()).modify(uuid, format("{\"description\":\"task %d\",\"uuid\":\"%s\"}", i, uuid));
+            }
+
+            waitUntil(() -> accounts.stream().allMatch(a -> a.getSyncCount() >= 3), Duration.ofSeconds(30));
+
+            assertThat(server.getMaxConcurrentRequests()).isLessThanOrEqualTo(3);
+            assertThat(scheduler.getFailedSyncCount()).isZero();
+            assertThat(scheduler.getCompletedSyncCount()).isGreaterThanOrEqualTo(90);
+            assertThat(scheduler.getMaxLag()).isGreaterThanOrEqualTo(scheduler.getLastLag());
+            assertThat(accounts).allSatisfy(a -> {
+                assertThat(a.getSyncKey()).isPresent();
+                assertThat(a.hasPendingModifications()).isFalse();
+            });
+        }
+    }
+
+    /** Runs with {@code java21Test} which limits virtual threads to 4 carrier threads; skipped by {@code test} using Java 8 variants. */
+    @Test
+    void scalability_shouldRunTenThousandConcurrentSyncsOnFewPlatformThreads() throws Exception {
+        if (Boolean.getBoolean("taskwarrior.test.virtualThreads")) {
+            assertThat(BlockingThreads.isVirtual()).as("Java 21 variant of BlockingThreads on classpath").isTrue();
+        }
+        assumeTrue(BlockingThreads.isVirtual(), "requires Java 21 variant of BlockingThreads");
+        int count = 10_000;
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof UnixOperatingSystemMXBean) {
+            assertThat(((UnixOperatingSystemMXBean) os).getMaxFileDescriptorCount())
+                    .as("open file limit (ulimit -n) for a client and a server socket per sync")
+                    .isGreaterThan(2L * count + 1_000);
+        }
+        CountDownLatch allArrived = new CountDownLatch(count);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> {
+            allArrived.countDown();
+            await(allArrived, Duration.ofMinutes(5)); // every response waits for all requests such that all syncs run concurrently
+            return syncResponse(request);
+        }); TaskwarriorSyncScheduler scheduler = new TaskwarriorSyncScheduler(syncSchedulerOptionsBuilder()
+                .workerThreads(count)
+                .syncInterval(Duration.ofHours(1))
+                .build())) {
+            List<TaskwarriorSyncAccount> accounts = IntStream.range(0, count)
+                    .mapToObj(i -> scheduler.register(server.configuration("user" + i), response -> {}))
+                    .collect(Collectors.toList());
+
+            accounts.forEach(TaskwarriorSyncAccount::syncNow);
+            waitUntil(() -> scheduler.getCompletedSyncCount() + scheduler.getFailedSyncCount() >= count, Duration.ofMinutes(5));
+
+            assertThat(scheduler.getFailedSyncCount()).isZero();
+            assertThat(server.getMaxConcurrentRequests()).isEqualTo(count);
+            assertThat(accounts).allSatisfy(a -> assertThat(a.getSyncKey()).isPresent());
+            // a platform thread per sync would need twice as many with the stand-in server's ones, virtual threads are not counted
+            assertThat(threads.getPeakThreadCount()).isLessThan(count / 10);
+        }
+    }
+
+    @Test
+    void shouldSyncAccountsWithPendingModificationsFirst() throws Exception {
+        CountDownLatch firstSyncStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstSync = new CountDownLatch(1);
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> {
+            if (syncedUsers.isEmpty()) {
+                firstSyncStarted.countDown();
+                await(releaseFirstSync, Duration.ofSeconds(10));
+            }
+            return syncResponse(request);
+        }); TaskwarriorSyncScheduler scheduler = new TaskwarriorSyncScheduler(syncSchedulerOptionsBuilder()
+                .workerThreads(1)
+                .syncInterval(Duration.ofHours(1))
+                .build())) {
+            TaskwarriorSyncAccount blocking = scheduler.register(server.configuration("blocking"), response -> {});
+            TaskwarriorSyncAccount unmodified = scheduler.register(server.configuration("unmodified"), response -> {});
+            TaskwarriorSyncAccount modified = scheduler.register(server.configuration("modified"), response -> {});
+
+            blocking.syncNow();
+            assertThat(firstSyncStarted.await(10, TimeUnit.SECONDS)).isTrue();
+            unmodified.syncNow();
+            UUID uuid = UUID.randomUUID();
+            modified.modify(uuid, format("{\"uuid\":\"%s\"}", uuid));
+            modified.syncNow();
+            assertThat(scheduler.getQueueDepth()).isEqualTo(2);
+            releaseFirstSync.countDown();
+
+            waitUntil(() -> syncedUsers.size() >= 3, Duration.ofSeconds(10));
+            assertThat(syncedUsers).startsWith("blocking", "modified", "unmodified");
+        }
+    }
+
+    @Test
+    void shouldBackOffExponentiallyOnFailuresAndKeepModifications() throws Exception {
+        try (LocalTaskdServer server = LocalTaskdServer.start(request -> {
+            syncedUsers.add(request.getHeaders().get("user"));
+            Map<String, String> headers = new HashMap<>();
+            headers.put("code", "500");
+            headers.put("status", "Internal error");
+            return taskwarriorMessage(headers);
+        }); TaskwarriorSyncScheduler scheduler = new TaskwarriorSyncScheduler(syncSchedulerOptionsBuilder()
+                .syncInterval(Duration.ofHours(1))
+                .initialBackoff(Duration.ofMillis(20))
+                .maxBackoff(Duration.ofMillis(160))
+                .build())) {
+            TaskwarriorSyncAccount account = scheduler.register(server.configuration("failing"), response -> {});
+            UUID uuid = UUID.randomUUID();
+            account.modify(uuid, format("{\"uuid\":\"%s\"}", uuid));
+
+            account.syncNow();
+            waitUntil(() -> account.getConsecutiveFailures() >= 5, Duration.ofSeconds(10));
+
+            assertThat(account.getSyncCount()).isZero();
+            assertThat(account.hasPendingModifications()).isTrue();
+            assertThat(account.getLastFailure()).hasValueSatisfying(e -> assertThat(e)
+                    .isInstanceOf(TaskwarriorSyncException.class)
+                    .hasMessage("Sync of user 'failing' failed with code '500': Internal error"));
+            assertThat(scheduler.getFailedSyncCount()).isGreaterThanOrEqualTo(5);
+        }
+    }
+
+    @Test
+    void unregisterAndClose_shouldCloseClientsOfAccounts() throws Exception {
+        List<String> closedUsers = new CopyOnWriteArrayList<>();
+        try (LocalTaskdServer server = LocalTaskdServer.start(this::syncResponse)) {
+            TaskwarriorSyncScheduler scheduler = new TaskwarriorSyncScheduler(syncSchedulerOptionsBuilder()
+                    .syncInterval(Duration.ofHours(1))
+                    .build(), config -> new TaskwarriorClient(config) {
+                        @Override
+                        public void close() {
+                            closedUsers.add(config.getUser());
+                            super.close();
+                        }
+                    });
+            TaskwarriorSyncAccount unregistered = scheduler.register(server.configuration("unregistered"), response -> {});
+            TaskwarriorSyncAccount remaining = scheduler.register(server.configuration("remaining"), response -> {});
+            unregistered.syncNow();
+            remaining.syncNow();
+            waitUntil(() -> scheduler.getCompletedSyncCount() >= 2 && scheduler.getRunningSyncCount() == 0, Duration.ofSeconds(10));
+
+            scheduler.unregister(unregistered);
+            waitUntil(() -> closedUsers.size() >= 1, Duration.ofSeconds(10)); // closed by the worker if still finishing the sync
+            assertThat(closedUsers).containsExactly("unregistered");
+
+            scheduler.close();
+            waitUntil(() -> closedUsers.size() >= 2, Duration.ofSeconds(10));
+            assertThat(closedUsers).containsExactly("unregistered", "remaining");
+        }
+    }
+
+    private TaskwarriorMessage syncResponse(TaskwarriorMessage request) {
+        syncedUsers.add(request.getHeaders().get("user"));
+        Map<String, String> headers = new HashMap<>();
+        headers.put("code", "200");
+        headers.put("status", "Ok");
+        return taskwarriorMessage(headers, UUID.randomUUID().toString());
+    }
+
+    private static void await(CountDownLatch latch, Duration timeout) {
+        try {
+            latch.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition, Duration timeout) throws InterruptedException {
+        long end = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < end) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).as("condition met within %s", timeout).isTrue();
+    }
+}